@@ -173,6 +173,7 @@ CREATE INDEX IX_mh_job_date_completed ON mh_job (date_completed);
 CREATE INDEX IX_mh_job_dispatchable ON mh_job (dispatchable);
 CREATE INDEX IX_mh_job_operation ON mh_job (operation);
 CREATE INDEX IX_mh_job_statistics ON mh_job (processor_service, status, queue_time, run_time);
+CREATE INDEX IX_mh_job_archivable ON mh_job (status, date_completed);
 
 CREATE TABLE mh_job_argument (
   id BIGINT NOT NULL,
@@ -210,6 +211,31 @@ CREATE TABLE mh_job_mh_service_registration (
 
 CREATE INDEX IX_mh_job_mh_service_registration_servicesRegistration_id ON mh_job_mh_service_registration (servicesRegistration_id);
 
+CREATE TABLE mh_job_archive (
+  id BIGINT NOT NULL,
+  organization VARCHAR(128) NOT NULL,
+  job_type VARCHAR(255),
+  operation VARCHAR(128),
+  status INTEGER,
+  date_created DATETIME,
+  date_completed DATETIME,
+  job MEDIUMBLOB,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE INDEX IX_mh_job_archive_date_completed ON mh_job_archive (date_completed);
+
+CREATE TABLE mh_job_statistics_rollup (
+  id BIGINT NOT NULL,
+  service_registration BIGINT NOT NULL,
+  rollup_date DATE NOT NULL,
+  finished_jobs BIGINT NOT NULL,
+  queue_time BIGINT NOT NULL,
+  run_time BIGINT NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT UNQ_mh_job_statistics_rollup UNIQUE (service_registration, rollup_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
 CREATE TABLE mh_incident (
   id BIGINT NOT NULL,
   jobid BIGINT,
@@ -192,4 +192,35 @@ ADD INDEX IX_mh_assets_asset_checksum (checksum),
 ADD INDEX IX_mh_assets_asset_mediapackage_element_id (mediapackage_element_id);
 
 
+#######################################################################################
+# Job archive                                                                         #
+#######################################################################################
+
+CREATE INDEX IX_mh_job_archivable ON mh_job (status, date_completed);
+
+CREATE TABLE mh_job_archive (
+  id BIGINT NOT NULL,
+  organization VARCHAR(128) NOT NULL,
+  job_type VARCHAR(255),
+  operation VARCHAR(128),
+  status INTEGER,
+  date_created DATETIME,
+  date_completed DATETIME,
+  job MEDIUMBLOB,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
+CREATE INDEX IX_mh_job_archive_date_completed ON mh_job_archive (date_completed);
+
+CREATE TABLE mh_job_statistics_rollup (
+  id BIGINT NOT NULL,
+  service_registration BIGINT NOT NULL,
+  rollup_date DATE NOT NULL,
+  finished_jobs BIGINT NOT NULL,
+  queue_time BIGINT NOT NULL,
+  run_time BIGINT NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT UNQ_mh_job_statistics_rollup UNIQUE (service_registration, rollup_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8;
+
 SET FOREIGN_KEY_CHECKS = 1;
@@ -42,12 +42,12 @@ import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.serviceregistry.api.IncidentL10n;
 import org.opencastproject.serviceregistry.api.IncidentService;
 import org.opencastproject.serviceregistry.api.IncidentServiceException;
+import org.opencastproject.serviceregistry.api.JobQuery;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.util.DateTimeSupport;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.RestUtil;
-import org.opencastproject.util.SmartIterator;
 import org.opencastproject.util.SolrUtils;
 import org.opencastproject.util.data.Tuple;
 import org.opencastproject.util.doc.rest.RestParameter;
@@ -78,8 +78,6 @@ import org.slf4j.LoggerFactory;
 
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -112,10 +110,6 @@ public class JobEndpoint {
   public static final Response NOT_FOUND = Response.status(Response.Status.NOT_FOUND).build();
   public static final Response SERVER_ERROR = Response.serverError().build();
 
-  private enum JobSort {
-    CREATOR, OPERATION, PROCESSINGHOST, STATUS, STARTED, SUBMITTED, TYPE,
-  }
-
   private static final String NEGATE_PREFIX = "-";
 
   private WorkflowService workflowService;
@@ -159,57 +153,27 @@ public class JobEndpoint {
     query.setLimit(limit);
     query.setOffset(offset);
 
-    String fHostname = null;
+    JobQuery jobQuery = new JobQuery().withoutOperation(WorkflowService.JOB_TYPE, "START_WORKFLOW");
     if (query.getHostname().isSome())
-      fHostname = StringUtils.trimToNull(query.getHostname().get());
-    String fStatus = null;
-    if (query.getStatus().isSome())
-      fStatus = StringUtils.trimToNull(query.getStatus().get());
-    String fFreeText = null;
+      jobQuery.withProcessingHost(query.getHostname().get());
     if (query.getFreeText().isSome())
-      fFreeText = StringUtils.trimToNull(query.getFreeText().get());
-
-    List<Job> jobs = new ArrayList<>();
-    try {
-      for (Job job : serviceRegistry.getActiveJobs()) {
-        // filter workflow jobs
-        if (StringUtils.equals(WorkflowService.JOB_TYPE, job.getJobType())
-                && StringUtils.equals("START_WORKFLOW", job.getOperation()))
-          continue;
-
-        // filter by hostname
-        if (fHostname != null && !StringUtils.equalsIgnoreCase(job.getProcessingHost(), fHostname))
-          continue;
-
-        // filter by status
-        if (fStatus != null && !StringUtils.equalsIgnoreCase(job.getStatus().toString(), fStatus))
-          continue;
-
-        // fitler by user free text
-        if (fFreeText != null
-              && !StringUtils.equalsIgnoreCase(job.getProcessingHost(), fFreeText)
-              && !StringUtils.equalsIgnoreCase(job.getJobType(), fFreeText)
-              && !StringUtils.equalsIgnoreCase(job.getOperation(), fFreeText)
-              && !StringUtils.equalsIgnoreCase(job.getCreator(), fFreeText)
-              && !StringUtils.equalsIgnoreCase(job.getStatus().toString(), fFreeText)
-              && !StringUtils.equalsIgnoreCase(Long.toString(job.getId()), fFreeText)
-              && (job.getRootJobId() != null && !StringUtils.equalsIgnoreCase(Long.toString(job.getRootJobId()), fFreeText)))
-          continue;
-        jobs.add(job);
+      jobQuery.withText(query.getFreeText().get());
+    if (query.getStatus().isSome() && StringUtils.isNotBlank(query.getStatus().get())) {
+      try {
+        jobQuery.withStatus(Job.Status.valueOf(query.getStatus().get().trim().toUpperCase()));
+      } catch (IllegalArgumentException e) {
+        // no job can be in an unknown status
+        return RestUtils.okJsonList(new ArrayList<JValue>(), offset, limit, 0);
       }
-    } catch (ServiceRegistryException ex) {
-      logger.error("Failed to retrieve jobs list from service registry.", ex);
-      return RestUtil.R.serverError();
     }
 
-    JobSort sortKey = JobSort.SUBMITTED;
-    boolean ascending = true;
     if (StringUtils.isNotBlank(sort)) {
       try {
         SortCriterion sortCriterion = RestUtils.parseSortQueryParameter(sort).iterator().next();
-        sortKey = JobSort.valueOf(sortCriterion.getFieldName().toUpperCase());
-        ascending = SearchQuery.Order.Ascending == sortCriterion.getOrder()
+        JobQuery.Sort sortKey = JobQuery.Sort.valueOf(sortCriterion.getFieldName().toUpperCase());
+        boolean ascending = SearchQuery.Order.Ascending == sortCriterion.getOrder()
                 || SearchQuery.Order.None == sortCriterion.getOrder();
+        jobQuery.withSort(sortKey, ascending);
       } catch (WebApplicationException ex) {
         logger.warn("Failed to parse sort criterion \"{}\", invalid format.", new Object[] { sort });
       } catch (IllegalArgumentException ex) {
@@ -217,14 +181,18 @@ public class JobEndpoint {
       }
     }
 
-    JobComparator comparator = new JobComparator(sortKey, ascending);
-    Collections.sort(jobs, comparator);
-    List<JValue> json = getJobsAsJSON(new SmartIterator(
-            query.getLimit().getOrElse(0),
-            query.getOffset().getOrElse(0))
-            .applyLimitAndOffset(jobs));
+    List<Job> jobs;
+    long total;
+    try {
+      total = serviceRegistry.countActiveJobs(jobQuery);
+      jobs = serviceRegistry.getActiveJobs(jobQuery.withOffset(query.getOffset().getOrElse(0))
+              .withLimit(query.getLimit().getOrElse(0)));
+    } catch (ServiceRegistryException ex) {
+      logger.error("Failed to retrieve jobs list from service registry.", ex);
+      return RestUtil.R.serverError();
+    }
 
-    return RestUtils.okJsonList(json, offset, limit, jobs.size());
+    return RestUtils.okJsonList(getJobsAsJSON(jobs), offset, limit, total);
   }
 
   @GET
@@ -485,7 +453,8 @@ public class JobEndpoint {
         fields.add(f(key, v(wflOp.getConfiguration(key), Jsons.BLANK)));
       }
       operationsJSON.add(obj(f("status", v(wflOp.getState(), Jsons.BLANK)), f("title", v(wflOp.getTemplate(), Jsons.BLANK)),
-              f("description", v(wflOp.getDescription(), Jsons.BLANK)), f("id", v(wflOp.getId(), Jsons.BLANK)), f("configuration", obj(fields))));
+              f("description", v(wflOp.getDescription(), Jsons.BLANK)), f("id", v(wflOp.getId(), Jsons.BLANK)),
+              f("branch", v(wflOp.getBranch(), Jsons.BLANK)), f("configuration", obj(fields))));
     }
 
     return arr(operationsJSON);
@@ -517,6 +486,7 @@ public class JobEndpoint {
               f("exception_handler_workflow", v(wflOp.getExceptionHandlingWorkflow(), Jsons.BLANK)),
               f("fail_on_error", v(wflOp.isFailWorkflowOnException())),
               f("description", v(wflOp.getDescription(), Jsons.BLANK)),
+              f("branch", v(wflOp.getBranch(), Jsons.BLANK)),
               f("state", v(wflOp.getState(), Jsons.BLANK)),
               f("job", v(wflOp.getId(), Jsons.BLANK)),
               f("name", v(wflOp.getTemplate(), Jsons.BLANK)),
@@ -662,68 +632,4 @@ public class JobEndpoint {
       return true;
     }
   };
-
-  private class JobComparator implements Comparator<Job> {
-
-    private JobSort sortType;
-    private boolean ascending;
-
-    JobComparator(JobSort sortType, boolean ascending) {
-      this.sortType = sortType;
-      this.ascending = ascending;
-    }
-
-    @Override
-    public int compare(Job job1, Job job2) {
-      int result = 0;
-      Object value1 = null;
-      Object value2 = null;
-      switch (sortType) {
-        case CREATOR:
-          value1 = job1.getCreator();
-          value2 = job2.getCreator();
-          break;
-        case OPERATION:
-          value1 = job1.getOperation();
-          value2 = job2.getOperation();
-          break;
-        case PROCESSINGHOST:
-          value1 = job1.getProcessingHost();
-          value2 = job2.getProcessingHost();
-          break;
-        case STARTED:
-          value1 = job1.getDateStarted();
-          value2 = job2.getDateStarted();
-          break;
-        case STATUS:
-          value1 = job1.getStatus();
-          value2 = job2.getStatus();
-          break;
-        case SUBMITTED:
-          value1 = job1.getDateCreated();
-          value2 = job2.getDateCreated();
-          break;
-        case TYPE:
-          value1 = job1.getJobType();
-          value2 = job2.getJobType();
-          break;
-        default:
-      }
-
-      if (value1 == null) {
-        return value2 == null ? 0 : 1;
-      }
-      if (value2 == null) {
-        return -1;
-      }
-      try {
-        result = ((Comparable)value1).compareTo(value2);
-      } catch (ClassCastException ex) {
-        logger.debug("Can not compare \"{}\" with \"{}\": {}",
-                new Object[] { value1, value2, ex });
-      }
-
-      return ascending ? result : -1 * result;
-    }
-  }
 }
@@ -28,6 +28,7 @@ import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.job.api.JobImpl;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageBuilderImpl;
+import org.opencastproject.serviceregistry.api.JobQuery;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.util.DateTimeSupport;
 import org.opencastproject.workflow.api.WorkflowDefinition;
@@ -38,11 +39,13 @@ import org.opencastproject.workflow.api.WorkflowService;
 import org.opencastproject.workflow.api.WorkflowSetImpl;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Ignore;
 
 import java.net.URI;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -86,7 +89,7 @@ public class TestJobEndpoint extends JobEndpoint {
 
     workflowSet.setTotalCount(3);
 
-    List<Job> jobs = new ArrayList<Job>();
+    final List<Job> jobs = new ArrayList<Job>();
     jobs.add(createJob(1, Status.RUNNING, ComposerService.JOB_TYPE, "test",
             "2014-06-05T09:10:00Z", "2014-06-05T09:10:00Z", "testuser1", "host1"));
     jobs.add(createJob(2, Status.RUNNING, WorkflowService.JOB_TYPE, "START_WORKFLOW",
@@ -103,7 +106,24 @@ public class TestJobEndpoint extends JobEndpoint {
     EasyMock.expect(workflowService.getWorkflowInstances(EasyMock.anyObject(WorkflowQuery.class)))
             .andReturn(workflowSet).anyTimes();
     EasyMock.expect(workflowService.countWorkflowInstances()).andReturn(workflowSet.size()).anyTimes();
-    EasyMock.expect(serviceRegistry.getActiveJobs()).andReturn(jobs).anyTimes();
+    IAnswer<List<Job>> activeJobs = new IAnswer<List<Job>>() {
+      @Override
+      public List<Job> answer() throws Throwable {
+        JobQuery query = (JobQuery) EasyMock.getCurrentArguments()[0];
+        List<Job> result = findJobs(jobs, query);
+        int to = query.getLimit() > 0 ? Math.min(query.getOffset() + query.getLimit(), result.size()) : result.size();
+        return result.subList(Math.min(query.getOffset(), to), to);
+      }
+    };
+    IAnswer<Long> activeJobCount = new IAnswer<Long>() {
+      @Override
+      public Long answer() throws Throwable {
+        return (long) findJobs(jobs, (JobQuery) EasyMock.getCurrentArguments()[0]).size();
+      }
+    };
+    EasyMock.expect(serviceRegistry.getActiveJobs(EasyMock.anyObject(JobQuery.class))).andAnswer(activeJobs).anyTimes();
+    EasyMock.expect(serviceRegistry.countActiveJobs(EasyMock.anyObject(JobQuery.class))).andAnswer(activeJobCount)
+            .anyTimes();
 
     EasyMock.replay(workflowService);
     EasyMock.replay(serviceRegistry);
@@ -113,6 +133,16 @@ public class TestJobEndpoint extends JobEndpoint {
     this.activate(null);
   }
 
+  private static List<Job> findJobs(List<Job> jobs, JobQuery query) {
+    List<Job> result = new ArrayList<Job>();
+    for (Job job : jobs) {
+      if (query.matches(job))
+        result.add(job);
+    }
+    Collections.sort(result, query.getComparator());
+    return result;
+  }
+
   private Job createJob(int id, Status status, String jobType, String operation,
           String created, String started, String creator, String hostname) throws Exception {
     Date createdDate = new Date(DateTimeSupport.fromUTC(created));
@@ -45,6 +45,7 @@ public class TestServiceStatistics implements ServiceStatistics {
   public static final int FINISHED_JOBS = 33;
   public static final int RUNNING_JOBS = 11;
   public static final int QUEUED_JOBS = 5;
+  public static final int FAILED_JOBS = 2;
   public static final String HOST = "HOST 1";
   public static final String SERVICE_TYPE = "Service Type";
 
@@ -138,6 +139,11 @@ public class TestServiceStatistics implements ServiceStatistics {
     return FINISHED_JOBS;
   }
 
+  @Override
+  public int getFailedJobs() {
+    return FAILED_JOBS;
+  }
+
   @Override
   public int getRunningJobs() {
     return RUNNING_JOBS;
@@ -206,6 +206,11 @@ public class XacmlSecurityTest {
       return new File(uri);
     }
 
+    @Override
+    public String md5(File file) throws IOException {
+      throw new Error();
+    }
+
     @Override
     public URI getBaseUri() {
       throw new Error();
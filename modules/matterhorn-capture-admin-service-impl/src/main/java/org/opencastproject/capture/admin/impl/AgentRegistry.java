@@ -0,0 +1,200 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.capture.admin.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The in-memory registry of the capture agents of one organization.
+ * <p>
+ * The registry is loaded from the database once and kept up to date by the capture agent state service whenever it
+ * writes an agent to the database. Next to the agents themselves it maintains an index from scheduler roles to the
+ * agents which they may schedule, so listing the agents visible to a user does not need to look at every agent's roles.
+ * <p>
+ * Agents are copied when they enter or leave the registry, so callers are free to modify the instances they get.
+ */
+final class AgentRegistry {
+
+  /** The agents by name */
+  private final Map<String, AgentImpl> agents = new HashMap<String, AgentImpl>();
+
+  /** The names of the agents which may be scheduled by a role */
+  private final Map<String, Set<String>> agentsByRole = new HashMap<String, Set<String>>();
+
+  /** The names of the agents without scheduler roles, which are available to everyone */
+  private final Set<String> unrestrictedAgents = new HashSet<String>();
+
+  /**
+   * Creates a registry containing the given agents.
+   *
+   * @param agents
+   *          the agents of the organization
+   */
+  AgentRegistry(Collection<AgentImpl> agents) {
+    for (AgentImpl agent : agents) {
+      add(copy(agent));
+    }
+  }
+
+  /**
+   * Returns an agent.
+   *
+   * @param name
+   *          the agent name
+   * @return a copy of the agent or <code>null</code> if there is no such agent
+   */
+  synchronized AgentImpl get(String name) {
+    AgentImpl agent = agents.get(name);
+    return agent == null ? null : copy(agent);
+  }
+
+  /**
+   * Returns all agents.
+   *
+   * @return copies of the agents
+   */
+  synchronized List<AgentImpl> getAll() {
+    List<AgentImpl> result = new ArrayList<AgentImpl>(agents.size());
+    for (AgentImpl agent : agents.values()) {
+      result.add(copy(agent));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the agents which may be scheduled by at least one of the given roles, including the agents which have no
+   * scheduler roles at all.
+   *
+   * @param roles
+   *          the role names
+   * @return copies of the agents
+   */
+  synchronized List<AgentImpl> getSchedulableBy(Collection<String> roles) {
+    Set<String> names = new TreeSet<String>(unrestrictedAgents);
+    for (String role : roles) {
+      Set<String> agentNames = agentsByRole.get(role);
+      if (agentNames != null)
+        names.addAll(agentNames);
+    }
+    List<AgentImpl> result = new ArrayList<AgentImpl>(names.size());
+    for (String name : names) {
+      result.add(copy(agents.get(name)));
+    }
+    return result;
+  }
+
+  /**
+   * Adds an agent to the registry or replaces the registered agent of the same name.
+   *
+   * @param agent
+   *          the agent as it has been written to the database
+   */
+  synchronized void put(AgentImpl agent) {
+    remove(agent.getName());
+    add(copy(agent));
+  }
+
+  /**
+   * Removes an agent from the registry.
+   *
+   * @param name
+   *          the agent name
+   */
+  synchronized void remove(String name) {
+    AgentImpl agent = agents.remove(name);
+    if (agent == null)
+      return;
+    unrestrictedAgents.remove(name);
+    for (String role : agent.getSchedulerRoles()) {
+      Set<String> agentNames = agentsByRole.get(role);
+      if (agentNames == null)
+        continue;
+      agentNames.remove(name);
+      if (agentNames.isEmpty())
+        agentsByRole.remove(role);
+    }
+  }
+
+  /**
+   * Updates the last heard from timestamp of a registered agent.
+   *
+   * @param name
+   *          the agent name
+   * @param lastHeardFrom
+   *          the timestamp
+   */
+  synchronized void setLastHeardFrom(String name, Long lastHeardFrom) {
+    AgentImpl agent = agents.get(name);
+    if (agent != null)
+      agent.setLastHeardFrom(lastHeardFrom);
+  }
+
+  private void add(AgentImpl agent) {
+    agents.put(agent.getName(), agent);
+    if (agent.getSchedulerRoles().isEmpty()) {
+      unrestrictedAgents.add(agent.getName());
+      return;
+    }
+    for (String role : agent.getSchedulerRoles()) {
+      Set<String> agentNames = agentsByRole.get(role);
+      if (agentNames == null) {
+        agentNames = new HashSet<String>();
+        agentsByRole.put(role, agentNames);
+      }
+      agentNames.add(agent.getName());
+    }
+  }
+
+  /**
+   * Creates a detached copy of an agent.
+   *
+   * @param agent
+   *          the agent
+   * @return the copy
+   */
+  static AgentImpl copy(AgentImpl agent) {
+    AgentImpl copy = new AgentImpl();
+    copy.name = agent.getName();
+    copy.organization = agent.getOrganization();
+    copy.state = agent.getState();
+    copy.url = agent.getUrl();
+    copy.lastHeardFrom = agent.getLastHeardFrom();
+    if (agent.getSchedulerRoles() != null)
+      copy.schedulerRoles = new HashSet<String>(agent.getSchedulerRoles());
+    if (agent.getConfiguration() != null) {
+      Properties configuration = new Properties();
+      configuration.putAll(agent.getConfiguration());
+      copy.setConfiguration(configuration);
+    }
+    return copy;
+  }
+
+}
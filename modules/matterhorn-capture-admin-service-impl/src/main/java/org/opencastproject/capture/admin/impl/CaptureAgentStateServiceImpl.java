@@ -60,10 +60,10 @@ import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -73,6 +73,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import javax.persistence.EntityManager;
@@ -116,9 +118,21 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
   /** A cache of CA properties, which lightens the load on the SQL server */
   private LoadingCache<String, Object> agentCache = null;
 
+  /** The agent registries by organization identifier */
+  private final Map<String, AgentRegistry> registries = new ConcurrentHashMap<String, AgentRegistry>();
+
+  /** Periodically writes the last heard from timestamps of the agents to the database */
+  private ScheduledExecutorService flushExecutor = null;
+
   /** Configuration key for capture agent timeout in minutes before being marked offline */
   public static final String CAPTURE_AGENT_TIMEOUT_KEY = "org.opencastproject.capture.admin.timeout";
 
+  /** Configuration key for the interval in seconds in which the agents' last heard from timestamps are persisted */
+  public static final String CAPTURE_AGENT_FLUSH_INTERVAL_KEY = "org.opencastproject.capture.admin.flush.interval";
+
+  /** The default interval in seconds in which the agents' last heard from timestamps are persisted */
+  public static final int DEFAULT_FLUSH_INTERVAL = 60;
+
   /** A token to store in the miss cache */
   protected Object nullToken = new Object();
 
@@ -173,9 +187,47 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
 
     setupAgentCache(timeoutInMinutes, TimeUnit.MINUTES);
     logger.info("Capture agent status timeout is {} minutes", timeoutInMinutes);
+
+    // Set up the periodic flush of the agents' last heard from timestamps
+    int flushIntervalInSeconds = DEFAULT_FLUSH_INTERVAL;
+
+    Option<String> flushInterval = getOptContextProperty(cc, CAPTURE_AGENT_FLUSH_INTERVAL_KEY);
+
+    if (flushInterval.isSome()) {
+      try {
+        flushIntervalInSeconds = Integer.parseInt(flushInterval.get());
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for capture agent flush interval (seconds) ({}={})",
+                CAPTURE_AGENT_FLUSH_INTERVAL_KEY, flushInterval.get());
+      }
+    }
+
+    if (flushIntervalInSeconds > 0) {
+      flushExecutor = Executors.newSingleThreadScheduledExecutor();
+      flushExecutor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            flushLastHeardFrom();
+          } catch (Exception e) {
+            logger.warn("Unable to persist the capture agents' last heard from timestamps: {}",
+                    ExceptionUtils.getStackTrace(e));
+          }
+        }
+      }, flushIntervalInSeconds, flushIntervalInSeconds, TimeUnit.SECONDS);
+      logger.info("Capture agent last heard from timestamps are persisted every {} seconds", flushIntervalInSeconds);
+    } else {
+      logger.info("Capture agent last heard from timestamps are persisted on state changes only");
+    }
   }
 
   public void deactivate() {
+    if (flushExecutor != null) {
+      flushExecutor.shutdownNow();
+      flushExecutor = null;
+    }
+    flushLastHeardFrom();
+    registries.clear();
     agentCache.invalidateAll();
   }
 
@@ -211,13 +263,49 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
    * @return the agent
    */
   protected AgentImpl getAgent(String name, String org) throws NotFoundException {
+    AgentImpl agent = getRegistry(org).get(name);
+    if (agent == null)
+      throw new NotFoundException();
+    return agent;
+  }
+
+  /**
+   * Returns the agent registry of an organization, loading it from the database if this is the first time the
+   * organization's agents are accessed.
+   *
+   * @param org
+   *          the organization identifier
+   * @return the registry
+   */
+  protected AgentRegistry getRegistry(String org) {
+    AgentRegistry registry = registries.get(org);
+    if (registry != null)
+      return registry;
+    synchronized (registries) {
+      registry = registries.get(org);
+      if (registry == null) {
+        registry = new AgentRegistry(getAgentEntities(org));
+        registries.put(org, registry);
+      }
+      return registry;
+    }
+  }
+
+  /**
+   * Loads all agents of an organization from the database.
+   *
+   * @param org
+   *          the organization identifier
+   * @return the agents
+   */
+  @SuppressWarnings("unchecked")
+  private List<AgentImpl> getAgentEntities(String org) {
     EntityManager em = null;
     try {
       em = emf.createEntityManager();
-      AgentImpl agent = getAgentEntity(name, org, em);
-      if (agent == null)
-        throw new NotFoundException();
-      return agent;
+      Query q = em.createNamedQuery("Agent.byOrganization");
+      q.setParameter("org", org);
+      return q.getResultList();
     } finally {
       if (em != null)
         em.close();
@@ -408,50 +496,29 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
   @Override
   public Map<String, Agent> getKnownAgents() {
     agentCache.cleanUp();
-    EntityManager em = null;
     User user = securityService.getUser();
     Organization org = securityService.getOrganization();
-    String orgAdmin = org.getAdminRole();
-    Set<Role> roles = user.getRoles();
-    try {
-      em = emf.createEntityManager();
-      Query q = em.createNamedQuery("Agent.byOrganization");
-      q.setParameter("org", securityService.getOrganization().getId());
-
-      // Filter the results in memory if this user is not an administrator
-      List<AgentImpl> agents = q.getResultList();
-      if (!user.hasRole(SecurityConstants.GLOBAL_ADMIN_ROLE) && !user.hasRole(orgAdmin)) {
-        for (Iterator<AgentImpl> iter = agents.iterator(); iter.hasNext();) {
-          AgentImpl agent = iter.next();
-          Set<String> schedulerRoles = agent.getSchedulerRoles();
-          // If there are no roles associated with this capture agent, it is available to anyone who can pass the
-          // coarse-grained web layer security
-          if (schedulerRoles == null || schedulerRoles.isEmpty()) {
-            continue;
-          }
-          boolean hasSchedulerRole = false;
-          for (Role role : roles) {
-            if (schedulerRoles.contains(role.getName())) {
-              hasSchedulerRole = true;
-              break;
-            }
-          }
-          if (!hasSchedulerRole) {
-            iter.remove();
-          }
-        }
-      }
+    AgentRegistry registry = getRegistry(org.getId());
 
-      // Build the map that the API defines as agent name->agent
-      Map<String, Agent> map = new TreeMap<String, Agent>();
-      for (AgentImpl agent : agents) {
-        map.put(agent.getName(), updateCachedLastHeardFrom(agent, org.getId()));
+    // Only look up the agents that may be scheduled by this user if this user is not an administrator. Agents without
+    // scheduler roles are available to anyone who can pass the coarse-grained web layer security.
+    List<AgentImpl> agents;
+    if (user.hasRole(SecurityConstants.GLOBAL_ADMIN_ROLE) || user.hasRole(org.getAdminRole())) {
+      agents = registry.getAll();
+    } else {
+      List<String> roles = new ArrayList<String>();
+      for (Role role : user.getRoles()) {
+        roles.add(role.getName());
       }
-      return map;
-    } finally {
-      if (em != null)
-        em.close();
+      agents = registry.getSchedulableBy(roles);
     }
+
+    // Build the map that the API defines as agent name->agent
+    Map<String, Agent> map = new TreeMap<String, Agent>();
+    for (AgentImpl agent : agents) {
+      map.put(agent.getName(), updateCachedLastHeardFrom(agent, org.getId()));
+    }
+    return map;
   }
 
   /**
@@ -573,6 +640,7 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
         em.merge(existing);
       }
       tx.commit();
+      getRegistry(agent.getOrganization()).put(existing == null ? agent : existing);
       if (updateFromCache) {
         updateAgentInCache(agent.getName(), agent.getState(), agent.getOrganization(), agent.getConfiguration());
       }
@@ -604,6 +672,7 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
         throw new NotFoundException();
       em.remove(existing);
       tx.commit();
+      getRegistry(org).remove(agentName);
       agentCache.invalidate(agentName.concat(DELIMITER).concat(org));
     } catch (RollbackException e) {
       logger.warn("Unable to commit to DB in deleteAgent.");
@@ -613,6 +682,54 @@ public class CaptureAgentStateServiceImpl implements CaptureAgentStateService, M
     }
   }
 
+  /**
+   * Writes the last heard from timestamps which the agents reported since their last state change to the database.
+   * Heartbeats which do not change an agent's state are only kept in the agent cache, so this is what keeps the
+   * timestamps in the database reasonably current.
+   */
+  @SuppressWarnings("unchecked")
+  protected void flushLastHeardFrom() {
+    for (Entry<String, AgentRegistry> entry : registries.entrySet()) {
+      String org = entry.getKey();
+      Map<String, Long> updates = new HashMap<String, Long>();
+      for (AgentImpl agent : entry.getValue().getAll()) {
+        Object cachedAgent = agentCache.getIfPresent(agent.getName().concat(DELIMITER).concat(org));
+        if (cachedAgent == null || cachedAgent == nullToken)
+          continue;
+        Long lastHeardFrom = ((Tuple3<String, Properties, Long>) cachedAgent).getC();
+        if (lastHeardFrom != null && (agent.getLastHeardFrom() == null || lastHeardFrom > agent.getLastHeardFrom()))
+          updates.put(agent.getName(), lastHeardFrom);
+      }
+      if (updates.isEmpty())
+        continue;
+
+      EntityManager em = null;
+      EntityTransaction tx = null;
+      try {
+        em = emf.createEntityManager();
+        tx = em.getTransaction();
+        tx.begin();
+        for (Entry<String, Long> update : updates.entrySet()) {
+          AgentImpl existing = getAgentEntity(update.getKey(), org, em);
+          if (existing != null) {
+            existing.setLastHeardFrom(update.getValue());
+            em.merge(existing);
+          }
+        }
+        tx.commit();
+        for (Entry<String, Long> update : updates.entrySet()) {
+          entry.getValue().setLastHeardFrom(update.getKey(), update.getValue());
+        }
+        logger.debug("Persisted the last heard from timestamps of {} agents of organization {}", updates.size(), org);
+      } catch (RollbackException e) {
+        logger.warn("Unable to commit to DB in flushLastHeardFrom.");
+      } finally {
+        if (em != null)
+          em.close();
+      }
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
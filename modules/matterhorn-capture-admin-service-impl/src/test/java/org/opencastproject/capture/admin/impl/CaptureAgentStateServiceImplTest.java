@@ -58,6 +58,8 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
+import javax.persistence.EntityManager;
+
 public class CaptureAgentStateServiceImplTest {
   private CaptureAgentStateServiceImpl service = null;
   private Properties capabilities;
@@ -84,7 +86,7 @@ public class CaptureAgentStateServiceImplTest {
     EasyMock.expect(bundleContext.getProperty(configKey)).andReturn(configValue).anyTimes();
     EasyMock.replay(bundleContext);
     cc = EasyMock.createNiceMock(ComponentContext.class);
-    EasyMock.expect(cc.getBundleContext()).andReturn(bundleContext);
+    EasyMock.expect(cc.getBundleContext()).andReturn(bundleContext).anyTimes();
     EasyMock.replay(cc);
 
   }
@@ -505,6 +507,76 @@ public class CaptureAgentStateServiceImplTest {
     // appropriate scheduler role, should we throw UnauthorizedException?
   }
 
+  @Test
+  public void testAgentVisibilityByRole() throws Exception {
+    service.setAgentState("unrestricted", IDLE);
+    service.setAgentState("restricted", IDLE);
+    service.setAgentState("other", IDLE);
+
+    AgentImpl agent = (AgentImpl) service.getAgent("restricted");
+    agent.getSchedulerRoles().add("ROLE_STUDIO");
+    service.updateAgentInDatabase(agent);
+    agent = (AgentImpl) service.getAgent("other");
+    agent.getSchedulerRoles().add("ROLE_OTHER_STUDIO");
+    service.updateAgentInDatabase(agent);
+    Assert.assertEquals(3, service.getKnownAgents().size());
+
+    DefaultOrganization organization = new DefaultOrganization();
+    HashSet<JaxbRole> roleSet = new HashSet<JaxbRole>();
+    roleSet.add(new JaxbRole("ROLE_STUDIO", organization, ""));
+    User user = new JaxbUser("testuser", "test", organization, roleSet);
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getUser()).andReturn(user).anyTimes();
+    EasyMock.expect(securityService.getOrganization()).andReturn(new DefaultOrganization()).anyTimes();
+    EasyMock.replay(securityService);
+    service.setSecurityService(securityService);
+
+    // Only the unrestricted agent and the one we may schedule are visible
+    Map<String, Agent> agents = service.getKnownAgents();
+    Assert.assertEquals(2, agents.size());
+    Assert.assertTrue(agents.containsKey("unrestricted"));
+    Assert.assertTrue(agents.containsKey("restricted"));
+
+    // Removing the role from the agent makes it available to anyone
+    agent = (AgentImpl) service.getAgent("other");
+    agent.getSchedulerRoles().clear();
+    service.updateAgentInDatabase(agent);
+    Assert.assertEquals(3, service.getKnownAgents().size());
+  }
+
+  /** Reads the last heard from timestamp of an agent straight from the database */
+  private Long getPersistedLastHeardFrom(String name) {
+    EntityManager em = service.emf.createEntityManager();
+    try {
+      return service.getAgentEntity(name, DefaultOrganization.DEFAULT_ORGANIZATION_ID, em).getLastHeardFrom();
+    } finally {
+      em.close();
+    }
+  }
+
+  @Test
+  public void testLastHeardFromFlush() throws Exception {
+    String name = "agent1";
+    service.setAgentState(name, IDLE);
+    Thread.sleep(10);
+
+    // A heartbeat without a state change is only kept in memory until it is flushed
+    service.setAgentState(name, IDLE);
+    Long lastHeardFrom = service.getAgent(name).getLastHeardFrom();
+    Assert.assertTrue(getPersistedLastHeardFrom(name) < lastHeardFrom);
+
+    service.flushLastHeardFrom();
+    Assert.assertEquals(lastHeardFrom, getPersistedLastHeardFrom(name));
+
+    // Restart the service, which reloads the agents from the database
+    service.deactivate();
+    setupCC();
+    service.activate(cc);
+
+    Assert.assertEquals(lastHeardFrom, service.getAgent(name).getLastHeardFrom());
+    Assert.assertEquals(IDLE, service.getAgentState(name));
+  }
+
   @Test
   public void testManagedServiceFactory() throws Exception {
     // Make sure we can register a capture agent with specific scheduler roles
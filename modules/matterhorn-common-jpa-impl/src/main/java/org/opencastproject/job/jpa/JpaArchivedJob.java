@@ -0,0 +1,163 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.job.jpa;
+
+import org.opencastproject.job.api.JaxbJob;
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * A terminated job which has been moved out of the job table. Apart from a few columns which allow to identify the job,
+ * the complete job including payload and arguments is kept as compressed XML.
+ */
+@Entity(name = "ArchivedJob")
+@Access(AccessType.FIELD)
+@Table(name = "mh_job_archive", indexes = {
+        @Index(name = "IX_mh_job_archive_date_completed", columnList = "date_completed") })
+public class JpaArchivedJob {
+
+  @Id
+  @Column(name = "id")
+  private long id;
+
+  @Column(name = "organization", nullable = false, length = 128)
+  private String organization;
+
+  @Column(name = "job_type", length = 255)
+  private String jobType;
+
+  @Column(name = "operation", length = 128)
+  private String operation;
+
+  @Column(name = "status")
+  private int status;
+
+  @Column(name = "date_created")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date dateCreated;
+
+  @Column(name = "date_completed")
+  @Temporal(TemporalType.TIMESTAMP)
+  private Date dateCompleted;
+
+  @Lob
+  @Basic(fetch = FetchType.LAZY)
+  @Column(name = "job", length = 16777215)
+  private byte[] job;
+
+  /** Default constructor needed by JPA */
+  public JpaArchivedJob() {
+  }
+
+  /**
+   * Creates the archive record of a job.
+   *
+   * @param job
+   *          the job to archive
+   * @return the archive record
+   * @throws IOException
+   *           if the job cannot be serialized
+   */
+  public static JpaArchivedJob from(Job job) throws IOException {
+    JpaArchivedJob archived = new JpaArchivedJob();
+    archived.id = job.getId();
+    archived.organization = job.getOrganization();
+    archived.jobType = job.getJobType();
+    archived.operation = job.getOperation();
+    archived.status = job.getStatus().ordinal();
+    archived.dateCreated = job.getDateCreated();
+    archived.dateCompleted = job.getDateCompleted();
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (OutputStream out = new GZIPOutputStream(bytes)) {
+      out.write(JobParser.toXml(new JaxbJob(job)).getBytes(StandardCharsets.UTF_8));
+    }
+    archived.job = bytes.toByteArray();
+    return archived;
+  }
+
+  /**
+   * Restores the archived job.
+   *
+   * @return the job as it was when it has been archived
+   * @throws IOException
+   *           if the job cannot be deserialized
+   */
+  public Job toJob() throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(job))) {
+      return JobParser.parseJob(in);
+    }
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getOrganization() {
+    return organization;
+  }
+
+  public String getJobType() {
+    return jobType;
+  }
+
+  public String getOperation() {
+    return operation;
+  }
+
+  public int getStatus() {
+    return status;
+  }
+
+  public Date getDateCreated() {
+    return dateCreated;
+  }
+
+  public Date getDateCompleted() {
+    return dateCompleted;
+  }
+
+}
@@ -51,6 +51,7 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.Lob;
 import javax.persistence.ManyToOne;
@@ -71,7 +72,8 @@ import javax.persistence.Version;
  */
 @Entity(name = "Job")
 @Access(AccessType.FIELD)
-@Table(name = "mh_job")
+@Table(name = "mh_job", indexes = {
+        @Index(name = "IX_mh_job_archivable", columnList = "status, date_completed") })
 @NamedQueries({
         @NamedQuery(name = "Job", query = "SELECT j FROM Job j "
                 + "where j.status = :status and j.creatorServiceRegistration.serviceType = :serviceType "
@@ -95,7 +97,21 @@ import javax.persistence.Version;
                 + "j.processorServiceRegistration.hostRegistration.baseUrl = :host order by j.dateCreated"),
         @NamedQuery(name = "Job.root.children", query = "SELECT j FROM Job j WHERE j.rootJob.id = :id ORDER BY j.dateCreated"),
         @NamedQuery(name = "Job.children", query = "SELECT j FROM Job j WHERE j.parentJob.id = :id ORDER BY j.dateCreated"),
+        @NamedQuery(name = "Job.ids", query = "SELECT j FROM Job j WHERE j.id IN :ids"),
+        @NamedQuery(name = "Job.roots.children", query = "SELECT j FROM Job j WHERE j.rootJob.id IN :ids ORDER BY j.id"),
         @NamedQuery(name = "Job.withoutParent", query = "SELECT j FROM Job j WHERE j.parentJob IS NULL"),
+        @NamedQuery(name = "Job.processorLoads", query = "SELECT j.id, s.id, s.serviceType, h.baseUrl, j.jobLoad "
+                + "FROM Job j JOIN j.processorServiceRegistration s JOIN s.hostRegistration h "
+                + "WHERE j.status IN :statuses"),
+        @NamedQuery(name = "Job.processorLoads.fingerprint", query = "SELECT COUNT(j.id), SUM(j.id), SUM(s.id), "
+                + "SUM(j.jobLoad) FROM Job j JOIN j.processorServiceRegistration s WHERE j.status IN :statuses"),
+        @NamedQuery(name = "Job.parents.children", query = "SELECT j FROM Job j WHERE j.parentJob.id IN :ids"),
+        @NamedQuery(name = "Job.archivable", query = "SELECT j.id FROM Job j "
+                + "LEFT JOIN j.parentJob p LEFT JOIN p.creatorServiceRegistration ps "
+                + "WHERE j.id > :afterId AND j.status IN :statuses AND j.dateCompleted < :completedBefore "
+                + "AND j.creatorServiceRegistration.serviceType <> :excludedType "
+                + "AND (p IS NULL OR ps.serviceType = :excludedType) "
+                + "ORDER BY j.id"),
         @NamedQuery(name = "Job.avgOperation", query = "SELECT j.operation, AVG(j.runTime), AVG(j.queueTime) FROM Job j GROUP BY j.operation"),
 
         // Job count queries
@@ -402,6 +418,10 @@ public class JpaJob {
     return id;
   }
 
+  public ServiceRegistrationJpaImpl getCreatorServiceRegistration() {
+    return creatorServiceRegistration;
+  }
+
   public ServiceRegistrationJpaImpl getProcessorServiceRegistration() {
     return processorServiceRegistration;
   }
@@ -446,6 +466,18 @@ public class JpaJob {
     return dateCreated;
   }
 
+  public Date getDateCompleted() {
+    return dateCompleted;
+  }
+
+  public Long getQueueTime() {
+    return queueTime;
+  }
+
+  public Long getRunTime() {
+    return runTime;
+  }
+
   public String getCreator() {
     return creator;
   }
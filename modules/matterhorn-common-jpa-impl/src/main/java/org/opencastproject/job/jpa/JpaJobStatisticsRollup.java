@@ -0,0 +1,134 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.job.jpa;
+
+import java.util.Date;
+
+import javax.persistence.Access;
+import javax.persistence.AccessType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import javax.persistence.UniqueConstraint;
+
+/**
+ * The aggregated statistics of the finished jobs of a service registration which were created on a given day and have
+ * been archived since. The service statistics combine these rollups with the jobs still present in the job table.
+ */
+@Entity(name = "JobStatisticsRollup")
+@Access(AccessType.FIELD)
+@Table(name = "mh_job_statistics_rollup", uniqueConstraints = @UniqueConstraint(columnNames = {
+        "service_registration", "rollup_date" }))
+@NamedQueries({
+        @NamedQuery(name = "JobStatisticsRollup.find", query = "SELECT r FROM JobStatisticsRollup r "
+                + "WHERE r.serviceRegistrationId = :serviceRegistration AND r.rollupDate = :rollupDate"),
+        @NamedQuery(name = "JobStatisticsRollup.statistics", query = "SELECT r.serviceRegistrationId, "
+                + "SUM(r.finishedJobs), SUM(r.queueTime), SUM(r.runTime) FROM JobStatisticsRollup r "
+                + "WHERE r.rollupDate >= :minDate AND r.rollupDate <= :maxDate GROUP BY r.serviceRegistrationId") })
+public class JpaJobStatisticsRollup {
+
+  @Id
+  @GeneratedValue
+  @Column(name = "id")
+  private long id;
+
+  @Column(name = "service_registration", nullable = false)
+  private long serviceRegistrationId;
+
+  @Column(name = "rollup_date", nullable = false)
+  @Temporal(TemporalType.DATE)
+  private Date rollupDate;
+
+  @Column(name = "finished_jobs", nullable = false)
+  private long finishedJobs = 0L;
+
+  @Column(name = "queue_time", nullable = false)
+  private long queueTime = 0L;
+
+  @Column(name = "run_time", nullable = false)
+  private long runTime = 0L;
+
+  /** Default constructor needed by JPA */
+  public JpaJobStatisticsRollup() {
+  }
+
+  /**
+   * Creates an empty rollup.
+   *
+   * @param serviceRegistrationId
+   *          the identifier of the service registration which processed the jobs
+   * @param rollupDate
+   *          the day the jobs were created
+   */
+  public JpaJobStatisticsRollup(long serviceRegistrationId, Date rollupDate) {
+    this.serviceRegistrationId = serviceRegistrationId;
+    this.rollupDate = rollupDate;
+  }
+
+  /**
+   * Adds a finished job to this rollup.
+   *
+   * @param jobQueueTime
+   *          the time the job spent in the queue, may be <code>null</code>
+   * @param jobRunTime
+   *          the time the job was running, may be <code>null</code>
+   */
+  public void add(Long jobQueueTime, Long jobRunTime) {
+    finishedJobs++;
+    if (jobQueueTime != null)
+      queueTime += jobQueueTime;
+    if (jobRunTime != null)
+      runTime += jobRunTime;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public long getServiceRegistrationId() {
+    return serviceRegistrationId;
+  }
+
+  public Date getRollupDate() {
+    return rollupDate;
+  }
+
+  public long getFinishedJobs() {
+    return finishedJobs;
+  }
+
+  public long getQueueTime() {
+    return queueTime;
+  }
+
+  public long getRunTime() {
+    return runTime;
+  }
+
+}
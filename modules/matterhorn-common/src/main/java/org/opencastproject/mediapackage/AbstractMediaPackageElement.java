@@ -179,6 +179,7 @@ public abstract class AbstractMediaPackageElement implements MediaPackageElement
   @Override
   public void setIdentifier(String id) {
     this.id = id;
+    fireChanged();
   }
 
   /**
@@ -196,7 +197,8 @@ public abstract class AbstractMediaPackageElement implements MediaPackageElement
   public void addTag(String tag) {
     if (tag == null)
       throw new IllegalArgumentException("Tag must not be null");
-    tags.add(tag);
+    if (tags.add(tag))
+      fireChanged();
   }
 
   /**
@@ -206,7 +208,8 @@ public abstract class AbstractMediaPackageElement implements MediaPackageElement
   public void removeTag(String tag) {
     if (tag == null)
       return;
-    tags.remove(tag);
+    if (tags.remove(tag))
+      fireChanged();
   }
 
   /**
@@ -246,8 +249,10 @@ public abstract class AbstractMediaPackageElement implements MediaPackageElement
    */
   @Override
   public void clearTags() {
-    if (tags != null)
+    if (tags != null && !tags.isEmpty()) {
       tags.clear();
+      fireChanged();
+    }
   }
 
   /**
@@ -352,6 +357,7 @@ public abstract class AbstractMediaPackageElement implements MediaPackageElement
   @Override
   public void setFlavor(MediaPackageElementFlavor flavor) {
     this.flavor = flavor;
+    fireChanged();
   }
 
   /**
@@ -387,9 +393,20 @@ public abstract class AbstractMediaPackageElement implements MediaPackageElement
    *          the parent media package
    */
   void setMediaPackage(MediaPackage mediaPackage) {
+    if (this.mediaPackage != mediaPackage && this.mediaPackage instanceof MediaPackageImpl)
+      ((MediaPackageImpl) this.mediaPackage).elementDetached(this);
     this.mediaPackage = mediaPackage;
   }
 
+  /**
+   * Tells the parent media package that the identifier, flavor or tags of this element changed, so that it can update
+   * its element index.
+   */
+  private void fireChanged() {
+    if (mediaPackage instanceof MediaPackageImpl)
+      ((MediaPackageImpl) mediaPackage).elementChanged(this);
+  }
+
   /**
    * @see org.opencastproject.mediapackage.MediaPackageElement#referTo(org.opencastproject.mediapackage.MediaPackage)
    */
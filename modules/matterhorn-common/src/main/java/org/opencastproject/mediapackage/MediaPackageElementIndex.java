@@ -0,0 +1,265 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.mediapackage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secondary indexes of the elements of a media package by identifier, flavor and tag.
+ * <p>
+ * Every lookup returns a copy of the matching elements in the order they were added to the media package. Elements
+ * keep their position when they are re-indexed after a change of identifier, flavor or tags. The index does not notice
+ * such changes by itself, they have to be reported using {@link #update(MediaPackageElement)}.
+ * <p>
+ * This class is not thread safe.
+ */
+final class MediaPackageElementIndex {
+
+  /** Index information of an element */
+  private static final class Entry {
+    private final long sequence;
+    private String id;
+    private MediaPackageElementFlavor flavor;
+    private String[] tags;
+
+    Entry(long sequence) {
+      this.sequence = sequence;
+    }
+  }
+
+  /** Orders elements by the time they were added */
+  private final Comparator<MediaPackageElement> order = new Comparator<MediaPackageElement>() {
+    @Override
+    public int compare(MediaPackageElement a, MediaPackageElement b) {
+      return Long.compare(entries.get(a).sequence, entries.get(b).sequence);
+    }
+  };
+
+  /** The index entries by element */
+  private final Map<MediaPackageElement, Entry> entries = new IdentityHashMap<MediaPackageElement, Entry>();
+
+  /** The elements by identifier */
+  private final Map<String, List<MediaPackageElement>> byId = new HashMap<String, List<MediaPackageElement>>();
+
+  /** The elements by flavor */
+  private final Map<MediaPackageElementFlavor, List<MediaPackageElement>> byFlavor =
+          new HashMap<MediaPackageElementFlavor, List<MediaPackageElement>>();
+
+  /** The elements by tag */
+  private final Map<String, List<MediaPackageElement>> byTag = new HashMap<String, List<MediaPackageElement>>();
+
+  /** The sequence number of the next element */
+  private long sequence = 0;
+
+  /**
+   * Adds an element to the end of the index.
+   *
+   * @param element
+   *          the element
+   */
+  void add(MediaPackageElement element) {
+    if (entries.containsKey(element))
+      return;
+    Entry entry = new Entry(sequence++);
+    entries.put(element, entry);
+    insert(element, entry);
+  }
+
+  /**
+   * Removes an element from the index.
+   *
+   * @param element
+   *          the element
+   * @return <code>true</code> if the element was part of the index
+   */
+  boolean remove(MediaPackageElement element) {
+    Entry entry = entries.remove(element);
+    if (entry == null)
+      return false;
+    delete(element, entry);
+    return true;
+  }
+
+  /**
+   * Returns whether this exact element instance is part of the index.
+   *
+   * @param element
+   *          the element
+   * @return <code>true</code> if the element is indexed
+   */
+  boolean contains(MediaPackageElement element) {
+    return entries.containsKey(element);
+  }
+
+  /**
+   * Re-indexes an element with its current identifier, flavor and tags.
+   *
+   * @param element
+   *          the element
+   */
+  void update(MediaPackageElement element) {
+    Entry entry = entries.get(element);
+    if (entry == null)
+      return;
+    delete(element, entry);
+    insert(element, entry);
+  }
+
+  /**
+   * Returns the elements with the given identifier.
+   *
+   * @param id
+   *          the identifier
+   * @return the elements
+   */
+  List<MediaPackageElement> getById(String id) {
+    return copy(byId.get(id));
+  }
+
+  /**
+   * Returns the elements tagged with the given tag.
+   *
+   * @param tag
+   *          the tag
+   * @return the elements
+   */
+  List<MediaPackageElement> getByTag(String tag) {
+    return copy(byTag.get(tag));
+  }
+
+  /**
+   * Returns the elements tagged with any of the given tags.
+   *
+   * @param tags
+   *          the tags
+   * @return the elements
+   */
+  List<MediaPackageElement> getByTags(Set<String> tags) {
+    List<List<MediaPackageElement>> buckets = new ArrayList<List<MediaPackageElement>>();
+    for (String tag : tags) {
+      List<MediaPackageElement> bucket = byTag.get(tag);
+      if (bucket != null)
+        buckets.add(bucket);
+    }
+    return merge(buckets);
+  }
+
+  /**
+   * Returns the elements whose flavor matches the given flavor, which may contain wildcards.
+   *
+   * @param flavor
+   *          the flavor
+   * @return the elements
+   * @see MediaPackageElementFlavor#matches(MediaPackageElementFlavor)
+   */
+  List<MediaPackageElement> getByFlavor(MediaPackageElementFlavor flavor) {
+    List<List<MediaPackageElement>> buckets = new ArrayList<List<MediaPackageElement>>();
+    for (Map.Entry<MediaPackageElementFlavor, List<MediaPackageElement>> bucket : byFlavor.entrySet()) {
+      MediaPackageElementFlavor key = bucket.getKey();
+      if (key != null && (flavor.matches(key) || key.matches(flavor)))
+        buckets.add(bucket.getValue());
+    }
+    return merge(buckets);
+  }
+
+  private void insert(MediaPackageElement element, Entry entry) {
+    entry.id = element.getIdentifier();
+    entry.flavor = element.getFlavor();
+    String[] tags = element.getTags();
+    entry.tags = tags != null ? tags : new String[0];
+    insert(byId, entry.id, element, entry);
+    insert(byFlavor, entry.flavor, element, entry);
+    for (String tag : entry.tags) {
+      insert(byTag, tag, element, entry);
+    }
+  }
+
+  private void delete(MediaPackageElement element, Entry entry) {
+    delete(byId, entry.id, element);
+    delete(byFlavor, entry.flavor, element);
+    for (String tag : entry.tags) {
+      delete(byTag, tag, element);
+    }
+  }
+
+  /** Adds an element to a bucket, keeping the bucket ordered. */
+  private <K> void insert(Map<K, List<MediaPackageElement>> index, K key, MediaPackageElement element, Entry entry) {
+    List<MediaPackageElement> bucket = index.get(key);
+    if (bucket == null) {
+      bucket = new ArrayList<MediaPackageElement>(1);
+      index.put(key, bucket);
+    }
+    int position = bucket.size();
+    while (position > 0 && entries.get(bucket.get(position - 1)).sequence > entry.sequence) {
+      position--;
+    }
+    bucket.add(position, element);
+  }
+
+  private static <K> void delete(Map<K, List<MediaPackageElement>> index, K key, MediaPackageElement element) {
+    List<MediaPackageElement> bucket = index.get(key);
+    if (bucket == null)
+      return;
+    for (int i = 0; i < bucket.size(); i++) {
+      if (bucket.get(i) == element) {
+        bucket.remove(i);
+        break;
+      }
+    }
+    if (bucket.isEmpty())
+      index.remove(key);
+  }
+
+  /** Merges ordered buckets into one ordered list without duplicates. */
+  private List<MediaPackageElement> merge(List<List<MediaPackageElement>> buckets) {
+    if (buckets.isEmpty())
+      return Collections.emptyList();
+    if (buckets.size() == 1)
+      return new ArrayList<MediaPackageElement>(buckets.get(0));
+    Map<MediaPackageElement, Boolean> seen = new IdentityHashMap<MediaPackageElement, Boolean>();
+    List<MediaPackageElement> result = new ArrayList<MediaPackageElement>();
+    for (Collection<MediaPackageElement> bucket : buckets) {
+      for (MediaPackageElement element : bucket) {
+        if (seen.put(element, Boolean.TRUE) == null)
+          result.add(element);
+      }
+    }
+    Collections.sort(result, order);
+    return result;
+  }
+
+  private static List<MediaPackageElement> copy(List<MediaPackageElement> bucket) {
+    if (bucket == null)
+      return Collections.emptyList();
+    return new ArrayList<MediaPackageElement>(bucket);
+  }
+
+}
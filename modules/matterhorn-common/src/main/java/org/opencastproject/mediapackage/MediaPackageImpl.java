@@ -48,6 +48,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -141,6 +142,12 @@ public final class MediaPackageImpl implements MediaPackage {
   /** The media package's other (uncategorized) files */
   private final List<MediaPackageElement> elements = new ArrayList<MediaPackageElement>();
 
+  /** Index of the elements by identifier, flavor and tag */
+  private final MediaPackageElementIndex index = new MediaPackageElementIndex();
+
+  /** Elements which do not report changes to this media package, the index is not used as long as there are any */
+  private final Map<MediaPackageElement, Boolean> untracked = new IdentityHashMap<MediaPackageElement, Boolean>();
+
   /** Number of tracks */
   private int tracks = 0;
 
@@ -298,7 +305,7 @@ public final class MediaPackageImpl implements MediaPackage {
    */
   @Override
   public MediaPackageElement getElementByReference(MediaPackageReference reference) {
-    for (MediaPackageElement e : this.elements) {
+    for (MediaPackageElement e : elementsById(reference.getIdentifier())) {
       if (!reference.getType().equalsIgnoreCase(e.getElementType().toString()))
         continue;
       if (reference.getIdentifier().equals(e.getIdentifier()))
@@ -312,7 +319,7 @@ public final class MediaPackageImpl implements MediaPackage {
    */
   @Override
   public MediaPackageElement getElementById(String id) {
-    for (MediaPackageElement element : getElements()) {
+    for (MediaPackageElement element : elementsById(id)) {
       if (id.equals(element.getIdentifier()))
         return element;
     }
@@ -325,7 +332,7 @@ public final class MediaPackageImpl implements MediaPackage {
   @Override
   public MediaPackageElement[] getElementsByTag(String tag) {
     List<MediaPackageElement> result = new ArrayList<MediaPackageElement>();
-    for (MediaPackageElement element : getElements()) {
+    for (MediaPackageElement element : elementsByTag(tag)) {
       if (element.containsTag(tag)) {
         result.add(element);
       }
@@ -354,7 +361,7 @@ public final class MediaPackageImpl implements MediaPackage {
       }
     }
     List<MediaPackageElement> result = new ArrayList<MediaPackageElement>();
-    for (MediaPackageElement element : getElements()) {
+    for (MediaPackageElement element : elementsByTags(keep)) {
       boolean add = false;
       for (String elementTag : element.getTags()) {
         if (lose.contains(elementTag)) {
@@ -433,7 +440,7 @@ public final class MediaPackageImpl implements MediaPackage {
       throw new IllegalArgumentException("Flavor cannot be null");
 
     List<MediaPackageElement> elements = new ArrayList<MediaPackageElement>();
-    for (MediaPackageElement element : getElements()) {
+    for (MediaPackageElement element : elementsByFlavor(flavor)) {
       if (flavor.matches(element.getFlavor()))
         elements.add(element);
     }
@@ -458,7 +465,7 @@ public final class MediaPackageImpl implements MediaPackage {
    * @return <code>true</code> if the media package contains an element with this identifier
    */
   boolean contains(String identifier) {
-    for (MediaPackageElement element : getElements()) {
+    for (MediaPackageElement element : elementsById(identifier)) {
       if (element.getIdentifier().equals(identifier))
         return true;
     }
@@ -501,7 +508,7 @@ public final class MediaPackageImpl implements MediaPackage {
   @Override
   public Catalog getCatalog(String catalogId) {
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : elementsById(catalogId)) {
         if (e.getIdentifier().equals(catalogId) && e instanceof Catalog)
           return (Catalog) e;
       }
@@ -545,7 +552,7 @@ public final class MediaPackageImpl implements MediaPackage {
   public Catalog[] getCatalogsByTag(String tag) {
     List<Catalog> result = new ArrayList<Catalog>();
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : elementsByTag(tag)) {
         if (e instanceof Catalog && e.containsTag(tag))
           result.add((Catalog) e);
       }
@@ -561,12 +568,11 @@ public final class MediaPackageImpl implements MediaPackage {
     if (flavor == null)
       throw new IllegalArgumentException("Unable to filter by null criterion");
 
-    // Go through catalogs and remove those that don't match
-    Collection<Catalog> catalogs = loadCatalogs();
-    List<Catalog> candidates = new ArrayList<Catalog>(catalogs);
-    for (Catalog c : catalogs) {
-      if (c.getFlavor() == null || !c.getFlavor().matches(flavor)) {
-        candidates.remove(c);
+    List<Catalog> candidates = new ArrayList<Catalog>();
+    synchronized (elements) {
+      for (MediaPackageElement e : elementsByFlavor(flavor)) {
+        if (e instanceof Catalog && e.getFlavor() != null && e.getFlavor().matches(flavor))
+          candidates.add((Catalog) e);
       }
     }
     return candidates.toArray(new Catalog[candidates.size()]);
@@ -630,12 +636,12 @@ public final class MediaPackageImpl implements MediaPackage {
     if (reference == null)
       throw new IllegalArgumentException("Unable to filter by null reference");
 
-    // Go through catalogs and remove those that don't match
-    Collection<Catalog> catalogs = loadCatalogs();
-    List<Catalog> candidates = new ArrayList<Catalog>(catalogs);
-    for (Catalog c : catalogs) {
-      if (!flavor.equals(c.getFlavor()) || (c.getReference() != null && !c.getReference().matches(reference))) {
-        candidates.remove(c);
+    List<Catalog> candidates = new ArrayList<Catalog>();
+    synchronized (elements) {
+      for (MediaPackageElement e : elementsByFlavor(flavor)) {
+        if (e instanceof Catalog && flavor.equals(e.getFlavor())
+                && (e.getReference() == null || e.getReference().matches(reference)))
+          candidates.add((Catalog) e);
       }
     }
     return candidates.toArray(new Catalog[candidates.size()]);
@@ -663,7 +669,7 @@ public final class MediaPackageImpl implements MediaPackage {
   @Override
   public Track getTrack(String trackId) {
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : elementsById(trackId)) {
         if (e.getIdentifier().equals(trackId) && e instanceof Track)
           return (Track) e;
       }
@@ -709,7 +715,7 @@ public final class MediaPackageImpl implements MediaPackage {
   public Track[] getTracksByTag(String tag) {
     List<Track> result = new ArrayList<Track>();
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : elementsByTag(tag)) {
         if (e instanceof Track && e.containsTag(tag))
           result.add((Track) e);
       }
@@ -727,12 +733,11 @@ public final class MediaPackageImpl implements MediaPackage {
     if (flavor == null)
       throw new IllegalArgumentException("Unable to filter by null criterion");
 
-    // Go through tracks and remove those that don't match
-    Collection<Track> tracks = loadTracks();
-    List<Track> candidates = new ArrayList<Track>(tracks);
-    for (Track a : tracks) {
-      if (a.getFlavor() == null || !a.getFlavor().matches(flavor)) {
-        candidates.remove(a);
+    List<Track> candidates = new ArrayList<Track>();
+    synchronized (elements) {
+      for (MediaPackageElement e : elementsByFlavor(flavor)) {
+        if (e instanceof Track && e.getFlavor() != null && e.getFlavor().matches(flavor))
+          candidates.add((Track) e);
       }
     }
     return candidates.toArray(new Track[candidates.size()]);
@@ -800,12 +805,11 @@ public final class MediaPackageImpl implements MediaPackage {
     if (reference == null)
       throw new IllegalArgumentException("Unable to filter by null reference");
 
-    // Go through tracks and remove those that don't match
-    Collection<Track> tracks = loadTracks();
-    List<Track> candidates = new ArrayList<Track>(tracks);
-    for (Track a : tracks) {
-      if (!flavor.equals(a.getFlavor()) || !reference.matches(a.getReference())) {
-        candidates.remove(a);
+    List<Track> candidates = new ArrayList<Track>();
+    synchronized (elements) {
+      for (MediaPackageElement e : elementsByFlavor(flavor)) {
+        if (e instanceof Track && flavor.equals(e.getFlavor()) && reference.matches(e.getReference()))
+          candidates.add((Track) e);
       }
     }
     return candidates.toArray(new Track[candidates.size()]);
@@ -846,7 +850,7 @@ public final class MediaPackageImpl implements MediaPackage {
   public MediaPackageElement[] getUnclassifiedElements(MediaPackageElementFlavor flavor) {
     List<MediaPackageElement> unclassifieds = new ArrayList<MediaPackageElement>();
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : flavor == null ? elements : elementsByFlavor(flavor)) {
         if (!(e instanceof Attachment) && !(e instanceof Catalog) && !(e instanceof Track)) {
           if (flavor == null || flavor.equals(e.getFlavor())) {
             unclassifieds.add(e);
@@ -908,7 +912,7 @@ public final class MediaPackageImpl implements MediaPackage {
   @Override
   public Attachment getAttachment(String attachmentId) {
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : elementsById(attachmentId)) {
         if (e.getIdentifier().equals(attachmentId) && e instanceof Attachment)
           return (Attachment) e;
       }
@@ -954,7 +958,7 @@ public final class MediaPackageImpl implements MediaPackage {
   public Attachment[] getAttachmentsByTag(String tag) {
     List<Attachment> result = new ArrayList<Attachment>();
     synchronized (elements) {
-      for (MediaPackageElement e : elements) {
+      for (MediaPackageElement e : elementsByTag(tag)) {
         if (e instanceof Attachment && e.containsTag(tag))
           result.add((Attachment) e);
       }
@@ -972,12 +976,11 @@ public final class MediaPackageImpl implements MediaPackage {
     if (flavor == null)
       throw new IllegalArgumentException("Unable to filter by null criterion");
 
-    // Go through attachments and remove those that don't match
-    Collection<Attachment> attachments = loadAttachments();
-    List<Attachment> candidates = new ArrayList<Attachment>(attachments);
-    for (Attachment a : attachments) {
-      if (a.getFlavor() == null || !a.getFlavor().matches(flavor)) {
-        candidates.remove(a);
+    List<Attachment> candidates = new ArrayList<Attachment>();
+    synchronized (elements) {
+      for (MediaPackageElement e : elementsByFlavor(flavor)) {
+        if (e instanceof Attachment && e.getFlavor() != null && e.getFlavor().matches(flavor))
+          candidates.add((Attachment) e);
       }
     }
     return candidates.toArray(new Attachment[candidates.size()]);
@@ -1044,12 +1047,11 @@ public final class MediaPackageImpl implements MediaPackage {
     if (reference == null)
       throw new IllegalArgumentException("Unable to filter by null reference");
 
-    // Go through attachments and remove those that don't match
-    Collection<Attachment> attachments = loadAttachments();
-    List<Attachment> candidates = new ArrayList<Attachment>(attachments);
-    for (Attachment a : attachments) {
-      if (!flavor.equals(a.getFlavor()) || !reference.matches(a.getReference())) {
-        candidates.remove(a);
+    List<Attachment> candidates = new ArrayList<Attachment>();
+    synchronized (elements) {
+      for (MediaPackageElement e : elementsByFlavor(flavor)) {
+        if (e instanceof Attachment && flavor.equals(e.getFlavor()) && reference.matches(e.getReference()))
+          candidates.add((Attachment) e);
       }
     }
     return candidates.toArray(new Attachment[candidates.size()]);
@@ -1267,6 +1269,7 @@ public final class MediaPackageImpl implements MediaPackage {
       throw new IllegalStateException("The sourceElement needs to be part of the media package");
 
     derivedElement.referTo(sourceElement);
+    integrate(derivedElement);
     addInternal(derivedElement);
 
     if (properties != null) {
@@ -1292,7 +1295,7 @@ public final class MediaPackageImpl implements MediaPackage {
 
     MediaPackageReference reference = new MediaPackageReferenceImpl(sourceElement);
     List<MediaPackageElement> elements = new ArrayList<MediaPackageElement>();
-    for (MediaPackageElement element : getElements()) {
+    for (MediaPackageElement element : elementsByFlavor(derivateFlavor)) {
       if (derivateFlavor.equals(element.getFlavor()) && reference.equals(element.getReference()))
         elements.add(element);
     }
@@ -1780,7 +1783,7 @@ public final class MediaPackageImpl implements MediaPackage {
   MediaPackageElement getElement(MediaPackageReference reference) {
     if (reference == null)
       return null;
-    for (MediaPackageElement e : elements) {
+    for (MediaPackageElement e : elementsById(reference.getIdentifier())) {
       if (e.getIdentifier().equals(reference.getIdentifier()))
         return e;
     }
@@ -1829,6 +1832,12 @@ public final class MediaPackageImpl implements MediaPackage {
       } else
         throw new UnsupportedElementException(element, "Found unkown element without id");
     }
+
+    synchronized (elements) {
+      index.add(element);
+      if (!(element instanceof AbstractMediaPackageElement) || element.getMediaPackage() != this)
+        untracked.put(element, Boolean.TRUE);
+    }
   }
 
   /**
@@ -1840,7 +1849,14 @@ public final class MediaPackageImpl implements MediaPackage {
   void removeInternal(MediaPackageElement element) {
     if (element == null)
       throw new IllegalArgumentException("Media package element must not be null");
-    if (elements.remove(element)) {
+    int position = elements.indexOf(element);
+    if (position >= 0) {
+      // the removed element may be a different, but equal instance
+      MediaPackageElement removed = elements.remove(position);
+      synchronized (elements) {
+        index.remove(removed);
+        untracked.remove(removed);
+      }
       if (element instanceof Track) {
         tracks--;
         if (tracks == 0)
@@ -1854,6 +1870,84 @@ public final class MediaPackageImpl implements MediaPackage {
     }
   }
 
+  /**
+   * Called by an element of this media package after its identifier, flavor or tags changed.
+   *
+   * @param element
+   *          the changed element
+   */
+  void elementChanged(MediaPackageElement element) {
+    synchronized (elements) {
+      index.update(element);
+    }
+  }
+
+  /**
+   * Called by an element which is being moved to another media package. If it is still part of this media package, it
+   * will no longer report its changes here.
+   *
+   * @param element
+   *          the element
+   */
+  void elementDetached(MediaPackageElement element) {
+    synchronized (elements) {
+      if (index.contains(element))
+        untracked.put(element, Boolean.TRUE);
+    }
+  }
+
+  /**
+   * Returns the elements which might have the given identifier.
+   *
+   * @param id
+   *          the identifier
+   * @return the candidates, in media package order
+   */
+  private List<MediaPackageElement> elementsById(String id) {
+    synchronized (elements) {
+      return untracked.isEmpty() ? index.getById(id) : Arrays.asList(getElements());
+    }
+  }
+
+  /**
+   * Returns the elements which might have a flavor matching the given one.
+   *
+   * @param flavor
+   *          the flavor
+   * @return the candidates, in media package order
+   */
+  private List<MediaPackageElement> elementsByFlavor(MediaPackageElementFlavor flavor) {
+    synchronized (elements) {
+      return untracked.isEmpty() ? index.getByFlavor(flavor) : Arrays.asList(getElements());
+    }
+  }
+
+  /**
+   * Returns the elements which might be tagged with the given tag.
+   *
+   * @param tag
+   *          the tag
+   * @return the candidates, in media package order
+   */
+  private List<MediaPackageElement> elementsByTag(String tag) {
+    synchronized (elements) {
+      return untracked.isEmpty() ? index.getByTag(tag) : Arrays.asList(getElements());
+    }
+  }
+
+  /**
+   * Returns the elements which might be tagged with any of the given tags.
+   *
+   * @param tags
+   *          the tags
+   * @return the candidates, in media package order
+   */
+  private List<MediaPackageElement> elementsByTags(Set<String> tags) {
+    synchronized (elements) {
+      return untracked.isEmpty() ? index.getByTags(tags) : Arrays.asList(getElements());
+    }
+  }
+
   /**
    * Extracts the list of tracks from the media package.
    *
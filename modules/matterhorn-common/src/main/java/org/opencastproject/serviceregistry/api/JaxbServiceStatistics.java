@@ -60,6 +60,10 @@ public class JaxbServiceStatistics implements ServiceStatistics {
   @XmlAttribute(name = "queued")
   protected int queuedJobs;
 
+  /** The number of failed jobs **/
+  @XmlAttribute(name = "failed")
+  protected int failedJobs;
+
   /**
    * No-arg constructor needed by JAXB
    */
@@ -208,6 +212,26 @@ public class JaxbServiceStatistics implements ServiceStatistics {
     this.runningJobs = runningJobs;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceStatistics#getFailedJobs()
+   */
+  @Override
+  public int getFailedJobs() {
+    return failedJobs;
+  }
+
+  /**
+   * Sets the number of failed jobs
+   *
+   * @param failedJobs
+   *          the number of failed jobs
+   */
+  public void setFailedJobs(int failedJobs) {
+    this.failedJobs = failedJobs;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -0,0 +1,283 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.util.data.Tuple;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Query for a page of active jobs, see {@link ServiceRegistry#getActiveJobs(JobQuery)}.
+ * <p>
+ * All filters are combined using AND. String filters are compared case-insensitively.
+ */
+public class JobQuery {
+
+  /** The fields a job query can be sorted by */
+  public enum Sort {
+    CREATOR, OPERATION, PROCESSINGHOST, STATUS, STARTED, SUBMITTED, TYPE
+  }
+
+  private String processingHost;
+  private Status status;
+  private String text;
+  private final List<Tuple<String, String>> excludedOperations = new ArrayList<>();
+  private Sort sort = Sort.SUBMITTED;
+  private boolean ascending = true;
+  private int offset = 0;
+  private int limit = 0;
+
+  /**
+   * Only include jobs running on the given host.
+   *
+   * @param processingHost
+   *          the base URL of the processing host
+   * @return the query
+   */
+  public JobQuery withProcessingHost(String processingHost) {
+    this.processingHost = StringUtils.trimToNull(processingHost);
+    return this;
+  }
+
+  /**
+   * Only include jobs in the given status.
+   *
+   * @param status
+   *          the status
+   * @return the query
+   */
+  public JobQuery withStatus(Status status) {
+    this.status = status;
+    return this;
+  }
+
+  /**
+   * Only include jobs of which the processing host, job type, operation, creator, status, identifier or root job
+   * identifier equals the given text.
+   *
+   * @param text
+   *          the text
+   * @return the query
+   */
+  public JobQuery withText(String text) {
+    this.text = StringUtils.trimToNull(text);
+    return this;
+  }
+
+  /**
+   * Exclude the jobs of the given type running the given operation.
+   *
+   * @param jobType
+   *          the job type
+   * @param operation
+   *          the operation
+   * @return the query
+   */
+  public JobQuery withoutOperation(String jobType, String operation) {
+    excludedOperations.add(Tuple.tuple(jobType, operation));
+    return this;
+  }
+
+  /**
+   * Sorts the result by the given field. Jobs are sorted by submission date by default.
+   *
+   * @param sort
+   *          the sort field
+   * @param ascending
+   *          whether to sort in ascending order
+   * @return the query
+   */
+  public JobQuery withSort(Sort sort, boolean ascending) {
+    this.sort = sort;
+    this.ascending = ascending;
+    return this;
+  }
+
+  /**
+   * Skips the first jobs of the result.
+   *
+   * @param offset
+   *          the number of jobs to skip
+   * @return the query
+   */
+  public JobQuery withOffset(int offset) {
+    this.offset = Math.max(0, offset);
+    return this;
+  }
+
+  /**
+   * Limits the number of jobs returned.
+   *
+   * @param limit
+   *          the maximum number of jobs, 0 for no limit
+   * @return the query
+   */
+  public JobQuery withLimit(int limit) {
+    this.limit = Math.max(0, limit);
+    return this;
+  }
+
+  public String getProcessingHost() {
+    return processingHost;
+  }
+
+  public Status getStatus() {
+    return status;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public List<Tuple<String, String>> getExcludedOperations() {
+    return Collections.unmodifiableList(excludedOperations);
+  }
+
+  public Sort getSort() {
+    return sort;
+  }
+
+  public boolean isAscending() {
+    return ascending;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the status the text filter refers to, if any.
+   *
+   * @return the status or <code>null</code>
+   */
+  public Status getTextAsStatus() {
+    if (text == null)
+      return null;
+    for (Status s : Status.values()) {
+      if (s.name().equalsIgnoreCase(text))
+        return s;
+    }
+    return null;
+  }
+
+  /**
+   * Returns the job identifier the text filter refers to, if any.
+   *
+   * @return the identifier or <code>null</code>
+   */
+  public Long getTextAsId() {
+    if (text == null)
+      return null;
+    try {
+      return Long.parseLong(text);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Tests whether a job matches the filters of this query. This is meant for implementations which keep their jobs in
+   * memory, persistent implementations should apply the filters in their queries.
+   *
+   * @param job
+   *          the job
+   * @return whether the job matches
+   */
+  public boolean matches(Job job) {
+    if (!job.getStatus().isActive())
+      return false;
+    for (Tuple<String, String> excluded : excludedOperations) {
+      if (StringUtils.equals(excluded.getA(), job.getJobType())
+              && StringUtils.equals(excluded.getB(), job.getOperation()))
+        return false;
+    }
+    if (processingHost != null && !StringUtils.equalsIgnoreCase(processingHost, job.getProcessingHost()))
+      return false;
+    if (status != null && status != job.getStatus())
+      return false;
+    if (text == null)
+      return true;
+    Long id = getTextAsId();
+    return StringUtils.equalsIgnoreCase(text, job.getProcessingHost())
+            || StringUtils.equalsIgnoreCase(text, job.getJobType())
+            || StringUtils.equalsIgnoreCase(text, job.getOperation())
+            || StringUtils.equalsIgnoreCase(text, job.getCreator())
+            || job.getStatus() == getTextAsStatus()
+            || (id != null && (id == job.getId() || id.equals(job.getRootJobId())));
+  }
+
+  /**
+   * Returns a comparator implementing the sort order of this query. Jobs without a value for the sort field come
+   * last.
+   *
+   * @return the comparator
+   */
+  public Comparator<Job> getComparator() {
+    return new Comparator<Job>() {
+      @Override
+      public int compare(Job job1, Job job2) {
+        Comparable<?> value1 = getSortValue(job1);
+        Comparable<?> value2 = getSortValue(job2);
+        if (value1 == null)
+          return value2 == null ? 0 : 1;
+        if (value2 == null)
+          return -1;
+        @SuppressWarnings("unchecked")
+        int result = ((Comparable<Object>) value1).compareTo(value2);
+        return ascending ? result : -result;
+      }
+    };
+  }
+
+  private Comparable<?> getSortValue(Job job) {
+    switch (sort) {
+      case CREATOR:
+        return job.getCreator();
+      case OPERATION:
+        return job.getOperation();
+      case PROCESSINGHOST:
+        return job.getProcessingHost();
+      case STARTED:
+        return job.getDateStarted();
+      case STATUS:
+        return job.getStatus();
+      case TYPE:
+        return job.getJobType();
+      case SUBMITTED:
+      default:
+        return job.getDateCreated();
+    }
+  }
+
+}
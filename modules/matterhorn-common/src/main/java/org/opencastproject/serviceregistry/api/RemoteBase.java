@@ -34,6 +34,9 @@ import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.joda.time.DateTimeConstants;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +45,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -66,6 +70,27 @@ public class RemoteBase {
   /** A list of known http statuses */
   private static final List<Integer> knownHttpStatuses = Arrays.asList(HttpStatus.SC_SERVICE_UNAVAILABLE);
 
+  /** Configuration key for the maximum age of the cached service registrations in milliseconds */
+  public static final String OPT_SERVICES_SNAPSHOT_MAX_AGE = "org.opencastproject.serviceregistry.snapshot.maxage";
+
+  /** The default maximum age of the cached service registrations in milliseconds */
+  public static final long DEFAULT_SERVICES_SNAPSHOT_MAX_AGE = 5000L;
+
+  /** The maximum age of the cached service registrations in milliseconds, or -1 if not yet configured */
+  private volatile long servicesSnapshotMaxAge = -1L;
+
+  /** The most recently fetched registrations of the remote services, or <code>null</code> if invalidated */
+  private volatile ServicesSnapshot servicesSnapshot = null;
+
+  /** Drops the cached service registrations whenever the registry reports a change of the services of this type */
+  private final ServiceRegistryListener servicesSnapshotInvalidator = new ServiceRegistryListener() {
+    @Override
+    public void serviceRegistrationsChanged(String changedServiceType) {
+      if (changedServiceType == null || serviceType.equals(changedServiceType))
+        invalidateServicesSnapshot();
+    }
+  };
+
   /**
    * Creates a remote implementation for the given type of service.
    *
@@ -93,7 +118,83 @@ public class RemoteBase {
    * @param remoteServiceManager
    */
   public void setRemoteServiceManager(ServiceRegistry remoteServiceManager) {
+    if (this.remoteServiceManager != null)
+      this.remoteServiceManager.removeServiceRegistryListener(servicesSnapshotInvalidator);
     this.remoteServiceManager = remoteServiceManager;
+    invalidateServicesSnapshot();
+    if (remoteServiceManager != null)
+      remoteServiceManager.addServiceRegistryListener(servicesSnapshotInvalidator);
+  }
+
+  /**
+   * Sets the maximum age of the cached service registrations. A value of <code>0</code> disables the cache, so that the
+   * service registry is asked for every request.
+   *
+   * @param maxAge
+   *          the maximum age in milliseconds
+   */
+  public void setServicesSnapshotMaxAge(long maxAge) {
+    if (maxAge < 0)
+      throw new IllegalArgumentException("The maximum age of the service registrations must not be negative");
+    this.servicesSnapshotMaxAge = maxAge;
+    invalidateServicesSnapshot();
+  }
+
+  /**
+   * Drops the cached service registrations, so that the next request asks the service registry again.
+   */
+  protected void invalidateServicesSnapshot() {
+    servicesSnapshot = null;
+  }
+
+  /**
+   * Returns the registrations of the remote services ordered by load. The registrations are cached for a configurable
+   * amount of time, since asking the service registry means a round trip to the registry node and an expensive load
+   * calculation there. The cache is dropped whenever the registry reports a change of services of this type.
+   *
+   * @param refresh
+   *          whether to bypass the cache and ask the service registry
+   * @return the service registrations, ordered by load
+   * @throws ServiceRegistryException
+   *           if the service registry cannot be asked
+   */
+  private List<ServiceRegistration> getServiceRegistrationsByLoad(boolean refresh) throws ServiceRegistryException {
+    long maxAge = getServicesSnapshotMaxAge();
+    ServicesSnapshot snapshot = servicesSnapshot;
+    if (!refresh && snapshot != null && System.currentTimeMillis() - snapshot.created < maxAge)
+      return snapshot.registrations;
+
+    List<ServiceRegistration> registrations = remoteServiceManager.getServiceRegistrationsByLoad(serviceType);
+    if (maxAge > 0 && registrations != null && !registrations.isEmpty()) {
+      servicesSnapshot = new ServicesSnapshot(registrations);
+    } else {
+      invalidateServicesSnapshot();
+    }
+    return registrations;
+  }
+
+  /**
+   * Returns the maximum age of the cached service registrations, reading it from the bundle context on first use.
+   */
+  private long getServicesSnapshotMaxAge() {
+    long maxAge = servicesSnapshotMaxAge;
+    if (maxAge >= 0)
+      return maxAge;
+
+    maxAge = DEFAULT_SERVICES_SNAPSHOT_MAX_AGE;
+    Bundle bundle = FrameworkUtil.getBundle(RemoteBase.class);
+    BundleContext bundleContext = bundle == null ? null : bundle.getBundleContext();
+    String value = bundleContext == null ? null : StringUtils.trimToNull(
+            bundleContext.getProperty(OPT_SERVICES_SNAPSHOT_MAX_AGE));
+    if (value != null) {
+      try {
+        maxAge = Math.max(0L, Long.parseLong(value));
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid value '{}' for {}, using {}ms", value, OPT_SERVICES_SNAPSHOT_MAX_AGE, maxAge);
+      }
+    }
+    servicesSnapshotMaxAge = maxAge;
+    return maxAge;
   }
 
   protected <A> Option<A> runRequest(HttpRequestBase req, Function<HttpResponse, A> f) {
@@ -146,9 +247,11 @@ public class RemoteBase {
 
       // Find available services
       boolean warned = false;
+      boolean refresh = warnedUnavailability;
       while (remoteServices == null || remoteServices.size() == 0) {
         try {
-          remoteServices = remoteServiceManager.getServiceRegistrationsByLoad(serviceType);
+          remoteServices = getServiceRegistrationsByLoad(refresh);
+          refresh = true;
           if (remoteServices == null || remoteServices.size() == 0) {
             if (!warned) {
               logger.warn("No services of type '{}' found, waiting...", serviceType);
@@ -198,6 +301,7 @@ public class RemoteBase {
             }
             return response;
           } else {
+            invalidateServicesSnapshot();
             if (!knownHttpStatuses.contains(status.getStatusCode()) && !servicesInWarningState.contains(fullUrl)) {
               logger.warn("Service at {} returned unexpected response code {}", fullUrl, status.getStatusCode());
               servicesInWarningState.add(fullUrl);
@@ -211,6 +315,7 @@ public class RemoteBase {
         } catch (Exception e) {
           logger.error("Exception while trying to dispatch job to {}: {}", fullUrl, e);
           servicesInWarningState.add(fullUrl);
+          invalidateServicesSnapshot();
         }
         closeConnection(response);
       }
@@ -255,6 +360,22 @@ public class RemoteBase {
       client.close(response);
   }
 
+  /**
+   * Registrations of the remote services, as fetched from the service registry at a certain point in time.
+   */
+  private static final class ServicesSnapshot {
+
+    /** The service registrations, ordered by load */
+    private final List<ServiceRegistration> registrations;
+
+    /** The time the registrations were fetched at */
+    private final long created = System.currentTimeMillis();
+
+    ServicesSnapshot(List<ServiceRegistration> registrations) {
+      this.registrations = Collections.unmodifiableList(new ArrayList<ServiceRegistration>(registrations));
+    }
+  }
+
   /**
    * A stream wrapper that closes the http response when the stream is closed. If a remote service proxy returns an
    * inputstream, this implementation should be used to ensure that the http connection is closed properly.
@@ -495,6 +495,29 @@ public interface ServiceRegistry {
    */
   List<Job> getActiveJobs() throws ServiceRegistryException;
 
+  /**
+   * Get a page of the active jobs matching the query. The jobs are summaries, they carry neither their payload nor
+   * their arguments.
+   *
+   * @param query
+   *          the filters, sort order and page to apply
+   * @return the matching active jobs
+   * @throws ServiceRegistryException
+   *           if there is a problem accessing the service registry
+   */
+  List<Job> getActiveJobs(JobQuery query) throws ServiceRegistryException;
+
+  /**
+   * Count the active jobs matching the filters of the query. Offset and limit of the query are ignored.
+   *
+   * @param query
+   *          the filters to apply
+   * @return the number of matching active jobs
+   * @throws ServiceRegistryException
+   *           if there is a problem accessing the service registry
+   */
+  long countActiveJobs(JobQuery query) throws ServiceRegistryException;
+
   /**
    * Get all child jobs from a job
    *
@@ -506,6 +529,18 @@ public interface ServiceRegistry {
    */
   List<Job> getChildJobs(long id) throws ServiceRegistryException;
 
+  /**
+   * Get the jobs with the given identifiers together with all of their descendants. Identifiers of jobs that do not
+   * exist are ignored.
+   *
+   * @param ids
+   *          the job identifiers
+   * @return the jobs and their descendants, each job is contained once
+   * @throws ServiceRegistryException
+   *           if there is a problem accessing the service registry
+   */
+  List<Job> getJobsWithDescendants(List<Long> ids) throws ServiceRegistryException;
+
   /**
    * Return a facility to record job incidents.
    *
@@ -673,4 +708,22 @@ public interface ServiceRegistry {
    */
   void sanitize(String serviceType, String host) throws NotFoundException;
 
+  /**
+   * Registers a listener which is notified whenever service or host registrations are changed through this registry.
+   * Listeners are only weakly referenced by the registry, so the caller has to keep a reference to the listener for as
+   * long as it wants to be notified.
+   *
+   * @param listener
+   *          the listener
+   */
+  void addServiceRegistryListener(ServiceRegistryListener listener);
+
+  /**
+   * Removes a listener which has been registered with {@link #addServiceRegistryListener(ServiceRegistryListener)}.
+   *
+   * @param listener
+   *          the listener
+   */
+  void removeServiceRegistryListener(ServiceRegistryListener listener);
+
 }
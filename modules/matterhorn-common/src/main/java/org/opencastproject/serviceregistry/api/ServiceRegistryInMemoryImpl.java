@@ -46,6 +46,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -105,6 +106,9 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
 
   protected Incidents incidents;
 
+  /** The listeners to notify of changed registrations */
+  protected ServiceRegistryListeners listeners = new ServiceRegistryListeners();
+
   /**
    * A static list of statuses that influence how load balancing is calculated
    */
@@ -155,6 +159,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
   public void enableHost(String host) throws ServiceRegistryException, NotFoundException {
     if (hosts.containsKey(host)) {
       hosts.get(host).setActive(true);
+      listeners.fire(null);
     } else {
       throw new NotFoundException("The host named " + host + " was not found");
     }
@@ -169,6 +174,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
   public void disableHost(String host) throws ServiceRegistryException, NotFoundException {
     if (hosts.containsKey(host)) {
       hosts.get(host).setActive(false);
+      listeners.fire(null);
     } else {
       throw new NotFoundException("The host named " + host + " was not found");
     }
@@ -184,6 +190,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
           throws ServiceRegistryException {
     HostRegistrationInMemory hrim = new HostRegistrationInMemory(address, address, maxLoad, cores, memory);
     hosts.put(host, hrim);
+    listeners.fire(null);
   }
 
   /**
@@ -195,6 +202,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
   public void unregisterHost(String host) throws ServiceRegistryException {
     hosts.remove(host);
     services.remove(host);
+    listeners.fire(null);
   }
 
   /**
@@ -231,6 +239,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     ServiceRegistrationInMemoryImpl registration = new ServiceRegistrationInMemoryImpl(localService, hrim.getBaseUrl());
     registration.setMaintenance(false);
     servicesOnHost.add(registration);
+    listeners.fire(registration.getServiceType());
     return registration;
   }
 
@@ -247,6 +256,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     if (servicesOnHost != null) {
       ServiceRegistrationInMemoryImpl s = (ServiceRegistrationInMemoryImpl) localService;
       servicesOnHost.remove(s);
+      listeners.fire(s.getServiceType());
     }
   }
 
@@ -286,6 +296,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     ServiceRegistrationInMemoryImpl registration = new ServiceRegistrationInMemoryImpl(serviceType, host, path,
             jobProducer);
     servicesOnHost.add(registration);
+    listeners.fire(serviceType);
     return registration;
   }
 
@@ -305,6 +316,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
           ri.remove();
       }
     }
+    listeners.fire(serviceType);
   }
 
   /**
@@ -324,6 +336,7 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
         r.setMaintenance(maintenance);
       }
     }
+    listeners.fire(null);
   }
 
   /**
@@ -676,6 +689,27 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#getJobsWithDescendants(java.util.List)
+   */
+  @Override
+  public List<Job> getJobsWithDescendants(List<Long> ids) throws ServiceRegistryException {
+    Map<Long, Job> result = new LinkedHashMap<Long, Job>();
+    for (long id : ids) {
+      try {
+        result.put(id, getJob(id));
+      } catch (NotFoundException e) {
+        continue;
+      }
+      for (Job child : getChildJobs(id)) {
+        result.put(child.getId(), child);
+      }
+    }
+    return new ArrayList<Job>(result.values());
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -723,6 +757,39 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#getActiveJobs(JobQuery)
+   */
+  @Override
+  public List<Job> getActiveJobs(JobQuery query) throws ServiceRegistryException {
+    List<Job> result = new ArrayList<Job>();
+    for (Job job : getActiveJobs()) {
+      if (query.matches(job))
+        result.add(job);
+    }
+    Collections.sort(result, query.getComparator());
+    int from = Math.min(query.getOffset(), result.size());
+    int to = query.getLimit() > 0 ? Math.min(from + query.getLimit(), result.size()) : result.size();
+    return new ArrayList<Job>(result.subList(from, to));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#countActiveJobs(JobQuery)
+   */
+  @Override
+  public long countActiveJobs(JobQuery query) throws ServiceRegistryException {
+    long count = 0;
+    for (Job job : getActiveJobs()) {
+      if (query.matches(job))
+        count++;
+    }
+    return count;
+  }
+
   @Override
   public Incidents incident() {
     return incidents;
@@ -1077,4 +1144,14 @@ public class ServiceRegistryInMemoryImpl implements ServiceRegistry {
     return LOCALHOST;
   }
 
+  @Override
+  public void addServiceRegistryListener(ServiceRegistryListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeServiceRegistryListener(ServiceRegistryListener listener) {
+    listeners.remove(listener);
+  }
+
 }
@@ -0,0 +1,39 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+/**
+ * Listener which is notified by a {@link ServiceRegistry} whenever service or host registrations change, e.g. because a
+ * service went online, a host was put into maintenance or a service changed its state.
+ */
+public interface ServiceRegistryListener {
+
+  /**
+   * Called after service registrations have changed.
+   *
+   * @param serviceType
+   *          the type of the changed service or <code>null</code> if services of any type may have changed
+   */
+  void serviceRegistrationsChanged(String serviceType);
+
+}
@@ -0,0 +1,87 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The listeners of a {@link ServiceRegistry} implementation. Listeners are only weakly referenced, so registering a
+ * listener does not keep its owner from being garbage collected.
+ */
+public final class ServiceRegistryListeners {
+
+  /** The logger */
+  private static final Logger logger = LoggerFactory.getLogger(ServiceRegistryListeners.class);
+
+  /** The registered listeners */
+  private final Set<ServiceRegistryListener> listeners = Collections
+          .newSetFromMap(new WeakHashMap<ServiceRegistryListener, Boolean>());
+
+  /**
+   * Adds a listener.
+   *
+   * @param listener
+   *          the listener
+   */
+  public synchronized void add(ServiceRegistryListener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Removes a listener.
+   *
+   * @param listener
+   *          the listener
+   */
+  public synchronized void remove(ServiceRegistryListener listener) {
+    listeners.remove(listener);
+  }
+
+  /**
+   * Notifies all listeners of changed service registrations.
+   *
+   * @param serviceType
+   *          the type of the changed service or <code>null</code> if services of any type may have changed
+   */
+  public void fire(String serviceType) {
+    List<ServiceRegistryListener> current;
+    synchronized (this) {
+      current = new ArrayList<ServiceRegistryListener>(listeners);
+    }
+    for (ServiceRegistryListener listener : current) {
+      try {
+        listener.serviceRegistrationsChanged(serviceType);
+      } catch (Exception e) {
+        logger.warn("Service registry listener {} failed: {}", listener, e.getMessage());
+      }
+    }
+  }
+
+}
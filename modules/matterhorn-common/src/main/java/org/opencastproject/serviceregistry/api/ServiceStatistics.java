@@ -42,4 +42,7 @@ public interface ServiceStatistics {
 
   /** The number of job that are currently waiting to be run by this service **/
   int getQueuedJobs();
+
+  /** The number of jobs that have failed on this service **/
+  int getFailedJobs();
 }
@@ -30,15 +30,29 @@ import com.entwinemedia.fn.data.ListBuilder;
 import com.entwinemedia.fn.data.ListBuilders;
 import com.entwinemedia.fn.fns.Booleans;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class to run an external process on the host system and to read its STDOUT and STDERR streams.
  */
 public final class ProcessRunner {
+  private static final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+
+  /** Time in milliseconds processes get to terminate before they are killed forcibly */
+  private static final long KILL_GRACE_PERIOD = 5000L;
+
   public static final Pred<String> IGNORE = Booleans.yes();
 
   public static final Pred<String> TO_CONSOLE = new Pred<String>() {
@@ -50,8 +64,43 @@ public final class ProcessRunner {
   private ProcessRunner() {
   }
 
+  /**
+   * Run a process and consume its output until it terminates.
+   * <p>
+   * STDOUT and STDERR are drained concurrently while the process is running. If the process does not terminate within
+   * the timeout of <code>info</code> or if the calling thread gets interrupted the process and all processes it has
+   * started are killed.
+   *
+   * @return the exit code of the process
+   * @throws ProcessTimeoutException
+   *         if the process has been killed because it exceeded its timeout
+   * @throws IOException
+   *         if the process cannot be started
+   */
   public static int run(ProcessInfo info, Fn<String, Boolean> stdout, Fn<String, Boolean> stderr) throws IOException {
-    final ProcessBuilder pb = new ProcessBuilder(info.getCommandLine()).redirectErrorStream(info.isRedirectErrorStream());
+    try {
+      return runInterruptibly(info, stdout, stderr);
+    } catch (InterruptedException e) {
+      return Prelude.<Integer>chuck(e);
+    }
+  }
+
+  /**
+   * Like {@link #run(ProcessInfo, Fn, Fn)} but reports an interruption of the calling thread with an
+   * {@link InterruptedException} instead of rethrowing it unchecked. The process has been killed when it is thrown.
+   *
+   * @return the exit code of the process
+   * @throws ProcessTimeoutException
+   *         if the process has been killed because it exceeded its timeout
+   * @throws IOException
+   *         if the process cannot be started
+   * @throws InterruptedException
+   *         if the calling thread has been interrupted while waiting for the process
+   */
+  public static int runInterruptibly(ProcessInfo info, Fn<String, Boolean> stdout, Fn<String, Boolean> stderr)
+          throws IOException, InterruptedException {
+    final ProcessBuilder pb = new ProcessBuilder(mkLimitedCommandLine(info))
+            .redirectErrorStream(info.isRedirectErrorStream());
     pb.environment().putAll(info.getEnvironment());
     // create stream consumer runnables
     final StreamConsumer consumeOut = new StreamConsumer(stdout);
@@ -69,18 +118,134 @@ public final class ProcessRunner {
     //    subprocess to block, and even deadlock."
     consumeOut.waitUntilRunning();
     consumeError.waitUntilRunning();
-    final Process p = pb.start();
+    final Process p;
+    try {
+      p = pb.start();
+    } catch (IOException e) {
+      consumeOutThread.interrupt();
+      consumeErrorThread.interrupt();
+      throw e;
+    }
     consumeOut.consume(p.getInputStream());
     consumeError.consume(p.getErrorStream());
-    // wait until the streams have been fully consumed
+    // wait for the process to exit, then until the streams have been fully consumed
+    try {
+      if (info.getTimeout() > 0) {
+        if (!p.waitFor(info.getTimeout(), TimeUnit.MILLISECONDS)) {
+          destroyTree(p);
+          consumeOut.stopConsuming();
+          consumeError.stopConsuming();
+          throw new ProcessTimeoutException(info.getCommandLine().get(0), info.getTimeout());
+        }
+      } else {
+        p.waitFor();
+      }
+    } catch (InterruptedException e) {
+      destroyTree(p);
+      consumeOut.stopConsuming();
+      consumeError.stopConsuming();
+      throw e;
+    }
     consumeOut.waitUntilFinished();
     consumeError.waitUntilFinished();
-    // wait and exit
+    return p.exitValue();
+  }
+
+  /**
+   * Kill a process and all of its descendants. The processes are asked to terminate first and killed forcibly if they
+   * are still alive after a grace period. Descendants can only be found on systems providing <code>pgrep</code>,
+   * otherwise only the process itself is killed.
+   */
+  public static void destroyTree(Process p) {
+    final List<String> descendants = new ArrayList<String>();
+    final Long pid = getPid(p);
+    if (pid != null)
+      collectDescendants(pid.toString(), descendants);
+    signal("TERM", descendants);
+    p.destroy();
     try {
-      return p.waitFor();
+      if (p.waitFor(KILL_GRACE_PERIOD, TimeUnit.MILLISECONDS))
+        return;
     } catch (InterruptedException e) {
-      return Prelude.<Integer>chuck(e);
+      Thread.currentThread().interrupt();
+    } finally {
+      signal("KILL", descendants);
     }
+    p.destroyForcibly();
+  }
+
+  /** Return the id of a process or null if it cannot be determined. */
+  private static Long getPid(Process p) {
+    try {
+      // Java 9 and newer
+      return (Long) p.getClass().getMethod("pid").invoke(p);
+    } catch (Exception ignore) {
+      // Fall back to the field of the Java 8 UNIXProcess
+    }
+    try {
+      final Field field = p.getClass().getDeclaredField("pid");
+      field.setAccessible(true);
+      return field.getLong(p);
+    } catch (Exception e) {
+      logger.debug("Unable to determine the id of process {}: {}", p, e.getMessage());
+      return null;
+    }
+  }
+
+  /** Collect the ids of all descendants of a process, parents first. */
+  private static void collectDescendants(String pid, List<String> descendants) {
+    for (String child : execute("pgrep", "-P", pid)) {
+      descendants.add(child);
+      collectDescendants(child, descendants);
+    }
+  }
+
+  private static void signal(String signal, List<String> pids) {
+    if (pids.isEmpty())
+      return;
+    final List<String> command = new ArrayList<String>();
+    command.add("kill");
+    command.add("-" + signal);
+    command.addAll(pids);
+    execute(command.toArray(new String[command.size()]));
+  }
+
+  /** Execute a short running helper command and return its non blank output lines. */
+  private static List<String> execute(String... command) {
+    final List<String> lines = new ArrayList<String>();
+    Process p = null;
+    try {
+      p = new ProcessBuilder(command).redirectErrorStream(true).start();
+      for (String line : IOUtils.readLines(p.getInputStream(), StandardCharsets.UTF_8)) {
+        if (StringUtils.isNotBlank(line))
+          lines.add(line.trim());
+      }
+      if (p.waitFor() != 0)
+        lines.clear();
+    } catch (IOException e) {
+      logger.debug("Unable to run {}: {}", command[0], e.getMessage());
+      lines.clear();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      lines.clear();
+    } finally {
+      IoSupport.closeQuietly(p);
+    }
+    return lines;
+  }
+
+  /** Wrap the command line of <code>info</code> in a shell setting its resource limits, if there are any. */
+  static List<String> mkLimitedCommandLine(ProcessInfo info) {
+    if (info.getCpuLimit() <= 0 && info.getMemoryLimit() <= 0)
+      return info.getCommandLine();
+    final StringBuilder limits = new StringBuilder();
+    if (info.getCpuLimit() > 0)
+      limits.append("ulimit -t ").append(info.getCpuLimit()).append(" && ");
+    if (info.getMemoryLimit() > 0)
+      limits.append("ulimit -v ").append(info.getMemoryLimit()).append(" && ");
+    // the shell replaces itself with the command, passing the command line on as positional parameters
+    limits.append("exec \"$0\" \"$@\"");
+    return $("/bin/sh", "-c", limits.toString()).append(info.getCommandLine()).toList();
   }
 
   private static final ListBuilder l = ListBuilders.looseImmutableArray;
@@ -126,17 +291,73 @@ public final class ProcessRunner {
     return $(command).append(mkCommandLine(options)).toList();
   }
 
+  /** Thrown if a process has been killed because it did not terminate in time. */
+  public static final class ProcessTimeoutException extends IOException {
+    private static final long serialVersionUID = -4467262622213581473L;
+
+    public ProcessTimeoutException(String command, long timeout) {
+      super(String.format("Process %s has been killed after running for %d ms", command, timeout));
+    }
+  }
+
   public static final class ProcessInfo {
     private final boolean redirectErrorStream;
     private final List<String> commandLine;
     private final Map<String, String> environment;
+    private final long timeout;
+    private final long cpuLimit;
+    private final long memoryLimit;
 
     public ProcessInfo(List<String> commandLine,
                        Map<String, String> environment,
                        boolean redirectErrorStream) {
+      this(commandLine, environment, redirectErrorStream, 0L, 0L, 0L);
+    }
+
+    private ProcessInfo(List<String> commandLine,
+                        Map<String, String> environment,
+                        boolean redirectErrorStream,
+                        long timeout,
+                        long cpuLimit,
+                        long memoryLimit) {
       this.redirectErrorStream = redirectErrorStream;
       this.commandLine = commandLine;
       this.environment = environment;
+      this.timeout = timeout;
+      this.cpuLimit = cpuLimit;
+      this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Return a copy with a wall clock timeout. The process is killed if it runs longer.
+     *
+     * @param timeout
+     *         the timeout in milliseconds, 0 means no timeout
+     */
+    public ProcessInfo withTimeout(long timeout) {
+      return new ProcessInfo(commandLine, environment, redirectErrorStream, timeout, cpuLimit, memoryLimit);
+    }
+
+    /**
+     * Return a copy with a limit of the CPU time, like <code>ulimit -t</code>. Limits are only supported on systems
+     * providing a POSIX shell at <code>/bin/sh</code>.
+     *
+     * @param cpuLimit
+     *         the CPU time in seconds, 0 means no limit
+     */
+    public ProcessInfo withCpuLimit(long cpuLimit) {
+      return new ProcessInfo(commandLine, environment, redirectErrorStream, timeout, cpuLimit, memoryLimit);
+    }
+
+    /**
+     * Return a copy with a limit of the virtual memory, like <code>ulimit -v</code>. Limits are only supported on
+     * systems providing a POSIX shell at <code>/bin/sh</code>.
+     *
+     * @param memoryLimit
+     *         the virtual memory in kilobytes, 0 means no limit
+     */
+    public ProcessInfo withMemoryLimit(long memoryLimit) {
+      return new ProcessInfo(commandLine, environment, redirectErrorStream, timeout, cpuLimit, memoryLimit);
     }
 
     public boolean isRedirectErrorStream() {
@@ -150,5 +371,17 @@ public final class ProcessRunner {
     public Map<String, String> getEnvironment() {
       return environment;
     }
+
+    public long getTimeout() {
+      return timeout;
+    }
+
+    public long getCpuLimit() {
+      return cpuLimit;
+    }
+
+    public long getMemoryLimit() {
+      return memoryLimit;
+    }
   }
 }
@@ -0,0 +1,108 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.mediapackage;
+
+import org.opencastproject.mediapackage.MediaPackageElement.Type;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+
+/**
+ * Measures the element lookups of media packages with a growing number of elements, like the ones created for
+ * lectures with many slides, segments and captions.
+ */
+@Ignore
+public class MediaPackageImplPerformanceTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MediaPackageImplPerformanceTest.class);
+
+  /** Media package sizes to measure */
+  private static final int[] SIZES = new int[] { 10, 1000, 10000 };
+
+  /** Number of lookups per measurement */
+  private static final int LOOKUPS = 10000;
+
+  private static final MediaPackageElementFlavor SEGMENT_PREVIEW = new MediaPackageElementFlavor("presentation",
+          "segment+preview");
+
+  @Test
+  public void testLookups() throws Exception {
+    for (int size : SIZES) {
+      MediaPackage mp = createMediaPackage(size);
+      // Warm up before measuring
+      lookup(mp, size, false);
+      lookup(mp, size, true);
+    }
+  }
+
+  private MediaPackage createMediaPackage(int size) throws Exception {
+    MediaPackage mp = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    mp.add(new URI("http://localhost/presenter.mp4"), Type.Track, MediaPackageElements.PRESENTER_SOURCE);
+    for (int i = 1; i < size; i++) {
+      MediaPackageElement slide = mp.add(new URI("http://localhost/slide-" + i + ".jpg"), Type.Attachment,
+              SEGMENT_PREVIEW);
+      slide.setIdentifier("slide-" + i);
+      if (i % 10 == 0)
+        slide.addTag("engage");
+    }
+    return mp;
+  }
+
+  private void lookup(MediaPackage mp, int size, boolean log) {
+    long start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      mp.getElementById("slide-" + (i % size));
+    }
+    log(log, "getElementById", size, start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      mp.getTracks(MediaPackageElements.PRESENTER_SOURCE);
+    }
+    log(log, "getTracks(flavor)", size, start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS; i++) {
+      mp.getElementsByTag("engage");
+    }
+    log(log, "getElementsByTag", size, start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < LOOKUPS / 10; i++) {
+      mp.getElementsByFlavor(SEGMENT_PREVIEW);
+    }
+    log(log, "getElementsByFlavor", size, start);
+  }
+
+  private void log(boolean log, String lookup, int size, long start) {
+    if (!log)
+      return;
+    double micros = (System.nanoTime() - start) / 1e3;
+    logger.info(String.format("%s with %d elements: %.2fus per lookup", lookup, size, micros / LOOKUPS));
+  }
+
+}
@@ -23,7 +23,9 @@
 package org.opencastproject.mediapackage;
 
 import static com.jayway.restassured.path.xml.XmlPath.from;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.opencastproject.mediapackage.MediaPackageElements.PRESENTATION_SOURCE;
@@ -45,6 +47,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -193,4 +196,44 @@ public class MediaPackageTest extends AbstractMediaPackageTest {
     // assertTrue("Expect presenter to be in set", elements.contains(presenter));
     // assertTrue("Expect presentation to be in set", elements.contains(presentation));
   }
+
+  @Test
+  public void testLookupsAfterElementChanges() throws Exception {
+    final MediaPackage mp = mediaPackageBuilder.createNew();
+    final MediaPackageElementFlavor slides = new MediaPackageElementFlavor("presentation", "segment+preview");
+    final MediaPackageElement first = mp.add(new URI("http://localhost/1.jpg"), Type.Attachment, slides);
+    final MediaPackageElement second = mp.add(new URI("http://localhost/2.jpg"), Type.Attachment, slides);
+    final MediaPackageElement track = mp.add(new URI("http://localhost/video.mp4"), Type.Track, PRESENTER_SOURCE);
+
+    // Lookups keep the media package order
+    assertArrayEquals(new MediaPackageElement[] { first, second },
+            mp.getElementsByFlavor(MediaPackageElementFlavor.parseFlavor("*/segment+preview")));
+
+    // Changes of elements which are part of the media package are reflected by the lookups
+    second.addTag("engage");
+    track.addTag("engage");
+    assertArrayEquals(new MediaPackageElement[] { second, track }, mp.getElementsByTag("engage"));
+    assertArrayEquals(new MediaPackageElement[] { second }, mp.getAttachmentsByTag("engage"));
+    second.removeTag("engage");
+    assertArrayEquals(new MediaPackageElement[] { track }, mp.getElementsByTags(Arrays.asList("engage", "-archive")));
+
+    track.setFlavor(PRESENTATION_SOURCE);
+    assertEquals(0, mp.getTracks(PRESENTER_SOURCE).length);
+    assertArrayEquals(new Track[] { (Track) track }, mp.getTracks(PRESENTATION_SOURCE));
+
+    first.setIdentifier("slide-1");
+    assertEquals(first, mp.getElementById("slide-1"));
+    assertEquals(first, mp.getAttachment("slide-1"));
+
+    mp.remove(first);
+    assertNull(mp.getElementById("slide-1"));
+    assertArrayEquals(new MediaPackageElement[] { second }, mp.getElementsByFlavor(slides));
+
+    // Elements which are moved to another media package are still found
+    final MediaPackage other = mediaPackageBuilder.createNew();
+    other.add(second);
+    second.addTag("moved");
+    assertArrayEquals(new MediaPackageElement[] { second }, mp.getElementsByTag("moved"));
+    assertArrayEquals(new MediaPackageElement[] { second }, other.getElementsByTag("moved"));
+  }
 }
@@ -0,0 +1,92 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.api;
+
+import static org.junit.Assert.assertNotNull;
+
+import org.opencastproject.security.api.TrustedHttpClient;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RemoteBaseTest {
+
+  private static final String SERVICE_TYPE = "org.opencastproject.test";
+
+  private RemoteBase remote;
+  private ServiceRegistry registry;
+  private Capture<ServiceRegistryListener> listener;
+
+  @Before
+  public void setUp() throws Exception {
+    List<ServiceRegistration> registrations = new ArrayList<ServiceRegistration>();
+    registrations.add(new ServiceRegistrationInMemoryImpl(SERVICE_TYPE, "http://localhost:8080", "/test", true));
+
+    listener = EasyMock.newCapture();
+    registry = EasyMock.createMock(ServiceRegistry.class);
+    registry.addServiceRegistryListener(EasyMock.capture(listener));
+    EasyMock.expectLastCall().once();
+    EasyMock.expect(registry.getServiceRegistrationsByLoad(SERVICE_TYPE)).andReturn(registrations).times(2);
+
+    StatusLine statusLine = EasyMock.createNiceMock(StatusLine.class);
+    EasyMock.expect(statusLine.getStatusCode()).andReturn(HttpStatus.SC_OK).anyTimes();
+    HttpResponse response = EasyMock.createNiceMock(HttpResponse.class);
+    EasyMock.expect(response.getStatusLine()).andReturn(statusLine).anyTimes();
+    TrustedHttpClient client = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class))).andReturn(response).anyTimes();
+    EasyMock.replay(registry, statusLine, response, client);
+
+    remote = new RemoteBase(SERVICE_TYPE);
+    remote.setTrustedHttpClient(client);
+    remote.setServicesSnapshotMaxAge(60000L);
+    remote.setRemoteServiceManager(registry);
+  }
+
+  @Test
+  public void testServiceRegistrationsAreCached() throws Exception {
+    assertNotNull(remote.getResponse(new HttpGet("/a")));
+    assertNotNull(remote.getResponse(new HttpGet("/b")));
+    assertNotNull(remote.getResponse(new HttpGet("/c")));
+
+    // A change of another service type must not invalidate the cache
+    listener.getValue().serviceRegistrationsChanged("org.opencastproject.other");
+    assertNotNull(remote.getResponse(new HttpGet("/d")));
+
+    // A change of this service type must
+    listener.getValue().serviceRegistrationsChanged(SERVICE_TYPE);
+    assertNotNull(remote.getResponse(new HttpGet("/e")));
+    assertNotNull(remote.getResponse(new HttpGet("/f")));
+    EasyMock.verify(registry);
+  }
+
+}
@@ -22,13 +22,18 @@
 package org.opencastproject.util;
 
 import com.entwinemedia.fn.Fns;
+import com.entwinemedia.fn.Pred;
 import com.entwinemedia.fn.fns.Booleans;
 import com.entwinemedia.fn.fns.Strings;
 
+import org.apache.commons.lang3.SystemUtils;
+import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class ProcessRunnerTest {
   @Test
@@ -38,4 +43,38 @@ public class ProcessRunnerTest {
             Fns.<String, Boolean> tee(Booleans.not.o(Strings.matches("^ls.*")), ProcessRunner.TO_CONSOLE.toFx()),
             ProcessRunner.IGNORE);
   }
+
+  @Test
+  public void testUnlimitedCommandLine() {
+    ProcessRunner.ProcessInfo info = ProcessRunner.mk("ffmpeg -i in.mp4 out.mp4").withTimeout(1000L);
+    Assert.assertEquals(Arrays.asList("ffmpeg", "-i", "in.mp4", "out.mp4"), ProcessRunner.mkLimitedCommandLine(info));
+  }
+
+  @Test
+  public void testLimitedCommandLine() {
+    ProcessRunner.ProcessInfo info = ProcessRunner.mk("ffmpeg -i in.mp4").withCpuLimit(60L).withMemoryLimit(1024L);
+    Assert.assertEquals(Arrays.asList("/bin/sh", "-c", "ulimit -t 60 && ulimit -v 1024 && exec \"$0\" \"$@\"",
+            "ffmpeg", "-i", "in.mp4"), ProcessRunner.mkLimitedCommandLine(info));
+  }
+
+  @Test
+  public void testLimitedProcess() throws IOException {
+    Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+    final StringBuilder out = new StringBuilder();
+    int exitCode = ProcessRunner.run(ProcessRunner.mk("echo limited").withCpuLimit(10L), new Pred<String>() {
+      @Override
+      public Boolean apply(String line) {
+        out.append(line);
+        return true;
+      }
+    }, ProcessRunner.IGNORE);
+    Assert.assertEquals(0, exitCode);
+    Assert.assertEquals("limited", out.toString());
+  }
+
+  @Test(expected = ProcessRunner.ProcessTimeoutException.class)
+  public void testTimeout() throws IOException {
+    Assume.assumeTrue(SystemUtils.IS_OS_UNIX);
+    ProcessRunner.run(ProcessRunner.mk("sleep 30").withTimeout(200L), ProcessRunner.IGNORE, ProcessRunner.IGNORE);
+  }
 }
@@ -21,6 +21,7 @@
 
 package org.opencastproject.composer.impl;
 
+import static java.util.Collections.sort;
 import static org.apache.commons.lang3.exception.ExceptionUtils.getStackTrace;
 import static org.opencastproject.fun.juc.Immutables.list;
 import static org.opencastproject.serviceregistry.api.Incidents.NO_DETAILS;
@@ -37,6 +38,8 @@ import org.opencastproject.composer.api.EncoderEngineFactory;
 import org.opencastproject.composer.api.EncoderException;
 import org.opencastproject.composer.api.EncodingProfile;
 import org.opencastproject.composer.api.LaidOutElement;
+import org.opencastproject.composer.api.PartialTrack;
+import org.opencastproject.composer.api.PartialTrack.Content;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.composer.layout.Layout;
 import org.opencastproject.composer.layout.Serializer;
@@ -94,8 +97,10 @@ import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -143,6 +148,7 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
   private static final int CAPTION_NO_LANGUAGE = 21;
   private static final int WATERMARK_NOT_FOUND = 22;
   private static final int NO_STREAMS = 23;
+  private static final int PARTIAL_IMPORT_FAILED = 24;
 
   /** The logging instance */
   private static final Logger logger = LoggerFactory.getLogger(ComposerServiceImpl.class);
@@ -153,6 +159,17 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
   /** Used to mark a track unavailable to composite. */
   private static final String NOT_AVAILABLE = "n/a";
 
+  /** Normalizes all audio segments, since the concat filter requires them to have the same format */
+  private static final String AUDIO_FORMAT = "aformat=sample_fmts=fltp:sample_rates=48000:channel_layouts=stereo";
+
+  /** Orders partials by their position on the timeline */
+  private static final Comparator<PartialTrack> PARTIALS_BY_START = new Comparator<PartialTrack>() {
+    @Override
+    public int compare(PartialTrack a, PartialTrack b) {
+      return Long.compare(a.getStart(), b.getStart());
+    }
+  };
+
   /** The load introduced on the system by creating a caption job */
   public static final float DEFAULT_CAPTION_JOB_LOAD = 1.0f;
 
@@ -164,7 +181,8 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
 
   /** List of available operations on jobs */
   private enum Operation {
-    Caption, Encode, Image, ImageConversion, Mux, Trim, Watermark, Composite, Concat, ImageToVideo, ParallelEncode
+    Caption, Encode, Image, ImageConversion, Mux, Trim, Watermark, Composite, Concat, ImageToVideo, ParallelEncode,
+    PartialImport
   }
 
   /** Encoding profile manager */
@@ -985,6 +1003,115 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     }
   }
 
+  @Override
+  public Job partialImport(String profileId, Dimension outputDimension, float outputFrameRate, long duration,
+          List<PartialTrack> partials) throws EncoderException, MediaPackageException {
+    ArrayList<String> arguments = new ArrayList<String>();
+    arguments.add(profileId);
+    arguments.add(outputDimension != null ? Serializer.json(outputDimension).toJson() : "");
+    arguments.add(String.format(Locale.US, "%f", outputFrameRate));
+    arguments.add(Long.toString(duration));
+    for (PartialTrack partial : partials) {
+      arguments.add(MediaPackageElementParser.getAsXml(partial.getTrack()));
+      arguments.add(partial.getPlacement());
+    }
+    try {
+      return serviceRegistry.createJob(JOB_TYPE, Operation.PartialImport.toString(), arguments);
+    } catch (ServiceRegistryException e) {
+      throw new EncoderException("Unable to create partial import job", e);
+    }
+  }
+
+  protected Option<Track> partialImport(Job job, List<PartialTrack> partials, String profileId,
+          Dimension outputDimension, float outputFrameRate, long duration) throws EncoderException,
+          MediaPackageException {
+    if (partials.isEmpty())
+      throw new EncoderException("At least one partial track is required");
+    if (duration <= 0)
+      throw new EncoderException("The duration of the imported track must be positive");
+
+    boolean hasVideo = false;
+    for (PartialTrack partial : partials) {
+      if (Content.Video == partial.getContent())
+        hasVideo = true;
+    }
+    if (hasVideo && outputDimension == null) {
+      Map<String, String> params = new HashMap<String, String>();
+      params.put("tracks", StringUtils.join(partials, ","));
+      incident().recordFailure(job, CONCAT_NO_DIMENSION, params);
+      throw new EncoderException("The output dimension must not be null when importing video");
+    }
+
+    final EncodingProfile profile = getProfile(job, profileId);
+    final String targetTrackId = idBuilder.createNew().toString();
+    try {
+      // Every track is an input of its own, even if both its audio and its video are used
+      Map<String, File> trackFiles = new LinkedHashMap<String, File>();
+      for (PartialTrack partial : partials) {
+        Track track = partial.getTrack();
+        if (trackFiles.containsKey(track.getIdentifier()))
+          continue;
+        if ((Content.Video == partial.getContent() && !track.hasVideo())
+                || (Content.Audio == partial.getContent() && !track.hasAudio())) {
+          Map<String, String> params = new HashMap<String, String>();
+          params.put("track-id", track.getIdentifier());
+          params.put("track-url", track.getURI().toString());
+          incident().recordFailure(job, NO_STREAMS, params);
+          throw new EncoderException("Track has no " + partial.getContent() + " stream available: " + track);
+        }
+        try {
+          trackFiles.put(track.getIdentifier(), IoSupport.waitForFile(workspace.get(track.getURI())));
+        } catch (NotFoundException e) {
+          incident().recordFailure(job, WORKSPACE_GET_NOT_FOUND, e,
+                  getWorkspaceMediapackageParams("partial track", Type.Track, track.getURI()), NO_DETAILS);
+          throw new EncoderException("Requested track " + track + " is not found");
+        } catch (IOException e) {
+          incident().recordFailure(job, WORKSPACE_GET_IO_EXCEPTION, e,
+                  getWorkspaceMediapackageParams("partial track", Type.Track, track.getURI()), NO_DETAILS);
+          throw new EncoderException("Unable to access track " + track);
+        }
+      }
+
+      final EncoderEngine encoderEngine = getEncoderEngine(job, profile);
+      logger.info("Importing {} partials of {} tracks into {}", new Object[] { partials.size(), trackFiles.size(),
+              targetTrackId });
+
+      Map<String, String> properties = new HashMap<String, String>();
+      properties.put("partialImportCommand",
+              buildPartialImportCommand(trackFiles, partials, outputDimension, outputFrameRate, duration));
+
+      Option<File> output;
+      try {
+        output = encoderEngine.encode(trackFiles.values().iterator().next(), profile, properties);
+      } catch (EncoderException e) {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("tracks", StringUtils.join(partials, ","));
+        params.put("profile", profile.getIdentifier());
+        params.put("properties", properties.toString());
+        incident().recordFailure(job, PARTIAL_IMPORT_FAILED, e, params, detailsFor(e, encoderEngine));
+        throw e;
+      }
+
+      if (output.isNone() || !output.get().exists() || output.get().length() == 0)
+        return none();
+
+      URI workspaceURI = putToCollection(job, output.get(), "imported partials");
+      Job inspectionJob = inspect(job, workspaceURI);
+      Track inspectedTrack = (Track) MediaPackageElementParser.getFromXml(inspectionJob.getPayload());
+      inspectedTrack.setIdentifier(targetTrackId);
+      if (profile.getMimeType() != null)
+        inspectedTrack.setMimeType(MimeTypes.parseMimeType(profile.getMimeType()));
+      return some(inspectedTrack);
+    } catch (Exception e) {
+      logger.warn("Error importing partials {}: {}", partials, e);
+      if (e instanceof EncoderException) {
+        throw (EncoderException) e;
+      } else {
+        throw new EncoderException(e);
+      }
+    }
+  }
+
   @Override
   public Job imageToVideo(Attachment sourceImageAttachment, String profileId, double time) throws EncoderException,
           MediaPackageException {
@@ -1735,6 +1862,21 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
           serialized = concat(job, tracks, encodingProfile, outputDimension, outputFrameRate).map(
                   MediaPackageElementParser.<Track> getAsXml()).getOrElse("");
           break;
+        case PartialImport:
+          encodingProfile = arguments.get(0);
+          Dimension partialsDimension = null;
+          if (StringUtils.isNotBlank(arguments.get(1)))
+            partialsDimension = Serializer.dimension(JsonObj.jsonObj(arguments.get(1)));
+          float partialsFrameRate = NumberUtils.toFloat(arguments.get(2), -1.0f);
+          long partialsDuration = Long.parseLong(arguments.get(3));
+          List<PartialTrack> partials = new ArrayList<PartialTrack>();
+          for (int i = 4; i + 1 < arguments.size(); i += 2) {
+            partials.add(PartialTrack.parse((Track) MediaPackageElementParser.getFromXml(arguments.get(i)),
+                    arguments.get(i + 1)));
+          }
+          serialized = partialImport(job, partials, encodingProfile, partialsDimension, partialsFrameRate,
+                  partialsDuration).map(MediaPackageElementParser.<Track> getAsXml()).getOrElse("");
+          break;
         case ImageToVideo:
           Attachment image = (Attachment) MediaPackageElementParser.getFromXml(arguments.get(0));
           encodingProfile = arguments.get(1);
@@ -2046,6 +2188,136 @@ public class ComposerServiceImpl extends AbstractJobProducer implements Composer
     return sb.toString();
   }
 
+  /**
+   * Builds the ffmpeg input and filter graph options for a partial import. Every partial is cut to its duration and
+   * scaled to the output dimension. A gap before the first video partial is filled by repeating its first frame, any
+   * other gap in the video by repeating the last frame of the preceding partial. Gaps between audio partials are filled
+   * with silence. The resulting video and audio streams are mapped to the output and limited to the given duration.
+   *
+   * @param files
+   *          the input files by track identifier, in the order they are passed to ffmpeg
+   * @param partials
+   *          the partials
+   * @param dimension
+   *          the output dimension, required if there are video partials
+   * @param outputFrameRate
+   *          the output frame rate, or a negative value to keep the frame rate of the partials
+   * @param duration
+   *          the duration of the output in milliseconds
+   * @return the command line options
+   */
+  static String buildPartialImportCommand(Map<String, File> files, List<PartialTrack> partials, Dimension dimension,
+          float outputFrameRate, long duration) {
+    List<String> inputs = new ArrayList<String>(files.keySet());
+    StringBuilder sb = new StringBuilder();
+    for (File f : files.values()) {
+      sb.append("-i ").append(f.getAbsolutePath()).append(" ");
+    }
+
+    List<PartialTrack> video = new ArrayList<PartialTrack>();
+    List<PartialTrack> audio = new ArrayList<PartialTrack>();
+    for (PartialTrack partial : partials) {
+      if (Content.Video == partial.getContent())
+        video.add(partial);
+      else
+        audio.add(partial);
+    }
+    sort(video, PARTIALS_BY_START);
+    sort(audio, PARTIALS_BY_START);
+
+    StringBuilder graph = new StringBuilder();
+    StringBuilder maps = new StringBuilder();
+    if (!video.isEmpty()) {
+      // Partials which have no duration left once cut at the start of the following partial are left out
+      List<PartialTrack> segments = new ArrayList<PartialTrack>();
+      List<Long> ends = new ArrayList<Long>();
+      for (int i = 0; i < video.size(); i++) {
+        PartialTrack partial = video.get(i);
+        long end = i + 1 < video.size() ? Math.min(partial.getEnd(), video.get(i + 1).getStart()) : partial.getEnd();
+        if (end <= partial.getStart())
+          continue;
+        segments.add(partial);
+        ends.add(end);
+      }
+
+      // The last partial is never cut, so this can only happen if the partials are inconsistent
+      if (segments.isEmpty())
+        throw new IllegalArgumentException("None of the video partials has a duration");
+
+      String fpsFilter = outputFrameRate > 0 ? String.format(Locale.US, "fps=fps=%f,", outputFrameRate) : "";
+      for (int i = 0; i < segments.size(); i++) {
+        PartialTrack partial = segments.get(i);
+        long end = ends.get(i);
+        long gap = (i + 1 < segments.size() ? segments.get(i + 1).getStart() : duration) - end;
+        graph.append("[").append(inputs.indexOf(partial.getTrack().getIdentifier())).append(":v]")
+                .append("trim=duration=").append(seconds(end - partial.getStart())).append(",setpts=PTS-STARTPTS,")
+                .append(fpsFilter).append("scale=iw*min(").append(dimension.getWidth()).append("/iw\\,")
+                .append(dimension.getHeight()).append("/ih):ih*min(").append(dimension.getWidth()).append("/iw\\,")
+                .append(dimension.getHeight()).append("/ih),pad=").append(dimension.getWidth()).append(":")
+                .append(dimension.getHeight()).append(":(ow-iw)/2:(oh-ih)/2,setsar=1");
+        if (i == 0 && partial.getStart() > 0)
+          graph.append(",tpad=start_mode=clone:start_duration=").append(seconds(partial.getStart()));
+        if (gap > 0)
+          graph.append(",tpad=stop_mode=clone:stop_duration=").append(seconds(gap));
+        graph.append("[v").append(i).append("];");
+      }
+      appendConcat(graph, "v", segments.size(), true);
+      maps.append(" -map [v]");
+    }
+
+    if (!audio.isEmpty()) {
+      int segments = 0;
+      long position = 0;
+      for (int i = 0; i < audio.size(); i++) {
+        PartialTrack partial = audio.get(i);
+        if (partial.getStart() > position) {
+          graph.append("aevalsrc=0|0:d=").append(seconds(partial.getStart() - position)).append(":s=48000,")
+                  .append(AUDIO_FORMAT).append("[a").append(segments++).append("];");
+          position = partial.getStart();
+        }
+        long end = i + 1 < audio.size() ? Math.min(partial.getEnd(), audio.get(i + 1).getStart()) : partial.getEnd();
+        if (end <= position)
+          continue;
+        graph.append("[").append(inputs.indexOf(partial.getTrack().getIdentifier())).append(":a]")
+                .append("atrim=duration=").append(seconds(end - position)).append(",asetpts=PTS-STARTPTS,")
+                .append("aresample=48000,").append(AUDIO_FORMAT).append("[a").append(segments++).append("];");
+        position = end;
+      }
+      if (position < duration) {
+        graph.append("aevalsrc=0|0:d=").append(seconds(duration - position)).append(":s=48000,").append(AUDIO_FORMAT)
+                .append("[a").append(segments++).append("];");
+      }
+      appendConcat(graph, "a", segments, false);
+      maps.append(" -map [a]");
+    }
+
+    // Drop the separator after the last filter chain
+    graph.setLength(graph.length() - 1);
+    sb.append("-filter_complex ").append(graph).append(maps).append(" -t ").append(seconds(duration));
+    return sb.toString();
+  }
+
+  /**
+   * Appends a concat filter joining the segments labeled <code>[prefix0]</code> to <code>[prefixN]</code> into a
+   * stream labeled <code>[prefix]</code>. A single segment is passed through.
+   */
+  private static void appendConcat(StringBuilder graph, String prefix, int segments, boolean video) {
+    for (int i = 0; i < segments; i++) {
+      graph.append("[").append(prefix).append(i).append("]");
+    }
+    if (segments == 1) {
+      graph.append(video ? "null" : "anull");
+    } else {
+      graph.append("concat=n=").append(segments).append(video ? ":v=1:a=0" : ":v=0:a=1");
+    }
+    graph.append("[").append(prefix).append("];");
+  }
+
+  /** Formats milliseconds as seconds for ffmpeg */
+  private static String seconds(long millis) {
+    return String.format(Locale.US, "%.3f", millis / 1000d);
+  }
+
   private URI putToCollection(Job job, File output, String description) throws EncoderException {
     URI returnURL = null;
     InputStream in = null;
@@ -30,6 +30,7 @@ import org.opencastproject.composer.api.EncodingProfile;
 import org.opencastproject.composer.api.EncodingProfileImpl;
 import org.opencastproject.composer.api.EncodingProfileList;
 import org.opencastproject.composer.api.LaidOutElement;
+import org.opencastproject.composer.api.PartialTrack;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.composer.layout.Layout;
 import org.opencastproject.composer.layout.Serializer;
@@ -538,6 +539,73 @@ public class ComposerRestService extends AbstractJobProducerEndpoint {
     }
   }
 
+  /**
+   * Creates a single track out of partial recordings placed on a timeline.
+   *
+   * @param sourceTracksXml
+   *          the tracks containing the partial recordings as XML
+   * @param placementsString
+   *          the comma separated placements of the partials, one per track
+   * @param profileId
+   *          The encoding profile to use
+   * @param outputDimension
+   *          The output dimension as JSON
+   * @param outputFrameRate
+   *          The output frame rate
+   * @param durationString
+   *          The duration of the resulting track in milliseconds
+   * @return A {@link Response} with the job in the response body
+   * @throws Exception
+   */
+  @POST
+  @Path("partialimport")
+  @Produces(MediaType.TEXT_XML)
+  @RestQuery(name = "partialimport", description = "Starts a process creating a single track out of partial recordings placed on a timeline, based on the specified encoding profile ID", restParameters = {
+          @RestParameter(description = "The tracks containing the partial recordings as XML", isRequired = true, name = "sourceTracks", type = Type.TEXT),
+          @RestParameter(description = "The comma separated placements of the partials in the form 'Video;start;duration' or 'Audio;start;duration' in milliseconds, one for each source track", isRequired = true, name = "placements", type = Type.TEXT),
+          @RestParameter(description = "The encoding profile to use", isRequired = true, name = "profileId", type = Type.STRING),
+          @RestParameter(description = "The duration of the resulting track in milliseconds", isRequired = true, name = "duration", type = Type.STRING),
+          @RestParameter(description = "The resolution dimension of the resulting video as JSON", isRequired = false, name = "outputDimension", type = Type.STRING),
+          @RestParameter(description = "The frame rate of the resulting video. Negative values and zero keep the frame rate of the partials.", isRequired = false, name = "outputFrameRate", type = Type.STRING) }, reponses = {
+          @RestResponse(description = "Results in an xml document containing the job", responseCode = HttpServletResponse.SC_OK),
+          @RestResponse(description = "If required parameters aren't set or if the placements don't match the source tracks", responseCode = HttpServletResponse.SC_BAD_REQUEST) }, returnDescription = "")
+  public Response partialImport(@FormParam("sourceTracks") String sourceTracksXml,
+          @FormParam("placements") String placementsString, @FormParam("profileId") String profileId,
+          @FormParam("duration") String durationString, @FormParam("outputDimension") String outputDimension,
+          @FormParam("outputFrameRate") String outputFrameRate) throws Exception {
+    if (StringUtils.isBlank(sourceTracksXml) || StringUtils.isBlank(placementsString)
+            || StringUtils.isBlank(profileId) || !NumberUtils.isDigits(durationString))
+      return Response.status(Response.Status.BAD_REQUEST)
+              .entity("sourceTracks, placements, profileId and duration must be set").build();
+
+    List<? extends MediaPackageElement> tracks = MediaPackageElementParser.getArrayFromXml(sourceTracksXml);
+    String[] placements = placementsString.split(",");
+    if (tracks.size() != placements.length)
+      return Response.status(Response.Status.BAD_REQUEST).entity("There must be one placement for every track").build();
+
+    List<PartialTrack> partials = new ArrayList<PartialTrack>();
+    for (int i = 0; i < tracks.size(); i++) {
+      if (!Track.TYPE.equals(tracks.get(i).getElementType()))
+        return Response.status(Response.Status.BAD_REQUEST).entity("sourceTracks must be of type track").build();
+      try {
+        partials.add(PartialTrack.parse((Track) tracks.get(i), placements[i]));
+      } catch (IllegalArgumentException e) {
+        return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).build();
+      }
+    }
+    try {
+      Dimension dimension = null;
+      if (StringUtils.isNotBlank(outputDimension))
+        dimension = Serializer.dimension(JsonObj.jsonObj(outputDimension));
+      Job job = composerService.partialImport(profileId, dimension, NumberUtils.toFloat(outputFrameRate, -1.0f),
+              Long.parseLong(durationString), partials);
+      return Response.ok().entity(new JaxbJob(job)).build();
+    } catch (EncoderException e) {
+      logger.warn("Unable to import partials: " + e.getMessage());
+      return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
+    }
+  }
+
   /**
    * Transforms an image attachment to a video track
    *
@@ -28,6 +28,8 @@ import static org.junit.Assert.assertTrue;
 import org.opencastproject.composer.api.EncoderException;
 import org.opencastproject.composer.api.EncodingProfile;
 import org.opencastproject.composer.api.LaidOutElement;
+import org.opencastproject.composer.api.PartialTrack;
+import org.opencastproject.composer.api.PartialTrack.Content;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.composer.layout.HorizontalCoverageLayoutSpec;
 import org.opencastproject.composer.layout.LayoutManager;
@@ -42,6 +44,7 @@ import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.mediapackage.Track;
 import org.opencastproject.mediapackage.attachment.AttachmentImpl;
+import org.opencastproject.mediapackage.track.TrackImpl;
 import org.opencastproject.security.api.DefaultOrganization;
 import org.opencastproject.security.api.JaxbOrganization;
 import org.opencastproject.security.api.JaxbRole;
@@ -80,7 +83,9 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tests the {@link ComposerServiceImpl}.
@@ -489,4 +494,67 @@ public class ComposerServiceTest {
     inspectedTrack.setMimeType(MimeType.mimeType("video", "mp4"));
     Assert.assertEquals(inspectedTrack, imageToVideoTrack);
   }
+
+  @Test
+  public void testBuildPartialImportCommand() throws Exception {
+    Track video1 = TrackImpl.fromURI(new URI("http://localhost/video1.mp4"));
+    video1.setIdentifier("video1");
+    Track video2 = TrackImpl.fromURI(new URI("http://localhost/video2.mp4"));
+    video2.setIdentifier("video2");
+    Track audio = TrackImpl.fromURI(new URI("http://localhost/audio.mp4"));
+    audio.setIdentifier("audio");
+
+    Map<String, File> files = new LinkedHashMap<String, File>();
+    files.put("video1", new File("/tmp/video1.mp4"));
+    files.put("video2", new File("/tmp/video2.mp4"));
+    files.put("audio", new File("/tmp/audio.mp4"));
+    List<PartialTrack> partials = new ArrayList<PartialTrack>();
+    partials.add(new PartialTrack(video2, Content.Video, 6000L, 5000L));
+    partials.add(new PartialTrack(video1, Content.Video, 1000L, 4000L));
+    partials.add(new PartialTrack(audio, Content.Audio, 500L, 9000L));
+
+    String command = ComposerServiceImpl.buildPartialImportCommand(files, partials, Dimension.dimension(640, 480),
+            -1.0f, 12000L);
+    String scale = "scale=iw*min(640/iw\\,480/ih):ih*min(640/iw\\,480/ih),pad=640:480:(ow-iw)/2:(oh-ih)/2,setsar=1";
+    String format = "aformat=sample_fmts=fltp:sample_rates=48000:channel_layouts=stereo";
+    assertEquals("-i /tmp/video1.mp4 -i /tmp/video2.mp4 -i /tmp/audio.mp4 -filter_complex "
+            + "[0:v]trim=duration=4.000,setpts=PTS-STARTPTS," + scale
+            + ",tpad=start_mode=clone:start_duration=1.000,tpad=stop_mode=clone:stop_duration=1.000[v0];"
+            + "[1:v]trim=duration=5.000,setpts=PTS-STARTPTS," + scale
+            + ",tpad=stop_mode=clone:stop_duration=1.000[v1];"
+            + "[v0][v1]concat=n=2:v=1:a=0[v];"
+            + "aevalsrc=0|0:d=0.500:s=48000," + format + "[a0];"
+            + "[2:a]atrim=duration=9.000,asetpts=PTS-STARTPTS,aresample=48000," + format + "[a1];"
+            + "aevalsrc=0|0:d=2.500:s=48000," + format + "[a2];"
+            + "[a0][a1][a2]concat=n=3:v=0:a=1[a] -map [v] -map [a] -t 12.000", command);
+  }
+
+  @Test
+  public void testBuildPartialImportCommandSkipsEmptyPartial() throws Exception {
+    Track video1 = TrackImpl.fromURI(new URI("http://localhost/video1.mp4"));
+    video1.setIdentifier("video1");
+    Track video2 = TrackImpl.fromURI(new URI("http://localhost/video2.mp4"));
+    video2.setIdentifier("video2");
+    Track video3 = TrackImpl.fromURI(new URI("http://localhost/video3.mp4"));
+    video3.setIdentifier("video3");
+
+    Map<String, File> files = new LinkedHashMap<String, File>();
+    files.put("video1", new File("/tmp/video1.mp4"));
+    files.put("video2", new File("/tmp/video2.mp4"));
+    files.put("video3", new File("/tmp/video3.mp4"));
+    List<PartialTrack> partials = new ArrayList<PartialTrack>();
+    partials.add(new PartialTrack(video1, Content.Video, 0L, 2000L));
+    partials.add(new PartialTrack(video2, Content.Video, 3000L, 1000L));
+    partials.add(new PartialTrack(video3, Content.Video, 3000L, 2000L));
+
+    // The second partial is replaced by the third one, so the first one fills the gap up to the third one
+    String command = ComposerServiceImpl.buildPartialImportCommand(files, partials, Dimension.dimension(640, 480),
+            -1.0f, 5000L);
+    String scale = "scale=iw*min(640/iw\\,480/ih):ih*min(640/iw\\,480/ih),pad=640:480:(ow-iw)/2:(oh-ih)/2,setsar=1";
+    assertEquals("-i /tmp/video1.mp4 -i /tmp/video2.mp4 -i /tmp/video3.mp4 -filter_complex "
+            + "[0:v]trim=duration=2.000,setpts=PTS-STARTPTS," + scale
+            + ",tpad=stop_mode=clone:stop_duration=1.000[v0];"
+            + "[2:v]trim=duration=2.000,setpts=PTS-STARTPTS," + scale + "[v1];"
+            + "[v0][v1]concat=n=2:v=1:a=0[v] -map [v] -t 5.000", command);
+  }
 }
@@ -29,6 +29,7 @@ import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.mediapackage.Track;
 import org.opencastproject.util.data.Option;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -127,6 +128,30 @@ public interface ComposerService {
   Job concat(String profileId, Dimension outputDimension, float outputFrameRate, Track... tracks) throws EncoderException,
           MediaPackageException;
 
+  /**
+   * Creates a single track out of partial recordings, which are cut and placed on a timeline. Gaps in the video are
+   * filled with the first respectively last frame of the adjacent partial, gaps in the audio with silence. Trimming,
+   * gap filling, concatenation and muxing of the audio and video partials are done in a single encoding run.
+   *
+   * @param profileId
+   *          The encoding profile to use
+   * @param outputDimension
+   *          The output dimensions, may be <code>null</code> if there are no video partials
+   * @param outputFrameRate
+   *          The output frame rate, negative values keep the frame rate of the partials
+   * @param duration
+   *          The duration of the resulting track in milliseconds
+   * @param partials
+   *          the audio and video partials
+   * @return The receipt for this job
+   * @throws EncoderException
+   *           if encoding fails
+   * @throws MediaPackageException
+   *           if the mediapackage is invalid
+   */
+  Job partialImport(String profileId, Dimension outputDimension, float outputFrameRate, long duration,
+          List<PartialTrack> partials) throws EncoderException, MediaPackageException;
+
   /**
    * Transforms an image attachment to a video track
    *
@@ -0,0 +1,116 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.composer.api;
+
+import org.opencastproject.mediapackage.Track;
+
+/**
+ * The audio or video of a partial recording, placed on the timeline of the track it is imported into.
+ */
+public class PartialTrack {
+
+  /** The stream of a track that is used */
+  public enum Content {
+    Audio, Video
+  }
+
+  private final Track track;
+  private final Content content;
+  private final long start;
+  private final long duration;
+
+  /**
+   * Creates a partial track.
+   *
+   * @param track
+   *          the track containing the partial recording
+   * @param content
+   *          whether the audio or the video of the track is used
+   * @param start
+   *          the position on the timeline in milliseconds
+   * @param duration
+   *          the duration in milliseconds, the track is cut if it is longer
+   */
+  public PartialTrack(Track track, Content content, long start, long duration) {
+    if (start < 0 || duration <= 0)
+      throw new IllegalArgumentException("Start must not be negative and duration must be positive");
+    this.track = track;
+    this.content = content;
+    this.start = start;
+    this.duration = duration;
+  }
+
+  public Track getTrack() {
+    return track;
+  }
+
+  public Content getContent() {
+    return content;
+  }
+
+  public long getStart() {
+    return start;
+  }
+
+  public long getDuration() {
+    return duration;
+  }
+
+  public long getEnd() {
+    return start + duration;
+  }
+
+  /**
+   * Returns the placement of this partial in the form <code>content;start;duration</code>, which is used to pass it
+   * along with its track to a composer.
+   *
+   * @return the placement
+   */
+  public String getPlacement() {
+    return content + ";" + start + ";" + duration;
+  }
+
+  /**
+   * Creates a partial track from a placement as returned by {@link #getPlacement()}.
+   *
+   * @param track
+   *          the track
+   * @param placement
+   *          the placement
+   * @return the partial track
+   * @throws IllegalArgumentException
+   *           if the placement is malformed
+   */
+  public static PartialTrack parse(Track track, String placement) {
+    String[] parts = placement.split(";");
+    if (parts.length != 3)
+      throw new IllegalArgumentException("Malformed placement of partial track: " + placement);
+    return new PartialTrack(track, Content.valueOf(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+  }
+
+  @Override
+  public String toString() {
+    return content + " of " + track + " at " + start + "ms for " + duration + "ms";
+  }
+
+}
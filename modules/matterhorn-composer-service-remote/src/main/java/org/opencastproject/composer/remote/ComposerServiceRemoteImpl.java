@@ -29,6 +29,7 @@ import org.opencastproject.composer.api.EncodingProfileBuilder;
 import org.opencastproject.composer.api.EncodingProfileImpl;
 import org.opencastproject.composer.api.EncodingProfileList;
 import org.opencastproject.composer.api.LaidOutElement;
+import org.opencastproject.composer.api.PartialTrack;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.composer.layout.Serializer;
 import org.opencastproject.job.api.Job;
@@ -524,6 +525,47 @@ public class ComposerServiceRemoteImpl extends RemoteBase implements ComposerSer
             + " using the remote composer service proxy");
   }
 
+  @Override
+  public Job partialImport(String profileId, Dimension outputDimension, float outputFrameRate, long duration,
+          List<PartialTrack> partials) throws EncoderException, MediaPackageException {
+    HttpPost post = new HttpPost("/partialimport");
+    try {
+      List<Track> tracks = new ArrayList<Track>();
+      StringBuilder placements = new StringBuilder();
+      for (PartialTrack partial : partials) {
+        tracks.add(partial.getTrack());
+        if (placements.length() > 0)
+          placements.append(",");
+        placements.append(partial.getPlacement());
+      }
+      List<BasicNameValuePair> params = new ArrayList<BasicNameValuePair>();
+      params.add(new BasicNameValuePair("profileId", profileId));
+      if (outputDimension != null)
+        params.add(new BasicNameValuePair("outputDimension", Serializer.json(outputDimension).toJson()));
+      params.add(new BasicNameValuePair("outputFrameRate", String.format(Locale.US, "%f", outputFrameRate)));
+      params.add(new BasicNameValuePair("duration", Long.toString(duration)));
+      params.add(new BasicNameValuePair("sourceTracks", MediaPackageElementParser.getArrayAsXml(tracks)));
+      params.add(new BasicNameValuePair("placements", placements.toString()));
+      post.setEntity(new UrlEncodedFormEntity(params, "UTF-8"));
+    } catch (Exception e) {
+      throw new EncoderException(e);
+    }
+    HttpResponse response = null;
+    try {
+      response = getResponse(post);
+      if (response != null) {
+        Job r = JobParser.parseJob(response.getEntity().getContent());
+        logger.info("Partial import job {} started on a remote composer", r.getId());
+        return r;
+      }
+    } catch (Exception e) {
+      throw new EncoderException(e);
+    } finally {
+      closeConnection(response);
+    }
+    throw new EncoderException("Unable to import partials " + partials + " using the remote composer service proxy");
+  }
+
   @Override
   public Job imageToVideo(Attachment sourceImageAttachment, String profileId, double time) throws EncoderException,
           MediaPackageException {
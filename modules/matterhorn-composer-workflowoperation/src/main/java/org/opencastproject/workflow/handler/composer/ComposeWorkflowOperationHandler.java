@@ -26,6 +26,7 @@ import org.opencastproject.composer.api.EncoderException;
 import org.opencastproject.composer.api.EncodingProfile;
 import org.opencastproject.composer.api.EncodingProfile.MediaType;
 import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.job.api.JobContext;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElementFlavor;
@@ -36,6 +37,7 @@ import org.opencastproject.mediapackage.selector.AbstractMediaPackageElementSele
 import org.opencastproject.mediapackage.selector.TrackSelector;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.workflow.api.AbstractWorkflowOperationHandler;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
 import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowOperationException;
 import org.opencastproject.workflow.api.WorkflowOperationInstance;
@@ -50,16 +52,15 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
 /**
  * The workflow definition for handling "compose" operations
  */
-public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
+public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHandler
+        implements AsyncWorkflowOperationHandler {
 
   /** The logging facility */
   private static final Logger logger = LoggerFactory.getLogger(ComposeWorkflowOperationHandler.class);
@@ -139,7 +140,7 @@ public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHa
    *          The source media package
    * @param operation
    *          the current workflow operation
-   * @return the operation result containing the updated media package
+   * @return the result waiting for the encoding jobs or the unchanged media package if there is nothing to encode
    * @throws EncoderException
    *           if encoding fails
    * @throws WorkflowOperationException
@@ -155,10 +156,8 @@ public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHa
 
     // Check which tags have been configured
     String sourceTagsOption = StringUtils.trimToNull(operation.getConfiguration("source-tags"));
-    String targetTagsOption = StringUtils.trimToNull(operation.getConfiguration("target-tags"));
     String sourceFlavorOption = StringUtils.trimToNull(operation.getConfiguration("source-flavor"));
     String sourceFlavorsOption = StringUtils.trimToNull(operation.getConfiguration("source-flavors"));
-    String targetFlavorOption = StringUtils.trimToNull(operation.getConfiguration("target-flavor"));
     boolean tagsAndFlavorsOption = Boolean
             .parseBoolean(StringUtils.trimToNull(operation.getConfiguration("tags-and-flavors")));
 
@@ -225,25 +224,14 @@ public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHa
     boolean audioOnly = audioOnlyConfig != null && Boolean.parseBoolean(audioOnlyConfig);
     boolean videoOnly = videoOnlyConfig != null && Boolean.parseBoolean(videoOnlyConfig);
 
-    // Target tags
-    List<String> targetTags = asList(targetTagsOption);
-
-    // Target flavor
-    MediaPackageElementFlavor targetFlavor = null;
-    if (StringUtils.isNotBlank(targetFlavorOption)) {
-      try {
-        targetFlavor = MediaPackageElementFlavor.parseFlavor(targetFlavorOption);
-      } catch (IllegalArgumentException e) {
-        throw new WorkflowOperationException("Target flavor '" + targetFlavorOption + "' is malformed");
-      }
-    }
+    // Make sure the target flavor is usable before any job is started
+    getTargetFlavor(operation);
 
     // Look for elements matching the tag
     Collection<Track> elements = elementSelector.select(mediaPackage, tagsAndFlavorsOption);
 
     // Encode all tracks found
-    long totalTimeInQueue = 0;
-    Map<Job, JobInformation> encodingJobs = new HashMap<Job, JobInformation>();
+    List<Job> encodingJobs = new ArrayList<Job>();
     for (Track track : elements) {
 
       // Skip audio/video only mismatches
@@ -270,8 +258,8 @@ public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHa
 
         logger.info("Encoding track {} using encoding profile '{}'", track, profile);
 
-        // Start encoding and wait for the result
-        encodingJobs.put(composerService.encode(track, profile.getIdentifier()), new JobInformation(track, profile));
+        // Start encoding, the workflow service will wait for the result
+        encodingJobs.add(composerService.encode(track, profile.getIdentifier()));
       }
     }
 
@@ -280,15 +268,63 @@ public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHa
       return createResult(mediaPackage, Action.CONTINUE);
     }
 
-    // Wait for the jobs to return
-    if (!waitForStatus(encodingJobs.keySet().toArray(new Job[encodingJobs.size()])).isSuccess()) {
+    return createWaitResult(mediaPackage, encodingJobs.toArray(new Job[encodingJobs.size()]));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workflow.api.AsyncWorkflowOperationHandler#jobsTerminated(WorkflowInstance, JobContext,
+   *      JobBarrier.Result)
+   */
+  @Override
+  public WorkflowOperationResult jobsTerminated(WorkflowInstance workflowInstance, JobContext context,
+          JobBarrier.Result result) throws WorkflowOperationException {
+    if (!result.isSuccess())
       throw new WorkflowOperationException("One of the encoding jobs did not complete successfully");
+
+    try {
+      return addEncodedTracks(workflowInstance.getMediaPackage(), workflowInstance.getCurrentOperation(),
+              result.getStatus().keySet());
+    } catch (WorkflowOperationException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new WorkflowOperationException(e);
     }
+  }
+
+  /**
+   * Adds the tracks created by the finished encoding jobs to the media package.
+   *
+   * @param src
+   *          The source media package
+   * @param operation
+   *          the current workflow operation
+   * @param encodingJobs
+   *          the finished encoding jobs
+   * @return the operation result containing the updated media package
+   * @throws WorkflowOperationException
+   *           if errors occur during processing
+   * @throws IOException
+   *           if the workspace operations fail
+   * @throws NotFoundException
+   *           if the workspace doesn't contain the requested file
+   */
+  private WorkflowOperationResult addEncodedTracks(MediaPackage src, WorkflowOperationInstance operation,
+          Collection<Job> encodingJobs) throws IOException, NotFoundException, MediaPackageException,
+          WorkflowOperationException {
+    MediaPackage mediaPackage = (MediaPackage) src.clone();
+
+    // Target tags
+    List<String> targetTags = asList(StringUtils.trimToNull(operation.getConfiguration("target-tags")));
+
+    // Target flavor
+    MediaPackageElementFlavor targetFlavor = getTargetFlavor(operation);
 
     // Process the result
-    for (Map.Entry<Job, JobInformation> entry : encodingJobs.entrySet()) {
-      Job job = entry.getKey();
-      Track track = entry.getValue().getTrack();
+    long totalTimeInQueue = 0;
+    for (Job job : encodingJobs) {
+      Track track = getSourceTrack(mediaPackage, job);
 
       // add this receipt's queue time to the total
       totalTimeInQueue += job.getQueueTime();
@@ -328,36 +364,41 @@ public class ComposeWorkflowOperationHandler extends AbstractWorkflowOperationHa
   }
 
   /**
-   * This class is used to store context information for the jobs.
+   * Returns the configured target flavor.
+   *
+   * @param operation
+   *          the current workflow operation
+   * @return the target flavor or <code>null</code> if none has been configured
+   * @throws WorkflowOperationException
+   *           if the target flavor is malformed
    */
-  private static final class JobInformation {
-
-    private Track track = null;
-    private EncodingProfile profile = null;
-
-    JobInformation(Track track, EncodingProfile profile) {
-      this.track = track;
-      this.profile = profile;
-    }
-
-    /**
-     * Returns the track.
-     *
-     * @return the track
-     */
-    public Track getTrack() {
-      return track;
-    }
-
-    /**
-     * Returns the profile.
-     *
-     * @return the profile
-     */
-    public EncodingProfile getProfile() {
-      return profile;
+  private MediaPackageElementFlavor getTargetFlavor(WorkflowOperationInstance operation)
+          throws WorkflowOperationException {
+    String targetFlavorOption = StringUtils.trimToNull(operation.getConfiguration("target-flavor"));
+    if (targetFlavorOption == null)
+      return null;
+    try {
+      return MediaPackageElementFlavor.parseFlavor(targetFlavorOption);
+    } catch (IllegalArgumentException e) {
+      throw new WorkflowOperationException("Target flavor '" + targetFlavorOption + "' is malformed");
     }
+  }
 
+  /**
+   * Returns the track an encoding job has been started for, which is passed to the job as its first argument.
+   *
+   * @param mediaPackage
+   *          the media package
+   * @param job
+   *          the encoding job
+   * @return the source track
+   * @throws MediaPackageException
+   *           if the job argument cannot be parsed
+   */
+  private static Track getSourceTrack(MediaPackage mediaPackage, Job job) throws MediaPackageException {
+    Track track = (Track) MediaPackageElementParser.getFromXml(job.getArguments().get(0));
+    Track sourceTrack = mediaPackage.getTrack(track.getIdentifier());
+    return sourceTrack != null ? sourceTrack : track;
   }
 
 }
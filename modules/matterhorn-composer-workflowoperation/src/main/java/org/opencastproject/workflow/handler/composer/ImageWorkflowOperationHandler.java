@@ -57,6 +57,7 @@ import org.opencastproject.util.MimeTypes;
 import org.opencastproject.util.PathSupport;
 import org.opencastproject.util.data.Collections;
 import org.opencastproject.workflow.api.AbstractWorkflowOperationHandler;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
 import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowOperationException;
 import org.opencastproject.workflow.api.WorkflowOperationInstance;
@@ -82,6 +83,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.IllegalFormatException;
 import java.util.List;
 import java.util.SortedMap;
@@ -89,7 +91,8 @@ import java.util.SortedMap;
 /**
  * The workflow definition for handling "image" operations
  */
-public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
+public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHandler
+        implements AsyncWorkflowOperationHandler {
   /** The logging facility */
   private static final Logger logger = LoggerFactory.getLogger(ImageWorkflowOperationHandler.class);
 
@@ -167,6 +170,17 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
     }
   }
 
+  @Override
+  public WorkflowOperationResult jobsTerminated(final WorkflowInstance wi, JobContext ctx, JobBarrier.Result result)
+          throws WorkflowOperationException {
+    try {
+      final Extractor e = new Extractor(this, configure(wi.getMediaPackage(), wi.getCurrentOperation()));
+      return e.complete(MediaPackageSupport.copy(wi.getMediaPackage()), result);
+    } catch (Exception e) {
+      throw new WorkflowOperationException(e);
+    }
+  }
+
   /**
    * Computation within the context of a {@link Cfg}.
    */
@@ -203,10 +217,17 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
         }
       }).toList();
       final List<Job> extractionJobs = concatJobs(extractions);
-      final JobBarrier.Result extractionResult = JobUtil.waitForJobs(handler.serviceRegistry, extractionJobs);
+      return handler.createWaitResult(mp, extractionJobs.toArray(new Job[extractionJobs.size()]));
+    }
+
+    /** Add the images of the terminated extraction jobs to the media package. */
+    WorkflowOperationResult complete(final MediaPackage mp, final JobBarrier.Result extractionResult)
+            throws WorkflowOperationException {
       if (extractionResult.isSuccess()) {
+        final List<Job> extractionJobs = new ArrayList<Job>(extractionResult.getStatus().keySet());
         // all extractions were successful; iterate them
-        for (final Extraction extraction : extractions) {
+        for (final Job job : extractionJobs) {
+          final Extraction extraction = restoreExtraction(job);
           final List<Attachment> images = getImages(extraction.job);
           final int expectedNrOfImages = extraction.positions.size();
           if (images.size() == expectedNrOfImages) {
@@ -231,6 +252,26 @@ public class ImageWorkflowOperationHandler extends AbstractWorkflowOperationHand
       }
     }
 
+    /**
+     * Restore the extraction a job has been started for. The source track and the encoding profile are the first two
+     * arguments of the job, the positions are derived from the configuration just like they have been on start.
+     */
+    Extraction restoreExtraction(final Job job) {
+      final Track jobTrack;
+      try {
+        jobTrack = (Track) MediaPackageElementParser.getFromXml(job.getArguments().get(0));
+      } catch (MediaPackageException e) {
+        return chuck(e);
+      }
+      final Track track = $(cfg.sourceTracks).filter(new Fn<Track, Boolean>() {
+        @Override public Boolean apply(Track t) {
+          return eq(t.getIdentifier(), jobTrack.getIdentifier());
+        }
+      }).head().getOr(jobTrack);
+      final EncodingProfile profile = fetchProfile(handler.composerService).apply(job.getArguments().get(1));
+      return new Extraction(job, track, profile, limit(track, cfg.positions));
+    }
+
     /**
      * Adjust flavor, tags, mime type of <code>image</code> according to the
      * configuration and the extraction.
@@ -28,6 +28,7 @@ import static org.opencastproject.util.JobUtil.getPayload;
 import org.opencastproject.composer.api.ComposerService;
 import org.opencastproject.composer.api.EncoderException;
 import org.opencastproject.composer.api.EncodingProfile;
+import org.opencastproject.composer.api.PartialTrack;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobContext;
@@ -108,6 +109,7 @@ public class PartialImportWorkflowOperationHandler extends AbstractWorkflowOpera
   private static final String TARGET_PRESENTATION_FLAVOR = "target-presentation-flavor";
 
   private static final String CONCAT_ENCODING_PROFILE = "concat-encoding-profile";
+  private static final String PARTIAL_IMPORT_ENCODING_PROFILE = "partial-import-encoding-profile";
   private static final String CONCAT_OUTPUT_FRAMERATE = "concat-output-framerate";
   private static final String TRIM_ENCODING_PROFILE = "trim-encoding-profile";
   private static final String FORCE_ENCODING_PROFILE = "force-encoding-profile";
@@ -151,6 +153,8 @@ public class PartialImportWorkflowOperationHandler extends AbstractWorkflowOpera
             "The target flavor to apply to the standard media presentation video track");
     CONFIG_OPTIONS.put(CONCAT_ENCODING_PROFILE, "The concat encoding profile to use");
     CONFIG_OPTIONS.put(CONCAT_OUTPUT_FRAMERATE, "Output framerate for concat operation");
+    CONFIG_OPTIONS.put(PARTIAL_IMPORT_ENCODING_PROFILE,
+            "The encoding profile to create each target track in a single encoding, replacing concat and trim");
     CONFIG_OPTIONS.put(FORCE_ENCODING_PROFILE, "The force encoding profile to use");
     CONFIG_OPTIONS.put(TRIM_ENCODING_PROFILE, "The trim encoding profile to use");
     CONFIG_OPTIONS.put(FORCE_ENCODING, "Whether to force the tracks to be encoded");
@@ -234,9 +238,8 @@ public class PartialImportWorkflowOperationHandler extends AbstractWorkflowOpera
     final Opt<String> presenterFlavor = getOptConfig(operation, SOURCE_PRESENTER_FLAVOR);
     final Opt<String> presentationFlavor = getOptConfig(operation, SOURCE_PRESENTATION_FLAVOR);
     final String smilFlavor = getConfig(operation, SOURCE_SMIL_FLAVOR);
-    final String concatEncodingProfile = getConfig(operation, CONCAT_ENCODING_PROFILE);
+    final Opt<String> partialImportEncodingProfile = getOptConfig(operation, PARTIAL_IMPORT_ENCODING_PROFILE);
     final Opt<String> concatOutputFramerate = getOptConfig(operation, CONCAT_OUTPUT_FRAMERATE);
-    final String trimEncodingProfile = getConfig(operation, TRIM_ENCODING_PROFILE);
     final MediaPackageElementFlavor targetPresenterFlavor = parseTargetFlavor(
             getConfig(operation, TARGET_PRESENTER_FLAVOR), "presenter");
     final MediaPackageElementFlavor targetPresentationFlavor = parseTargetFlavor(
@@ -253,10 +256,6 @@ public class PartialImportWorkflowOperationHandler extends AbstractWorkflowOpera
       logger.warn("No presenter and presentation flavor has been set.");
       return createResult(mediaPackage, Action.SKIP);
     }
-    final EncodingProfile concatProfile = composerService.getProfile(concatEncodingProfile);
-    if (concatProfile == null) {
-      throw new WorkflowOperationException("Concat encoding profile '" + concatEncodingProfile + "' was not found");
-    }
 
     float outputFramerate = -1.0f;
     if (concatOutputFramerate.isSome()) {
@@ -268,6 +267,29 @@ public class PartialImportWorkflowOperationHandler extends AbstractWorkflowOpera
       }
     }
 
+    if (partialImportEncodingProfile.isSome()) {
+      final EncodingProfile partialImportProfile = composerService.getProfile(partialImportEncodingProfile.get());
+      if (partialImportProfile == null) {
+        throw new WorkflowOperationException("Partial import encoding profile '" + partialImportEncodingProfile.get()
+                + "' was not found");
+      }
+      long queueTime = importPartials(mediaPackage, partialImportProfile, smilFlavor, presenterFlavor,
+              presentationFlavor, targetPresenterFlavor, targetPresentationFlavor, outputFramerate, forceDivisible);
+      queueTime += checkForMuxing(mediaPackage, targetPresenterFlavor, targetPresentationFlavor, false,
+              elementsToClean);
+      queueTime += checkForEncodeToStandard(mediaPackage, forceEncoding, forceProfile, requiredExtensions,
+              targetPresenterFlavor, targetPresentationFlavor, elementsToClean);
+      logger.debug("Partial import operation completed");
+      return createResult(mediaPackage, Action.CONTINUE, queueTime);
+    }
+
+    final String concatEncodingProfile = getConfig(operation, CONCAT_ENCODING_PROFILE);
+    final EncodingProfile concatProfile = composerService.getProfile(concatEncodingProfile);
+    if (concatProfile == null) {
+      throw new WorkflowOperationException("Concat encoding profile '" + concatEncodingProfile + "' was not found");
+    }
+
+    final String trimEncodingProfile = getConfig(operation, TRIM_ENCODING_PROFILE);
     final EncodingProfile trimProfile = composerService.getProfile(trimEncodingProfile);
     if (trimProfile == null) {
       throw new WorkflowOperationException("Trim encoding profile '" + trimEncodingProfile + "' was not found");
@@ -453,6 +475,127 @@ public class PartialImportWorkflowOperationHandler extends AbstractWorkflowOpera
     return result;
   }
 
+  /**
+   * Creates the target tracks with a single composer job per SMIL sequence. The job trims the partials, fills the gaps
+   * between them, concatenates them and muxes the audio and video of the sequence in one encoding.
+   *
+   * @return the queue time of the jobs
+   */
+  private long importPartials(MediaPackage mediaPackage, EncodingProfile profile, String smilFlavor,
+          Opt<String> presenterFlavor, Opt<String> presentationFlavor,
+          MediaPackageElementFlavor targetPresenterFlavor, MediaPackageElementFlavor targetPresentationFlavor,
+          float outputFramerate, boolean forceDivisible) throws EncoderException, MediaPackageException,
+          WorkflowOperationException, NotFoundException, IOException, ServiceRegistryException {
+    final List<Track> partialTracks = new ArrayList<Track>();
+    partialTracks.addAll(mkTrackSelector(presenterFlavor).select(mediaPackage, false));
+    partialTracks.addAll(mkTrackSelector(presentationFlavor).select(mediaPackage, false));
+
+    final SMILDocument smilDocument = getSmilDocumentFromMediaPackage(mediaPackage, smilFlavor);
+    final SMILParElement parallel = (SMILParElement) smilDocument.getBody().getChildNodes().item(0);
+    final NodeList sequences = parallel.getTimeChildren();
+    final long trackDurationInMs = Math.round(parallel.getDur() * 1000f);
+
+    // target flavor -> job
+    final Map<MediaPackageElementFlavor, Job> jobs = new HashMap<MediaPackageElementFlavor, Job>();
+    for (int i = 0; i < sequences.getLength(); i++) {
+      final List<PartialTrack> partials = new ArrayList<PartialTrack>();
+      collectPartials(((SMILElement) sequences.item(i)).getChildNodes(), partialTracks, partials);
+      if (partials.isEmpty())
+        continue;
+
+      final Track first = partials.get(0).getTrack();
+      final MediaPackageElementFlavor targetFlavor;
+      if (first.getFlavor().getType().startsWith(PRESENTER_KEY)) {
+        targetFlavor = targetPresenterFlavor;
+      } else if (first.getFlavor().getType().startsWith(PRESENTATION_KEY)) {
+        targetFlavor = targetPresentationFlavor;
+      } else {
+        logger.warn("Can't handle unknown source type '{}'!", first.getFlavor().getType());
+        continue;
+      }
+
+      if (coversRecording(partials, trackDurationInMs)) {
+        logger.info("Partial track {} covers the whole recording, copying it", first);
+        copyPartialToSource(mediaPackage, targetFlavor, first);
+        continue;
+      }
+
+      final List<Track> videoTracks = new ArrayList<Track>();
+      for (PartialTrack partial : partials) {
+        if (PartialTrack.Content.Video == partial.getContent())
+          videoTracks.add(partial.getTrack());
+      }
+      logger.info("Importing {} partials into the {} track", partials.size(), targetFlavor);
+      jobs.put(targetFlavor, composerService.partialImport(profile.getIdentifier(),
+              determineDimension(videoTracks, forceDivisible), outputFramerate, trackDurationInMs, partials));
+    }
+
+    if (jobs.isEmpty())
+      return 0L;
+    if (!JobUtil.waitForJobs(serviceRegistry, jobs.values()).isSuccess())
+      throw new WorkflowOperationException("One of the partial import jobs did not complete successfully");
+
+    long queueTime = 0L;
+    for (final Entry<MediaPackageElementFlavor, Job> entry : jobs.entrySet()) {
+      final Job job = serviceRegistry.getJob(entry.getValue().getId());
+      final Track track = (Track) MediaPackageElementParser.getFromXml(job.getPayload());
+      if (track == null)
+        throw new WorkflowOperationException("Partial import job " + job + " returned no payload!");
+      final String fileName = entry.getKey().equals(targetPresenterFlavor) ? PRESENTER_KEY : PRESENTATION_KEY;
+      track.setFlavor(entry.getKey());
+      track.setURI(workspace.moveTo(track.getURI(), mediaPackage.getIdentifier().toString(), track.getIdentifier(),
+              fileName + "." + FilenameUtils.getExtension(track.getURI().toString())));
+      logger.info("Imported track {} got flavor '{}'", track, track.getFlavor());
+      mediaPackage.add(track);
+      queueTime += job.getQueueTime();
+    }
+    return queueTime;
+  }
+
+  /**
+   * Collects the audio and video elements of a SMIL sequence as partial tracks.
+   */
+  private void collectPartials(NodeList children, List<Track> tracks, List<PartialTrack> partials) {
+    for (int j = 0; j < children.getLength(); j++) {
+      Node item = children.item(j);
+      if (item.hasChildNodes()) {
+        collectPartials(item.getChildNodes(), tracks, partials);
+        continue;
+      }
+      SMILMediaElement e = (SMILMediaElement) item;
+      final PartialTrack.Content content;
+      if (NODE_TYPE_VIDEO.equals(e.getNodeName())) {
+        content = PartialTrack.Content.Video;
+      } else if (NODE_TYPE_AUDIO.equals(e.getNodeName())) {
+        content = PartialTrack.Content.Audio;
+      } else {
+        continue;
+      }
+      Track track = null;
+      for (Track t : tracks) {
+        if (t.getIdentifier().contains(e.getId()))
+          track = t;
+      }
+      if (track == null)
+        throw new IllegalStateException("No track matching smil Track-id: " + e.getId());
+      long begin = Math.round(e.getBegin().item(0).getResolvedOffset() * 1000d);
+      partials.add(new PartialTrack(track, content, begin, Math.round(e.getDur() * 1000f)));
+    }
+  }
+
+  /**
+   * Returns whether the partials consist of a single track which starts at the beginning of the recording and lasts
+   * until its end, so it can be used as is.
+   */
+  private static boolean coversRecording(List<PartialTrack> partials, long duration) {
+    Track track = partials.get(0).getTrack();
+    for (PartialTrack partial : partials) {
+      if (partial.getTrack() != track || partial.getStart() > 0 || partial.getEnd() < duration)
+        return false;
+    }
+    return true;
+  }
+
   protected long checkForEncodeToStandard(MediaPackage mediaPackage, boolean forceEncoding,
           Opt<EncodingProfile> forceProfile, List<String> requiredExtensions,
           MediaPackageElementFlavor targetPresenterFlavor, MediaPackageElementFlavor targetPresentationFlavor,
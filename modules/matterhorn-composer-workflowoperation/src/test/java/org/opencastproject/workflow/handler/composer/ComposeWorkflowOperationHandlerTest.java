@@ -25,6 +25,7 @@ import org.opencastproject.composer.api.ComposerService;
 import org.opencastproject.composer.api.EncodingProfile;
 import org.opencastproject.composer.api.EncodingProfile.MediaType;
 import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageBuilder;
 import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
@@ -39,6 +40,7 @@ import org.opencastproject.workflow.api.WorkflowOperationInstance;
 import org.opencastproject.workflow.api.WorkflowOperationInstance.OperationState;
 import org.opencastproject.workflow.api.WorkflowOperationInstanceImpl;
 import org.opencastproject.workflow.api.WorkflowOperationResult;
+import org.opencastproject.workflow.api.WorkflowOperationWaitResult;
 import org.opencastproject.workflow.handler.inspection.InspectWorkflowOperationHandler;
 import org.opencastproject.workspace.api.Workspace;
 
@@ -49,6 +51,7 @@ import org.junit.Test;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -95,6 +98,8 @@ public class ComposeWorkflowOperationHandlerTest {
     // set up mock receipt
     job = EasyMock.createNiceMock(Job.class);
     EasyMock.expect(job.getPayload()).andReturn(MediaPackageElementParser.getAsXml(encodedTracks[0])).anyTimes();
+    EasyMock.expect(job.getArguments()).andReturn(
+            Arrays.asList(MediaPackageElementParser.getAsXml(mp.getTrack(SOURCE_TRACK_ID)), PROFILE_ID)).anyTimes();
     EasyMock.expect(job.getStatus()).andReturn(Job.Status.FINISHED);
     EasyMock.expect(job.getDateCreated()).andReturn(new Date());
     EasyMock.expect(job.getDateStarted()).andReturn(new Date());
@@ -199,7 +204,15 @@ public class ComposeWorkflowOperationHandlerTest {
     workflowInstance.setOperations(operationsList);
 
     // Run the media package through the operation handler, ensuring that metadata gets added
-    return operationHandler.start(workflowInstance, null);
+    WorkflowOperationResult result = operationHandler.start(workflowInstance, null);
+    Assert.assertTrue(result instanceof WorkflowOperationWaitResult);
+
+    // Let the encoding jobs finish
+    Map<Job, Job.Status> status = new HashMap<Job, Job.Status>();
+    for (Job encodingJob : ((WorkflowOperationWaitResult) result).getJobs()) {
+      status.put(encodingJob, Job.Status.FINISHED);
+    }
+    return operationHandler.jobsTerminated(workflowInstance, null, new JobBarrier.Result(status));
   }
 
 }
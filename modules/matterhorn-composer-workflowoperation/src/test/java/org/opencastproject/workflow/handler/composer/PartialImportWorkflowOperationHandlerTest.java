@@ -27,12 +27,16 @@ import static org.junit.Assert.assertTrue;
 import org.opencastproject.composer.api.ComposerService;
 import org.opencastproject.composer.api.EncoderException;
 import org.opencastproject.composer.api.EncodingProfileImpl;
+import org.opencastproject.composer.api.PartialTrack;
 import org.opencastproject.composer.layout.Dimension;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.job.api.JobImpl;
 import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
 import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElementFlavor;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.mediapackage.Track;
 import org.opencastproject.mediapackage.VideoStream;
@@ -40,16 +44,28 @@ import org.opencastproject.mediapackage.track.TrackImpl;
 import org.opencastproject.mediapackage.track.VideoStreamImpl;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.smil.api.util.SmilUtil;
 import org.opencastproject.util.NotFoundException;
+import org.opencastproject.util.XmlUtil;
 import org.opencastproject.util.data.Collections;
+import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowOperationException;
 import org.opencastproject.workflow.api.WorkflowOperationInstance;
+import org.opencastproject.workflow.api.WorkflowOperationResult;
+import org.opencastproject.workflow.api.WorkflowOperationResult.Action;
+import org.opencastproject.workspace.api.Workspace;
 
+import org.apache.commons.io.FileUtils;
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -71,6 +87,9 @@ public class PartialImportWorkflowOperationHandlerTest {
   private static List<String> defaultExtensions = new ArrayList<String>();
   private static List<String> moreExtensions = new ArrayList<String>();
 
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
   @BeforeClass
   public static void setUpClass() {
     defaultExtensions.add("mp4");
@@ -315,6 +334,100 @@ public class PartialImportWorkflowOperationHandlerTest {
     handler.startConcatJob(encodingProfile, tracks, -1.0F, true);
   }
 
+  @Test
+  public void testPartialImportEncodingProfile() throws Exception {
+    MediaPackage mediaPackage = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    Track first = createPartialTrack("track-1", 640, 480);
+    Track second = createPartialTrack("track-2", 320, 240);
+    mediaPackage.add(first);
+    mediaPackage.add(second);
+
+    // The presenter sequence has a gap between its partials, the presentation sequence is empty
+    Document smil = SmilUtil.createSmil();
+    smil = SmilUtil.addTrack(smil, SmilUtil.TrackType.PRESENTER, true, 1000L, 4000L, first.getURI(), "track-1");
+    smil = SmilUtil.addTrack(smil, SmilUtil.TrackType.PRESENTER, true, 6000L, 5000L, second.getURI(), "track-2");
+    File smilFile = testFolder.newFile("partial.smil");
+    FileUtils.copyInputStreamToFile(XmlUtil.serializeDocument(smil), smilFile);
+    URI smilUri = new URI("http://localhost/partial.smil");
+    mediaPackage.add(smilUri, MediaPackageElement.Type.Catalog, MediaPackageElementFlavor.parseFlavor("smil/source"));
+
+    WorkflowOperationInstance operation = EasyMock.createNiceMock(WorkflowOperationInstance.class);
+    EasyMock.expect(operation.getConfiguration("source-presenter-flavor")).andReturn("presenter/source").anyTimes();
+    EasyMock.expect(operation.getConfiguration("source-smil-flavor")).andReturn("smil/source").anyTimes();
+    EasyMock.expect(operation.getConfiguration("target-presenter-flavor")).andReturn(PRESENTER_TARGET_FLAVOR_STRING)
+            .anyTimes();
+    EasyMock.expect(operation.getConfiguration("target-presentation-flavor"))
+            .andReturn(PRESENTATION_TARGET_FLAVOR_STRING).anyTimes();
+    EasyMock.expect(operation.getConfiguration("partial-import-encoding-profile")).andReturn("import.partial")
+            .anyTimes();
+    EasyMock.expect(operation.getConfiguration("force-encoding-profile")).andReturn("encode.standard").anyTimes();
+    WorkflowInstance workflow = EasyMock.createNiceMock(WorkflowInstance.class);
+    EasyMock.expect(workflow.getMediaPackage()).andReturn(mediaPackage).anyTimes();
+    EasyMock.expect(workflow.getCurrentOperation()).andReturn(operation).anyTimes();
+
+    // The composer imports all partials of the presenter sequence with a single job
+    Track imported = TrackImpl.fromURI(new URI("http://localhost/imported.mp4"));
+    imported.setIdentifier("imported");
+    JobImpl job = new JobImpl(1L);
+    job.setStatus(Job.Status.FINISHED);
+    job.setPayload(MediaPackageElementParser.getAsXml(imported));
+    EncodingProfileImpl importProfile = new EncodingProfileImpl();
+    importProfile.setIdentifier("import.partial");
+    EncodingProfileImpl standardProfile = new EncodingProfileImpl();
+    standardProfile.setIdentifier("encode.standard");
+    Capture<List<PartialTrack>> partials = new Capture<List<PartialTrack>>();
+    ComposerService composerService = EasyMock.createMock(ComposerService.class);
+    EasyMock.expect(composerService.getProfile("import.partial")).andReturn(importProfile).anyTimes();
+    EasyMock.expect(composerService.getProfile("encode.standard")).andReturn(standardProfile).anyTimes();
+    EasyMock.expect(composerService.partialImport(EasyMock.eq("import.partial"),
+            EasyMock.eq(Dimension.dimension(640, 480)), EasyMock.eq(-1.0f), EasyMock.eq(11000L),
+            EasyMock.capture(partials))).andReturn(job).once();
+
+    ServiceRegistry serviceRegistry = EasyMock.createNiceMock(ServiceRegistry.class);
+    EasyMock.expect(serviceRegistry.getJob(1L)).andReturn(job).anyTimes();
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(smilUri)).andReturn(smilFile).anyTimes();
+    EasyMock.expect(workspace.moveTo(EasyMock.eq(imported.getURI()), EasyMock.anyObject(String.class),
+            EasyMock.eq("imported"), EasyMock.eq("presenter.mp4")))
+            .andReturn(new URI("http://localhost/presenter.mp4"));
+    EasyMock.replay(operation, workflow, composerService, serviceRegistry, workspace);
+
+    PartialImportWorkflowOperationHandler handler = new PartialImportWorkflowOperationHandler();
+    handler.setComposerService(composerService);
+    handler.setServiceRegistry(serviceRegistry);
+    handler.setWorkspace(workspace);
+    WorkflowOperationResult result = handler.start(workflow, null);
+    EasyMock.verify(composerService);
+
+    assertEquals(Action.CONTINUE, result.getAction());
+    assertEquals(2, partials.getValue().size());
+    PartialTrack firstPartial = partials.getValue().get(0);
+    assertEquals("track-1", firstPartial.getTrack().getIdentifier());
+    assertEquals(PartialTrack.Content.Video, firstPartial.getContent());
+    assertEquals(1000L, firstPartial.getStart());
+    assertEquals(5000L, firstPartial.getEnd());
+    PartialTrack secondPartial = partials.getValue().get(1);
+    assertEquals("track-2", secondPartial.getTrack().getIdentifier());
+    assertEquals(6000L, secondPartial.getStart());
+    assertEquals(11000L, secondPartial.getEnd());
+
+    Track[] targetTracks = result.getMediaPackage().getTracks(PRESENTER_TARGET_FLAVOR);
+    assertEquals(1, targetTracks.length);
+    assertEquals("imported", targetTracks[0].getIdentifier());
+    assertEquals(new URI("http://localhost/presenter.mp4"), targetTracks[0].getURI());
+  }
+
+  private Track createPartialTrack(String identifier, int width, int height) throws URISyntaxException {
+    VideoStreamImpl videoStream = new VideoStreamImpl(identifier + "-video");
+    videoStream.setFrameWidth(width);
+    videoStream.setFrameHeight(height);
+    TrackImpl track = TrackImpl.fromURI(new URI("http://localhost/" + identifier + ".mp4"));
+    track.setIdentifier(identifier);
+    track.setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/source"));
+    track.setVideo(Collections.list((VideoStream) videoStream));
+    return track;
+  }
+
   /**
    * Test class to verify that muxing is done as expected without circumventing the service registry.
    */
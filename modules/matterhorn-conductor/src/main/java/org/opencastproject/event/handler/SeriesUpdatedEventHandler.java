@@ -29,10 +29,10 @@ import org.opencastproject.distribution.api.DistributionException;
 import org.opencastproject.distribution.api.DistributionService;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.JobBarrier;
-import org.opencastproject.job.api.JobBarrier.Result;
 import org.opencastproject.mediapackage.Attachment;
 import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElements;
 import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.message.broker.api.series.SeriesItem;
@@ -55,6 +55,7 @@ import org.opencastproject.security.api.User;
 import org.opencastproject.security.util.SecurityUtil;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.util.JobCanceledException;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.workspace.api.Workspace;
 
@@ -65,6 +66,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /** Responds to series events by re-distributing metadata and security policy files for published mediapackages. */
 public class SeriesUpdatedEventHandler {
@@ -187,115 +192,126 @@ public class SeriesUpdatedEventHandler {
       SearchQuery q = new SearchQuery().withSeriesId(seriesId);
       SearchResult result = searchService.getForAdministrativeRead(q);
 
+      // Submit the distribution and retraction jobs of all episodes before waiting for any of them
+      List<EpisodeUpdate> updates = new ArrayList<EpisodeUpdate>();
+      List<Job> jobs = new ArrayList<Job>();
       for (SearchResultItem item : result.getItems()) {
         MediaPackage mp = item.getMediaPackage();
-        Organization org = organizationDirectoryService.getOrganization(item.getOrganization());
-        securityService.setOrganization(org);
-
-        // If the security policy has been updated, make sure to distribute that change
-        // to the distribution channels as well
-        if (SeriesItem.Type.UpdateAcl.equals(seriesItem.getType())) {
-          // Build a new XACML file for this mediapackage
-          Attachment fileRepoCopy = authorizationService.setAcl(mp, AclScope.Series, seriesItem.getAcl()).getB();
-
-          // Distribute the updated XACML file
-          Job distributionJob = distributionService.distribute(CHANNEL_ID, mp, fileRepoCopy.getIdentifier());
-          JobBarrier barrier = new JobBarrier(null, serviceRegistry, distributionJob);
-          Result jobResult = barrier.waitForJobs();
-          if (jobResult.getStatus().get(distributionJob).equals(FINISHED)) {
-            mp.remove(fileRepoCopy);
-            mp.add(getFromXml(serviceRegistry.getJob(distributionJob.getId()).getPayload()));
-          } else {
-            logger.error("Unable to distribute XACML {}", fileRepoCopy.getIdentifier());
-            continue;
-          }
+        EpisodeUpdate update = new EpisodeUpdate(mp);
+        updates.add(update);
+        try {
+          Organization org = organizationDirectoryService.getOrganization(item.getOrganization());
+          update.org = org;
+          securityService.setOrganization(org);
+          submit(seriesItem, update);
+          jobs.addAll(update.distributions.keySet());
+          jobs.addAll(update.retractions.keySet());
+        } catch (NotFoundException | DistributionException | MediaPackageException | IOException e) {
+          update.fail(e.getMessage());
         }
-
-        // Update the series dublin core
-        if (SeriesItem.Type.UpdateCatalog.equals(seriesItem.getType())) {
-          DublinCoreCatalog seriesDublinCore = seriesItem.getMetadata();
-          mp.setSeriesTitle(seriesDublinCore.getFirst(DublinCore.PROPERTY_TITLE));
-
-          // Update the series dublin core
-          Catalog[] seriesCatalogs = mp.getCatalogs(MediaPackageElements.SERIES);
-          if (seriesCatalogs.length == 1) {
-            Catalog c = seriesCatalogs[0];
-            String filename = FilenameUtils.getName(c.getURI().toString());
-            URI uri = workspace.put(mp.getIdentifier().toString(), c.getIdentifier(), filename,
-                    dublinCoreService.serialize(seriesDublinCore));
-            c.setURI(uri);
-            // setting the URI to a new source so the checksum will most like be invalid
-            c.setChecksum(null);
-
-            // Distribute the updated series dc
-            Job distributionJob = distributionService.distribute(CHANNEL_ID, mp, c.getIdentifier());
-            JobBarrier barrier = new JobBarrier(null, serviceRegistry, distributionJob);
-            Result jobResult = barrier.waitForJobs();
-            if (jobResult.getStatus().get(distributionJob).equals(FINISHED)) {
-              mp.remove(c);
-              mp.add(getFromXml(serviceRegistry.getJob(distributionJob.getId()).getPayload()));
-            } else {
-              logger.error("Unable to distribute series catalog {}", c.getIdentifier());
-              continue;
-            }
-          }
+      }
+      logger.info("Waiting for {} distribution jobs of {} episodes of series {}", jobs.size(), updates.size(),
+              seriesId);
+      waitForJobs(jobs);
+
+      // Republish all episodes which have been updated completely
+      List<Job> searchJobs = new ArrayList<Job>();
+      for (EpisodeUpdate update : updates) {
+        if (!update.applyJobResults())
+          continue;
+        try {
+          securityService.setOrganization(update.org);
+          update.searchJob = searchService.add(update.mp);
+          searchJobs.add(update.searchJob);
+        } catch (SearchException | MediaPackageException | UnauthorizedException | ServiceRegistryException e) {
+          update.fail(e.getMessage());
         }
-
-        // Remove the series catalog and isPartOf from episode catalog
-        if (SeriesItem.Type.Delete.equals(seriesItem.getType())) {
-          mp.setSeries(null);
-          mp.setSeriesTitle(null);
-
-          boolean retractSeriesCatalog = retractSeriesCatalog(mp);
-          boolean updateEpisodeCatalog = updateEpisodeCatalog(mp);
-
-          if (!retractSeriesCatalog || !updateEpisodeCatalog)
-            continue;
+      }
+      logger.info("Waiting for {} episodes of series {} to be republished", searchJobs.size(), seriesId);
+      waitForJobs(searchJobs);
+
+      int updated = 0;
+      for (EpisodeUpdate update : updates) {
+        if (update.failure == null && update.searchJob != null && !FINISHED.equals(update.searchJob.getStatus()))
+          update.fail("Republishing failed");
+        if (update.failure == null) {
+          updated++;
+        } else {
+          logger.warn("Unable to update episode {} of series {}: {}", update.mp.getIdentifier(), seriesId,
+                  update.failure);
         }
-
-        // Update the search index with the modified mediapackage
-        Job searchJob = searchService.add(mp);
-        JobBarrier barrier = new JobBarrier(null, serviceRegistry, searchJob);
-        barrier.waitForJobs();
       }
+      logger.info("Updated {} of {} episodes of series {}", updated, updates.size(), seriesId);
     } catch (SearchException e) {
       logger.warn("Unable to find mediapackages in search: ", e.getMessage());
     } catch (UnauthorizedException e) {
       logger.warn(e.getMessage());
-    } catch (MediaPackageException e) {
-      logger.warn(e.getMessage());
-    } catch (ServiceRegistryException e) {
-      logger.warn(e.getMessage());
-    } catch (NotFoundException e) {
-      logger.warn(e.getMessage());
-    } catch (IOException e) {
-      logger.warn(e.getMessage());
-    } catch (DistributionException e) {
-      logger.warn(e.getMessage());
     } finally {
       securityService.setOrganization(prevOrg);
       securityService.setUser(prevUser);
     }
   }
 
-  private boolean retractSeriesCatalog(MediaPackage mp) throws DistributionException {
-    // Retract the series catalog
-    for (Catalog c : mp.getCatalogs(MediaPackageElements.SERIES)) {
-      Job retractJob = distributionService.retract(CHANNEL_ID, mp, c.getIdentifier());
-      JobBarrier barrier = new JobBarrier(null, serviceRegistry, retractJob);
-      Result jobResult = barrier.waitForJobs();
-      if (jobResult.getStatus().get(retractJob).equals(FINISHED)) {
-        mp.remove(c);
-      } else {
-        logger.error("Unable to retract series catalog {}", c.getIdentifier());
-        return false;
+  /**
+   * Updates the episode according to the series event and submits the distribution and retraction jobs required to
+   * publish the changes.
+   */
+  private void submit(SeriesItem seriesItem, EpisodeUpdate update) throws DistributionException,
+          MediaPackageException, IOException {
+    MediaPackage mp = update.mp;
+
+    // If the security policy has been updated, make sure to distribute that change
+    // to the distribution channels as well
+    if (SeriesItem.Type.UpdateAcl.equals(seriesItem.getType())) {
+      // Build a new XACML file for this mediapackage
+      Attachment fileRepoCopy = authorizationService.setAcl(mp, AclScope.Series, seriesItem.getAcl()).getB();
+
+      // Distribute the updated XACML file
+      update.distributions.put(distributionService.distribute(CHANNEL_ID, mp, fileRepoCopy.getIdentifier()),
+              fileRepoCopy);
+    }
+
+    // Update the series dublin core
+    if (SeriesItem.Type.UpdateCatalog.equals(seriesItem.getType())) {
+      DublinCoreCatalog seriesDublinCore = seriesItem.getMetadata();
+      mp.setSeriesTitle(seriesDublinCore.getFirst(DublinCore.PROPERTY_TITLE));
+
+      // Update the series dublin core
+      Catalog[] seriesCatalogs = mp.getCatalogs(MediaPackageElements.SERIES);
+      if (seriesCatalogs.length == 1) {
+        Catalog c = seriesCatalogs[0];
+        String filename = FilenameUtils.getName(c.getURI().toString());
+        URI uri = workspace.put(mp.getIdentifier().toString(), c.getIdentifier(), filename,
+                dublinCoreService.serialize(seriesDublinCore));
+        c.setURI(uri);
+        // setting the URI to a new source so the checksum will most like be invalid
+        c.setChecksum(null);
+
+        // Distribute the updated series dc
+        update.distributions.put(distributionService.distribute(CHANNEL_ID, mp, c.getIdentifier()), c);
       }
     }
-    return true;
+
+    // Remove the series catalog and isPartOf from episode catalog
+    if (SeriesItem.Type.Delete.equals(seriesItem.getType())) {
+      mp.setSeries(null);
+      mp.setSeriesTitle(null);
+
+      retractSeriesCatalog(update);
+      updateEpisodeCatalog(update);
+    }
   }
 
-  private boolean updateEpisodeCatalog(MediaPackage mp) throws DistributionException, MediaPackageException,
-          NotFoundException, ServiceRegistryException, IllegalArgumentException, IOException {
+  private void retractSeriesCatalog(EpisodeUpdate update) throws DistributionException {
+    // Retract the series catalog
+    for (Catalog c : update.mp.getCatalogs(MediaPackageElements.SERIES)) {
+      update.retractions.put(distributionService.retract(CHANNEL_ID, update.mp, c.getIdentifier()), c);
+    }
+  }
+
+  private void updateEpisodeCatalog(EpisodeUpdate update) throws DistributionException, MediaPackageException,
+          IllegalArgumentException, IOException {
+    MediaPackage mp = update.mp;
     // Update the episode catalog
     for (Catalog episodeCatalog : mp.getCatalogs(MediaPackageElements.EPISODE)) {
       DublinCoreCatalog episodeDublinCore = DublinCoreUtil.loadDublinCore(workspace, episodeCatalog);
@@ -308,17 +324,79 @@ public class SeriesUpdatedEventHandler {
       episodeCatalog.setChecksum(null);
 
       // Distribute the updated episode dublincore
-      Job distributionJob = distributionService.distribute(CHANNEL_ID, mp, episodeCatalog.getIdentifier());
-      JobBarrier barrier = new JobBarrier(null, serviceRegistry, distributionJob);
-      Result jobResult = barrier.waitForJobs();
-      if (jobResult.getStatus().get(distributionJob).equals(FINISHED)) {
-        mp.remove(episodeCatalog);
-        mp.add(getFromXml(serviceRegistry.getJob(distributionJob.getId()).getPayload()));
-      } else {
-        logger.error("Unable to distribute episode catalog {}", episodeCatalog.getIdentifier());
+      update.distributions.put(distributionService.distribute(CHANNEL_ID, mp, episodeCatalog.getIdentifier()),
+              episodeCatalog);
+    }
+  }
+
+  /**
+   * Waits for all jobs together. The barrier updates the status and payload of the jobs it has seen terminate, so a
+   * job that is not {@link Job.Status#FINISHED} afterwards has failed or could not be waited for.
+   */
+  private void waitForJobs(List<Job> jobs) {
+    if (jobs.isEmpty())
+      return;
+    try {
+      new JobBarrier(null, serviceRegistry, jobs.toArray(new Job[jobs.size()])).waitForJobs();
+    } catch (JobCanceledException | IllegalStateException e) {
+      logger.warn("Waiting for {} jobs ended early: {}", jobs.size(), e.getMessage());
+    }
+  }
+
+  /** The changes of a single published episode and the jobs to publish them. */
+  private static final class EpisodeUpdate {
+    private final MediaPackage mp;
+    private Organization org;
+    /** Distribution jobs and the elements their distributed versions replace */
+    private final Map<Job, MediaPackageElement> distributions = new LinkedHashMap<Job, MediaPackageElement>();
+    /** Retraction jobs and the elements they remove */
+    private final Map<Job, MediaPackageElement> retractions = new LinkedHashMap<Job, MediaPackageElement>();
+    private Job searchJob;
+    /** Reason why the episode could not be updated or <code>null</code> */
+    private String failure;
+
+    EpisodeUpdate(MediaPackage mp) {
+      this.mp = mp;
+    }
+
+    void fail(String failure) {
+      if (this.failure == null)
+        this.failure = failure;
+    }
+
+    /**
+     * Replaces the elements of the media package with the results of the finished jobs.
+     *
+     * @return <code>true</code> if all jobs of this episode have finished
+     */
+    boolean applyJobResults() {
+      if (failure != null)
+        return false;
+      for (Map.Entry<Job, MediaPackageElement> retraction : retractions.entrySet()) {
+        if (!FINISHED.equals(retraction.getKey().getStatus())) {
+          fail("Unable to retract " + retraction.getValue().getIdentifier());
+          return false;
+        }
+      }
+      for (Map.Entry<Job, MediaPackageElement> distribution : distributions.entrySet()) {
+        if (!FINISHED.equals(distribution.getKey().getStatus())) {
+          fail("Unable to distribute " + distribution.getValue().getIdentifier());
+          return false;
+        }
+      }
+      try {
+        for (MediaPackageElement element : retractions.values()) {
+          mp.remove(element);
+        }
+        for (Map.Entry<Job, MediaPackageElement> distribution : distributions.entrySet()) {
+          mp.remove(distribution.getValue());
+          mp.add(getFromXml(distribution.getKey().getPayload()));
+        }
+      } catch (MediaPackageException e) {
+        fail(e.getMessage());
         return false;
       }
+      return true;
     }
-    return true;
   }
 }
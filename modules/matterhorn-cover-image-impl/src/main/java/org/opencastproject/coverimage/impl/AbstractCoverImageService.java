@@ -37,11 +37,18 @@ import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.UserDirectoryService;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
 import org.opencastproject.workspace.api.Workspace;
 
-import org.apache.batik.apps.rasterizer.DestinationType;
-import org.apache.batik.apps.rasterizer.SVGConverter;
-import org.apache.batik.apps.rasterizer.SVGConverterException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.PNGTranscoder;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -52,20 +59,23 @@ import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -105,6 +115,28 @@ public abstract class AbstractCoverImageService extends AbstractJobProducer impl
   /** The logging facility */
   private static final Logger log = LoggerFactory.getLogger(AbstractCoverImageService.class);
 
+  /** Maximum number of compiled stylesheets to keep */
+  private static final int TEMPLATES_CACHE_SIZE = 32;
+
+  /** Maximum size in bytes of the rendered images to keep */
+  private static final int IMAGE_CACHE_WEIGHT = 64 * 1024 * 1024;
+
+  /** Compiled stylesheets by checksum of the stylesheet */
+  private final Cache<String, Templates> templatesCache = CacheBuilder.newBuilder()
+          .maximumSize(TEMPLATES_CACHE_SIZE).build();
+
+  /** Rendered PNG images by checksum of everything the rendering depends on */
+  private final Cache<String, byte[]> imageCache = CacheBuilder.newBuilder().maximumWeight(IMAGE_CACHE_WEIGHT)
+          .weigher(new Weigher<String, byte[]>() {
+            @Override
+            public int weigh(String key, byte[] image) {
+              return image.length;
+            }
+          }).build();
+
+  /** Transcoders not in use, a transcoder can be reused but must only be used by one thread at a time */
+  private final Queue<PNGTranscoder> transcoders = new ConcurrentLinkedQueue<PNGTranscoder>();
+
   /** Creates a new composer service instance. */
   public AbstractCoverImageService() {
     super(JOB_TYPE);
@@ -152,13 +184,40 @@ public abstract class AbstractCoverImageService extends AbstractJobProducer impl
           String posterImage, String targetFlavor) throws CoverImageException {
 
     URI result;
-    File tempSvg = null;
-    File tempPng = null;
-    StringReader xmlReader = null;
+    String xslChecksum = checksum(xsl);
+    // the poster image may change under the same path, so its content is part of the key
+    String posterChecksum = posterImageChecksum(posterImage);
+    String imageKey = posterChecksum == null ? null : checksum(xslChecksum + "\n" + width + "x" + height + "\n"
+            + StringUtils.trimToEmpty(posterImage) + "\n" + posterChecksum + "\n" + xml);
+    byte[] png = imageKey == null ? null : imageCache.getIfPresent(imageKey);
+    if (png != null) {
+      log.debug("Reusing the cover image rendered from identical input");
+    } else {
+      png = renderCoverImage(job, xml, getTemplates(xsl, xslChecksum), width, height, posterImage);
+      if (imageKey != null)
+        imageCache.put(imageKey, png);
+    }
 
     try {
-      Document xslDoc = parseXsl(xsl);
+      result = workspace.putInCollection(COVERIMAGE_WORKSPACE_COLLECTION, job.getId() + "_coverimage.png",
+              new ByteArrayInputStream(png));
+      log.debug("Put the cover image into the workspace ({})", result);
+    } catch (IOException e) {
+      log.warn("Error while putting resulting image into workspace collection '{}': {}",
+              COVERIMAGE_WORKSPACE_COLLECTION, e);
+      throw new CoverImageException("Error while putting resulting image into workspace collection", e);
+    }
+
+    return (Attachment) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
+            .elementFromURI(result, Type.Attachment, MediaPackageElementFlavor.parseFlavor(targetFlavor));
+  }
 
+  /** Transforms the metadata to SVG and rasterizes it to a PNG image. */
+  private byte[] renderCoverImage(Job job, String xml, Templates templates, int width, int height,
+          String posterImage) throws CoverImageException {
+    File tempSvg = null;
+    StringReader xmlReader = null;
+    try {
       // Create temp SVG file for transformation result
       tempSvg = createTempFile(job, ".svg");
       Result svg = new StreamResult(tempSvg);
@@ -168,37 +227,71 @@ public abstract class AbstractCoverImageService extends AbstractJobProducer impl
       Source xmlSource = new StreamSource(xmlReader);
 
       // Transform XML metadata with stylesheet to SVG
-      transformSvg(svg, xmlSource, xslDoc, width, height, posterImage);
+      transformSvgWithTemplates(svg, xmlSource, templates, width, height, posterImage);
 
       // Rasterize SVG to PNG
-      tempPng = createTempFile(job, ".png");
-      rasterizeSvg(tempSvg, tempPng);
-
-      FileInputStream in = null;
-      try {
-        in = new FileInputStream(tempPng);
-        result = workspace.putInCollection(COVERIMAGE_WORKSPACE_COLLECTION, job.getId() + "_coverimage.png", in);
-        log.debug("Put the cover image into the workspace ({})", result);
-      } catch (FileNotFoundException e) {
-        // should never happen...
-        throw new CoverImageException(e);
-      } catch (IOException e) {
-        log.warn("Error while putting resulting image into workspace collection '{}': {}",
-                COVERIMAGE_WORKSPACE_COLLECTION, e);
-        throw new CoverImageException("Error while putting resulting image into workspace collection", e);
-      } finally {
-        IOUtils.closeQuietly(in);
-      }
+      ByteArrayOutputStream png = new ByteArrayOutputStream();
+      rasterizeSvg(tempSvg, png);
+      return png.toByteArray();
     } finally {
       FileUtils.deleteQuietly(tempSvg);
-      FileUtils.deleteQuietly(tempPng);
       log.debug("Removed temporary files");
 
       IOUtils.closeQuietly(xmlReader);
     }
+  }
 
-    return (Attachment) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
-            .elementFromURI(result, Type.Attachment, MediaPackageElementFlavor.parseFlavor(targetFlavor));
+  /**
+   * Returns the compiled stylesheet, compiling it only if the same stylesheet has not been used recently.
+   *
+   * @param xsl
+   *          the stylesheet
+   * @param xslChecksum
+   *          the checksum of the stylesheet
+   * @return the compiled stylesheet
+   * @throws CoverImageException
+   *           if the stylesheet cannot be parsed or compiled
+   */
+  protected Templates getTemplates(String xsl, String xslChecksum) throws CoverImageException {
+    Templates templates = templatesCache.getIfPresent(xslChecksum);
+    if (templates == null) {
+      templates = compileXsl(parseXsl(xsl));
+      templatesCache.put(xslChecksum, templates);
+    }
+    return templates;
+  }
+
+  /**
+   * Returns the checksum of the content of the poster image, so that a changed image is not served from the cache.
+   *
+   * @param posterImage
+   *          the path or file URL of the poster image, may be blank
+   * @return the checksum, an empty string if there is no poster image or <code>null</code> if the poster image is not
+   *         a readable local file and the rendered image must not be cached
+   */
+  private static String posterImageChecksum(String posterImage) {
+    if (StringUtils.isBlank(posterImage))
+      return "";
+    try {
+      File file = posterImage.startsWith("file:") ? new File(URI.create(posterImage)) : new File(posterImage);
+      if (!file.isFile())
+        return null;
+      return Checksum.create(ChecksumType.DEFAULT_TYPE, file).getValue();
+    } catch (IllegalArgumentException e) {
+      return null;
+    } catch (IOException e) {
+      log.debug("Unable to create a checksum of the poster image {}: {}", posterImage, e.getMessage());
+      return null;
+    }
+  }
+
+  private static String checksum(String s) throws CoverImageException {
+    try {
+      return Checksum.createFor(ChecksumType.DEFAULT_TYPE, s).getValue();
+    } catch (IOException e) {
+      // this should never happen...
+      throw new CoverImageException("Unable to create a checksum", e);
+    }
   }
 
   protected static Document parseXsl(String xsl) throws CoverImageException {
@@ -230,10 +323,17 @@ public abstract class AbstractCoverImageService extends AbstractJobProducer impl
     if (svg == null || xmlSource == null || xslDoc == null)
       throw new IllegalArgumentException("Neither svg nor xmlSource nor xslDoc must be null");
 
-    TransformerFactory factory = TransformerFactory.newInstance();
+    transformSvgWithTemplates(svg, xmlSource, compileXsl(xslDoc), width, height, posterImage);
+  }
+
+  protected static void transformSvgWithTemplates(Result svg, Source xmlSource, Templates templates, int width,
+          int height, String posterImage) throws CoverImageException {
+    if (svg == null || xmlSource == null || templates == null)
+      throw new IllegalArgumentException("Neither svg nor xmlSource nor templates must be null");
+
     Transformer transformer;
     try {
-      transformer = factory.newTransformer(new DOMSource(xslDoc));
+      transformer = templates.newTransformer();
     } catch (TransformerConfigurationException e) {
       // this should never happen...
       throw new CoverImageException("The XSL transformer factory has serious configuration errors", e);
@@ -257,6 +357,24 @@ public abstract class AbstractCoverImageService extends AbstractJobProducer impl
     }
   }
 
+  /**
+   * Compiles a stylesheet. The compiled stylesheet is thread safe and can be used for any number of transformations.
+   */
+  protected static Templates compileXsl(Document xslDoc) throws TransformerFactoryConfigurationError,
+          CoverImageException {
+    Thread thread = Thread.currentThread();
+    ClassLoader loader = thread.getContextClassLoader();
+    thread.setContextClassLoader(AbstractCoverImageService.class.getClassLoader());
+    try {
+      return TransformerFactory.newInstance().newTemplates(new DOMSource(xslDoc));
+    } catch (TransformerConfigurationException e) {
+      log.warn("Error while compiling the XSLT stylesheet: {}", e.getMessage());
+      throw new CoverImageException("Error while compiling the XSLT stylesheet", e);
+    } finally {
+      thread.setContextClassLoader(loader);
+    }
+  }
+
   protected File createTempFile(Job job, String suffix) throws CoverImageException {
     File tempFile;
     try {
@@ -269,17 +387,18 @@ public abstract class AbstractCoverImageService extends AbstractJobProducer impl
     return tempFile;
   }
 
-  protected static void rasterizeSvg(File svgSource, File pngResult) throws CoverImageException {
-    SVGConverter converter = new SVGConverter();
-    converter.setDestinationType(DestinationType.PNG);
-    converter.setDst(pngResult);
-    converter.setSources(new String[] { svgSource.getAbsolutePath() });
+  protected void rasterizeSvg(File svgSource, OutputStream pngResult) throws CoverImageException {
+    PNGTranscoder transcoder = transcoders.poll();
+    if (transcoder == null)
+      transcoder = new PNGTranscoder();
     try {
       log.debug("Start converting SVG to PNG");
-      converter.execute();
-    } catch (SVGConverterException e) {
+      transcoder.transcode(new TranscoderInput(svgSource.toURI().toString()), new TranscoderOutput(pngResult));
+    } catch (TranscoderException e) {
       log.warn("Error while converting the SVG to a PNG: {}", e.getMessage());
       throw new CoverImageException("Error while converting the SVG to a PNG", e);
+    } finally {
+      transcoders.offer(transcoder);
     }
   }
 }
@@ -21,26 +21,39 @@
 
 package org.opencastproject.coverimage.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.xmlmatchers.XmlMatchers.hasXPath;
 import static org.xmlmatchers.transform.XmlConverters.the;
 
 import org.opencastproject.coverimage.CoverImageException;
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.workspace.api.Workspace;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.dom4j.dom.DOMDocument;
+import org.easymock.EasyMock;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.w3c.dom.Document;
 import org.xmlmatchers.namespace.SimpleNamespaceContext;
 
+import java.io.File;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.transform.Result;
 import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
@@ -49,6 +62,9 @@ import javax.xml.transform.stream.StreamSource;
  */
 public class CoverImageServiceTest {
 
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
   /**
    * Tests {@link AbstractCoverImageService#parseXsl(String)}
    */
@@ -137,4 +153,63 @@ public class CoverImageServiceTest {
     assertThat(the(svgString), hasXPath("//svg:svg[@width='1600']", nsContext));
     assertThat(the(svgString), hasXPath("//svg:svg/svg:text/svg:tspan", nsContext));
   }
+
+  /**
+   * Tests {@link AbstractCoverImageService#transformSvgWithTemplates(Result, Source, Templates, int, int, String)}
+   * with a compiled stylesheet used for several transformations
+   */
+  @Test
+  public void testTransformSvgWithTemplates() throws Exception {
+    InputStream isXsl = CoverImageServiceTest.class.getResourceAsStream("/metadata2svg.xsl");
+    Templates templates = AbstractCoverImageService.compileXsl(AbstractCoverImageService.parseXsl(IOUtils
+            .toString(isXsl)));
+
+    NamespaceContext nsContext = new SimpleNamespaceContext().withBinding("svg", "http://www.w3.org/2000/svg");
+    for (int width : new int[] { 1600, 1280 }) {
+      Writer svgWriter = new StringWriter();
+      InputStream isXml = CoverImageServiceTest.class.getResourceAsStream("/metadata.xml");
+      AbstractCoverImageService.transformSvgWithTemplates(new StreamResult(svgWriter), new StreamSource(isXml),
+              templates, width, 720, null);
+      assertThat(the(svgWriter.toString()), hasXPath("//svg:svg[@width='" + width + "']", nsContext));
+    }
+  }
+
+  /**
+   * Tests {@link AbstractCoverImageService#generateCoverImageInternal(Job, String, String, int, int, String, String)}
+   * reusing the rendered image for identical input and rendering it again once the poster image changed
+   */
+  @Test
+  public void testRenderedImageCache() throws Exception {
+    String xml = IOUtils.toString(CoverImageServiceTest.class.getResourceAsStream("/metadata.xml"));
+    String xsl = IOUtils.toString(CoverImageServiceTest.class.getResourceAsStream("/metadata2svg.xsl"));
+    File poster = testFolder.newFile("poster.png");
+    FileUtils.writeStringToFile(poster, "first poster", "UTF-8");
+
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(),
+            EasyMock.anyObject(InputStream.class))).andReturn(URI.create("http://localhost/coverimage.png")).anyTimes();
+    EasyMock.replay(workspace);
+
+    final AtomicInteger rendered = new AtomicInteger();
+    CoverImageServiceOsgiImpl service = new CoverImageServiceOsgiImpl() {
+      @Override
+      protected void rasterizeSvg(File svgSource, OutputStream pngResult) throws CoverImageException {
+        rendered.incrementAndGet();
+      }
+    };
+    service.setWorkspace(workspace);
+    Job job = new JobImpl(1);
+
+    // Rendering the same input twice hits the cache
+    service.generateCoverImageInternal(job, xml, xsl, 1600, 900, poster.getAbsolutePath(), "image/cover");
+    service.generateCoverImageInternal(job, xml, xsl, 1600, 900, poster.getAbsolutePath(), "image/cover");
+    assertEquals(1, rendered.get());
+
+    // A poster image replaced under the same path is rendered again
+    FileUtils.writeStringToFile(poster, "second poster", "UTF-8");
+    service.generateCoverImageInternal(job, xml, xsl, 1600, 900, poster.getAbsolutePath(), "image/cover");
+    assertEquals(2, rendered.get());
+    service.generateCoverImageInternal(job, xml, xsl, 1600, 900, poster.getAbsolutePath(), "image/cover");
+    assertEquals(2, rendered.get());
+  }
 }
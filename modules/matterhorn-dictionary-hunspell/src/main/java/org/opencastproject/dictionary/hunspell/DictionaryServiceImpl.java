@@ -38,9 +38,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.LinkedList;
+import java.util.List;
 
 /**
  * This dictionary implementation is a dummy implementation which which will
@@ -58,22 +60,49 @@ public class DictionaryServiceImpl implements DictionaryService {
   public static final String HUNSPELL_COMMAND_CONFIG_KEY =
     "org.opencastproject.dictionary.hunspell.command";
 
+  public static final String HUNSPELL_POOL_SIZE_CONFIG_KEY =
+    "org.opencastproject.dictionary.hunspell.pool.size";
+
+  public static final String HUNSPELL_POOL_TIMEOUT_CONFIG_KEY =
+    "org.opencastproject.dictionary.hunspell.pool.timeout";
+
+  /* The default number of persistent hunspell processes, the pool is disabled by default */
+  public static final int DEFAULT_POOL_SIZE = 0;
+
+  /* The default time in milliseconds a persistent hunspell process may take to answer */
+  public static final long DEFAULT_POOL_TIMEOUT = 10000L;
+
   /* The hunspell binary to execute */
   private String binary = "hunspell";
 
   /* The regular command line options for filtering */
   private String command = " -i utf-8 -d de_DE,en_GB,en_US -G";
 
-  public void setBinary(String b) {
+  /* The number of persistent hunspell processes */
+  private int poolSize = DEFAULT_POOL_SIZE;
+
+  /* The time in milliseconds a persistent hunspell process may take to answer */
+  private long poolTimeout = DEFAULT_POOL_TIMEOUT;
+
+  /* The pool of persistent hunspell processes, null if every request starts its own process */
+  private HunspellProcessPool pool = null;
+
+  public synchronized void setBinary(String b) {
     binary = b;
+    if (pool != null) {
+      createPool();
+    }
   }
 
   public String getBinary() {
     return binary;
   }
 
-  public void setCommand(String c) {
+  public synchronized void setCommand(String c) {
     command = c;
+    if (pool != null) {
+      createPool();
+    }
   }
 
   public String getCommand() {
@@ -97,7 +126,7 @@ public class DictionaryServiceImpl implements DictionaryService {
       /* Fix special characters */
       binary = new String(binary.getBytes("ISO-8859-1"), "UTF-8");
       logger.info("Setting hunspell binary to '{}'", binary);
-      this.binary = binary;
+      setBinary(binary);
     }
 
     /* Get hunspell command line options from config file */
@@ -106,8 +135,114 @@ public class DictionaryServiceImpl implements DictionaryService {
       /* Fix special characters */
       command = new String(command.getBytes("ISO-8859-1"), "UTF-8");
       logger.info("Setting hunspell command line options to '{}'", command);
-      this.command = command;
+      setCommand(command);
+    }
+
+    /* Get the read timeout of persistent hunspell processes from config file */
+    String poolTimeoutString = StringUtils.trimToNull((String) ctx.getProperty(HUNSPELL_POOL_TIMEOUT_CONFIG_KEY));
+    if (poolTimeoutString != null) {
+      try {
+        setPoolTimeout(Long.parseLong(poolTimeoutString));
+      } catch (IllegalArgumentException e) {
+        logger.warn("Invalid hunspell pool timeout '{}', using default of {}ms", poolTimeoutString,
+            DEFAULT_POOL_TIMEOUT);
+      }
+    }
+
+    /* Get the number of persistent hunspell processes from config file */
+    int poolSize = DEFAULT_POOL_SIZE;
+    String poolSizeString = StringUtils.trimToNull((String) ctx.getProperty(HUNSPELL_POOL_SIZE_CONFIG_KEY));
+    if (poolSizeString != null) {
+      try {
+        poolSize = Integer.parseInt(poolSizeString);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid hunspell pool size '{}', using default of {}", poolSizeString, DEFAULT_POOL_SIZE);
+      }
     }
+    setPoolSize(poolSize);
+  }
+
+  /**
+   * OSGi callback on component deactivation.
+   */
+  void deactivate() {
+    setPoolSize(0);
+  }
+
+  /**
+   * Sets the number of persistent hunspell processes used for filtering. A
+   * size of zero disables the pool, which will make every request start a new
+   * hunspell process using the configured command.
+   *
+   * @param  size  the number of processes
+   */
+  public synchronized void setPoolSize(int size) {
+    poolSize = size;
+    if (size > 0) {
+      logger.info("Using a pool of {} persistent hunspell processes", size);
+    } else {
+      logger.info("Starting a new hunspell process for every request");
+    }
+    createPool();
+  }
+
+  /**
+   * Sets the time a persistent hunspell process may take to start or to answer before it is considered hung. Such a
+   * process is killed and replaced by a new one.
+   *
+   * @param  timeout  the timeout in milliseconds
+   */
+  public synchronized void setPoolTimeout(long timeout) {
+    if (timeout < 1) {
+      throw new IllegalArgumentException("Hunspell pool timeout must be positive");
+    }
+    poolTimeout = timeout;
+    if (pool != null) {
+      createPool();
+    }
+  }
+
+  /**
+   * Replaces the pool of persistent hunspell processes with one matching the current configuration, shutting down the
+   * processes of the previous pool.
+   */
+  private void createPool() {
+    if (pool != null) {
+      pool.close();
+      pool = null;
+    }
+    if (poolSize > 0) {
+      pool = new HunspellProcessPool(getPipeCommandLine(), poolSize, poolTimeout);
+    }
+  }
+
+  /**
+   * Returns the pool of persistent hunspell processes.
+   *
+   * @return  the pool, or <code>null</code> if the pool is disabled
+   */
+  synchronized HunspellProcessPool getPool() {
+    return pool;
+  }
+
+  /**
+   * Get the command line for running hunspell in pipe mode. The filter options
+   * <code>-G</code>, <code>-l</code> and <code>-L</code> of the configured
+   * command are replaced by <code>-a</code>.
+   *
+   * @return  the command line split into its arguments
+   */
+  String[] getPipeCommandLine() {
+    List<String> commandList = new ArrayList<String>();
+    commandList.add(binary);
+    for (String option : StringUtils.split(command)) {
+      if (!"-G".equals(option) && !"-l".equals(option) && !"-L".equals(option)
+              && !"-a".equals(option)) {
+        commandList.add(option);
+      }
+    }
+    commandList.add("-a");
+    return commandList.toArray(new String[commandList.size()]);
   }
 
 
@@ -163,20 +298,66 @@ public class DictionaryServiceImpl implements DictionaryService {
   }
 
 
+  /**
+   * Check the whitespace separated words of text using the pool of persistent
+   * hunspell processes. A word is kept if hunspell recognizes all of its
+   * tokens. Punctuation around the word is removed.
+   *
+   * @param  pool  the process pool to use
+   * @param  text  the text to filter
+   * @return the recognized words
+   **/
+  List<String> runHunspellPool(HunspellProcessPool pool, String text) throws Throwable {
+    List<String> words = new ArrayList<String>();
+    for (String word : StringUtils.split(text)) {
+      word = stripPunctuation(word);
+      if (!word.isEmpty()) {
+        words.add(word);
+      }
+    }
+    if (words.isEmpty()) {
+      return words;
+    }
+    return pool.filterCorrect(words);
+  }
+
+  /**
+   * Remove all characters from the beginning and the end of a word which are
+   * neither letters nor digits.
+   */
+  static String stripPunctuation(String word) {
+    int start = 0;
+    int end = word.length();
+    while (start < end && !Character.isLetterOrDigit(word.charAt(start))) {
+      start++;
+    }
+    while (end > start && !Character.isLetterOrDigit(word.charAt(end - 1))) {
+      end--;
+    }
+    return word.substring(start, end);
+  }
+
+
   /**
    * Filter the text according to the rules defined by the dictionary
-   * implementation used. This implementation will just let the whole text pass
-   * through.
+   * implementation used. If the process pool is enabled, the text is checked
+   * word by word by one of the persistent hunspell processes, otherwise a new
+   * hunspell process is started using the configured command.
    *
    * @return filtered text
    **/
   @Override
   public Textual cleanUpText(String text) {
 
-    LinkedList<String> words = null;
+    List<String> words = null;
+    HunspellProcessPool pool = getPool();
 
     try {
-      words = runHunspell(text);
+      if (pool != null) {
+        words = runHunspellPool(pool, text);
+      } else {
+        words = runHunspell(text);
+      }
     } catch (Throwable t) {
       logger.error("Error executing hunspell");
       logger.error(t.getMessage(), t);
@@ -0,0 +1,356 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.dictionary.hunspell;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size pool of long-lived hunspell processes running in ispell compatible pipe mode (<code>-a</code>).
+ * <p>
+ * Every process loads its dictionaries once and is then reused for any number of requests. A request is a list of
+ * words which are written one per line, each line being answered by hunspell with one result line per token followed
+ * by an empty line. Processes which died or failed during a request are restarted transparently. A process which does
+ * not answer within the read timeout is considered hung and is killed, so that it gets replaced as well.
+ */
+class HunspellProcessPool {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(HunspellProcessPool.class);
+
+  /** Maximum number of words written to a process before reading the answers, keeps the pipe buffers from filling */
+  static final int MAX_WORDS_PER_WRITE = 64;
+
+  /** The command line used to start a hunspell process */
+  private final String[] commandLine;
+
+  /** Kills processes which do not answer in time */
+  private final ScheduledExecutorService watchdog;
+
+  /** The idle processes */
+  private final BlockingQueue<HunspellProcess> idle;
+
+  /** All processes of this pool */
+  private final List<HunspellProcess> processes;
+
+  /** Whether this pool has been shut down */
+  private volatile boolean closed = false;
+
+  /**
+   * Creates a new pool. Processes are started lazily on first use.
+   *
+   * @param commandLine
+   *          the hunspell command line, which has to start hunspell in pipe mode
+   * @param size
+   *          the maximum number of concurrently running hunspell processes
+   * @param readTimeout
+   *          the time in milliseconds a process may take to start or to answer a chunk of words before it is killed
+   */
+  HunspellProcessPool(String[] commandLine, int size, long readTimeout) {
+    if (size < 1)
+      throw new IllegalArgumentException("Pool size must be at least 1");
+    if (readTimeout < 1)
+      throw new IllegalArgumentException("Read timeout must be positive");
+    this.commandLine = commandLine;
+    this.watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "hunspell-watchdog");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    this.idle = new ArrayBlockingQueue<HunspellProcess>(size);
+    this.processes = new ArrayList<HunspellProcess>(size);
+    for (int i = 0; i < size; i++) {
+      HunspellProcess process = new HunspellProcess(commandLine, i, watchdog, readTimeout);
+      processes.add(process);
+      idle.add(process);
+    }
+  }
+
+  /**
+   * Returns the command line used by the processes of this pool.
+   *
+   * @return the command line
+   */
+  String[] getCommandLine() {
+    return commandLine;
+  }
+
+  /**
+   * Checks the given words against the dictionaries and returns the ones which were recognized. If the process fails or
+   * times out while handling the request, it is restarted and the request is retried once.
+   *
+   * @param words
+   *          the words to check, none of them may contain line breaks
+   * @return the recognized words, in input order
+   * @throws IOException
+   *           if hunspell cannot be started, fails or times out repeatedly
+   * @throws InterruptedException
+   *           if the calling thread is interrupted while waiting for an idle process
+   */
+  List<String> filterCorrect(List<String> words) throws IOException, InterruptedException {
+    if (closed)
+      throw new IllegalStateException("Hunspell process pool has been shut down");
+    HunspellProcess process = idle.take();
+    try {
+      try {
+        process.ensureRunning();
+        return process.filterCorrect(words);
+      } catch (IOException e) {
+        logger.warn("Hunspell process {} failed, restarting it: {}", process.getId(), e.getMessage());
+        process.destroy();
+        process.ensureRunning();
+        return process.filterCorrect(words);
+      }
+    } catch (IOException e) {
+      process.destroy();
+      throw e;
+    } finally {
+      if (closed)
+        process.destroy();
+      idle.add(process);
+    }
+  }
+
+  /**
+   * Terminates all processes of this pool. Requests which are currently running will fail.
+   */
+  void close() {
+    closed = true;
+    watchdog.shutdownNow();
+    for (HunspellProcess process : processes) {
+      process.destroy();
+    }
+  }
+
+  /**
+   * A single, restartable hunspell process in pipe mode.
+   */
+  static final class HunspellProcess {
+
+    /** The identifier of this process within its pool */
+    private final int id;
+
+    /** The command line used to start hunspell */
+    private final String[] commandLine;
+
+    /** Kills this process if it does not answer in time */
+    private final ScheduledExecutorService watchdog;
+
+    /** The time in milliseconds to wait for an answer of hunspell */
+    private final long readTimeout;
+
+    /** The running hunspell process, volatile since the watchdog kills it without holding the lock */
+    private volatile Process process = null;
+
+    /** Whether the watchdog killed the running process */
+    private volatile boolean timedOut = false;
+
+    /** Writer for the standard input of the process */
+    private BufferedWriter stdin = null;
+
+    /** Reader for the standard output of the process */
+    private BufferedReader stdout = null;
+
+    HunspellProcess(String[] commandLine, int id, ScheduledExecutorService watchdog, long readTimeout) {
+      this.commandLine = commandLine;
+      this.id = id;
+      this.watchdog = watchdog;
+      this.readTimeout = readTimeout;
+    }
+
+    int getId() {
+      return id;
+    }
+
+    /**
+     * Makes sure the process is running, (re)starting it if necessary. A freshly started process is only considered
+     * healthy once it printed the ispell version banner, which hunspell does after loading its dictionaries.
+     */
+    synchronized void ensureRunning() throws IOException {
+      if (process != null && process.isAlive())
+        return;
+      destroy();
+      timedOut = false;
+
+      logger.info("Starting hunspell process {} with '{}'", id, StringUtils.join(commandLine, " "));
+      process = new ProcessBuilder(commandLine).start();
+      stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+      stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+      drainErrors(process.getErrorStream());
+
+      String banner;
+      ScheduledFuture<?> kill = scheduleKill();
+      try {
+        banner = readLine();
+      } finally {
+        kill.cancel(false);
+      }
+      if (banner == null || !banner.startsWith("@(#)")) {
+        destroy();
+        throw new IOException("Hunspell did not start in pipe mode (Missing dictionaries?)");
+      }
+      logger.debug("Hunspell process {} is ready: {}", id, banner);
+    }
+
+    /**
+     * Checks the given words. Each word is sent on a line of its own, prefixed with <code>^</code> so that hunspell
+     * never interprets it as a pipe mode command.
+     */
+    synchronized List<String> filterCorrect(List<String> words) throws IOException {
+      List<String> correct = new ArrayList<String>(words.size());
+      for (int offset = 0; offset < words.size(); offset += MAX_WORDS_PER_WRITE) {
+        List<String> chunk = words.subList(offset, Math.min(words.size(), offset + MAX_WORDS_PER_WRITE));
+        for (String word : chunk) {
+          stdin.write('^');
+          stdin.write(word);
+          stdin.write('\n');
+        }
+        stdin.flush();
+        ScheduledFuture<?> kill = scheduleKill();
+        try {
+          for (String word : chunk) {
+            if (readResult())
+              correct.add(word);
+          }
+        } finally {
+          kill.cancel(false);
+        }
+      }
+      return correct;
+    }
+
+    /**
+     * Schedules the process to be killed once the read timeout elapsed. Killing the process closes its output, which
+     * makes the pending read return.
+     */
+    private ScheduledFuture<?> scheduleKill() {
+      final Process running = process;
+      return watchdog.schedule(new Runnable() {
+        @Override
+        public void run() {
+          logger.warn("Hunspell process {} did not answer within {}ms, killing it", id, readTimeout);
+          timedOut = true;
+          running.destroyForcibly();
+        }
+      }, readTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads the answer to a single input line, which is terminated by an empty line.
+     *
+     * @return whether the line consisted of at least one token and all tokens were recognized
+     */
+    private boolean readResult() throws IOException {
+      int tokens = 0;
+      boolean recognized = true;
+      String line;
+      while ((line = readLine()) != null) {
+        if (line.isEmpty())
+          return tokens > 0 && recognized;
+        tokens++;
+        switch (line.charAt(0)) {
+          case '*': // correct
+          case '+': // correct by affix rule
+          case '-': // correct as compound word
+            break;
+          default: // '&', '?' and '#' mark misspellings
+            recognized = false;
+        }
+      }
+      throw new IOException("Hunspell process " + id + " terminated unexpectedly");
+    }
+
+    /**
+     * Reads a line of output, failing with a descriptive message if the watchdog killed the process meanwhile.
+     */
+    private String readLine() throws IOException {
+      String line;
+      try {
+        line = stdout.readLine();
+      } catch (IOException e) {
+        if (timedOut)
+          throw new IOException("Hunspell process " + id + " did not answer within " + readTimeout + "ms", e);
+        throw e;
+      }
+      if (timedOut)
+        throw new IOException("Hunspell process " + id + " did not answer within " + readTimeout + "ms");
+      return line;
+    }
+
+    /**
+     * Kills the process, if it is running.
+     */
+    synchronized void destroy() {
+      if (process == null)
+        return;
+      process.destroy();
+      process = null;
+      timedOut = false;
+      stdin = null;
+      stdout = null;
+    }
+
+    /**
+     * Logs everything hunspell writes to its error stream. Draining the stream also keeps hunspell from blocking on a
+     * full pipe.
+     */
+    private void drainErrors(final InputStream stderr) {
+      Thread drainer = new Thread("hunspell-" + id + "-stderr") {
+        @Override
+        public void run() {
+          try (BufferedReader reader = new BufferedReader(new InputStreamReader(stderr, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+              logger.warn(line);
+            }
+          } catch (IOException e) {
+            logger.debug("Stopped reading errors of hunspell process {}", id);
+          }
+        }
+      };
+      drainer.setDaemon(true);
+      drainer.start();
+    }
+  }
+
+}
@@ -0,0 +1,91 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.dictionary.hunspell;
+
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of one hunspell process per text line with the pool of persistent hunspell processes.
+ * Requires hunspell and the en_US dictionary to be installed.
+ */
+@Ignore
+public class DictionaryServiceImplPerformanceTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(DictionaryServiceImplPerformanceTest.class);
+
+  /** Number of text lines to filter per run, roughly the OCR output of a lecture */
+  private static final int LINES = 2000;
+
+  /** Number of concurrent text analysis jobs */
+  private static final int THREADS = 4;
+
+  private static final String[] TEXT = new String[] {
+    "Introduction to distributed systems",
+    "Chapter 3: Consistency and replication",
+    "The CAP theorem states that a system cannot be consistent, available and partition tolerant",
+    "Questions?",
+    "Lamport clocks order events in a distributed system" };
+
+  @Test
+  public void testLinesPerSecond() throws Exception {
+    DictionaryServiceImpl service = new DictionaryServiceImpl();
+    service.setCommand("-i utf-8 -d en_US -G");
+
+    service.setPoolSize(0);
+    benchmark("one process per line", service);
+
+    service.setPoolSize(THREADS);
+    try {
+      // Start the processes before measuring
+      benchmark("pool warm-up", service);
+      benchmark("process pool", service);
+    } finally {
+      service.setPoolSize(0);
+    }
+  }
+
+  private void benchmark(String name, final DictionaryServiceImpl service) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    long start = System.nanoTime();
+    for (int i = 0; i < LINES; i++) {
+      final String line = TEXT[i % TEXT.length];
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          service.cleanUpText(line);
+        }
+      });
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.HOURS);
+    double seconds = (System.nanoTime() - start) / 1e9;
+    logger.info(String.format("%s: %d lines in %.2fs, %.1f lines/s", name, LINES, seconds, LINES / seconds));
+  }
+
+}
@@ -25,6 +25,10 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
 public class DictionaryServiceImplTest {
 
   private static boolean hunspellInstalled = true;
@@ -111,5 +115,81 @@ public class DictionaryServiceImplTest {
     }
   }
 
+  @Test
+  public void testStripPunctuation() throws Exception {
+    Assert.assertEquals("sentence", DictionaryServiceImpl.stripPunctuation("sentence."));
+    Assert.assertEquals("hab", DictionaryServiceImpl.stripPunctuation("hab'"));
+    Assert.assertEquals("don't", DictionaryServiceImpl.stripPunctuation("\"don't\""));
+    Assert.assertEquals("", DictionaryServiceImpl.stripPunctuation("--"));
+  }
+
+  @Test
+  public void testPipeCommandLine() throws Exception {
+    DictionaryServiceImpl service = new DictionaryServiceImpl();
+    service.setBinary("/opt/hunspell");
+    service.setCommand(" -i utf-8 -d de_DE,en_US -G");
+    Assert.assertArrayEquals(new String[] {"/opt/hunspell", "-i", "utf-8", "-d", "de_DE,en_US", "-a"},
+        service.getPipeCommandLine());
+  }
+
+  @Test
+  public void testCleanUpPool() throws Exception {
+    if (hunspellEngDictAvailable) {
+      DictionaryServiceImpl service = new DictionaryServiceImpl();
+      service.setCommand("-d en_US -G");
+      service.setPoolSize(1);
+      try {
+        Assert.assertEquals(null, service.cleanUpText(""));
+        Assert.assertEquals("This is a test sentence",
+            service.cleanUpText("This is a test sentence.").getText());
+        Assert.assertEquals("This is a sentence",
+            service.cleanUpText("This is a xqzvtw sentence!").getText());
+        /* Requests on the same process must not interfere with each other */
+        Assert.assertEquals("test", service.cleanUpText("xqzvtw test").getText());
+      } finally {
+        service.setPoolSize(0);
+      }
+    }
+  }
+
+  @Test
+  public void testPoolDisabledByDefault() throws Exception {
+    DictionaryServiceImpl service = new DictionaryServiceImpl();
+    Assert.assertNull(service.getPool());
+  }
+
+  @Test
+  public void testPoolFollowsConfiguration() throws Exception {
+    DictionaryServiceImpl service = new DictionaryServiceImpl();
+    service.setPoolSize(1);
+    try {
+      service.setBinary("/opt/hunspell");
+      service.setCommand("-d en_US -G");
+      Assert.assertArrayEquals(new String[] {"/opt/hunspell", "-d", "en_US", "-a"},
+          service.getPool().getCommandLine());
+    } finally {
+      service.setPoolSize(0);
+    }
+    Assert.assertNull(service.getPool());
+  }
+
+  @Test
+  public void testHungProcessIsKilled() throws Exception {
+    if (new File("/bin/sh").canExecute()) {
+      /* Pretends to be hunspell, but never answers */
+      String[] commandLine = new String[] {"/bin/sh", "-c", "echo '@(#) fake'; exec sleep 60"};
+      HunspellProcessPool pool = new HunspellProcessPool(commandLine, 1, 200);
+      long start = System.currentTimeMillis();
+      try {
+        pool.filterCorrect(Arrays.asList("test"));
+        Assert.fail("A hung hunspell process must time out");
+      } catch (IOException e) {
+        Assert.assertTrue(e.getMessage().contains("did not answer"));
+      } finally {
+        pool.close();
+      }
+      Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+  }
 
 }
@@ -21,40 +21,35 @@
 
 package org.opencastproject.metadata.dublincore;
 
-import org.opencastproject.util.IoSupport;
-
-import org.apache.commons.io.IOUtils;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.DOMImplementation;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
-import javax.xml.xpath.XPathFactory;
 
 /**
  * Simple class that enables storage of {@link DublinCoreCatalog} list and serializing into xml or json string.
@@ -66,6 +61,21 @@ public class DublinCoreCatalogList {
   private long totalCatalogCount = 0;
   private static final Logger logger = LoggerFactory.getLogger(DublinCoreCatalogList.class);
 
+  /** Local name of the list element */
+  private static final String LIST_ELEMENT = "dublincorelist";
+
+  /** Local name of the catalog elements */
+  private static final String CATALOG_ELEMENT = "dublincore";
+
+  /** Factory for the pull parsers, thread safe once configured */
+  private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+
+  static {
+    XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+  }
+
   /**
    * Initialize with the given catalog list.
    *
@@ -115,25 +125,47 @@ public class DublinCoreCatalogList {
    *           if serialization cannot be properly performed
    */
   public String getResultsAsXML() throws IOException {
-    try {
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder builder = factory.newDocumentBuilder();
-      DOMImplementation impl = builder.getDOMImplementation();
-
-      Document doc = impl.createDocument(null, null, null);
-      Element root = doc.createElement("dublincorelist");
-      root.setAttribute("totalCount", String.valueOf(totalCatalogCount));
-      doc.appendChild(root);
-      for (DublinCoreCatalog series : catalogList) {
-        Node node = doc.importNode(series.toXml().getDocumentElement(), true);
-        root.appendChild(node);
-      }
+    StringWriter out = new StringWriter();
+    writeXml(out);
+    return out.toString();
+  }
+
+  /**
+   * Serializes list to UTF-8 encoded XML.
+   *
+   * @param out
+   *          the stream to serialize the list to, it is flushed but not closed
+   * @throws IOException
+   *           if serialization cannot be properly performed
+   * @see #writeXml(Writer)
+   */
+  public void writeXml(OutputStream out) throws IOException {
+    writeXml(new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+  }
 
+  /**
+   * Serializes list to XML, writing one catalog after the other to the given writer instead of building the whole
+   * document in memory first.
+   *
+   * @param out
+   *          the writer to serialize the list to, it is flushed but not closed
+   * @throws IOException
+   *           if serialization cannot be properly performed
+   */
+  public void writeXml(Writer out) throws IOException {
+    try {
       Transformer tf = TransformerFactory.newInstance().newTransformer();
-      DOMSource xmlSource = new DOMSource(doc);
-      StringWriter out = new StringWriter();
-      tf.transform(xmlSource, new StreamResult(out));
-      return out.toString();
+      tf.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+      out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?><dublincorelist totalCount=\"");
+      out.write(String.valueOf(totalCatalogCount));
+      out.write("\">");
+      for (DublinCoreCatalog catalog : catalogList) {
+        tf.transform(new DOMSource(catalog.toXml()), new StreamResult(out));
+      }
+      out.write("</dublincorelist>");
+      out.flush();
+    } catch (IOException e) {
+      throw e;
     } catch (Exception e) {
       throw new IOException(e);
     }
@@ -148,8 +180,8 @@ public class DublinCoreCatalogList {
    *           if there is a problem parsing the XML or JSON
    */
   public static DublinCoreCatalogList parse(String dcString) throws IOException {
-    List<DublinCoreCatalog> catalogs = new ArrayList<DublinCoreCatalog>();
     if (dcString.startsWith("{")) {
+      List<DublinCoreCatalog> catalogs = new ArrayList<DublinCoreCatalog>();
       JSONObject json;
       try {
         json = (JSONObject) new JSONParser().parse(dcString);
@@ -163,58 +195,69 @@ public class DublinCoreCatalogList {
         throw new IllegalStateException("Unable to load dublin core catalog list, json parsing failed.", e);
       }
     } else {
-      // XML
-      InputStream is = null;
-      try {
-        DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
-        docBuilderFactory.setNamespaceAware(true);
-        DocumentBuilder docBuilder = docBuilderFactory.newDocumentBuilder();
-        is = IOUtils.toInputStream(dcString, "UTF-8");
-        Document document = docBuilder.parse(is);
-        XPath xPath = XPathFactory.newInstance().newXPath();
-
-        Number totalCount = (Number) xPath.evaluate("/*[local-name() = 'dublincorelist']/@totalCount", document,
-                XPathConstants.NUMBER);
-
-        NodeList nodes = (NodeList) xPath
-                .evaluate("//*[local-name() = 'dublincore']", document, XPathConstants.NODESET);
-        for (int i = 0; i < nodes.getLength(); i++) {
-          InputStream nodeIs = null;
-          try {
-            nodeIs = nodeToString(nodes.item(i));
-            catalogs.add(DublinCoreXmlFormat.read(nodeIs));
-          } finally {
-            IoSupport.closeQuietly(nodeIs);
-          }
-        }
-        return new DublinCoreCatalogList(catalogs, totalCount.longValue());
-      } catch (Exception e) {
-        throw new IOException(e);
-      } finally {
-        IoSupport.closeQuietly(is);
-      }
+      return parse(new StringReader(dcString));
     }
   }
 
   /**
-   * Serialize a node to an input stream
+   * Parses an XML stream to a dublin core catalog list. The catalogs are built while the stream is read, without
+   * creating an intermediate document.
    *
-   * @param node
-   *          the node to serialize
-   * @return the serialized input stream
+   * @param xml
+   *          the XML stream, it is not closed
+   * @throws IOException
+   *           if there is a problem reading or parsing the XML
+   */
+  public static DublinCoreCatalogList parse(InputStream xml) throws IOException {
+    try {
+      return parse(XML_INPUT_FACTORY.createXMLStreamReader(xml));
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Parses an XML character stream to a dublin core catalog list.
+   *
+   * @param xml
+   *          the XML character stream, it is not closed
+   * @throws IOException
+   *           if there is a problem reading or parsing the XML
+   * @see #parse(InputStream)
    */
-  private static InputStream nodeToString(Node node) {
-    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+  public static DublinCoreCatalogList parse(Reader xml) throws IOException {
     try {
-      Transformer t = TransformerFactory.newInstance().newTransformer();
-      t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-      t.setOutputProperty(OutputKeys.INDENT, "yes");
-      t.transform(new DOMSource(node), new StreamResult(outputStream));
-      return new ByteArrayInputStream(outputStream.toByteArray());
-    } catch (TransformerException te) {
-      logger.warn("nodeToString Transformer Exception", te);
+      return parse(XML_INPUT_FACTORY.createXMLStreamReader(xml));
+    } catch (XMLStreamException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static DublinCoreCatalogList parse(XMLStreamReader reader) throws IOException {
+    List<DublinCoreCatalog> catalogs = new ArrayList<DublinCoreCatalog>();
+    long totalCount = 0;
+    try {
+      while (reader.hasNext()) {
+        if (reader.next() != XMLStreamConstants.START_ELEMENT)
+          continue;
+        if (LIST_ELEMENT.equals(reader.getLocalName())) {
+          String count = reader.getAttributeValue(null, "totalCount");
+          if (count != null)
+            totalCount = Long.parseLong(count.trim());
+        } else if (CATALOG_ELEMENT.equals(reader.getLocalName())) {
+          catalogs.add(DublinCoreXmlFormat.read(reader));
+        }
+      }
+      return new DublinCoreCatalogList(catalogs, totalCount);
+    } catch (Exception e) {
+      throw new IOException(e);
+    } finally {
+      try {
+        reader.close();
+      } catch (XMLStreamException e) {
+        logger.debug("Unable to close the XML stream reader: {}", e.getMessage());
+      }
     }
-    return null;
   }
 
   /**
@@ -37,6 +37,7 @@ import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 import java.io.ByteArrayInputStream;
@@ -51,6 +52,9 @@ import javax.annotation.ParametersAreNonnullByDefault;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Transformer;
@@ -165,6 +169,26 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
     return new DublinCoreXmlFormat().readImpl(xml);
   }
 
+  /**
+   * Read an XML encoded catalog from a pull parser which is positioned at the root element of the catalog. When this
+   * method returns the parser is positioned at the matching end element, so the catalog may be embedded in a larger
+   * document like a catalog list.
+   * <p>
+   * Only namespaces declared on the catalog element or its children are bound in the returned catalog.
+   *
+   * @param xml
+   *         the pull parser, positioned at a start element
+   * @return the catalog representation
+   * @throws javax.xml.stream.XMLStreamException
+   *         if an error occurred while parsing the document
+   * @throws org.xml.sax.SAXException
+   *         if the catalog cannot be built from the parsed elements
+   */
+  @Nonnull
+  public static DublinCoreCatalog read(XMLStreamReader xml) throws XMLStreamException, SAXException {
+    return new DublinCoreXmlFormat().readImpl(xml);
+  }
+
   public static Document writeDocument(DublinCoreCatalog dc)
           throws ParserConfigurationException, TransformerException, IOException {
     // Create the DOM document
@@ -216,6 +240,57 @@ public final class DublinCoreXmlFormat extends DefaultHandler {
     return dc;
   }
 
+  // StAX
+
+  /** Feed the events of the element the parser is positioned at into the SAX handler methods. */
+  private DublinCoreCatalog readImpl(XMLStreamReader xml) throws XMLStreamException, SAXException {
+    if (xml.getEventType() != XMLStreamConstants.START_ELEMENT)
+      throw new XMLStreamException("Parser is not positioned at a start element", xml.getLocation());
+    int depth = 0;
+    while (true) {
+      switch (xml.getEventType()) {
+        case XMLStreamConstants.START_ELEMENT:
+          depth++;
+          for (int i = 0; i < xml.getNamespaceCount(); i++) {
+            startPrefixMapping(emptyIfNull(xml.getNamespacePrefix(i)), emptyIfNull(xml.getNamespaceURI(i)));
+          }
+          startElement(emptyIfNull(xml.getNamespaceURI()), xml.getLocalName(), null, getAttributes(xml));
+          break;
+        case XMLStreamConstants.END_ELEMENT:
+          depth--;
+          endElement(emptyIfNull(xml.getNamespaceURI()), xml.getLocalName(), null);
+          break;
+        case XMLStreamConstants.CHARACTERS:
+        case XMLStreamConstants.CDATA:
+        case XMLStreamConstants.SPACE:
+          characters(xml.getTextCharacters(), xml.getTextStart(), xml.getTextLength());
+          break;
+        default:
+          break;
+      }
+      if (depth == 0)
+        return dc;
+      xml.next();
+    }
+  }
+
+  /** Copy the attributes of the current start element into their SAX representation. */
+  private static Attributes getAttributes(XMLStreamReader xml) {
+    final AttributesImpl attributes = new AttributesImpl();
+    for (int i = 0; i < xml.getAttributeCount(); i++) {
+      final String prefix = xml.getAttributePrefix(i);
+      final String localName = xml.getAttributeLocalName(i);
+      final String qName = prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+      attributes.addAttribute(emptyIfNull(xml.getAttributeNamespace(i)), localName, qName, xml.getAttributeType(i),
+              xml.getAttributeValue(i));
+    }
+    return attributes;
+  }
+
+  private static String emptyIfNull(String s) {
+    return s == null ? "" : s;
+  }
+
   /**
    * Returns the element content.
    */
@@ -24,6 +24,8 @@ import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElementFlavor;
 
+import java.util.List;
+
 /**
  * An interface class to support the creation of data providers.
  */
@@ -54,6 +56,16 @@ public interface EventCatalogUIAdapter {
    */
   MetadataCollection getFields(MediaPackage mediapackage);
 
+  /**
+   * Get the field names and values from catalogs which have already been loaded. This allows callers to parse a catalog
+   * once and share it between all adapters of the same flavor.
+   *
+   * @param catalogs
+   *          The parsed catalogs of this adapter's flavor
+   * @return Get the field names and values for these catalogs.
+   */
+  MetadataCollection getFieldsFromCatalogs(List<DublinCoreCatalog> catalogs);
+
   /**
    * Store a change in the metadata into the mediapackage as a {@link Catalog}
    *
@@ -0,0 +1,137 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.metadata.dublincore;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+/**
+ * Compares parsing large dublin core catalog lists, as returned by the series and scheduler endpoints, with the
+ * streaming parser of {@link DublinCoreCatalogList} and with the former DOM and XPath based approach.
+ */
+@Ignore
+public class DublinCoreCatalogListPerformanceTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(DublinCoreCatalogListPerformanceTest.class);
+
+  /** List sizes to measure */
+  private static final int[] SIZES = new int[] { 10, 100, 1000 };
+
+  /** Number of parses per measurement */
+  private static final int RUNS = 20;
+
+  @Test
+  public void testParse() throws Exception {
+    DublinCoreCatalog catalog;
+    try (InputStream in = getClass().getResourceAsStream("/dublincore.xml")) {
+      catalog = DublinCores.read(in);
+    }
+    for (int size : SIZES) {
+      List<DublinCoreCatalog> catalogs = new ArrayList<DublinCoreCatalog>();
+      for (int i = 0; i < size; i++) {
+        catalogs.add(catalog);
+      }
+      byte[] xml = new DublinCoreCatalogList(catalogs, size).getResultsAsXML().getBytes(StandardCharsets.UTF_8);
+      Assert.assertEquals(size, parseDom(xml).size());
+      Assert.assertEquals(size, parseStream(xml).size());
+      // Warm up before measuring
+      measure(xml, size, false);
+      measure(xml, size, true);
+    }
+  }
+
+  private void measure(byte[] xml, int size, boolean log) throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      parseDom(xml);
+    }
+    log(log, "DOM", size, start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      parseStream(xml);
+    }
+    log(log, "StAX", size, start);
+  }
+
+  private DublinCoreCatalogList parseStream(byte[] xml) throws Exception {
+    return DublinCoreCatalogList.parse(new ByteArrayInputStream(xml));
+  }
+
+  /** The list parser as it used to be: build the document, select the catalogs and parse each of them again. */
+  private DublinCoreCatalogList parseDom(byte[] xml) throws Exception {
+    DocumentBuilderFactory docBuilderFactory = DocumentBuilderFactory.newInstance();
+    docBuilderFactory.setNamespaceAware(true);
+    Document document = docBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+    XPath xPath = XPathFactory.newInstance().newXPath();
+    Number totalCount = (Number) xPath.evaluate("/*[local-name() = 'dublincorelist']/@totalCount", document,
+            XPathConstants.NUMBER);
+    NodeList nodes = (NodeList) xPath.evaluate("//*[local-name() = 'dublincore']", document, XPathConstants.NODESET);
+    List<DublinCoreCatalog> catalogs = new ArrayList<DublinCoreCatalog>();
+    for (int i = 0; i < nodes.getLength(); i++) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      Transformer t = TransformerFactory.newInstance().newTransformer();
+      t.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+      t.setOutputProperty(OutputKeys.INDENT, "yes");
+      t.transform(new DOMSource(nodes.item(i)), new StreamResult(out));
+      InputStream in = new ByteArrayInputStream(out.toByteArray());
+      try {
+        catalogs.add(DublinCoreXmlFormat.read(in));
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+    return new DublinCoreCatalogList(catalogs, totalCount.longValue());
+  }
+
+  private void log(boolean log, String parser, int size, long start) {
+    if (!log)
+      return;
+    double millis = (System.nanoTime() - start) / 1e6;
+    logger.info(String.format("%s parser with %d catalogs: %.2fms per list", parser, size, millis / RUNS));
+  }
+
+}
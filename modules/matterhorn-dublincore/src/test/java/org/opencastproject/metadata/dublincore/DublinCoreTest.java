@@ -78,6 +78,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
@@ -185,6 +186,39 @@ public class DublinCoreTest {
     Assert.assertEquals("Land 2", catalogList.getCatalogList().get(1).getFirst(PROPERTY_TITLE, LANGUAGE_UNDEFINED));
   }
 
+  /**
+   * Test method for {@link DublinCoreCatalogList#parse(java.io.InputStream)}
+   */
+  @Test
+  public void testParseDublinCoreListStream() throws Exception {
+    DublinCoreCatalogList catalogList;
+    try (InputStream in = getClass().getResourceAsStream(xmlCatalogListName)) {
+      catalogList = DublinCoreCatalogList.parse(in);
+    }
+    Assert.assertEquals(2, catalogList.getTotalCount());
+    Assert.assertEquals(2, catalogList.size());
+    DublinCoreCatalog first = catalogList.getCatalogList().get(0);
+    Assert.assertEquals("Land 1", first.getFirst(PROPERTY_TITLE, LANGUAGE_UNDEFINED));
+    Assert.assertEquals("Land und Vegetation: Key Player in der Klima-Szene", first.getFirst(PROPERTY_TITLE, "de"));
+    Assert.assertEquals("Land 2", catalogList.getCatalogList().get(1).getFirst(PROPERTY_TITLE, LANGUAGE_UNDEFINED));
+  }
+
+  /**
+   * Test method for {@link DublinCoreCatalogList#getResultsAsXML()} reading the result back in.
+   */
+  @Test
+  public void testDublinCoreListXMLRoundTrip() throws Exception {
+    String dublinCoreListString = IOUtils.toString(getClass().getResourceAsStream(xmlCatalogListName), "UTF-8");
+    DublinCoreCatalogList catalogList = DublinCoreCatalogList.parse(dublinCoreListString);
+    DublinCoreCatalogList copy = DublinCoreCatalogList.parse(catalogList.getResultsAsXML());
+    Assert.assertEquals(catalogList.getTotalCount(), copy.getTotalCount());
+    Assert.assertEquals(catalogList.size(), copy.size());
+    for (int i = 0; i < catalogList.size(); i++) {
+      Assert.assertEquals(catalogList.getCatalogList().get(i).getEntriesSorted(),
+              copy.getCatalogList().get(i).getEntriesSorted());
+    }
+  }
+
   /**
    * Test method for {@link DublinCoreCatalogList#parse(String)} with a JSON String
    */
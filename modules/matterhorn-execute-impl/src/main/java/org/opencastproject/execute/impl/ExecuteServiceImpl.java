@@ -40,11 +40,15 @@ import org.opencastproject.security.api.UserDirectoryService;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.util.ConfigurationException;
-import org.opencastproject.util.IoSupport;
 import org.opencastproject.util.LoadUtil;
 import org.opencastproject.util.NotFoundException;
+import org.opencastproject.util.ProcessRunner;
+import org.opencastproject.util.ProcessRunner.ProcessInfo;
+import org.opencastproject.util.ProcessRunner.ProcessTimeoutException;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.entwinemedia.fn.Pred;
+
 import org.apache.commons.lang3.StringUtils;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.cm.ManagedService;
@@ -58,11 +62,12 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -120,6 +125,27 @@ public class ExecuteServiceImpl extends AbstractJobProducer implements ExecuteSe
 
   private float executeJobLoad = 1.0f;
 
+  /** The key to look for in the service configuration file for the maximum run time of a command in seconds */
+  public static final String PROCESS_TIMEOUT_KEY = "process.timeout";
+
+  /** The key to look for in the service configuration file for the maximum CPU time of a command in seconds */
+  public static final String PROCESS_CPU_LIMIT_KEY = "process.limit.cpu";
+
+  /** The key to look for in the service configuration file for the maximum virtual memory of a command in megabytes */
+  public static final String PROCESS_MEMORY_LIMIT_KEY = "process.limit.memory";
+
+  /** Number of lines at the end of the output of a failed command reported in the error message */
+  private static final int MAX_OUTPUT_LINES = 100;
+
+  /** Maximum run time of a command in milliseconds, 0 for no limit */
+  private long processTimeout = 0L;
+
+  /** Maximum CPU time of a command in seconds, 0 for no limit */
+  private long processCpuLimit = 0L;
+
+  /** Maximum virtual memory of a command in kilobytes, 0 for no limit */
+  private long processMemoryLimit = 0L;
+
   /**
    * Creates a new instance of the execute service.
    */
@@ -496,18 +522,29 @@ public class ExecuteServiceImpl extends AbstractJobProducer implements ExecuteSe
 
   private String runCommand(List<String> command, File outFile, Type expectedType) throws ExecuteException {
 
-    Process p = null;
     int result = 0;
 
     try {
       logger.info("Running command {}", command.get(0));
       logger.debug("Starting subprocess {} with arguments {}", command.get(0), StringUtils.join(command.subList(1, command.size()), ", "));
 
-      ProcessBuilder pb = new ProcessBuilder(command);
-      pb.redirectErrorStream(true);
-
-      p = pb.start();
-      result = p.waitFor();
+      final String executable = command.get(0);
+      final LinkedList<String> output = new LinkedList<String>();
+      ProcessInfo process = new ProcessInfo(command, new HashMap<String, String>(), true).withTimeout(processTimeout)
+              .withCpuLimit(processCpuLimit).withMemoryLimit(processMemoryLimit);
+      result = ProcessRunner.runInterruptibly(process, new Pred<String>() {
+        @Override
+        public Boolean apply(String line) {
+          logger.debug("{}: {}", executable, line);
+          // Keep the end of the output for the error message
+          synchronized (output) {
+            output.add(line);
+            if (output.size() > MAX_OUTPUT_LINES)
+              output.removeFirst();
+          }
+          return true;
+        }
+      }, ProcessRunner.IGNORE);
 
       logger.debug("Command {} finished with result {}", command.get(0), result);
 
@@ -527,21 +564,20 @@ public class ExecuteServiceImpl extends AbstractJobProducer implements ExecuteSe
         }
         return "";
       } else {
-        // 'Scanner' reads tokens delimited by an specific character (set).
-        // By telling a Scanner to use the 'beginning of the input boundary' character as delimiter, which of course
-        // will never find, yields the whole String as the next token.
-        String line;
-        try {
-          line = new Scanner(p.getInputStream()).useDelimiter("\\A").next();
-        } catch (NoSuchElementException e) {
-          line = "";
+        String lines;
+        synchronized (output) {
+          lines = StringUtils.join(output, "\n");
         }
-
         throw new ExecuteException(String.format("Process %s returned error code %d with this output:\n%s",
-                command.get(0), result, line.trim()));
+                command.get(0), result, lines.trim()));
       }
     } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
       throw new ExecuteException("The executor thread has been unexpectedly interrupted", e);
+    } catch (ProcessTimeoutException e) {
+      logger.warn("Subprocess {} has been killed after running for {} seconds", command.get(0),
+              TimeUnit.MILLISECONDS.toSeconds(processTimeout));
+      throw new ExecuteException("Subprocess " + command.get(0) + " exceeded its timeout", e);
     } catch (IOException e) {
       // Only log the first argument, the executable, as other arguments may contain sensitive values
       // e.g. MySQL password/user, paths, etc. that should not be shown to caller
@@ -553,8 +589,6 @@ public class ExecuteServiceImpl extends AbstractJobProducer implements ExecuteSe
       throw new ExecuteException("Couldn't instantiate a new MediaPackage element builder", e);
     } catch (MediaPackageException e) {
       throw new ExecuteException("Couldn't serialize a new Mediapackage element of type " + expectedType.toString(), e);
-    } finally {
-      IoSupport.closeQuietly(p);
     }
   }
 
@@ -682,6 +716,28 @@ public class ExecuteServiceImpl extends AbstractJobProducer implements ExecuteSe
   @Override
   public void updated(@SuppressWarnings("rawtypes") Dictionary properties) throws org.osgi.service.cm.ConfigurationException {
     executeJobLoad = LoadUtil.getConfiguredLoadValue(properties, EXECUTE_JOB_LOAD_KEY, DEFAULT_EXECUTE_JOB_LOAD, serviceRegistry);
+    if (properties == null)
+      return;
+    processTimeout = TimeUnit.SECONDS.toMillis(getLimit(properties, PROCESS_TIMEOUT_KEY));
+    processCpuLimit = getLimit(properties, PROCESS_CPU_LIMIT_KEY);
+    processMemoryLimit = getLimit(properties, PROCESS_MEMORY_LIMIT_KEY) * 1024L;
+    logger.info("Commands are limited to {} s run time, {} s CPU time and {} kB memory (0 for unlimited)",
+            TimeUnit.MILLISECONDS.toSeconds(processTimeout), processCpuLimit, processMemoryLimit);
+  }
+
+  private static long getLimit(@SuppressWarnings("rawtypes") Dictionary properties, String key)
+          throws org.osgi.service.cm.ConfigurationException {
+    String value = StringUtils.trimToNull((String) properties.get(key));
+    if (value == null)
+      return 0L;
+    try {
+      long limit = Long.parseLong(value);
+      if (limit < 0)
+        throw new org.osgi.service.cm.ConfigurationException(key, "Must not be negative");
+      return limit;
+    } catch (NumberFormatException e) {
+      throw new org.osgi.service.cm.ConfigurationException(key, "Not a number: " + value, e);
+    }
   }
 
 }
@@ -642,8 +642,31 @@ public class EventsEndpoint implements ManagedService {
           Boolean withPublications, Boolean withSignedUrls)
           throws IndexServiceException, SearchIndexException, NotFoundException {
     List<JValue> eventsList = new ArrayList<>();
+    Map<String, MediaPackage> mediaPackages = null;
+    List<EventCatalogUIAdapter> catalogUIAdapters = null;
+    if (withMetadata != null && withMetadata) {
+      // Resolve the media packages of the whole page at once instead of querying them event by event
+      List<Event> pageEvents = new ArrayList<>();
+      for (IndexObject item : events) {
+        pageEvents.add((Event) item);
+      }
+      mediaPackages = indexService.getEventMediapackages(pageEvents);
+      catalogUIAdapters = getEventCatalogUIAdapters();
+      catalogUIAdapters.remove(this.eventCatalogUIAdapter);
+    }
     for (IndexObject item : events) {
-      eventsList.add(eventToJSON((Event) item, withAcl, withMetadata, withPublications, withSignedUrls));
+      Event event = (Event) item;
+      Opt<MetadataList> metadata = Opt.none();
+      if (mediaPackages != null) {
+        try {
+          metadata = getEventMetadata(event, Opt.nul(mediaPackages.get(event.getIdentifier())), catalogUIAdapters);
+        } catch (Exception e) {
+          logger.error("Unable to get metadata for event '{}' because: {}", event.getIdentifier(),
+                  ExceptionUtils.getStackTrace(e));
+          throw new IndexServiceException("Unable to add metadata to event", e);
+        }
+      }
+      eventsList.add(eventToJSON(event, withAcl, metadata, withPublications, withSignedUrls));
     }
     return ApiResponses.Json.ok(ApiVersion.VERSION_1_0_0, arr(eventsList));
   }
@@ -699,6 +722,36 @@ public class EventsEndpoint implements ManagedService {
    */
   protected JValue eventToJSON(Event event, Boolean withAcl, Boolean withMetadata, Boolean withPublications,
           Boolean withSignedUrls) throws IndexServiceException, SearchIndexException, NotFoundException {
+    Opt<MetadataList> metadata = Opt.none();
+    if (withMetadata != null && withMetadata) {
+      try {
+        metadata = getEventMetadata(event);
+      } catch (Exception e) {
+        logger.error("Unable to get metadata for event '{}' because: {}", event.getIdentifier(),
+                ExceptionUtils.getStackTrace(e));
+        throw new IndexServiceException("Unable to add metadata to event", e);
+      }
+    }
+    return eventToJSON(event, withAcl, metadata, withPublications, withSignedUrls);
+  }
+
+  /**
+   * Transform an {@link Event} with already resolved metadata to Json
+   *
+   * @param event
+   *          The event to transform into json
+   * @param withAcl
+   *          Whether to add the acl information for the event
+   * @param metadata
+   *          The metadata to add, if any
+   * @param withPublications
+   *          Whether to add the publications
+   * @param withSignedUrls
+   *          Whether to sign the urls if they are protected by stream security.
+   * @return The event in json format.
+   */
+  private JValue eventToJSON(Event event, Boolean withAcl, Opt<MetadataList> metadata, Boolean withPublications,
+          Boolean withSignedUrls) {
     List<Field> fields = new ArrayList<>();
     if (event.getArchiveVersion() != null)
       fields.add(f("archive_version", v(event.getArchiveVersion())));
@@ -734,20 +787,11 @@ public class EventsEndpoint implements ManagedService {
       AccessControlList acl = getAclFromEvent(event);
       fields.add(f("acl", arr(AclUtils.serializeAclToJson(acl))));
     }
-    if (withMetadata != null && withMetadata) {
-      try {
-        Opt<MetadataList> metadata = getEventMetadata(event);
-        if (metadata.isSome()) {
-          fields.add(f("metadata", metadata.get().toJSON()));
-        }
-      } catch (Exception e) {
-        logger.error("Unable to get metadata for event '{}' because: {}", event.getIdentifier(),
-                ExceptionUtils.getStackTrace(e));
-        throw new IndexServiceException("Unable to add metadata to event", e);
-      }
+    if (metadata.isSome()) {
+      fields.add(f("metadata", metadata.get().toJSON()));
     }
     if (withPublications != null && withPublications) {
-      List<JValue> publications = getPublications(event.getIdentifier(), withSignedUrls);
+      List<JValue> publications = getPublications(event, withSignedUrls);
       fields.add(f("publications", arr(publications)));
     }
     return obj(fields);
@@ -930,15 +974,27 @@ public class EventsEndpoint implements ManagedService {
   }
 
   protected Opt<MetadataList> getEventMetadata(Event event) throws IndexServiceException, Exception {
-    MetadataList metadataList = new MetadataList();
     List<EventCatalogUIAdapter> catalogUIAdapters = getEventCatalogUIAdapters();
     catalogUIAdapters.remove(this.eventCatalogUIAdapter);
-    Opt<MediaPackage> optMediaPackage = indexService.getEventMediapackage(event);
+    return getEventMetadata(event, indexService.getEventMediapackage(event), catalogUIAdapters);
+  }
+
+  /**
+   * Get the metadata of an event whose media package has already been resolved.
+   *
+   * @param event
+   *          The event
+   * @param optMediaPackage
+   *          The media package of the event, if any
+   * @param catalogUIAdapters
+   *          The extended catalog UI adapters, not including the common one of this endpoint
+   * @return The metadata of the event
+   */
+  private Opt<MetadataList> getEventMetadata(Event event, Opt<MediaPackage> optMediaPackage,
+          List<EventCatalogUIAdapter> catalogUIAdapters) throws Exception {
+    MetadataList metadataList = new MetadataList();
     if (catalogUIAdapters.size() > 0 && optMediaPackage.isSome()) {
-      for (EventCatalogUIAdapter catalogUIAdapter : catalogUIAdapters) {
-        // TODO: This is very slow:
-        metadataList.add(catalogUIAdapter, catalogUIAdapter.getFields(optMediaPackage.get()));
-      }
+      metadataList = indexService.getEventMetadata(optMediaPackage.get(), catalogUIAdapters);
     }
     // TODO: This is slow:
     MetadataCollection collection = EventUtils.getEventMetadata(event, eventCatalogUIAdapter);
@@ -1265,15 +1321,16 @@ public class EventsEndpoint implements ManagedService {
   private List<JValue> getPublications(String id, Boolean withSignedUrls)
           throws NotFoundException, SearchIndexException {
     for (final Event event : indexService.getEvent(id, externalIndex)) {
-      List<JValue> pubJSON = new ArrayList<>();
-      pubJSON = new ArrayList<JValue>($(event.getPublications()).filter(EventUtils.internalChannelFilter)
-              .map(publicationToJson._2(withSignedUrls)).toList());
-
-      return pubJSON;
+      return getPublications(event, withSignedUrls);
     }
     throw new NotFoundException(String.format("Unable to find event with id '%s'", id));
   }
 
+  private List<JValue> getPublications(Event event, Boolean withSignedUrls) {
+    return new ArrayList<JValue>($(event.getPublications()).filter(EventUtils.internalChannelFilter)
+            .map(publicationToJson._2(withSignedUrls)).toList());
+  }
+
   @GET
   @Path("{eventId}/publications/{publicationId}")
   @Produces({ "application/json", "application/v1.0.0+json" })
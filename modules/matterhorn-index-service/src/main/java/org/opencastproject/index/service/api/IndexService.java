@@ -305,6 +305,30 @@ public interface IndexService {
   // TODO remove when it is no longer needed by AbstractEventEndpoint.
   Opt<MediaPackage> getEventMediapackage(Event event) throws IndexServiceException;
 
+  /**
+   * Get the media packages of several events at once. All events are resolved with at most one workflow query and one
+   * asset manager query, instead of one query per event as with {@link #getEventMediapackage(Event)}.
+   *
+   * @param events
+   *          The events to get the media packages for.
+   * @return The media packages by event identifier. Scheduled events and events without a workflow are missing.
+   * @throws IndexServiceException
+   *           Thrown if the media packages could not be looked up or an archived event could not be found.
+   */
+  Map<String, MediaPackage> getEventMediapackages(List<Event> events) throws IndexServiceException;
+
+  /**
+   * Get the metadata of a media package for the given catalog UI adapters. Each catalog is loaded and parsed only once,
+   * even if several adapters share its flavor.
+   *
+   * @param mediaPackage
+   *          The media package to get the metadata from.
+   * @param catalogUIAdapters
+   *          The catalog UI adapters to get the metadata for.
+   * @return The metadata of the adapters.
+   */
+  MetadataList getEventMetadata(MediaPackage mediaPackage, List<EventCatalogUIAdapter> catalogUIAdapters);
+
   // TODO remove when it is no longer needed by AbstractEventEndpoint
   Source getEventSource(Event event);
 
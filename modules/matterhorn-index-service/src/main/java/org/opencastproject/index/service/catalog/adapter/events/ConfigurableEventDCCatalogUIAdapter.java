@@ -56,7 +56,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Dictionary;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -117,21 +119,26 @@ public class ConfigurableEventDCCatalogUIAdapter implements EventCatalogUIAdapte
 
   @Override
   public MetadataCollection getFields(MediaPackage mediapackage) {
-    DublinCoreMetadataCollection dublinCoreMetadata = new DublinCoreMetadataCollection();
-    Set<String> emptyFields = new TreeSet<>(dublinCoreProperties.keySet());
+    List<DublinCoreCatalog> catalogs = new ArrayList<>();
     if (mediapackage != null) {
       for (Catalog catalog : mediapackage.getCatalogs(getFlavor())) {
-        getFieldValuesFromCatalog(dublinCoreMetadata, emptyFields, catalog);
+        catalogs.add(DublinCoreUtil.loadDublinCore(getWorkspace(), catalog));
       }
     }
-    populateEmptyFields(dublinCoreMetadata, emptyFields);
-    return dublinCoreMetadata;
+    return getFieldsFromCatalogs(catalogs);
   }
 
-  private void getFieldValuesFromCatalog(DublinCoreMetadataCollection dublinCoreMetadata, Set<String> emptyFields,
-          Catalog catalog) {
-    DublinCoreCatalog dc = DublinCoreUtil.loadDublinCore(getWorkspace(), catalog);
-    getFieldValuesFromDublinCoreCatalog(dublinCoreMetadata, emptyFields, dc);
+  @Override
+  public MetadataCollection getFieldsFromCatalogs(List<DublinCoreCatalog> catalogs) {
+    DublinCoreMetadataCollection dublinCoreMetadata = new DublinCoreMetadataCollection();
+    Set<String> emptyFields = new TreeSet<>(dublinCoreProperties.keySet());
+    if (catalogs != null) {
+      for (DublinCoreCatalog dc : catalogs) {
+        getFieldValuesFromDublinCoreCatalog(dublinCoreMetadata, emptyFields, dc);
+      }
+    }
+    populateEmptyFields(dublinCoreMetadata, emptyFields);
+    return dublinCoreMetadata;
   }
 
   private void getFieldValuesFromDublinCoreCatalog(DublinCoreMetadataCollection dublinCoreMetadata,
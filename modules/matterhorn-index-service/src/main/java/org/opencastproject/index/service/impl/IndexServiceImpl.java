@@ -28,6 +28,7 @@ import static org.opencastproject.metadata.dublincore.DublinCore.PROPERTY_IDENTI
 
 import org.opencastproject.assetmanager.api.AssetManager;
 import org.opencastproject.assetmanager.api.AssetManagerException;
+import org.opencastproject.assetmanager.api.Snapshot;
 import org.opencastproject.assetmanager.api.query.AQueryBuilder;
 import org.opencastproject.assetmanager.api.query.AResult;
 import org.opencastproject.assetmanager.api.query.Predicate;
@@ -173,6 +174,9 @@ public class IndexServiceImpl implements IndexService {
 
   public static final String THEME_PROPERTY_NAME = "theme";
 
+  /** The number of workflow instances fetched at once when looking up the workflows of several events */
+  private static final int WORKFLOW_QUERY_PAGE_SIZE = 100;
+
   /** The logging facility */
   private static final Logger logger = LoggerFactory.getLogger(IndexServiceImpl.class);
 
@@ -1246,6 +1250,104 @@ public class IndexServiceImpl implements IndexService {
     }
   }
 
+  @Override
+  public Map<String, MediaPackage> getEventMediapackages(List<Event> events) throws IndexServiceException {
+    List<String> workflowEvents = new ArrayList<>();
+    List<String> archivedEvents = new ArrayList<>();
+    for (Event event : events) {
+      switch (getEventSource(event)) {
+        case WORKFLOW:
+          workflowEvents.add(event.getIdentifier());
+          break;
+        case ARCHIVE:
+          archivedEvents.add(event.getIdentifier());
+          break;
+        case SCHEDULE:
+          break;
+        default:
+          throw new IllegalStateException("Unknown event type!");
+      }
+    }
+
+    Map<String, MediaPackage> mediaPackages = new HashMap<>();
+    if (!workflowEvents.isEmpty()) {
+      for (WorkflowInstance workflowInstance : getCurrentWorkflowInstances(workflowEvents).values()) {
+        MediaPackage mp = workflowInstance.getMediaPackage();
+        mediaPackages.put(mp.getIdentifier().toString(), mp);
+      }
+    }
+    if (!archivedEvents.isEmpty()) {
+      final AQueryBuilder q = assetManager.createQuery();
+      Predicate mediaPackageIds = q.always().not();
+      for (String mpId : archivedEvents) {
+        mediaPackageIds = mediaPackageIds.or(q.mediaPackageId(mpId));
+      }
+      final AResult r = q.select(q.snapshot()).where(mediaPackageIds.and(q.version().isLatest())).run();
+      for (Snapshot snapshot : enrich(r).getSnapshots()) {
+        MediaPackage mp = snapshot.getMediaPackage();
+        mediaPackages.put(mp.getIdentifier().toString(), mp);
+      }
+      List<String> missingEvents = new ArrayList<>();
+      for (String mpId : archivedEvents) {
+        if (!mediaPackages.containsKey(mpId))
+          missingEvents.add(mpId);
+      }
+      if (!missingEvents.isEmpty()) {
+        logger.error("No events with ids {} found from archive!", missingEvents);
+        throw new IndexServiceException("No archived events found with ids " + missingEvents);
+      }
+    }
+    return mediaPackages;
+  }
+
+  /**
+   * Get the newest workflow instance of each of the given media packages with a single, paged workflow query.
+   *
+   * @param mpIds
+   *          the media package identifiers
+   * @return the newest workflow instances by media package identifier
+   */
+  private Map<String, WorkflowInstance> getCurrentWorkflowInstances(List<String> mpIds) throws IndexServiceException {
+    Map<String, WorkflowInstance> workflowInstances = new HashMap<>();
+    WorkflowQuery query = new WorkflowQuery().withMediaPackages(mpIds).withCount(WORKFLOW_QUERY_PAGE_SIZE);
+    try {
+      long startPage = 0;
+      WorkflowSet workflowSet;
+      do {
+        workflowSet = workflowService.getWorkflowInstances(query.withStartPage(startPage++));
+        // TODO This presuppose knowledge of the Database implementation and should be fixed sooner or later!
+        for (WorkflowInstance instance : workflowSet.getItems()) {
+          String mpId = instance.getMediaPackage().getIdentifier().toString();
+          WorkflowInstance newest = workflowInstances.get(mpId);
+          if (newest == null || instance.getId() > newest.getId())
+            workflowInstances.put(mpId, instance);
+        }
+      } while (workflowSet.size() > 0 && startPage * WORKFLOW_QUERY_PAGE_SIZE < workflowSet.getTotalCount());
+    } catch (WorkflowDatabaseException e) {
+      logger.error("Unable to get workflows for events {} because {}", mpIds, getStackTrace(e));
+      throw new IndexServiceException("Unable to get current workflows for events " + mpIds);
+    }
+    return workflowInstances;
+  }
+
+  @Override
+  public MetadataList getEventMetadata(MediaPackage mediaPackage, List<EventCatalogUIAdapter> catalogUIAdapters) {
+    Map<MediaPackageElementFlavor, List<DublinCoreCatalog>> catalogsByFlavor = new HashMap<>();
+    MetadataList metadataList = new MetadataList();
+    for (EventCatalogUIAdapter catalogUIAdapter : catalogUIAdapters) {
+      List<DublinCoreCatalog> catalogs = catalogsByFlavor.get(catalogUIAdapter.getFlavor());
+      if (catalogs == null) {
+        catalogs = new ArrayList<>();
+        for (Catalog catalog : mediaPackage.getCatalogs(catalogUIAdapter.getFlavor())) {
+          catalogs.add(DublinCoreUtil.loadDublinCore(workspace, catalog));
+        }
+        catalogsByFlavor.put(catalogUIAdapter.getFlavor(), catalogs);
+      }
+      metadataList.add(catalogUIAdapter, catalogUIAdapter.getFieldsFromCatalogs(catalogs));
+    }
+    return metadataList;
+  }
+
   /**
    * Determines in a very basic way what kind of source the event is
    *
@@ -21,6 +21,7 @@
 
 package org.opencastproject.index.service.impl;
 
+import static com.entwinemedia.fn.Stream.$;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.createMock;
@@ -28,6 +29,15 @@ import static org.easymock.EasyMock.expect;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import org.opencastproject.assetmanager.api.AssetManager;
+import org.opencastproject.assetmanager.api.Snapshot;
+import org.opencastproject.assetmanager.api.query.AQueryBuilder;
+import org.opencastproject.assetmanager.api.query.ARecord;
+import org.opencastproject.assetmanager.api.query.AResult;
+import org.opencastproject.assetmanager.api.query.ASelectQuery;
+import org.opencastproject.assetmanager.api.query.Predicate;
+import org.opencastproject.assetmanager.api.query.Target;
+import org.opencastproject.assetmanager.api.query.VersionField;
 import org.opencastproject.capture.admin.api.CaptureAgentStateService;
 import org.opencastproject.index.service.catalog.adapter.events.CommonEventCatalogUIAdapter;
 import org.opencastproject.index.service.exception.IndexServiceException;
@@ -45,6 +55,7 @@ import org.opencastproject.mediapackage.Attachment;
 import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.CatalogImpl;
 import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
 import org.opencastproject.mediapackage.MediaPackageElement;
 import org.opencastproject.mediapackage.MediaPackageElementFlavor;
 import org.opencastproject.mediapackage.MediaPackageException;
@@ -76,8 +87,15 @@ import org.opencastproject.util.data.Tuple;
 import org.opencastproject.util.data.VCell;
 import org.opencastproject.workflow.api.WorkflowDatabaseException;
 import org.opencastproject.workflow.api.WorkflowInstance;
+import org.opencastproject.workflow.api.WorkflowInstance.WorkflowState;
+import org.opencastproject.workflow.api.WorkflowInstanceImpl;
+import org.opencastproject.workflow.api.WorkflowQuery;
+import org.opencastproject.workflow.api.WorkflowService;
+import org.opencastproject.workflow.api.WorkflowSetImpl;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.entwinemedia.fn.data.Opt;
+
 import net.fortuna.ical4j.model.DateTime;
 import net.fortuna.ical4j.model.Period;
 import net.fortuna.ical4j.model.property.RRule;
@@ -99,6 +117,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Dictionary;
@@ -909,6 +928,108 @@ public class IndexServiceImplTest {
     return indexServiceImpl.calculatePeriods(start.getTime(), end.getTime(), duration, rRule, tz);
   }
 
+  @Test
+  public void testGetEventMediapackages() throws Exception {
+    MediaPackage running = createMediaPackage("running");
+    MediaPackage processed = createMediaPackage("processed");
+    MediaPackage archived = createMediaPackage("archived");
+
+    WorkflowSetImpl workflowSet = new WorkflowSetImpl();
+    workflowSet.addItem(createWorkflowInstance(1L, running));
+    workflowSet.addItem(createWorkflowInstance(3L, processed));
+    workflowSet.addItem(createWorkflowInstance(2L, createMediaPackage("processed")));
+    workflowSet.setTotalCount(3);
+    Capture<WorkflowQuery> workflowQuery = new Capture<>();
+    WorkflowService workflowService = EasyMock.createMock(WorkflowService.class);
+    EasyMock.expect(workflowService.getWorkflowInstances(EasyMock.capture(workflowQuery))).andReturn(workflowSet)
+            .once();
+    EasyMock.replay(workflowService);
+
+    AssetManager assetManager = setupAssetManager(archived);
+
+    IndexServiceImpl indexService = new IndexServiceImpl();
+    indexService.setWorkflowService(workflowService);
+    indexService.setAssetManager(assetManager);
+    Map<String, MediaPackage> mediaPackages = indexService.getEventMediapackages(Arrays.asList(
+            createWorkflowEvent("running"), createWorkflowEvent("processed"), createArchivedEvent("archived")));
+
+    // Both workflow events are looked up with one query, the newest workflow wins
+    assertEquals(Arrays.asList("running", "processed"), workflowQuery.getValue().getMediaPackageIds());
+    assertEquals(3, mediaPackages.size());
+    Assert.assertSame(running, mediaPackages.get("running"));
+    Assert.assertSame(processed, mediaPackages.get("processed"));
+    Assert.assertSame(archived, mediaPackages.get("archived"));
+    EasyMock.verify(workflowService, assetManager);
+  }
+
+  @Test(expected = IndexServiceException.class)
+  public void testGetEventMediapackagesMissingArchivedEvent() throws Exception {
+    IndexServiceImpl indexService = new IndexServiceImpl();
+    indexService.setAssetManager(setupAssetManager(createMediaPackage("archived")));
+    indexService.getEventMediapackages(Arrays.asList(createArchivedEvent("archived"), createArchivedEvent("missing")));
+  }
+
+  private AssetManager setupAssetManager(MediaPackage... mediaPackages) {
+    List<ARecord> records = new ArrayList<>();
+    for (MediaPackage mediaPackage : mediaPackages) {
+      Snapshot snapshot = EasyMock.createNiceMock(Snapshot.class);
+      EasyMock.expect(snapshot.getMediaPackage()).andReturn(mediaPackage).anyTimes();
+      ARecord record = EasyMock.createNiceMock(ARecord.class);
+      EasyMock.expect(record.getSnapshot()).andReturn(Opt.some(snapshot)).anyTimes();
+      EasyMock.replay(snapshot, record);
+      records.add(record);
+    }
+    AResult result = EasyMock.createNiceMock(AResult.class);
+    EasyMock.expect(result.getRecords()).andReturn($(records)).anyTimes();
+
+    ASelectQuery select = EasyMock.createNiceMock(ASelectQuery.class);
+    EasyMock.expect(select.where(EasyMock.anyObject(Predicate.class))).andReturn(select).anyTimes();
+    EasyMock.expect(select.run()).andReturn(result).once();
+
+    Predicate predicate = EasyMock.createNiceMock(Predicate.class);
+    EasyMock.expect(predicate.and(EasyMock.anyObject(Predicate.class))).andReturn(predicate).anyTimes();
+    EasyMock.expect(predicate.or(EasyMock.anyObject(Predicate.class))).andReturn(predicate).anyTimes();
+    EasyMock.expect(predicate.not()).andReturn(predicate).anyTimes();
+
+    VersionField version = EasyMock.createNiceMock(VersionField.class);
+    EasyMock.expect(version.isLatest()).andReturn(predicate).anyTimes();
+
+    AQueryBuilder query = EasyMock.createNiceMock(AQueryBuilder.class);
+    EasyMock.expect(query.always()).andReturn(predicate).anyTimes();
+    EasyMock.expect(query.version()).andReturn(version).anyTimes();
+    EasyMock.expect(query.mediaPackageId(EasyMock.anyString())).andReturn(predicate).anyTimes();
+    EasyMock.expect(query.select(EasyMock.anyObject(Target.class))).andReturn(select).anyTimes();
+
+    AssetManager assetManager = EasyMock.createMock(AssetManager.class);
+    EasyMock.expect(assetManager.createQuery()).andReturn(query).once();
+    EasyMock.replay(assetManager, query, version, predicate, select, result);
+    return assetManager;
+  }
+
+  private MediaPackage createMediaPackage(String id) throws MediaPackageException {
+    return MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew(new IdImpl(id));
+  }
+
+  private WorkflowInstance createWorkflowInstance(long id, MediaPackage mediaPackage) {
+    WorkflowInstanceImpl workflowInstance = new WorkflowInstanceImpl();
+    workflowInstance.setId(id);
+    workflowInstance.setMediaPackage(mediaPackage);
+    return workflowInstance;
+  }
+
+  private Event createWorkflowEvent(String id) {
+    Event event = new Event(id, organization.getId());
+    event.setWorkflowId(1L);
+    event.setWorkflowState(WorkflowState.RUNNING);
+    return event;
+  }
+
+  private Event createArchivedEvent(String id) {
+    Event event = new Event(id, organization.getId());
+    event.setArchiveVersion(1L);
+    return event;
+  }
+
   private String generateRule(String days, int hour, int minute) {
     return String.format("FREQ=WEEKLY;BYDAY=%s;BYHOUR=%d;BYMINUTE=%d", days, hour, minute);
   }
@@ -50,6 +50,9 @@ import org.opencastproject.util.UnknownFileTypeException;
 import org.opencastproject.util.data.Tuple;
 import org.opencastproject.workspace.api.Workspace;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.tika.metadata.HttpHeaders;
@@ -70,6 +73,7 @@ import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Contains the business logic for media inspection. Its primary purpose is to decouple the inspection logic from all
@@ -79,11 +83,18 @@ public class MediaInspector {
 
   private static final Logger logger = LoggerFactory.getLogger(MediaInspector.class);
 
+  /** The maximum number of media analysis results to keep */
+  private static final int METADATA_CACHE_SIZE = 1000;
+
   private final Workspace workspace;
   /** The Apache Tika parser */
   private final Parser tikaParser;
   private final String ffprobePath;
 
+  /** The results of the media analyzer, keyed by the checksum of the analyzed file and the analyzer options */
+  private final Cache<String, MediaContainerMetadata> metadataCache = CacheBuilder.newBuilder()
+          .maximumSize(METADATA_CACHE_SIZE).expireAfterAccess(1, TimeUnit.DAYS).build();
+
   public MediaInspector(Workspace workspace, Parser tikaParser, String ffprobePath) {
     this.workspace = workspace;
     this.tikaParser = tikaParser;
@@ -120,7 +131,14 @@ public class MediaInspector {
         throw new MediaInspectionException("Can not inspect files without a filename extension");
       }
 
-      MediaContainerMetadata metadata = getFileMetadata(file, getAccurateFrameCount(options));
+      Checksum checksum;
+      try {
+        checksum = getChecksum(file);
+      } catch (IOException e) {
+        throw new MediaInspectionException("Unable to read " + file, e);
+      }
+
+      MediaContainerMetadata metadata = getFileMetadata(file, checksum, getAccurateFrameCount(options));
       if (metadata == null) {
         throw new MediaInspectionException("Media analyzer returned no metadata from " + file);
       } else {
@@ -139,11 +157,7 @@ public class MediaInspector {
           track.setDuration(metadata.getDuration());
 
         // Checksum
-        try {
-          track.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, file));
-        } catch (IOException e) {
-          throw new MediaInspectionException("Unable to read " + file, e);
-        }
+        track.setChecksum(checksum);
 
         // Mimetype
         InputStream is = null;
@@ -252,7 +266,17 @@ public class MediaInspector {
         throw new MediaInspectionException("Can not inspect files without a filename extension");
       }
 
-      MediaContainerMetadata metadata = getFileMetadata(file, getAccurateFrameCount(options));
+      // Reuse the checksum the track already carries unless it is to be replaced
+      Checksum checksum = originalTrack.getChecksum();
+      if (checksum == null || override) {
+        try {
+          checksum = getChecksum(file);
+        } catch (IOException e) {
+          throw new MediaInspectionException("Unable to read " + file, e);
+        }
+      }
+
+      MediaContainerMetadata metadata = getFileMetadata(file, checksum, getAccurateFrameCount(options));
       if (metadata == null) {
         throw new MediaInspectionException("Unable to acquire media metadata for " + originalTrackUrl);
       } else {
@@ -265,7 +289,7 @@ public class MediaInspector {
         }
 
         // init the new track with old
-        track.setChecksum(originalTrack.getChecksum());
+        track.setChecksum(checksum);
         track.setDuration(originalTrack.getDuration());
         track.setElementDescription(originalTrack.getElementDescription());
         track.setFlavor(flavor);
@@ -281,13 +305,6 @@ public class MediaInspector {
         // enrich the new track with basic info
         if (track.getDuration() == null || override)
           track.setDuration(metadata.getDuration());
-        if (track.getChecksum() == null || override) {
-          try {
-            track.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, file));
-          } catch (IOException e) {
-            throw new MediaInspectionException("Unable to read " + file, e);
-          }
-        }
 
         // Add the mime type if it's not already present
         if (track.getMimeType() == null || override) {
@@ -366,7 +383,7 @@ public class MediaInspector {
       // Checksum
       if (element.getChecksum() == null || override) {
         try {
-          element.setChecksum(Checksum.create(ChecksumType.DEFAULT_TYPE, file));
+          element.setChecksum(getChecksum(file));
         } catch (IOException e) {
           throw new MediaInspectionException("Error generating checksum for " + element.getURI(), e);
         }
@@ -395,24 +412,51 @@ public class MediaInspector {
   }
 
   /**
-   * Asks the media analyzer to extract the file's metadata.
+   * Returns the md5 checksum of a workspace file. The workspace reuses the checksum it already knows if the file has
+   * not changed since, otherwise the checksum is calculated from the file's content.
+   *
+   * @param file
+   *          the file
+   * @return the checksum
+   * @throws IOException
+   *           if reading the file fails
+   */
+  private Checksum getChecksum(File file) throws IOException {
+    return Checksum.create(ChecksumType.DEFAULT_TYPE, workspace.md5(file));
+  }
+
+  /**
+   * Asks the media analyzer to extract the file's metadata. Since the metadata only depends on the file's content,
+   * files with the same checksum are only analyzed once.
    *
    * @param file
    *          the file
+   * @param checksum
+   *          the file's checksum
    * @return the file container metadata
    * @throws MediaInspectionException
    *           if metadata extraction fails
    */
-  private MediaContainerMetadata getFileMetadata(File file, boolean accurateFrameCount) throws MediaInspectionException {
+  private MediaContainerMetadata getFileMetadata(File file, Checksum checksum, boolean accurateFrameCount)
+          throws MediaInspectionException {
     if (file == null)
       throw new IllegalArgumentException("file to analyze cannot be null");
+    String key = checksum.getType().getName() + ":" + checksum.getValue() + ":" + accurateFrameCount;
+    MediaContainerMetadata metadata = metadataCache.getIfPresent(key);
+    if (metadata != null) {
+      logger.debug("Using the cached media analysis of {}", file);
+      return metadata;
+    }
     try {
       MediaAnalyzer analyzer = new FFmpegAnalyzer(accurateFrameCount);
       analyzer.setConfig(map(Tuple.<String, Object> tuple(FFmpegAnalyzer.FFPROBE_BINARY_CONFIG, ffprobePath)));
-      return analyzer.analyze(file);
+      metadata = analyzer.analyze(file);
     } catch (MediaAnalyzerException e) {
       throw new MediaInspectionException(e);
     }
+    if (metadata != null)
+      metadataCache.put(key, metadata);
+    return metadata;
   }
 
   /**
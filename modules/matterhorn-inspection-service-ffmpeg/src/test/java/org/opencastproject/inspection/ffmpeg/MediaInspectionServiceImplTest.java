@@ -46,6 +46,7 @@ import org.opencastproject.workspace.api.Workspace;
 
 import org.apache.tika.parser.audio.AudioParser;
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -100,6 +101,12 @@ public class MediaInspectionServiceImplTest {
       EasyMock.expect(workspace.get(resource)).andReturn(f);
       EasyMock.expect(workspace.get(resource)).andReturn(f);
       EasyMock.expect(workspace.get(resource)).andReturn(f);
+      EasyMock.expect(workspace.md5(f)).andAnswer(new IAnswer<String>() {
+        @Override
+        public String answer() throws Throwable {
+          return Checksum.create(ChecksumType.DEFAULT_TYPE, f).getValue();
+        }
+      }).anyTimes();
       EasyMock.replay(workspace);
       return some(new MediaInspector(workspace, new AudioParser(), binary));
     }
@@ -129,6 +136,24 @@ public class MediaInspectionServiceImplTest {
     }
   }
 
+  @Test
+  public void testInspectionWithKnownChecksum() throws Exception {
+    final URI trackUri = getResource("/test.mp4");
+    for (String binary : ffprobePath) {
+      final File f = new File(trackUri);
+      final Checksum known = Checksum.create(ChecksumType.DEFAULT_TYPE, "0123456789abcdef0123456789abcdef");
+      Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+      EasyMock.expect(workspace.get(trackUri)).andReturn(f).anyTimes();
+      EasyMock.expect(workspace.md5(f)).andReturn(known.getValue()).once();
+      EasyMock.replay(workspace);
+      // the checksum known to the workspace is used instead of reading the file
+      Track track = new MediaInspector(workspace, new AudioParser(), binary).inspectTrack(trackUri, Options.NO_OPTION);
+      assertEquals(known, track.getChecksum());
+      assertTrue(track.getDuration() > 0);
+      EasyMock.verify(workspace);
+    }
+  }
+
   @Test
   public void testInspectionEmptyContainer() throws Exception {
     final URI trackUri = getResource("/nostreams.mp4");
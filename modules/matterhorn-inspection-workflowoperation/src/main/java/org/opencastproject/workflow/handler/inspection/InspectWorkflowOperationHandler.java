@@ -27,6 +27,7 @@ import org.opencastproject.inspection.api.MediaInspectionException;
 import org.opencastproject.inspection.api.MediaInspectionOptions;
 import org.opencastproject.inspection.api.MediaInspectionService;
 import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.job.api.JobContext;
 import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.MediaPackage;
@@ -45,6 +46,7 @@ import org.opencastproject.metadata.dublincore.Precision;
 import org.opencastproject.util.MimeType;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.workflow.api.AbstractWorkflowOperationHandler;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
 import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowOperationException;
 import org.opencastproject.workflow.api.WorkflowOperationInstance;
@@ -61,7 +63,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -69,7 +75,8 @@ import java.util.TreeMap;
 /**
  * Workflow operation used to inspect all tracks of a media package.
  */
-public class InspectWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
+public class InspectWorkflowOperationHandler extends AbstractWorkflowOperationHandler
+        implements AsyncWorkflowOperationHandler {
 
   /** The logging facility */
   private static final Logger logger = LoggerFactory.getLogger(InspectWorkflowOperationHandler.class);
@@ -149,9 +156,7 @@ public class InspectWorkflowOperationHandler extends AbstractWorkflowOperationHa
   @Override
   public WorkflowOperationResult start(WorkflowInstance workflowInstance, JobContext context)
           throws WorkflowOperationException {
-    MediaPackage mediaPackage = (MediaPackage) workflowInstance.getMediaPackage().clone();
-    // Inspect the tracks
-    long totalTimeInQueue = 0;
+    MediaPackage mediaPackage = workflowInstance.getMediaPackage();
 
     WorkflowOperationInstance operation = workflowInstance.getCurrentOperation();
     boolean rewrite = "true".equalsIgnoreCase(operation.getConfiguration(OPT_OVERWRITE));
@@ -170,49 +175,94 @@ public class InspectWorkflowOperationHandler extends AbstractWorkflowOperationHa
         throw new WorkflowOperationException("Mediapackage " + mediaPackage + " contains no media");
     }
 
+    // Start inspecting all tracks at once, captions don't need to be inspected
+    List<Job> inspectJobs = new ArrayList<Job>();
     for (Track track : mediaPackage.getTracks()) {
-
+      if (isCaptions(track))
+        continue;
       logger.info("Inspecting track '{}' of {}", track.getIdentifier(), mediaPackage);
+      try {
+        inspectJobs.add(inspectionService.enrich(track, rewrite, options));
+      } catch (MediaInspectionException e) {
+        throw new WorkflowOperationException("Error inspecting media package", e);
+      } catch (MediaPackageException e) {
+        throw new WorkflowOperationException("Error parsing media package", e);
+      }
+    }
 
-      Job inspectJob = null;
-      Track inspectedTrack;
-      if (track != null && track.getURI() != null && (track.getURI().toString().endsWith(".vtt")
-              || track.getURI().toString().endsWith(".srt"))) {
-        inspectedTrack = (Track)track.clone();
+    if (inspectJobs.isEmpty())
+      return complete(workflowInstance, Collections.<Job> emptyList());
+    return createWaitResult(mediaPackage, inspectJobs.toArray(new Job[inspectJobs.size()]));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workflow.api.AsyncWorkflowOperationHandler#jobsTerminated(WorkflowInstance, JobContext,
+   *      JobBarrier.Result)
+   */
+  @Override
+  public WorkflowOperationResult jobsTerminated(WorkflowInstance workflowInstance, JobContext context,
+          JobBarrier.Result result) throws WorkflowOperationException {
+    if (!result.isSuccess())
+      throw new WorkflowOperationException("Not all tracks of " + workflowInstance.getMediaPackage()
+              + " could be inspected");
+    return complete(workflowInstance, result.getStatus().keySet());
+  }
+
+  /**
+   * Replaces the tracks of the media package with the inspected ones and updates the dublin core catalog.
+   *
+   * @param workflowInstance
+   *          the workflow instance
+   * @param inspectJobs
+   *          the finished inspection jobs
+   * @return the operation result
+   * @throws WorkflowOperationException
+   *           if the result of an inspection job is not usable
+   */
+  private WorkflowOperationResult complete(WorkflowInstance workflowInstance, Collection<Job> inspectJobs)
+          throws WorkflowOperationException {
+    MediaPackage mediaPackage = (MediaPackage) workflowInstance.getMediaPackage().clone();
+    long totalTimeInQueue = 0;
+
+    List<Track> inspectedTracks = new ArrayList<Track>();
+    for (Track track : mediaPackage.getTracks()) {
+      if (isCaptions(track)) {
+        Track inspectedTrack = (Track) track.clone();
         inspectedTrack.setMimeType(MimeType.mimeType("text", "vtt"));
         logger.info("Track '{}' of {} contains captions", track.getIdentifier(), mediaPackage);
-      } else {
-        try {
-          inspectJob = inspectionService.enrich(track, rewrite, options);
-          if (!waitForStatus(inspectJob).isSuccess()) {
-            throw new WorkflowOperationException("Track " + track + " could not be inspected");
-          }
-        } catch (MediaInspectionException e) {
-          throw new WorkflowOperationException("Error inspecting media package", e);
-        } catch (MediaPackageException e) {
-          throw new WorkflowOperationException("Error parsing media package", e);
-        }
-
-        // add this receipt's queue and execution times to the total
-        long timeInQueue = inspectJob.getQueueTime() == null ? 0 : inspectJob.getQueueTime();
-        totalTimeInQueue += timeInQueue;
-
-
-        try {
-          inspectedTrack = (Track) MediaPackageElementParser.getFromXml(inspectJob.getPayload());
-        } catch (MediaPackageException e) {
-          throw new WorkflowOperationException("Unable to parse track from job " + inspectJob.getId(), e);
-        }
-
-        if (inspectedTrack == null)
-          throw new WorkflowOperationException("Track " + track + " could not be inspected");
-
-        if (inspectedTrack.getStreams().length == 0)
-          throw new WorkflowOperationException(format("Track %s does not contain any streams", track));
+        inspectedTracks.add(inspectedTrack);
+      }
+    }
+
+    for (Job inspectJob : inspectJobs) {
+      // add this receipt's queue and execution times to the total
+      long timeInQueue = inspectJob.getQueueTime() == null ? 0 : inspectJob.getQueueTime();
+      totalTimeInQueue += timeInQueue;
+
+      Track inspectedTrack;
+      try {
+        inspectedTrack = (Track) MediaPackageElementParser.getFromXml(inspectJob.getPayload());
+      } catch (MediaPackageException e) {
+        throw new WorkflowOperationException("Unable to parse track from job " + inspectJob.getId(), e);
       }
-      // Replace the original track with the inspected one
+
+      if (inspectedTrack == null)
+        throw new WorkflowOperationException("Job " + inspectJob.getId() + " did not inspect any track");
+
+      if (inspectedTrack.getStreams().length == 0)
+        throw new WorkflowOperationException(format("Track %s does not contain any streams", inspectedTrack));
+
+      inspectedTracks.add(inspectedTrack);
+    }
+
+    // Replace the original tracks with the inspected ones, the inspection keeps the element identifier
+    for (Track inspectedTrack : inspectedTracks) {
+      Track track = mediaPackage.getTrack(inspectedTrack.getIdentifier());
       try {
-        mediaPackage.remove(track);
+        if (track != null)
+          mediaPackage.remove(track);
         mediaPackage.add(inspectedTrack);
       } catch (UnsupportedElementException e) {
         logger.error("Error adding {} to media package", inspectedTrack, e);
@@ -230,6 +280,12 @@ public class InspectWorkflowOperationHandler extends AbstractWorkflowOperationHa
     return createResult(mediaPackage, Action.CONTINUE, totalTimeInQueue);
   }
 
+  /** Returns whether the track is a caption file which cannot be inspected. */
+  private static boolean isCaptions(Track track) {
+    return track.getURI() != null
+            && (track.getURI().toString().endsWith(".vtt") || track.getURI().toString().endsWith(".srt"));
+  }
+
   /**
    * Updates those dublin core fields that can be gathered from the technical metadata.
    *
@@ -23,6 +23,7 @@ package org.opencastproject.workflow.handler.inspection;
 
 import org.opencastproject.inspection.api.MediaInspectionService;
 import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.mediapackage.Catalog;
 import org.opencastproject.mediapackage.EName;
@@ -44,6 +45,7 @@ import org.opencastproject.workflow.api.WorkflowOperationInstance;
 import org.opencastproject.workflow.api.WorkflowOperationInstance.OperationState;
 import org.opencastproject.workflow.api.WorkflowOperationInstanceImpl;
 import org.opencastproject.workflow.api.WorkflowOperationResult;
+import org.opencastproject.workflow.api.WorkflowOperationWaitResult;
 import org.opencastproject.workspace.api.Workspace;
 
 import org.easymock.EasyMock;
@@ -57,6 +59,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -199,6 +202,14 @@ public class InspectWorkflowOperationHandlerTest {
     workflowInstance.setOperations(operationsList);
 
     // Run the media package through the operation handler, ensuring that metadata gets added
-    return operationHandler.start(workflowInstance, null);
+    WorkflowOperationResult result = operationHandler.start(workflowInstance, null);
+    Assert.assertTrue(result instanceof WorkflowOperationWaitResult);
+
+    // Let the inspection jobs finish
+    Map<Job, Status> status = new HashMap<Job, Status>();
+    for (Job inspectJob : ((WorkflowOperationWaitResult) result).getJobs()) {
+      status.put(inspectJob, Status.FINISHED);
+    }
+    return operationHandler.jobsTerminated(workflowInstance, null, new JobBarrier.Result(status));
   }
 }
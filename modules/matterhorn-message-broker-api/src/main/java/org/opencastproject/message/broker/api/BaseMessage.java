@@ -46,6 +46,15 @@ public class BaseMessage implements Serializable {
     this.object = object;
   }
 
+  /**
+   * Creates a message from the serialized organization and user, as read by a {@link MessageCodec}.
+   */
+  BaseMessage(String organization, String user, Serializable object) {
+    this.organization = organization;
+    this.user = user;
+    this.object = object;
+  }
+
   public Opt<String> getId() {
     if (object instanceof MessageItem)
       return Opt.some(((MessageItem) object).getId());
@@ -65,4 +74,14 @@ public class BaseMessage implements Serializable {
     return object;
   }
 
+  /** Returns the serialized organization. */
+  String getOrganizationXml() {
+    return organization;
+  }
+
+  /** Returns the serialized user. */
+  String getUserXml() {
+    return user;
+  }
+
 }
@@ -0,0 +1,437 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.message.broker.api;
+
+import org.opencastproject.message.broker.api.acl.AclItem;
+import org.opencastproject.message.broker.api.agent.RecordingItem;
+import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem;
+import org.opencastproject.message.broker.api.comments.CommentItem;
+import org.opencastproject.message.broker.api.group.GroupItem;
+import org.opencastproject.message.broker.api.index.IndexRecreateObject;
+import org.opencastproject.message.broker.api.scheduler.SchedulerItem;
+import org.opencastproject.message.broker.api.series.SeriesItem;
+import org.opencastproject.message.broker.api.theme.ThemeItem;
+import org.opencastproject.message.broker.api.workflow.WorkflowItem;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A compact binary {@link MessageCodec} for the message items defined in this bundle.
+ * <p>
+ * The items are written field by field instead of being Java serialized, and messages larger than
+ * {@link #COMPRESSION_THRESHOLD} bytes are deflated, which shrinks the Dublin Core catalogs, media packages and access
+ * control lists many items carry considerably. Decoding only ever creates the known item types, so receiving a message
+ * does not allow the sender to instantiate arbitrary classes.
+ * <p>
+ * An encoded message starts with the format version and a flags byte. Decoding a message of a newer format version
+ * fails, so the version has to be increased whenever the layout of an item changes. Decoded messages may not exceed
+ * {@link #MAX_MESSAGE_SIZE} bytes once inflated, and no string may be longer than the rest of the message, so a
+ * corrupt or forged message cannot make the receiver allocate large amounts of memory.
+ */
+public final class BinaryMessageCodec implements MessageCodec {
+
+  /** The name of this codec */
+  public static final String NAME = "binary";
+
+  /** The current format version */
+  public static final int FORMAT_VERSION = 1;
+
+  /** Messages larger than this number of bytes are compressed */
+  public static final int COMPRESSION_THRESHOLD = 512;
+
+  /** The maximum size of a decoded message in bytes, after inflating it */
+  public static final int MAX_MESSAGE_SIZE = 64 * 1024 * 1024;
+
+  /** Flag marking a compressed message */
+  private static final int FLAG_COMPRESSED = 0x01;
+
+  /** The type tags of the supported items. The values must never change. */
+  private static final int TAG_ACL = 1;
+  private static final int TAG_ASSET_MANAGER = 2;
+  private static final int TAG_COMMENT = 3;
+  private static final int TAG_GROUP = 4;
+  private static final int TAG_INDEX_RECREATE = 5;
+  private static final int TAG_RECORDING = 6;
+  private static final int TAG_SCHEDULER = 7;
+  private static final int TAG_SERIES = 8;
+  private static final int TAG_THEME = 9;
+  private static final int TAG_WORKFLOW = 10;
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public boolean canEncode(BaseMessage message) {
+    return getTag(message.getObject()) > 0;
+  }
+
+  @Override
+  public byte[] encode(BaseMessage message) throws IOException {
+    Serializable object = message.getObject();
+    int tag = getTag(object);
+    if (tag < 0)
+      throw new IOException("Unable to encode messages of type " + (object == null ? null : object.getClass()));
+
+    ByteArrayOutputStream payload = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(payload);
+    writeString(out, message.getOrganizationXml());
+    writeString(out, message.getUserXml());
+    out.writeByte(tag);
+    switch (tag) {
+      case TAG_ACL:
+        ((AclItem) object).writeTo(out);
+        break;
+      case TAG_ASSET_MANAGER:
+        ((AssetManagerItem) object).writeTo(out);
+        break;
+      case TAG_COMMENT:
+        ((CommentItem) object).writeTo(out);
+        break;
+      case TAG_GROUP:
+        ((GroupItem) object).writeTo(out);
+        break;
+      case TAG_INDEX_RECREATE:
+        ((IndexRecreateObject) object).writeTo(out);
+        break;
+      case TAG_RECORDING:
+        ((RecordingItem) object).writeTo(out);
+        break;
+      case TAG_SCHEDULER:
+        ((SchedulerItem) object).writeTo(out);
+        break;
+      case TAG_SERIES:
+        ((SeriesItem) object).writeTo(out);
+        break;
+      case TAG_THEME:
+        ((ThemeItem) object).writeTo(out);
+        break;
+      case TAG_WORKFLOW:
+        ((WorkflowItem) object).writeTo(out);
+        break;
+      default:
+        throw new IllegalStateException("Unhandled tag " + tag);
+    }
+    out.flush();
+
+    boolean compress = payload.size() > COMPRESSION_THRESHOLD;
+    ByteArrayOutputStream result = new ByteArrayOutputStream(compress ? payload.size() / 4 : payload.size() + 2);
+    result.write(FORMAT_VERSION);
+    result.write(compress ? FLAG_COMPRESSED : 0);
+    if (compress) {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try (OutputStream deflated = new DeflaterOutputStream(result, deflater)) {
+        payload.writeTo(deflated);
+      } finally {
+        deflater.end();
+      }
+    } else {
+      payload.writeTo(result);
+    }
+    return result.toByteArray();
+  }
+
+  @Override
+  public BaseMessage decode(byte[] data) throws IOException {
+    if (data.length < 2)
+      throw new EOFException("Message is too short");
+    int version = data[0];
+    if (version != FORMAT_VERSION)
+      throw new IOException("Unsupported message format version " + version);
+
+    InputStream payload = new ByteArrayInputStream(data, 2, data.length - 2);
+    int size = data.length - 2;
+    if ((data[1] & FLAG_COMPRESSED) != 0) {
+      payload = new InflaterInputStream(payload);
+      size = MAX_MESSAGE_SIZE;
+    }
+    try (DataInputStream in = new MessageInputStream(payload, size)) {
+      String organization = readString(in);
+      String user = readString(in);
+      int tag = in.readUnsignedByte();
+      Serializable object;
+      switch (tag) {
+        case TAG_ACL:
+          object = AclItem.readFrom(in);
+          break;
+        case TAG_ASSET_MANAGER:
+          object = AssetManagerItem.readFrom(in);
+          break;
+        case TAG_COMMENT:
+          object = CommentItem.readFrom(in);
+          break;
+        case TAG_GROUP:
+          object = GroupItem.readFrom(in);
+          break;
+        case TAG_INDEX_RECREATE:
+          object = IndexRecreateObject.readFrom(in);
+          break;
+        case TAG_RECORDING:
+          object = RecordingItem.readFrom(in);
+          break;
+        case TAG_SCHEDULER:
+          object = SchedulerItem.readFrom(in);
+          break;
+        case TAG_SERIES:
+          object = SeriesItem.readFrom(in);
+          break;
+        case TAG_THEME:
+          object = ThemeItem.readFrom(in);
+          break;
+        case TAG_WORKFLOW:
+          object = WorkflowItem.readFrom(in);
+          break;
+        default:
+          throw new IOException("Unknown message type " + tag);
+      }
+      return new BaseMessage(organization, user, object);
+    }
+  }
+
+  /**
+   * Returns the type tag of a message object.
+   *
+   * @return the tag or -1 if the object is not supported
+   */
+  private static int getTag(Serializable object) {
+    if (object instanceof AclItem)
+      return TAG_ACL;
+    if (object instanceof AssetManagerItem)
+      return TAG_ASSET_MANAGER;
+    if (object instanceof CommentItem)
+      return TAG_COMMENT;
+    if (object instanceof GroupItem)
+      return TAG_GROUP;
+    if (object instanceof IndexRecreateObject)
+      return TAG_INDEX_RECREATE;
+    if (object instanceof RecordingItem)
+      return TAG_RECORDING;
+    if (object instanceof SchedulerItem)
+      return TAG_SCHEDULER;
+    if (object instanceof SeriesItem)
+      return TAG_SERIES;
+    if (object instanceof ThemeItem)
+      return TAG_THEME;
+    if (object instanceof WorkflowItem)
+      return TAG_WORKFLOW;
+    return -1;
+  }
+
+  /*
+   * ------------------------------------------------------------------------------------------------------------------
+   * Field encodings shared by the message items
+   */
+
+  /**
+   * Writes a string, which may be <code>null</code>.
+   */
+  public static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * Reads a string written by {@link #writeString(DataOutput, String)}.
+   */
+  public static String readString(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0)
+      return null;
+    if (length > remaining(in))
+      throw new EOFException("String of " + length + " bytes exceeds the remaining message");
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a boolean, which may be <code>null</code>.
+   */
+  public static void writeBoolean(DataOutput out, Boolean value) throws IOException {
+    out.writeByte(value == null ? -1 : value ? 1 : 0);
+  }
+
+  /**
+   * Reads a boolean written by {@link #writeBoolean(DataOutput, Boolean)}.
+   */
+  public static Boolean readBoolean(DataInput in) throws IOException {
+    byte value = in.readByte();
+    return value < 0 ? null : value > 0;
+  }
+
+  /**
+   * Writes a long, which may be <code>null</code>.
+   */
+  public static void writeLong(DataOutput out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null)
+      out.writeLong(value);
+  }
+
+  /**
+   * Reads a long written by {@link #writeLong(DataOutput, Long)}.
+   */
+  public static Long readLong(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  /**
+   * Writes a date, which may be <code>null</code>.
+   */
+  public static void writeDate(DataOutput out, Date value) throws IOException {
+    writeLong(out, value == null ? null : value.getTime());
+  }
+
+  /**
+   * Reads a date written by {@link #writeDate(DataOutput, Date)}.
+   */
+  public static Date readDate(DataInput in) throws IOException {
+    Long time = readLong(in);
+    return time == null ? null : new Date(time);
+  }
+
+  /**
+   * Writes an enum constant, which may be <code>null</code>. Constants are identified by their name, so they may be
+   * reordered without breaking the format.
+   */
+  public static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+    writeString(out, value == null ? null : value.name());
+  }
+
+  /**
+   * Reads an enum constant written by {@link #writeEnum(DataOutput, Enum)}.
+   */
+  public static <E extends Enum<E>> E readEnum(DataInput in, Class<E> type) throws IOException {
+    String name = readString(in);
+    if (name == null)
+      return null;
+    try {
+      return Enum.valueOf(type, name);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Unknown " + type.getSimpleName() + " " + name, e);
+    }
+  }
+
+  /**
+   * Returns the maximum number of bytes which can still be read from an input.
+   */
+  private static long remaining(DataInput in) {
+    if (in instanceof MessageInputStream)
+      return ((MessageInputStream) in).remaining();
+    return MAX_MESSAGE_SIZE;
+  }
+
+  /**
+   * The input of a message being decoded, which keeps track of the number of bytes left.
+   */
+  private static final class MessageInputStream extends DataInputStream {
+
+    MessageInputStream(InputStream in, long limit) {
+      super(new LimitedInputStream(in, limit));
+    }
+
+    long remaining() {
+      return ((LimitedInputStream) in).remaining;
+    }
+  }
+
+  /**
+   * An input stream failing once more than a given number of bytes are read from it.
+   */
+  private static final class LimitedInputStream extends FilterInputStream {
+
+    /** The number of bytes which may still be read */
+    private long remaining;
+
+    LimitedInputStream(InputStream in, long limit) {
+      super(in);
+      this.remaining = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining <= 0)
+        return checkExhausted();
+      int value = super.read();
+      if (value >= 0)
+        remaining--;
+      return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0)
+        return 0;
+      if (remaining <= 0)
+        return checkExhausted();
+      int count = super.read(b, off, (int) Math.min(len, remaining));
+      if (count > 0)
+        remaining -= count;
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(Math.min(n, remaining));
+      remaining -= skipped;
+      return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Returns the end of stream marker if the underlying stream is exhausted as well, and fails otherwise.
+     */
+    private int checkExhausted() throws IOException {
+      if (super.read() >= 0)
+        throw new IOException("Message exceeds the maximum size of " + MAX_MESSAGE_SIZE + " bytes");
+      return -1;
+    }
+  }
+
+}
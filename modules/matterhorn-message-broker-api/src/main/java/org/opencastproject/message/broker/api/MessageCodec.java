@@ -0,0 +1,77 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.message.broker.api;
+
+import java.io.IOException;
+
+/**
+ * Encodes messages sent through the message broker into bytes and decodes them again.
+ * <p>
+ * Messages which have been encoded by a codec carry its name in the {@link #CODEC_PROPERTY} message property, so the
+ * receiving side knows which codec to decode them with. Messages without this property are Java serialized.
+ */
+public interface MessageCodec {
+
+  /** The message property naming the codec a message has been encoded with */
+  String CODEC_PROPERTY = "opencast_codec";
+
+  /**
+   * Returns the name of this codec. The name is sent along with every message encoded by this codec and must therefore
+   * not change between versions.
+   *
+   * @return the codec name
+   */
+  String getName();
+
+  /**
+   * Tells whether this codec is able to encode a message.
+   *
+   * @param message
+   *          the message
+   * @return <code>true</code> if the message can be encoded
+   */
+  boolean canEncode(BaseMessage message);
+
+  /**
+   * Encodes a message.
+   *
+   * @param message
+   *          the message
+   * @return the encoded message
+   * @throws IOException
+   *           if encoding the message fails
+   */
+  byte[] encode(BaseMessage message) throws IOException;
+
+  /**
+   * Decodes a message encoded by this codec.
+   *
+   * @param data
+   *          the encoded message
+   * @return the message
+   * @throws IOException
+   *           if the data is not a valid message, e.g. because it was written by a newer version of this codec
+   */
+  BaseMessage decode(byte[] data) throws IOException;
+
+}
@@ -21,8 +21,17 @@
 
 package org.opencastproject.message.broker.api.acl;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -101,4 +110,35 @@ public class AclItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, currentAclName);
+    writeString(out, newAclName);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static AclItem readFrom(DataInput in) throws IOException {
+    String currentAclName = readString(in);
+    String newAclName = readString(in);
+    AclItem item = new AclItem(currentAclName, readEnum(in, Type.class));
+    item.newAclName = newAclName;
+    return item;
+  }
+
 }
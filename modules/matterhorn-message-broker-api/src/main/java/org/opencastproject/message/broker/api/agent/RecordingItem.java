@@ -21,8 +21,19 @@
 
 package org.opencastproject.message.broker.api.agent;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readLong;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeLong;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -97,6 +108,16 @@ public class RecordingItem implements MessageItem, Serializable {
     this.type = Type.Delete;
   }
 
+  /**
+   * Constructor to restore a {@link RecordingItem} from its fields.
+   */
+  private RecordingItem(String eventId, String state, Long lastHeardFrom, Type type) {
+    this.eventId = eventId;
+    this.state = state;
+    this.lastHeardFrom = lastHeardFrom;
+    this.type = type;
+  }
+
   @Override
   public String getId() {
     return eventId;
@@ -118,4 +139,32 @@ public class RecordingItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, eventId);
+    writeString(out, state);
+    writeLong(out, lastHeardFrom);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static RecordingItem readFrom(DataInput in) throws IOException {
+    return new RecordingItem(readString(in), readString(in), readLong(in), readEnum(in, Type.class));
+  }
+
 }
@@ -21,10 +21,15 @@
 package org.opencastproject.message.broker.api.assetmanager;
 
 import static com.entwinemedia.fn.Prelude.chuck;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readDate;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeDate;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
 
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageException;
 import org.opencastproject.mediapackage.MediaPackageParser;
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
 import org.opencastproject.metadata.dublincore.DublinCoreUtil;
@@ -39,6 +44,8 @@ import com.entwinemedia.fn.data.Opt;
 
 import org.apache.commons.io.IOUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -76,6 +83,52 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
   public abstract <A> A decompose(Fn<? super TakeSnapshot, ? extends A> takeSnapshot,
           Fn<? super DeleteSnapshot, ? extends A> deleteSnapshot, Fn<? super DeleteEpisode, ? extends A> deleteEpisode);
 
+  /** Returns the tag identifying the kind of item in a binary message. */
+  abstract int getKind();
+
+  /** Writes the fields specific to the kind of item. */
+  abstract void writeFieldsTo(DataOutput out) throws IOException;
+
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public final void writeTo(DataOutput out) throws IOException {
+    out.writeByte(getKind());
+    writeString(out, mediaPackageId);
+    writeDate(out, date);
+    writeFieldsTo(out);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static AssetManagerItem readFrom(DataInput in) throws IOException {
+    int kind = in.readUnsignedByte();
+    String mediaPackageId = readString(in);
+    Date date = readDate(in);
+    switch (kind) {
+      case TakeSnapshot.KIND:
+        return new TakeSnapshot(mediaPackageId, readString(in), readString(in), readString(in), in.readLong(), date);
+      case DeleteSnapshot.KIND:
+        return new DeleteSnapshot(mediaPackageId, in.readLong(), date);
+      case DeleteEpisode.KIND:
+        return new DeleteEpisode(mediaPackageId, date);
+      default:
+        throw new IOException("Unknown asset manager item " + kind);
+    }
+  }
+
   public final Date getDate() {
     return date;
   }
@@ -95,6 +148,8 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
   public static final class TakeSnapshot extends AssetManagerItem {
     private static final long serialVersionUID = 3530625835200867594L;
 
+    private static final int KIND = 1;
+
     private final String mediapackage;
     private final String acl;
     private final long version;
@@ -116,6 +171,19 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
       return takeSnapshot.apply(this);
     }
 
+    @Override
+    int getKind() {
+      return KIND;
+    }
+
+    @Override
+    void writeFieldsTo(DataOutput out) throws IOException {
+      writeString(out, mediapackage);
+      writeString(out, episodeDublincore);
+      writeString(out, acl);
+      out.writeLong(version);
+    }
+
     @Override
     public Type getType() {
       return Type.Update;
@@ -190,6 +258,8 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
   public static final class DeleteSnapshot extends AssetManagerItem {
     private static final long serialVersionUID = 4797196156230502250L;
 
+    private static final int KIND = 2;
+
     private final long version;
 
     private DeleteSnapshot(String mediaPackageId, long version, Date date) {
@@ -204,6 +274,16 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
       return deleteSnapshot.apply(this);
     }
 
+    @Override
+    int getKind() {
+      return KIND;
+    }
+
+    @Override
+    void writeFieldsTo(DataOutput out) throws IOException {
+      out.writeLong(version);
+    }
+
     @Override
     public Type getType() {
       return Type.Delete;
@@ -242,6 +322,8 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
   public static final class DeleteEpisode extends AssetManagerItem {
     private static final long serialVersionUID = -4906056424740181256L;
 
+    private static final int KIND = 3;
+
     private DeleteEpisode(String mediaPackageId, Date date) {
       super(mediaPackageId, date);
     }
@@ -253,6 +335,15 @@ public abstract class AssetManagerItem implements MessageItem, Serializable {
       return deleteEpisode.apply(this);
     }
 
+    @Override
+    int getKind() {
+      return KIND;
+    }
+
+    @Override
+    void writeFieldsTo(DataOutput out) {
+    }
+
     @Override
     public Type getType() {
       return Type.Delete;
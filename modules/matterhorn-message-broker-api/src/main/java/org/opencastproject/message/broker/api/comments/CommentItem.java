@@ -21,8 +21,15 @@
 
 package org.opencastproject.message.broker.api.comments;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -97,4 +104,32 @@ public class CommentItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, eventId);
+    out.writeBoolean(hasComments);
+    out.writeBoolean(hasOpenComments);
+    out.writeBoolean(needsCutting);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static CommentItem readFrom(DataInput in) throws IOException {
+    return new CommentItem(readString(in), in.readBoolean(), in.readBoolean(), in.readBoolean());
+  }
+
 }
@@ -21,11 +21,19 @@
 
 package org.opencastproject.message.broker.api.group;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 import org.opencastproject.security.api.Group;
 import org.opencastproject.security.api.GroupParser;
 import org.opencastproject.security.api.JaxbGroup;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 
@@ -88,6 +96,15 @@ public class GroupItem implements MessageItem, Serializable {
     this.type = type;
   }
 
+  /**
+   * Constructor to restore a {@link GroupItem} from its fields.
+   */
+  private GroupItem(String groupId, String group, Type type) {
+    this.groupId = groupId;
+    this.group = group;
+    this.type = type;
+  }
+
   @Override
   public String getId() {
     return groupId;
@@ -109,4 +126,31 @@ public class GroupItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, groupId);
+    writeString(out, group);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static GroupItem readFrom(DataInput in) throws IOException {
+    return new GroupItem(readString(in), readString(in), readEnum(in, Type.class));
+  }
+
 }
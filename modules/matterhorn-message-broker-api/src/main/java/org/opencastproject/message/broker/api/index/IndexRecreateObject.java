@@ -21,6 +21,16 @@
 
 package org.opencastproject.message.broker.api.index;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 public final class IndexRecreateObject implements Serializable {
@@ -143,4 +153,40 @@ public final class IndexRecreateObject implements Serializable {
   public Service getService() {
     return service;
   }
+
+  /**
+   * Writes this message to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, indexName);
+    writeEnum(out, service);
+    writeEnum(out, status);
+    out.writeInt(total);
+    out.writeInt(current);
+    writeString(out, message);
+  }
+
+  /**
+   * Reads a message written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the message
+   * @throws IOException
+   *           if reading fails
+   */
+  public static IndexRecreateObject readFrom(DataInput in) throws IOException {
+    IndexRecreateObject object = new IndexRecreateObject(readString(in), readEnum(in, Service.class),
+            readEnum(in, Status.class));
+    object.total = in.readInt();
+    object.current = in.readInt();
+    object.message = readString(in);
+    return object;
+  }
+
 }
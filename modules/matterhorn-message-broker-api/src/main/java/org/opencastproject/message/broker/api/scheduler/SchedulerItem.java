@@ -21,6 +21,16 @@
 
 package org.opencastproject.message.broker.api.scheduler;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readBoolean;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readDate;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeBoolean;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeDate;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
 import org.opencastproject.metadata.dublincore.DublinCores;
@@ -31,6 +41,8 @@ import org.opencastproject.security.api.AccessControlParser;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
@@ -287,6 +299,22 @@ public class SchedulerItem implements MessageItem, Serializable {
     this.type = Type.UpdateReviewStatus;
   }
 
+  /**
+   * Constructor to restore a {@link SchedulerItem} from its fields.
+   */
+  private SchedulerItem(String mediaPackageId, String event, String properties, String acl, Boolean optOut,
+          Boolean blacklisted, String reviewStatus, Date reviewDate, Type type) {
+    this.mediaPackageId = mediaPackageId;
+    this.event = event;
+    this.properties = properties;
+    this.acl = acl;
+    this.optOut = optOut;
+    this.blacklisted = blacklisted;
+    this.reviewStatus = reviewStatus;
+    this.reviewDate = reviewDate;
+    this.type = type;
+  }
+
   @Override
   public String getId() {
     return mediaPackageId;
@@ -372,4 +400,38 @@ public class SchedulerItem implements MessageItem, Serializable {
     return new HashMap<String, String>((Map) caProperties);
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, mediaPackageId);
+    writeString(out, event);
+    writeString(out, properties);
+    writeString(out, acl);
+    writeBoolean(out, optOut);
+    writeBoolean(out, blacklisted);
+    writeString(out, reviewStatus);
+    writeDate(out, reviewDate);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static SchedulerItem readFrom(DataInput in) throws IOException {
+    return new SchedulerItem(readString(in), readString(in), readString(in), readString(in), readBoolean(in),
+            readBoolean(in), readString(in), readDate(in), readEnum(in, Type.class));
+  }
+
 }
@@ -21,6 +21,14 @@
 
 package org.opencastproject.message.broker.api.series;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readBoolean;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeBoolean;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 import org.opencastproject.metadata.dublincore.DublinCore;
 import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
@@ -28,6 +36,8 @@ import org.opencastproject.metadata.dublincore.DublinCoreXmlFormat;
 import org.opencastproject.security.api.AccessControlList;
 import org.opencastproject.security.api.AccessControlParser;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 
@@ -210,6 +220,20 @@ public class SeriesItem implements MessageItem, Serializable {
     this.type = Type.Delete;
   }
 
+  /**
+   * Constructor to restore a {@link SeriesItem} from its fields.
+   */
+  private SeriesItem(String seriesId, String series, String acl, String propertyName, String propertyValue,
+          Boolean optOut, Type type) {
+    this.seriesId = seriesId;
+    this.series = series;
+    this.acl = acl;
+    this.propertyName = propertyName;
+    this.propertyValue = propertyValue;
+    this.optOut = optOut;
+    this.type = type;
+  }
+
   @Override
   public String getId() {
     return seriesId;
@@ -247,4 +271,36 @@ public class SeriesItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, seriesId);
+    writeString(out, series);
+    writeString(out, acl);
+    writeString(out, propertyName);
+    writeString(out, propertyValue);
+    writeBoolean(out, optOut);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static SeriesItem readFrom(DataInput in) throws IOException {
+    return new SeriesItem(readString(in), readString(in), readString(in), readString(in), readString(in),
+            readBoolean(in), readEnum(in, Type.class));
+  }
+
 }
@@ -21,6 +21,16 @@
 
 package org.opencastproject.message.broker.api.theme;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readDate;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeDate;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -159,4 +169,50 @@ public class SerializableTheme implements Serializable {
     return new StringBuilder(Long.toString(id)).append(":").append(name).toString();
   }
 
+  /**
+   * Writes this theme to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    out.writeLong(id);
+    writeDate(out, creationDate);
+    out.writeBoolean(isDefault);
+    writeString(out, creator);
+    writeString(out, name);
+    writeString(out, description);
+    out.writeBoolean(bumperActive);
+    writeString(out, bumperFile);
+    out.writeBoolean(trailerActive);
+    writeString(out, trailerFile);
+    out.writeBoolean(titleSlideActive);
+    writeString(out, titleSlideMetadata);
+    writeString(out, titleSlideBackground);
+    out.writeBoolean(licenseSlideActive);
+    writeString(out, licenseSlideBackground);
+    writeString(out, licenseSlideDescription);
+    out.writeBoolean(watermarkActive);
+    writeString(out, watermarkFile);
+    writeString(out, watermarkPosition);
+  }
+
+  /**
+   * Reads a theme written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the theme
+   * @throws IOException
+   *           if reading fails
+   */
+  public static SerializableTheme readFrom(DataInput in) throws IOException {
+    return new SerializableTheme(in.readLong(), readDate(in), in.readBoolean(), readString(in), readString(in),
+            readString(in), in.readBoolean(), readString(in), in.readBoolean(), readString(in), in.readBoolean(),
+            readString(in), readString(in), in.readBoolean(), readString(in), readString(in), in.readBoolean(),
+            readString(in), readString(in));
+  }
+
 }
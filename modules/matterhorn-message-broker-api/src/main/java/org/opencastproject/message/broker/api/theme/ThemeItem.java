@@ -21,8 +21,17 @@
 
 package org.opencastproject.message.broker.api.theme;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readLong;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeLong;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -87,6 +96,15 @@ public class ThemeItem implements MessageItem, Serializable {
     this.type = Type.Delete;
   }
 
+  /**
+   * Constructor to restore a {@link ThemeItem} from its fields.
+   */
+  private ThemeItem(Long id, SerializableTheme theme, Type type) {
+    this.id = id;
+    this.theme = theme;
+    this.type = type;
+  }
+
   @Override
   public String getId() {
     return Long.toString(id);
@@ -104,4 +122,35 @@ public class ThemeItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeLong(out, id);
+    out.writeBoolean(theme != null);
+    if (theme != null)
+      theme.writeTo(out);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static ThemeItem readFrom(DataInput in) throws IOException {
+    Long id = readLong(in);
+    SerializableTheme theme = in.readBoolean() ? SerializableTheme.readFrom(in) : null;
+    return new ThemeItem(id, theme, readEnum(in, Type.class));
+  }
+
 }
@@ -21,12 +21,21 @@
 
 package org.opencastproject.message.broker.api.workflow;
 
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.readString;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeEnum;
+import static org.opencastproject.message.broker.api.BinaryMessageCodec.writeString;
+
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
 import org.opencastproject.message.broker.api.MessageItem;
 import org.opencastproject.workflow.api.WorkflowDefinition;
 import org.opencastproject.workflow.api.WorkflowInstance;
 import org.opencastproject.workflow.api.WorkflowParser;
 import org.opencastproject.workflow.api.WorkflowParsingException;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -169,6 +178,19 @@ public class WorkflowItem implements MessageItem, Serializable {
     this.type = Type.DeleteInstance;
   }
 
+  /**
+   * Constructor to restore a {@link WorkflowItem} from its fields.
+   */
+  private WorkflowItem(String id, String workflowDefinitionId, String workflowDefinition, long workflowInstanceId,
+          String workflowInstance, Type type) {
+    this.id = id;
+    this.workflowDefinitionId = workflowDefinitionId;
+    this.workflowDefinition = workflowDefinition;
+    this.workflowInstanceId = workflowInstanceId;
+    this.workflowInstance = workflowInstance;
+    this.type = type;
+  }
+
   @Override
   public String getId() {
     return id;
@@ -203,4 +225,35 @@ public class WorkflowItem implements MessageItem, Serializable {
     return type;
   }
 
+  /**
+   * Writes this item to a message encoded by the {@link BinaryMessageCodec}.
+   *
+   * @param out
+   *          the output to write to
+   * @throws IOException
+   *           if writing fails
+   */
+  public void writeTo(DataOutput out) throws IOException {
+    writeString(out, id);
+    writeString(out, workflowDefinitionId);
+    writeString(out, workflowDefinition);
+    out.writeLong(workflowInstanceId);
+    writeString(out, workflowInstance);
+    writeEnum(out, type);
+  }
+
+  /**
+   * Reads an item written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in
+   *          the input to read from
+   * @return the item
+   * @throws IOException
+   *           if reading fails
+   */
+  public static WorkflowItem readFrom(DataInput in) throws IOException {
+    return new WorkflowItem(readString(in), readString(in), readString(in), in.readLong(), readString(in),
+            readEnum(in, Type.class));
+  }
+
 }
@@ -21,6 +21,9 @@
 
 package org.opencastproject.message.broker.impl;
 
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+import org.opencastproject.message.broker.api.MessageCodec;
+
 import org.apache.activemq.ActiveMQConnectionFactory;
 import org.apache.activemq.transport.TransportListener;
 import org.apache.commons.lang3.StringUtils;
@@ -30,6 +33,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.jms.Connection;
 import javax.jms.DeliveryMode;
@@ -84,6 +89,14 @@ public class MessageBaseFacility {
   private String username = null;
   private String password = null;
 
+  /** The codecs available to encode and decode messages, by name */
+  private final Map<String, MessageCodec> codecs = new ConcurrentHashMap<String, MessageCodec>();
+
+  public MessageBaseFacility() {
+    MessageCodec binaryCodec = new BinaryMessageCodec();
+    codecs.put(binaryCodec.getName(), binaryCodec);
+  }
+
   /** OSGi component activate callback */
   public void activate(BundleContext bc) throws Exception {
     final String name = this.getClass().getSimpleName();
@@ -264,6 +277,28 @@ public class MessageBaseFacility {
     this.enabled = state;
   }
 
+  /** OSGi callback to add a message codec */
+  public void addCodec(MessageCodec codec) {
+    logger.info("Adding message codec '{}'", codec.getName());
+    codecs.put(codec.getName(), codec);
+  }
+
+  /** OSGi callback to remove a message codec */
+  public void removeCodec(MessageCodec codec) {
+    codecs.remove(codec.getName(), codec);
+  }
+
+  /**
+   * Returns a message codec.
+   *
+   * @param name
+   *          the codec name
+   * @return the codec or {@code null} if there is no codec of this name
+   */
+  protected MessageCodec getCodec(String name) {
+    return codecs.get(name);
+  }
+
   /**
    * Returns an anonymous message producer or {@code null} if the facility is not yet connected.
    * <p>
@@ -21,17 +21,20 @@
 
 package org.opencastproject.message.broker.impl;
 
+import org.opencastproject.message.broker.api.MessageCodec;
 import org.opencastproject.message.broker.api.MessageReceiver;
 import org.opencastproject.message.broker.api.MessageSender.DestinationType;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.InterruptedIOException;
 import java.io.Serializable;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -106,7 +109,13 @@ public class MessageReceiverImpl extends MessageBaseFacility implements MessageR
     while (true) {
       // Wait for a message
       Message message = waitForMessage(destinationId, type);
-      if (message != null && message instanceof ObjectMessage) {
+      if (message != null && message instanceof BytesMessage) {
+        try {
+          return decode((BytesMessage) message);
+        } catch (JMSException | IOException e) {
+          logger.error("Unable to decode message {}", message, e);
+        }
+      } else if (message != null && message instanceof ObjectMessage) {
         ObjectMessage objectMessage = (ObjectMessage) message;
         try {
           return objectMessage.getObject();
@@ -123,6 +132,23 @@ public class MessageReceiverImpl extends MessageBaseFacility implements MessageR
     }
   }
 
+  /**
+   * Decodes a message encoded by a {@link MessageCodec}.
+   *
+   * @param message
+   *          the message
+   * @return the message object
+   */
+  private Serializable decode(BytesMessage message) throws JMSException, IOException {
+    String codecName = message.getStringProperty(MessageCodec.CODEC_PROPERTY);
+    MessageCodec codec = codecName == null ? null : getCodec(codecName);
+    if (codec == null)
+      throw new IOException("No codec available for messages encoded with " + codecName);
+    byte[] data = new byte[(int) message.getBodyLength()];
+    message.readBytes(data);
+    return codec.decode(data);
+  }
+
   @Override
   public FutureTask<Serializable> receiveSerializable(final String destinationId, final DestinationType type) {
     FutureTask<Serializable> futureTask = new FutureTask<Serializable>(new Callable<Serializable>() {
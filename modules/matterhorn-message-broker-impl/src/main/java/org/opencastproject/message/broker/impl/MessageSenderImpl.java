@@ -22,14 +22,19 @@
 package org.opencastproject.message.broker.impl;
 
 import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.MessageCodec;
 import org.opencastproject.message.broker.api.MessageSender;
 import org.opencastproject.security.api.SecurityService;
 
+import org.apache.commons.lang3.StringUtils;
+import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -45,9 +50,36 @@ public class MessageSenderImpl extends MessageBaseFacility implements MessageSen
   /** The OSGi service PID */
   private static final String SERVICE_PID = "org.opencastproject.message.broker.impl.MessageSenderImpl";
 
+  /** The key to find the name of the codec used to encode messages */
+  protected static final String MESSAGE_CODEC_KEY = "activemq.message.codec";
+
+  /** The codec name meaning that messages are Java serialized */
+  protected static final String JAVA_SERIALIZATION = "java";
+
   /** The security service */
   private SecurityService securityService;
 
+  /** The name of the codec used to encode messages or {@code null} to Java serialize them */
+  private String codecName = null;
+
+  @Override
+  public void activate(BundleContext bc) throws Exception {
+    setCodec(bc.getProperty(MESSAGE_CODEC_KEY));
+    super.activate(bc);
+  }
+
+  /**
+   * Sets the codec used to encode messages.
+   *
+   * @param name
+   *          the codec name, or {@code null} or {@value #JAVA_SERIALIZATION} to Java serialize messages
+   */
+  void setCodec(String name) {
+    String codec = StringUtils.trimToNull(name);
+    codecName = JAVA_SERIALIZATION.equals(codec) ? null : codec;
+    logger.info("Messages are encoded using {}", codecName == null ? "Java serialization" : "codec " + codecName);
+  }
+
   @Override
   public void sendObjectMessage(String destinationId, DestinationType type, Serializable object) {
     if (!isConnected() && !connectMessageBroker()) {
@@ -56,7 +88,7 @@ public class MessageSenderImpl extends MessageBaseFacility implements MessageSen
     }
     try {
       // Create a message or use the provided one.
-      Message message = getSession().createObjectMessage(
+      Message message = createMessage(
           new BaseMessage(securityService.getOrganization(), securityService.getUser(), object));
 
       Destination destination;
@@ -77,6 +109,29 @@ public class MessageSenderImpl extends MessageBaseFacility implements MessageSen
     }
   }
 
+  /**
+   * Creates the JMS message for a message. The message is encoded by the configured codec if the codec supports it,
+   * and Java serialized otherwise, since receivers of all versions understand Java serialized messages.
+   */
+  private Message createMessage(BaseMessage baseMessage) throws JMSException {
+    MessageCodec codec = codecName == null ? null : getCodec(codecName);
+    if (codec != null && codec.canEncode(baseMessage)) {
+      try {
+        byte[] data = codec.encode(baseMessage);
+        BytesMessage message = getSession().createBytesMessage();
+        message.setStringProperty(MessageCodec.CODEC_PROPERTY, codec.getName());
+        message.writeBytes(data);
+        return message;
+      } catch (IOException e) {
+        logger.warn("Unable to encode message with codec {}, using Java serialization instead: {}", codecName,
+            e.getMessage());
+      }
+    } else if (codec == null && codecName != null) {
+      logger.debug("Message codec {} is not available, using Java serialization instead", codecName);
+    }
+    return getSession().createObjectMessage(baseMessage);
+  }
+
   /** OSGi DI callback */
   void setSecurityService(SecurityService securityService) {
     this.securityService = securityService;
@@ -0,0 +1,329 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.message.broker.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElementBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.mediapackage.identifier.IdImpl;
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+import org.opencastproject.message.broker.api.acl.AclItem;
+import org.opencastproject.message.broker.api.agent.RecordingItem;
+import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem;
+import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem.DeleteSnapshot;
+import org.opencastproject.message.broker.api.assetmanager.AssetManagerItem.TakeSnapshot;
+import org.opencastproject.message.broker.api.comments.CommentItem;
+import org.opencastproject.message.broker.api.group.GroupItem;
+import org.opencastproject.message.broker.api.index.IndexRecreateObject;
+import org.opencastproject.message.broker.api.scheduler.SchedulerItem;
+import org.opencastproject.message.broker.api.series.SeriesItem;
+import org.opencastproject.message.broker.api.theme.SerializableTheme;
+import org.opencastproject.message.broker.api.theme.ThemeItem;
+import org.opencastproject.message.broker.api.workflow.WorkflowItem;
+import org.opencastproject.metadata.dublincore.DublinCore;
+import org.opencastproject.metadata.dublincore.DublinCoreCatalog;
+import org.opencastproject.metadata.dublincore.DublinCores;
+import org.opencastproject.metadata.dublincore.OpencastDctermsDublinCore;
+import org.opencastproject.scheduler.api.SchedulerService.ReviewStatus;
+import org.opencastproject.security.api.AccessControlEntry;
+import org.opencastproject.security.api.AccessControlList;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.JaxbOrganization;
+import org.opencastproject.security.api.JaxbUser;
+import org.opencastproject.workspace.api.Workspace;
+
+import org.apache.commons.io.FileUtils;
+import org.easymock.EasyMock;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.Date;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Tests the encoding and decoding of all message items with the {@link BinaryMessageCodec}.
+ */
+public class BinaryMessageCodecTest {
+
+  private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  /** Creates a series catalog */
+  static DublinCoreCatalog createSeries(String id) {
+    OpencastDctermsDublinCore.Series series = DublinCores.mkOpencastSeries(id);
+    series.setTitle("Introduction to Computer Science");
+    series.setDescription("An introduction to the intellectual enterprises of computer science and the art of "
+            + "programming, covering abstraction, algorithms, data structures, encapsulation and resource management.");
+    series.setCreator("Jane Doe");
+    series.setLanguage("en");
+    series.setLicense("Creative Commons 3.0: Attribution-NonCommercial-NoDerivs");
+    return series.getCatalog();
+  }
+
+  /** Creates an access control list */
+  static AccessControlList createAcl() {
+    return new AccessControlList(new AccessControlEntry("ROLE_ADMIN", "write", true),
+            new AccessControlEntry("ROLE_ADMIN", "read", true), new AccessControlEntry("ROLE_USER", "read", true));
+  }
+
+  /** Creates a snapshot of a media package with an episode catalog, which is stored in the given file */
+  static TakeSnapshot createSnapshot(File episodeFile, Date date) throws Exception {
+    OpencastDctermsDublinCore.Episode episode = DublinCores.mkOpencastEpisode("mp-1", "series-1");
+    episode.setTitle("Lecture 1: Abstraction");
+    episode.setCreator("Jane Doe");
+    FileUtils.writeStringToFile(episodeFile, episode.getCatalog().toXmlString(), "UTF-8");
+
+    URI episodeUri = new URI("http://localhost/files/mediapackage/mp-1/episode/dublincore.xml");
+    MediaPackage mp = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew(new IdImpl("mp-1"));
+    mp.setTitle("Lecture 1: Abstraction");
+    mp.add(MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
+            .elementFromURI(episodeUri, MediaPackageElement.Type.Catalog, MediaPackageElements.EPISODE));
+
+    Workspace workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.get(episodeUri)).andReturn(episodeFile).anyTimes();
+    EasyMock.replay(workspace);
+    return AssetManagerItem.add(workspace, mp, createAcl(), 5L, date);
+  }
+
+  /** Wraps an object into a message as sent by the default organization's administrator */
+  static BaseMessage createMessage(Serializable object) {
+    JaxbOrganization organization = JaxbOrganization.fromOrganization(new DefaultOrganization());
+    return new BaseMessage(organization, new JaxbUser("admin", "test", organization), object);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <A extends Serializable> A roundTrip(A object) throws IOException {
+    BaseMessage message = createMessage(object);
+    assertTrue(codec.canEncode(message));
+    BaseMessage decoded = codec.decode(codec.encode(message));
+    assertEquals(DefaultOrganization.DEFAULT_ORGANIZATION_ID, decoded.getOrganization().getId());
+    assertEquals("admin", decoded.getUser().getUsername());
+    assertEquals(object.getClass(), decoded.getObject().getClass());
+    return (A) decoded.getObject();
+  }
+
+  @Test
+  public void testSeriesItem() throws Exception {
+    SeriesItem item = roundTrip(SeriesItem.updateCatalog(createSeries("series-1")));
+    assertEquals("series-1", item.getSeriesId());
+    assertEquals(SeriesItem.Type.UpdateCatalog, item.getType());
+    assertEquals("Introduction to Computer Science", item.getMetadata().getFirst(DublinCore.PROPERTY_TITLE));
+    assertNull(item.getAcl());
+    assertNull(item.getOptOut());
+
+    item = roundTrip(SeriesItem.updateAcl("series-1", createAcl()));
+    assertEquals(SeriesItem.Type.UpdateAcl, item.getType());
+    assertEquals(3, item.getAcl().getEntries().size());
+
+    item = roundTrip(SeriesItem.updateOptOut("series-1", true));
+    assertEquals(SeriesItem.Type.UpdateOptOut, item.getType());
+    assertTrue(item.getOptOut());
+
+    item = roundTrip(SeriesItem.updateProperty("series-1", "theme", "1234"));
+    assertEquals("theme", item.getPropertyName());
+    assertEquals("1234", item.getPropertyValue());
+  }
+
+  @Test
+  public void testSchedulerItem() throws Exception {
+    Date date = new Date();
+    SchedulerItem item = roundTrip(SchedulerItem.updateReviewStatus("event-1", ReviewStatus.CONFIRMED, date));
+    assertEquals("event-1", item.getMediaPackageId());
+    assertEquals(SchedulerItem.Type.UpdateReviewStatus, item.getType());
+    assertEquals(ReviewStatus.CONFIRMED, item.getReviewStatus());
+    assertEquals(date, item.getReviewDate());
+    assertNull(item.getBlacklisted());
+
+    item = roundTrip(SchedulerItem.updateBlacklist("event-1", false));
+    assertFalse(item.getBlacklisted());
+
+    item = roundTrip((SchedulerItem) SchedulerItem.updateAcl("event-1", createAcl()));
+    assertEquals(3, item.getAcl().getEntries().size());
+  }
+
+  @Test
+  public void testAssetManagerItem() throws Exception {
+    Date date = new Date();
+    AssetManagerItem item = roundTrip(AssetManagerItem.deleteSnapshot("mp-1", 3L, date));
+    assertEquals("mp-1", item.getId());
+    assertEquals(date, item.getDate());
+    assertEquals(AssetManagerItem.Type.Delete, item.getType());
+    assertEquals(3L, ((DeleteSnapshot) item).getVersion());
+
+    item = roundTrip(AssetManagerItem.deleteEpisode("mp-2", date));
+    assertEquals("mp-2", item.getId());
+    assertEquals(AssetManagerItem.DeleteEpisode.class, item.getClass());
+
+    TakeSnapshot snapshot = roundTrip(createSnapshot(testFolder.newFile("episode.xml"), date));
+    assertEquals("mp-1", snapshot.getId());
+    assertEquals(date, snapshot.getDate());
+    assertEquals(AssetManagerItem.Type.Update, snapshot.getType());
+    assertEquals(5L, snapshot.getVersion());
+    assertEquals("Lecture 1: Abstraction", snapshot.getMediapackage().getTitle());
+    assertEquals(1, snapshot.getMediapackage().getCatalogs(MediaPackageElements.EPISODE).length);
+    assertEquals("Lecture 1: Abstraction",
+            snapshot.getEpisodeDublincore().get().getFirst(DublinCore.PROPERTY_TITLE));
+    assertEquals("series-1", snapshot.getEpisodeDublincore().get().getFirst(DublinCore.PROPERTY_IS_PART_OF));
+    assertEquals(3, snapshot.getAcl().getEntries().size());
+  }
+
+  @Test
+  public void testThemeItem() throws Exception {
+    Date date = new Date();
+    SerializableTheme theme = new SerializableTheme(12L, date, true, "admin", "Theme", "A theme", true, "bumper",
+            false, null, true, "metadata", "background", false, null, null, true, "watermark", "top-left");
+    ThemeItem item = roundTrip(ThemeItem.update(theme));
+    assertEquals(Long.valueOf(12L), item.getThemeId());
+    assertEquals(ThemeItem.Type.Update, item.getType());
+    assertEquals(12L, item.getTheme().getId());
+    assertEquals(date, item.getTheme().getCreationDate());
+    assertTrue(item.getTheme().isDefault());
+    assertEquals("bumper", item.getTheme().getBumperFile());
+    assertNull(item.getTheme().getTrailerFile());
+    assertEquals("top-left", item.getTheme().getWatermarkPosition());
+
+    item = roundTrip(ThemeItem.delete(12L));
+    assertEquals(ThemeItem.Type.Delete, item.getType());
+    assertNull(item.getTheme());
+  }
+
+  @Test
+  public void testOtherItems() throws Exception {
+    AclItem aclItem = roundTrip(AclItem.update("old", "new"));
+    assertEquals("old", aclItem.getCurrentAclName());
+    assertEquals("new", aclItem.getNewAclName());
+    assertEquals(AclItem.Type.Update, aclItem.getType());
+
+    RecordingItem recordingItem = roundTrip(RecordingItem.updateRecording("event-1", "capturing", 42L));
+    assertEquals("capturing", recordingItem.getState());
+    assertEquals(Long.valueOf(42L), recordingItem.getLastHeardFrom());
+    assertNull(roundTrip(RecordingItem.delete("event-1")).getLastHeardFrom());
+
+    CommentItem commentItem = roundTrip(CommentItem.update("event-1", true, false, true));
+    assertTrue(commentItem.hasComments());
+    assertFalse(commentItem.hasOpenComments());
+    assertTrue(commentItem.needsCutting());
+
+    GroupItem groupItem = roundTrip(GroupItem.delete("group-1"));
+    assertEquals("group-1", groupItem.getGroupId());
+    assertEquals(GroupItem.Type.Delete, groupItem.getType());
+
+    IndexRecreateObject indexItem = roundTrip(
+            IndexRecreateObject.update("index", IndexRecreateObject.Service.Series, 100, 42));
+    assertEquals(IndexRecreateObject.Service.Series, indexItem.getService());
+    assertEquals(IndexRecreateObject.Status.Update, indexItem.getStatus());
+    assertEquals(100, indexItem.getTotal());
+    assertEquals(42, indexItem.getCurrent());
+
+    WorkflowItem workflowItem = roundTrip(WorkflowItem.deleteDefinition("definition-1"));
+    assertEquals("definition-1", workflowItem.getWorkflowDefinitionId());
+    assertEquals(WorkflowItem.Type.DeleteDefinition, workflowItem.getType());
+  }
+
+  @Test
+  public void testUnsupportedObject() throws Exception {
+    assertFalse(codec.canEncode(createMessage(Long.valueOf(1L))));
+    try {
+      codec.encode(createMessage(Long.valueOf(1L)));
+      fail("Unsupported object encoded");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testNewerFormatVersion() throws Exception {
+    byte[] data = codec.encode(createMessage(SeriesItem.delete("series-1")));
+    data[0] = BinaryMessageCodec.FORMAT_VERSION + 1;
+    try {
+      codec.decode(data);
+      fail("Message of unknown format version decoded");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testStringLongerThanMessage() throws Exception {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    data.write(BinaryMessageCodec.FORMAT_VERSION);
+    data.write(0);
+    try (DataOutputStream out = new DataOutputStream(data)) {
+      // An organization claiming to be almost 2GB long
+      out.writeInt(Integer.MAX_VALUE - 8);
+      out.write(new byte[1024]);
+    }
+    try {
+      codec.decode(data.toByteArray());
+      fail("String longer than the message decoded");
+    } catch (EOFException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testStringLongerThanMaximumSize() throws Exception {
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    data.write(BinaryMessageCodec.FORMAT_VERSION);
+    data.write(1);
+    try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(data))) {
+      // A compressed organization which would exceed the maximum size once inflated
+      out.writeInt(BinaryMessageCodec.MAX_MESSAGE_SIZE);
+      out.write(new byte[1024]);
+    }
+    try {
+      codec.decode(data.toByteArray());
+      fail("String exceeding the maximum message size decoded");
+    } catch (EOFException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testCompression() throws Exception {
+    SeriesItem item = SeriesItem.updateCatalog(createSeries("series-1"));
+    byte[] data = codec.encode(createMessage(item));
+    assertEquals(1, data[1]);
+    assertTrue(data.length < createSeries("series-1").toXmlString().length());
+  }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.message.broker.impl;
+
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+import org.opencastproject.message.broker.api.scheduler.SchedulerItem;
+import org.opencastproject.message.broker.api.series.SeriesItem;
+
+import org.junit.Assert;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+
+/**
+ * Compares the size and the encoding and decoding throughput of messages encoded by the {@link BinaryMessageCodec}
+ * with Java serialized messages, as sent in an <code>ObjectMessage</code>.
+ */
+@Ignore
+public class MessageCodecPerformanceTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(MessageCodecPerformanceTest.class);
+
+  /** Number of messages per measurement */
+  private static final int RUNS = 10000;
+
+  private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void testSeriesCatalogMessage() throws Exception {
+    measure("series catalog", BinaryMessageCodecTest
+            .createMessage(SeriesItem.updateCatalog(BinaryMessageCodecTest.createSeries("series-1"))));
+  }
+
+  @Test
+  public void testSeriesAclMessage() throws Exception {
+    measure("series acl", BinaryMessageCodecTest
+            .createMessage(SeriesItem.updateAcl("series-1", BinaryMessageCodecTest.createAcl())));
+  }
+
+  @Test
+  public void testSchedulerOptOutMessage() throws Exception {
+    measure("scheduler opt out", BinaryMessageCodecTest.createMessage(SchedulerItem.updateOptOut("event-1", true)));
+  }
+
+  @Test
+  public void testAssetManagerSnapshotMessage() throws Exception {
+    measure("asset manager snapshot", BinaryMessageCodecTest.createMessage(
+            BinaryMessageCodecTest.createSnapshot(testFolder.newFile("episode.xml"), new Date())));
+  }
+
+  private void measure(String name, BaseMessage message) throws Exception {
+    byte[] serialized = serialize(message);
+    byte[] encoded = codec.encode(message);
+    Assert.assertNotNull(deserialize(serialized));
+    Assert.assertNotNull(codec.decode(encoded));
+    logger.info(String.format("%s message: %d bytes Java serialized, %d bytes binary encoded", name,
+            serialized.length, encoded.length));
+
+    // Warm up before measuring
+    for (int i = 0; i < RUNS; i++) {
+      deserialize(serialize(message));
+      codec.decode(codec.encode(message));
+    }
+
+    long start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      serialize(message);
+    }
+    log(name, "Java serialization", "encoded", start);
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      deserialize(serialized);
+    }
+    log(name, "Java serialization", "decoded", start);
+
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      codec.encode(message);
+    }
+    log(name, "binary codec", "encoded", start);
+    start = System.nanoTime();
+    for (int i = 0; i < RUNS; i++) {
+      codec.decode(encoded);
+    }
+    log(name, "binary codec", "decoded", start);
+  }
+
+  private static byte[] serialize(BaseMessage message) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+      oos.writeObject(message);
+    }
+    return out.toByteArray();
+  }
+
+  private static Object deserialize(byte[] data) throws Exception {
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+      return ois.readObject();
+    }
+  }
+
+  private static void log(String name, String codec, String operation, long start) {
+    double seconds = (System.nanoTime() - start) / 1e9;
+    logger.info(String.format("%s message %s with %s: %.0f messages per second", name, operation, codec,
+            RUNS / seconds));
+  }
+
+}
@@ -26,14 +26,20 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import org.opencastproject.message.broker.api.BaseMessage;
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+import org.opencastproject.message.broker.api.MessageCodec;
 import org.opencastproject.message.broker.api.MessageSender.DestinationType;
+import org.opencastproject.message.broker.api.agent.RecordingItem;
 
 import org.easymock.EasyMock;
+import org.easymock.IAnswer;
 import org.junit.Test;
 import org.osgi.framework.BundleContext;
 
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.MessageConsumer;
 import javax.jms.ObjectMessage;
@@ -78,6 +84,41 @@ public class MessageReceiverImplTest {
     assertEquals(serializableObject, messageObject);
   }
 
+  @Test
+  public void testGetBinaryMessage() throws Exception {
+    final String destinationId = "Destination.Queue";
+    final byte[] data = new BinaryMessageCodec().encode(
+            BinaryMessageCodecTest.createMessage(RecordingItem.updateRecording("event-1", "capturing", 42L)));
+    BytesMessage bytesMessage = EasyMock.createMock(BytesMessage.class);
+    EasyMock.expect(bytesMessage.getStringProperty(MessageCodec.CODEC_PROPERTY)).andReturn(BinaryMessageCodec.NAME);
+    EasyMock.expect(bytesMessage.getBodyLength()).andReturn((long) data.length);
+    EasyMock.expect(bytesMessage.readBytes(EasyMock.aryEq(new byte[data.length]))).andAnswer(new IAnswer<Integer>() {
+      @Override
+      public Integer answer() throws Throwable {
+        byte[] buffer = (byte[]) EasyMock.getCurrentArguments()[0];
+        System.arraycopy(data, 0, buffer, 0, data.length);
+        return data.length;
+      }
+    });
+    Queue queue = EasyMock.createMock(Queue.class);
+    MessageConsumer messageConsumer = EasyMock.createMock(MessageConsumer.class);
+    EasyMock.expect(messageConsumer.receive()).andReturn(bytesMessage);
+    messageConsumer.close();
+    EasyMock.expectLastCall();
+    Session session = EasyMock.createNiceMock(Session.class);
+    EasyMock.expect(session.createQueue(destinationId)).andReturn(queue).anyTimes();
+    EasyMock.expect(session.createConsumer(queue)).andReturn(messageConsumer).anyTimes();
+    EasyMock.replay(bytesMessage, messageConsumer, session);
+
+    MockMessageReceiver messageReceiverImpl = new MockMessageReceiver(session);
+    messageReceiverImpl.enable(true);
+    BaseMessage message = (BaseMessage) messageReceiverImpl.getSerializable(destinationId, DestinationType.Queue);
+    RecordingItem item = (RecordingItem) message.getObject();
+    assertEquals("event-1", item.getEventId());
+    assertEquals("capturing", item.getState());
+    assertEquals(Long.valueOf(42L), item.getLastHeardFrom());
+  }
+
   @Test
   public void testActivate() throws Exception {
     BundleContext bctx = EasyMock.createMock(BundleContext.class);
@@ -21,16 +21,22 @@
 
 package org.opencastproject.message.broker.impl;
 
+import org.opencastproject.message.broker.api.BinaryMessageCodec;
+import org.opencastproject.message.broker.api.MessageCodec;
 import org.opencastproject.message.broker.api.MessageSender.DestinationType;
+import org.opencastproject.message.broker.api.series.SeriesItem;
 import org.opencastproject.security.api.DefaultOrganization;
 import org.opencastproject.security.api.JaxbUser;
 import org.opencastproject.security.api.SecurityService;
 
+import org.easymock.Capture;
 import org.easymock.EasyMock;
+import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.Serializable;
 
+import javax.jms.BytesMessage;
 import javax.jms.Destination;
 import javax.jms.JMSException;
 import javax.jms.MessageProducer;
@@ -79,4 +85,63 @@ public class MessageSenderImplTest {
     messageSenderImpl.sendObjectMessage(destinationId, DestinationType.Queue, serailizableObject);
   }
 
+  @Test
+  public void testSendBinaryMessage() throws Exception {
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(new DefaultOrganization());
+    EasyMock.expect(securityService.getUser()).andReturn(new JaxbUser()).anyTimes();
+
+    SeriesItem item = SeriesItem.updateOptOut("series-1", true);
+    Capture<byte[]> data = new Capture<byte[]>();
+    BytesMessage bytesMessage = EasyMock.createMock(BytesMessage.class);
+    bytesMessage.setStringProperty(MessageCodec.CODEC_PROPERTY, BinaryMessageCodec.NAME);
+    EasyMock.expectLastCall();
+    bytesMessage.writeBytes(EasyMock.capture(data));
+    EasyMock.expectLastCall();
+    MessageProducer messageProducer = EasyMock.createMock(MessageProducer.class);
+    messageProducer.send(EasyMock.anyObject(Destination.class), EasyMock.eq(bytesMessage));
+    EasyMock.expectLastCall();
+    Queue queue = EasyMock.createMock(Queue.class);
+    Session session = EasyMock.createMock(Session.class);
+    EasyMock.expect(session.createQueue(destinationId)).andReturn(queue);
+    EasyMock.expect(session.createBytesMessage()).andReturn(bytesMessage);
+    EasyMock.replay(bytesMessage, messageProducer, queue, session, securityService);
+
+    MockMessageSender messageSenderImpl = new MockMessageSender(session, messageProducer);
+    messageSenderImpl.setSecurityService(securityService);
+    messageSenderImpl.setCodec(BinaryMessageCodec.NAME);
+    messageSenderImpl.enable(true);
+    messageSenderImpl.sendObjectMessage(destinationId, DestinationType.Queue, item);
+    EasyMock.verify(bytesMessage, messageProducer);
+
+    SeriesItem decoded = (SeriesItem) new BinaryMessageCodec().decode(data.getValue()).getObject();
+    Assert.assertEquals("series-1", decoded.getSeriesId());
+    Assert.assertTrue(decoded.getOptOut());
+  }
+
+  @Test
+  public void testSendUnsupportedObjectSerialized() throws Exception {
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(new DefaultOrganization());
+    EasyMock.expect(securityService.getUser()).andReturn(new JaxbUser()).anyTimes();
+
+    // Objects the codec does not know are still Java serialized
+    ObjectMessage objectMessage = EasyMock.createMock(ObjectMessage.class);
+    MessageProducer messageProducer = EasyMock.createMock(MessageProducer.class);
+    messageProducer.send(EasyMock.anyObject(Destination.class), EasyMock.eq(objectMessage));
+    EasyMock.expectLastCall();
+    Queue queue = EasyMock.createMock(Queue.class);
+    Session session = EasyMock.createMock(Session.class);
+    EasyMock.expect(session.createQueue(destinationId)).andReturn(queue);
+    EasyMock.expect(session.createObjectMessage((Serializable) EasyMock.anyObject())).andReturn(objectMessage);
+    EasyMock.replay(objectMessage, messageProducer, queue, session, securityService);
+
+    MockMessageSender messageSenderImpl = new MockMessageSender(session, messageProducer);
+    messageSenderImpl.setSecurityService(securityService);
+    messageSenderImpl.setCodec(BinaryMessageCodec.NAME);
+    messageSenderImpl.enable(true);
+    messageSenderImpl.sendObjectMessage(destinationId, DestinationType.Queue, messageText);
+    EasyMock.verify(messageProducer, session);
+  }
+
 }
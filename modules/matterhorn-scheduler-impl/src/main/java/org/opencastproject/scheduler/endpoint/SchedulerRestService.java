@@ -77,6 +77,7 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.Arrays;
@@ -103,6 +104,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * REST Endpoint for Scheduler Service
@@ -841,10 +843,15 @@ public class SchedulerRestService {
           @QueryParam("sort") String sort) {
     // CHECKSTYLE:ON
     try {
-      DublinCoreCatalogList result = getEvents(text, eventId, eventTitle, seriesId, creator, contributor, publisher,
-              rightsHolder, createdFrom, createdTo, startsFrom, startsTo, endsFrom, endsTo, language, license, subject,
-              eventAbstract, description, device, sort);
-      return Response.ok(result.getResultsAsXML()).build();
+      final DublinCoreCatalogList result = getEvents(text, eventId, eventTitle, seriesId, creator, contributor,
+              publisher, rightsHolder, createdFrom, createdTo, startsFrom, startsTo, endsFrom, endsTo, language, license,
+              subject, eventAbstract, description, device, sort);
+      return Response.ok(new StreamingOutput() {
+        @Override
+        public void write(OutputStream out) throws IOException {
+          result.writeXml(out);
+        }
+      }).build();
     } catch (Exception e) {
       logger.error("Unable to perform search: {}", e.getMessage());
       throw new WebApplicationException(Response.Status.INTERNAL_SERVER_ERROR);
@@ -1160,7 +1167,13 @@ public class SchedulerRestService {
         if (asJson) {
           return Response.ok(events.getResultsAsJson()).build();
         } else {
-          return Response.ok(events.getResultsAsXML()).build();
+          final DublinCoreCatalogList conflicts = events;
+          return Response.ok(new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+              conflicts.writeXml(out);
+            }
+          }).build();
         }
       } else {
         return Response.noContent().build();
@@ -25,13 +25,18 @@ package org.opencastproject.feed.impl;
 import org.opencastproject.feed.api.Feed;
 import org.opencastproject.feed.api.FeedGenerator;
 import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.Role;
 import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.User;
 import org.opencastproject.util.doc.rest.RestParameter;
 import org.opencastproject.util.doc.rest.RestParameter.Type;
 import org.opencastproject.util.doc.rest.RestQuery;
 import org.opencastproject.util.doc.rest.RestResponse;
 import org.opencastproject.util.doc.rest.RestService;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
 import com.rometools.rome.io.FeedException;
 import com.rometools.rome.io.SyndFeedOutput;
 import com.rometools.rome.io.WireFeedOutput;
@@ -40,8 +45,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -49,8 +61,11 @@ import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.Variant;
 
@@ -73,6 +88,10 @@ import javax.ws.rs.core.Variant;
  *
  * which would indicate a requeste to an atom 1.0 feed with <tt>favourites</tt> being the query.
  *
+ * Rendered feeds are cached until a media package is published to or retracted from the search index, which is
+ * announced by the search service using {@link #invalidate(String, String)}. Each response carries an entity tag and
+ * a last modified date, so that clients polling a feed are answered with HTTP status 304 if it has not changed.
+ *
  * The servlet returns a HTTP status 200 with the feed data.
  * If the feed could not be found because the query is unknown a HTTP error 404 is returned
  * If the feed could not be build (wrong RSS or Atom version, corrupt data, etc) an HTTP error 500 is returned.
@@ -88,6 +107,19 @@ public class FeedServiceImpl {
   /** Logging facility */
   private static Logger logger = LoggerFactory.getLogger(FeedServiceImpl.class);
 
+  /** The maximum number of rendered feeds to keep */
+  private static final int FEED_CACHE_SIZE = 1000;
+
+  /** The number of minutes to keep a rendered feed at most, in case a change has not been announced */
+  private static final long FEED_CACHE_EXPIRATION = 60L;
+
+  /** The rendered feeds, keyed by organization, the requesting user's roles and the requested feed */
+  private final Cache<String, RenderedFeed> feedCache = CacheBuilder.newBuilder().maximumSize(FEED_CACHE_SIZE)
+          .expireAfterWrite(FEED_CACHE_EXPIRATION, TimeUnit.MINUTES).build();
+
+  /** Counts the invalidations, so that a feed rendered while the search index changed is not kept */
+  private final AtomicLong cacheGeneration = new AtomicLong();
+
   /** List of feed generators */
   private List<FeedGenerator> feeds = new ArrayList<FeedGenerator>();
 
@@ -113,9 +145,11 @@ public class FeedServiceImpl {
       },
       reponses = {
           @RestResponse(description = "Return the feed of the appropriate type", responseCode = HttpServletResponse.SC_OK),
+          @RestResponse(description = "The feed has not been modified",
+              responseCode = HttpServletResponse.SC_NOT_MODIFIED),
           @RestResponse(description = "", responseCode = HttpServletResponse.SC_BAD_REQUEST),
           @RestResponse(description = "", responseCode = HttpServletResponse.SC_INTERNAL_SERVER_ERROR) }, returnDescription = "")
-  public Response getFeed(@Context HttpServletRequest request) {
+  public Response getFeed(@Context HttpServletRequest request, @Context Request preconditions) {
     String contentType = null;
 
     logger.debug("Requesting RSS or Atom feed.");
@@ -129,6 +163,17 @@ public class FeedServiceImpl {
       return Response.status(Status.BAD_REQUEST).build();
     }
 
+    // Serve the feed from the cache if it has been rendered before
+    String cacheKey = getCacheKey(organization, feedInfo);
+    RenderedFeed rendered = feedCache.getIfPresent(cacheKey);
+    if (rendered != null) {
+      logger.debug("Serving feed {} from the cache", cacheKey);
+      return createResponse(rendered, preconditions);
+    }
+
+    // Feeds are only cached if the search index did not change while they were rendered
+    long generation = cacheGeneration.get();
+
     // Set the content type
     if (feedInfo.getType().equals(Feed.Type.Atom))
       contentType = "application/atom+xml";
@@ -137,12 +182,15 @@ public class FeedServiceImpl {
 
     // Have a feed generator create the requested feed
     Feed feed = null;
+    String seriesId = null;
     for (FeedGenerator generator : feeds) {
       if (generator.accept(feedInfo.getQuery())) {
         feed = generator.createFeed(feedInfo.getType(), feedInfo.getQuery(), feedInfo.getSize(), organization);
         if (feed == null) {
           return Response.serverError().build();
         }
+        if (generator instanceof SeriesFeedService)
+          seriesId = generator.getIdentifier();
         break;
       }
     }
@@ -170,7 +218,79 @@ public class FeedServiceImpl {
       return Response.serverError().build();
     }
 
-    return Response.ok(outputString, v).build();
+    rendered = new RenderedFeed(organization.getId(), seriesId, outputString, v);
+    feedCache.put(cacheKey, rendered);
+    if (cacheGeneration.get() != generation)
+      feedCache.asMap().remove(cacheKey, rendered);
+    return createResponse(rendered, preconditions);
+  }
+
+  /**
+   * Creates the response for a rendered feed, which is empty with HTTP status 304 if the client's copy matches.
+   *
+   * @param rendered
+   *          the rendered feed
+   * @param preconditions
+   *          the request, carrying the client's <code>If-None-Match</code> or <code>If-Modified-Since</code> headers
+   * @return the response
+   */
+  private Response createResponse(RenderedFeed rendered, Request preconditions) {
+    ResponseBuilder notModified = preconditions.evaluatePreconditions(rendered.lastModified, rendered.tag);
+    if (notModified != null)
+      return notModified.tag(rendered.tag).lastModified(rendered.lastModified).build();
+    return Response.ok(rendered.content, rendered.variant).tag(rendered.tag).lastModified(rendered.lastModified)
+            .build();
+  }
+
+  /**
+   * Returns the key of a feed in the cache. Since the search results depend on the permissions of the current user, the
+   * user's roles are part of the key.
+   *
+   * @param organization
+   *          the organization
+   * @param feedInfo
+   *          the requested feed
+   * @return the cache key
+   */
+  private String getCacheKey(Organization organization, FeedInfo feedInfo) {
+    SortedSet<String> roles = new TreeSet<String>();
+    User user = securityService.getUser();
+    if (user != null) {
+      for (Role role : user.getRoles()) {
+        roles.add(role.getName());
+      }
+    }
+    return organization.getId() + "/" + feedInfo.getType() + "/" + feedInfo.getVersion() + "/"
+            + StringUtils.join(feedInfo.getQuery(), "/") + "?" + PARAM_SIZE + "=" + feedInfo.getSize() + "#"
+            + StringUtils.join(roles, ",");
+  }
+
+  /**
+   * Removes the rendered feeds which may contain an episode of the given series. These are the feed of the series
+   * itself and all feeds which are not restricted to a single series.
+   *
+   * @param organization
+   *          the organization of the published or retracted media package
+   * @param seriesId
+   *          the media package's series, may be <code>null</code>
+   */
+  public void invalidate(String organization, String seriesId) {
+    cacheGeneration.incrementAndGet();
+    for (Iterator<RenderedFeed> i = feedCache.asMap().values().iterator(); i.hasNext();) {
+      RenderedFeed rendered = i.next();
+      if (rendered.organization.equals(organization)
+              && (rendered.seriesId == null || rendered.seriesId.equals(seriesId))) {
+        i.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all rendered feeds.
+   */
+  public void invalidateAll() {
+    cacheGeneration.incrementAndGet();
+    feedCache.invalidateAll();
   }
 
   /**
@@ -232,6 +352,7 @@ public class FeedServiceImpl {
   public void addFeedGenerator(FeedGenerator generator) {
     logger.info("Registering '{}' feed", generator.getIdentifier());
     feeds.add(generator);
+    invalidateAll();
   }
 
   /**
@@ -243,6 +364,7 @@ public class FeedServiceImpl {
   public void removeFeedGenerator(FeedGenerator generator) {
     logger.info("Removing '{}' feed", generator.getIdentifier());
     feeds.remove(generator);
+    invalidateAll();
   }
 
   /**
@@ -255,4 +377,38 @@ public class FeedServiceImpl {
     this.securityService = securityService;
   }
 
+  /**
+   * A feed rendered for a request.
+   */
+  private static final class RenderedFeed {
+
+    /** The organization */
+    private final String organization;
+
+    /** The series of a series feed, <code>null</code> for any other feed */
+    private final String seriesId;
+
+    /** The rendered feed */
+    private final String content;
+
+    /** The content type and encoding */
+    private final Variant variant;
+
+    /** The entity tag, which is the md5 hash of the content */
+    private final EntityTag tag;
+
+    /** The time the feed has been rendered, without milliseconds since http dates do not carry them */
+    private final Date lastModified;
+
+    RenderedFeed(String organization, String seriesId, String content, Variant variant) {
+      this.organization = organization;
+      this.seriesId = seriesId;
+      this.content = content;
+      this.variant = variant;
+      this.tag = new EntityTag(Hashing.md5().hashString(content, StandardCharsets.UTF_8).toString());
+      this.lastModified = new Date(System.currentTimeMillis() / 1000L * 1000L);
+    }
+
+  }
+
 }
@@ -23,6 +23,7 @@ package org.opencastproject.search.impl;
 
 import static org.opencastproject.security.api.SecurityConstants.GLOBAL_ADMIN_ROLE;
 
+import org.opencastproject.feed.impl.FeedServiceImpl;
 import org.opencastproject.job.api.AbstractJobProducer;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.mediapackage.MediaPackage;
@@ -164,6 +165,9 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
   /** The optional Mediapackage serializer */
   protected MediaPackageSerializer serializer = null;
 
+  /** The optional feed service, whose rendered feeds need to be updated when the index changes */
+  private volatile FeedServiceImpl feedService = null;
+
   /**
    * Creates a new instance of the search service.
    */
@@ -376,6 +380,7 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     try {
       if (indexManager.add(mediaPackage, acl, now)) {
         logger.info("Added mediapackage `{}` to the search index, using ACL `{}`", mediaPackage, acl);
+        invalidateFeeds(mediaPackage.getSeries());
       } else {
         logger.warn("Failed to add mediapackage {} to the search index", mediaPackage.getIdentifier());
       }
@@ -443,7 +448,9 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
         throw new SearchException(e);
       }
 
-      return indexManager.delete(mediaPackageId, now);
+      boolean deleted = indexManager.delete(mediaPackageId, now);
+      invalidateFeeds(result.getItems()[0].getDcIsPartOf());
+      return deleted;
     } catch (SolrServerException e) {
       logger.info("Could not delete media package with id {} from search index", mediaPackageId);
       throw new SearchException(e);
@@ -460,6 +467,8 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
     try {
       logger.info("Clearing the search index");
       indexManager.clear();
+      if (feedService != null)
+        feedService.invalidateAll();
     } catch (SolrServerException e) {
       throw new SearchException(e);
     }
@@ -736,6 +745,39 @@ public final class SearchServiceImpl extends AbstractJobProducer implements Sear
       solrRequester.setMediaPackageSerializer(serializer);
   }
 
+  /**
+   * Removes the rendered feeds which may list episodes of a series after an episode has been added or removed.
+   *
+   * @param seriesId
+   *          the series of the episode, may be <code>null</code>
+   */
+  private void invalidateFeeds(String seriesId) {
+    FeedServiceImpl feeds = feedService;
+    if (feeds != null)
+      feeds.invalidate(securityService.getOrganization().getId(), seriesId);
+  }
+
+  /**
+   * OSGi callback for setting the feed service.
+   *
+   * @param feedService
+   *          the feed service
+   */
+  protected void setFeedService(FeedServiceImpl feedService) {
+    this.feedService = feedService;
+  }
+
+  /**
+   * OSGi callback for removing the feed service.
+   *
+   * @param feedService
+   *          the feed service
+   */
+  protected void unsetFeedService(FeedServiceImpl feedService) {
+    if (this.feedService == feedService)
+      this.feedService = null;
+  }
+
   @Override
   public void updated(@SuppressWarnings("rawtypes") Dictionary properties) throws ConfigurationException {
     addJobLoad = LoadUtil.getConfiguredLoadValue(properties, ADD_JOB_LOAD_KEY, DEFAULT_ADD_JOB_LOAD, serviceRegistry);
@@ -0,0 +1,167 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.feed.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.opencastproject.feed.api.Feed;
+import org.opencastproject.feed.api.FeedGenerator;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.JaxbOrganization;
+import org.opencastproject.security.api.JaxbRole;
+import org.opencastproject.security.api.JaxbUser;
+import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.SecurityService;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+/**
+ * Tests the caching of rendered feeds in {@link FeedServiceImpl}.
+ */
+public class FeedServiceImplTest {
+
+  private final JaxbOrganization organization = new DefaultOrganization();
+
+  private FeedServiceImpl feedService;
+
+  /** The number of feeds created by the feed generator */
+  private AtomicInteger created;
+
+  /** Called while a feed is being created */
+  private Runnable onCreate;
+
+  @Before
+  public void setUp() throws Exception {
+    created = new AtomicInteger();
+    onCreate = null;
+
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getOrganization()).andReturn(organization).anyTimes();
+    EasyMock.expect(securityService.getUser()).andReturn(
+            new JaxbUser("student", "test", organization, new JaxbRole("ROLE_STUDENT", organization))).anyTimes();
+    EasyMock.replay(securityService);
+
+    FeedGenerator generator = EasyMock.createNiceMock(FeedGenerator.class);
+    EasyMock.expect(generator.getIdentifier()).andReturn("latest").anyTimes();
+    EasyMock.expect(generator.accept(EasyMock.<String[]> anyObject())).andReturn(true).anyTimes();
+    EasyMock.expect(generator.createFeed(EasyMock.<Feed.Type> anyObject(), EasyMock.<String[]> anyObject(),
+            EasyMock.anyInt(), EasyMock.<Organization> anyObject())).andAnswer(new IAnswer<Feed>() {
+              @Override
+              public Feed answer() throws Throwable {
+                if (onCreate != null)
+                  onCreate.run();
+                String link = "http://localhost:8080/feeds/rss/2.0/latest";
+                return new FeedImpl(Feed.Type.RSS, link, new PlainTextContent("Feed " + created.incrementAndGet()),
+                        new PlainTextContent("Latest episodes"), link);
+              }
+            }).anyTimes();
+    EasyMock.replay(generator);
+
+    feedService = new FeedServiceImpl();
+    feedService.setSecurityService(securityService);
+    feedService.addFeedGenerator(generator);
+  }
+
+  /** Requests the latest episodes feed, passing the result of the precondition evaluation. */
+  private Response getFeed(final Response.ResponseBuilder notModified) {
+    HttpServletRequest request = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(request.getPathInfo()).andReturn("/rss/2.0/latest").anyTimes();
+    EasyMock.replay(request);
+    Request preconditions = EasyMock.createNiceMock(Request.class);
+    EasyMock.expect(preconditions.evaluatePreconditions(EasyMock.<Date> anyObject(), EasyMock.<EntityTag> anyObject()))
+            .andReturn(notModified).anyTimes();
+    EasyMock.replay(preconditions);
+    return feedService.getFeed(request, preconditions);
+  }
+
+  @Test
+  public void testRenderedFeedIsCached() throws Exception {
+    Response first = getFeed(null);
+    Response second = getFeed(null);
+    assertEquals(200, first.getStatus());
+    assertEquals(200, second.getStatus());
+    assertEquals(1, created.get());
+    assertEquals(first.getEntity(), second.getEntity());
+    assertEquals(first.getMetadata().getFirst("ETag"), second.getMetadata().getFirst("ETag"));
+  }
+
+  @Test
+  public void testNotModified() throws Exception {
+    Response first = getFeed(null);
+    Response notModified = getFeed(Response.notModified());
+    assertEquals(304, notModified.getStatus());
+    assertNull(notModified.getEntity());
+    assertEquals(first.getMetadata().getFirst("ETag"), notModified.getMetadata().getFirst("ETag"));
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    getFeed(null);
+
+    // changes of other organizations keep the feed
+    feedService.invalidate("other", null);
+    getFeed(null);
+    assertEquals(1, created.get());
+
+    // a feed that is not restricted to a series is dropped on any change of the organization
+    feedService.invalidate(organization.getId(), "series");
+    getFeed(null);
+    assertEquals(2, created.get());
+
+    feedService.invalidateAll();
+    getFeed(null);
+    assertEquals(3, created.get());
+  }
+
+  @Test
+  public void testInvalidateWhileRendering() throws Exception {
+    // the search index changes while the feed is being created
+    onCreate = new Runnable() {
+      @Override
+      public void run() {
+        feedService.invalidate(organization.getId(), null);
+      }
+    };
+    getFeed(null);
+    onCreate = null;
+
+    // the outdated feed has not been kept
+    getFeed(null);
+    assertEquals(2, created.get());
+    getFeed(null);
+    assertEquals(2, created.get());
+  }
+
+}
@@ -28,6 +28,7 @@ import static org.opencastproject.security.api.Permissions.Action.READ;
 import static org.opencastproject.security.api.Permissions.Action.WRITE;
 import static org.opencastproject.util.persistence.PersistenceUtil.newTestEntityManagerFactory;
 
+import org.opencastproject.feed.impl.FeedServiceImpl;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.job.api.JobBarrier;
@@ -648,6 +649,28 @@ public class SearchServiceImplTest {
     assertEquals(seriesId, result.getItems()[0].getId());
   }
 
+  /**
+   * Publishing a media package drops the rendered feeds which may list it.
+   */
+  @Test
+  public void testAddMediaPackageInvalidatesFeeds() throws Exception {
+    String seriesId = "foobar-series";
+    MediaPackage mediaPackage = getMediaPackage("/manifest-full.xml");
+    mediaPackage.setSeries(seriesId);
+
+    FeedServiceImpl feedService = EasyMock.createMock(FeedServiceImpl.class);
+    feedService.invalidate(defaultOrganization.getId(), seriesId);
+    EasyMock.expectLastCall().once();
+    EasyMock.replay(feedService);
+    service.setFeedService(feedService);
+
+    Job job = service.add(mediaPackage);
+    JobBarrier barrier = new JobBarrier(null, serviceRegistry, 1000, job);
+    barrier.waitForJobs();
+    assertEquals("Job to add mediapckage did not finish", Job.Status.FINISHED, job.getStatus());
+    EasyMock.verify(feedService);
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void testPopulateIndex() throws Exception {
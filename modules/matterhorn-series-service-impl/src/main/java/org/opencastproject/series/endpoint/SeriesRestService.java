@@ -78,6 +78,7 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.text.ParseException;
@@ -99,6 +100,7 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
 /**
  * REST endpoint for Series Service.
@@ -495,10 +497,15 @@ public class SeriesRestService {
           @QueryParam("startPage") String startPage, @QueryParam("count") String count) throws UnauthorizedException {
     // CHECKSTYLE:ON
     try {
-      DublinCoreCatalogList result = getSeries(text, seriesId, edit, seriesTitle, creator, contributor, publisher,
-              rightsHolder, createdFrom, createdTo, language, license, subject, seriesAbstract, description, sort,
-              startPage, count);
-      return Response.ok(result.getResultsAsXML()).build();
+      final DublinCoreCatalogList result = getSeries(text, seriesId, edit, seriesTitle, creator, contributor,
+              publisher, rightsHolder, createdFrom, createdTo, language, license, subject, seriesAbstract, description,
+              sort, startPage, count);
+      return Response.ok(new StreamingOutput() {
+        @Override
+        public void write(OutputStream out) throws IOException {
+          result.writeXml(out);
+        }
+      }).build();
     } catch (UnauthorizedException e) {
       throw e;
     } catch (Exception e) {
@@ -38,10 +38,13 @@ import org.opencastproject.serviceregistry.api.Incidents;
 import org.opencastproject.serviceregistry.api.JaxbHostRegistrationList;
 import org.opencastproject.serviceregistry.api.JaxbServiceRegistrationList;
 import org.opencastproject.serviceregistry.api.JaxbServiceStatistics;
+import org.opencastproject.serviceregistry.api.JobQuery;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistrationParser;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.serviceregistry.api.ServiceRegistryListener;
+import org.opencastproject.serviceregistry.api.ServiceRegistryListeners;
 import org.opencastproject.serviceregistry.api.ServiceStatistics;
 import org.opencastproject.serviceregistry.api.SystemLoad;
 import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
@@ -50,6 +53,7 @@ import org.opencastproject.util.HttpUtil;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.QueryStringBuilder;
 import org.opencastproject.util.UrlSupport;
+import org.opencastproject.util.data.Tuple;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpResponse;
@@ -106,6 +110,9 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
 
   private Incidents incidents;
 
+  /** The listeners to notify of registrations changed through this registry */
+  private final ServiceRegistryListeners listeners = new ServiceRegistryListeners();
+
   @Override
   public ServiceRegistration registerService(String serviceType, String host, String path)
           throws ServiceRegistryException {
@@ -129,6 +136,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
         logger.info("Enabled host '" + host + "'.");
+        listeners.fire(null);
         return;
       } else if (responseStatusCode == HttpStatus.SC_NOT_FOUND) {
         throw new NotFoundException("Host not found: " + host);
@@ -160,6 +168,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
         logger.info("Disabled host '" + host + "'.");
+        listeners.fire(null);
         return;
       } else if (responseStatusCode == HttpStatus.SC_NOT_FOUND) {
         throw new NotFoundException("Host not found: " + host);
@@ -202,6 +211,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
         logger.info("Registered '" + host + "'.");
+        listeners.fire(null);
         return;
       }
     } catch (Exception e) {
@@ -229,6 +239,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
         logger.info("Unregistered '" + host + "'.");
+        listeners.fire(null);
         return;
       }
     } catch (Exception e) {
@@ -260,7 +271,9 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_OK) {
         logger.info("Registered '" + serviceType + "' on host '" + host + "' with path '" + path + "'.");
-        return ServiceRegistrationParser.parse(response.getEntity().getContent());
+        ServiceRegistration registration = ServiceRegistrationParser.parse(response.getEntity().getContent());
+        listeners.fire(serviceType);
+        return registration;
       }
     } catch (Exception e) {
       throw new ServiceRegistryException("Unable to register '" + serviceType + "' on host '" + host + "' with path '"
@@ -291,6 +304,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
         logger.info("Unregistered '" + serviceType + "' on host '" + host + "'.");
+        listeners.fire(serviceType);
         return;
       }
     } catch (Exception e) {
@@ -320,6 +334,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
         logger.info("Set maintenance mode on '" + host + "' to '" + maintenance + "'.");
+        listeners.fire(null);
         return;
       } else if (responseStatusCode == HttpStatus.SC_NOT_FOUND) {
         throw new NotFoundException("Host not found: " + host);
@@ -500,6 +515,33 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
     throw new ServiceRegistryException("Unable to retrieve job " + id + " (" + responseStatusCode + ")");
   }
 
+  @Override
+  public List<Job> getJobsWithDescendants(List<Long> ids) throws ServiceRegistryException {
+    if (ids.isEmpty())
+      return new ArrayList<Job>();
+
+    QueryStringBuilder qsb = new QueryStringBuilder("jobs/descendants.xml");
+    for (long id : ids) {
+      qsb.add("id", Long.toString(id));
+    }
+    final HttpGet get = get(qsb.toString());
+    HttpResponse response = null;
+    int responseStatusCode;
+    try {
+      response = getHttpClient().execute(get);
+      responseStatusCode = response.getStatusLine().getStatusCode();
+      if (responseStatusCode == HttpStatus.SC_OK) {
+        final JaxbJobList jaxbJobList = JobParser.parseJobList(response.getEntity().getContent());
+        return $(jaxbJobList.getJobs()).map(JaxbJob.fnToJob()).toList();
+      }
+    } catch (IOException e) {
+      throw new ServiceRegistryException("Unable to get jobs " + ids, e);
+    } finally {
+      getHttpClient().close(response);
+    }
+    throw new ServiceRegistryException("Unable to retrieve jobs " + ids + " (" + responseStatusCode + ")");
+  }
+
   @Override
   public List<Job> getJobs(String serviceType, Status status) throws ServiceRegistryException {
     QueryStringBuilder qsb = new QueryStringBuilder("jobs.xml").add("serviceType", serviceType);
@@ -544,6 +586,63 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
     throw new ServiceRegistryException("Unable to retrieve active jobs via http:" + response.getStatusLine());
   }
 
+  @Override
+  public List<Job> getActiveJobs(JobQuery query) throws ServiceRegistryException {
+    QueryStringBuilder qsb = addJobQueryFilters(new QueryStringBuilder("activeJobs/query.xml"), query)
+            .add("sort", query.getSort().toString()).add("ascending", Boolean.toString(query.isAscending()))
+            .add("offset", Integer.toString(query.getOffset())).add("limit", Integer.toString(query.getLimit()));
+    final HttpGet get = get(qsb.toString());
+    HttpResponse response = null;
+    int responseStatusCode;
+    try {
+      response = getHttpClient().execute(get);
+      responseStatusCode = response.getStatusLine().getStatusCode();
+      if (responseStatusCode == HttpStatus.SC_OK) {
+        final JaxbJobList jaxbJobList = JobParser.parseJobList(response.getEntity().getContent());
+        return $(jaxbJobList.getJobs()).map(JaxbJob.fnToJob()).toList();
+      }
+    } catch (IOException e) {
+      throw new ServiceRegistryException("Unable to get active jobs", e);
+    } finally {
+      getHttpClient().close(response);
+    }
+    throw new ServiceRegistryException("Unable to retrieve active jobs (" + responseStatusCode + ")");
+  }
+
+  @Override
+  public long countActiveJobs(JobQuery query) throws ServiceRegistryException {
+    QueryStringBuilder qsb = addJobQueryFilters(new QueryStringBuilder("activeJobs/count"), query);
+    final HttpGet get = get(qsb.toString());
+    HttpResponse response = null;
+    int responseStatusCode;
+    try {
+      response = getHttpClient().execute(get);
+      responseStatusCode = response.getStatusLine().getStatusCode();
+      if (responseStatusCode == HttpStatus.SC_OK) {
+        return Long.parseLong(EntityUtils.toString(response.getEntity()));
+      }
+    } catch (IOException e) {
+      throw new ServiceRegistryException("Unable to count active jobs", e);
+    } finally {
+      getHttpClient().close(response);
+    }
+    throw new ServiceRegistryException("Unable to count active jobs (" + responseStatusCode + ")");
+  }
+
+  /** Adds the filters of a job query to the query string of an active jobs request. */
+  private static QueryStringBuilder addJobQueryFilters(QueryStringBuilder qsb, JobQuery query) {
+    if (query.getProcessingHost() != null)
+      qsb.add("host", query.getProcessingHost());
+    if (query.getStatus() != null)
+      qsb.add("status", query.getStatus().toString());
+    if (query.getText() != null)
+      qsb.add("q", query.getText());
+    for (Tuple<String, String> excluded : query.getExcludedOperations()) {
+      qsb.add("exclude", excluded.getA() + ":" + excluded.getB());
+    }
+    return qsb;
+  }
+
   @Override
   public Incidents incident() {
     if (incidents == null && getIncidentService() != null)
@@ -877,6 +976,7 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
       response = getHttpClient().execute(post);
       responseStatusCode = response.getStatusLine().getStatusCode();
       if (responseStatusCode == HttpStatus.SC_NO_CONTENT) {
+        listeners.fire(serviceType);
         return;
       } else if (responseStatusCode == HttpStatus.SC_NOT_FOUND) {
         throw new NotFoundException();
@@ -949,6 +1049,16 @@ public abstract class ServiceRegistryRemoteBase implements ServiceRegistry {
     currentJob.set(job);
   }
 
+  @Override
+  public void addServiceRegistryListener(ServiceRegistryListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeServiceRegistryListener(ServiceRegistryListener listener) {
+    listeners.remove(listener);
+  }
+
   /** Create a GET request. */
   private HttpGet get(String action) {
     return new HttpGet(HttpUtil.path(getServiceUrl(), action));
@@ -118,32 +118,68 @@ public abstract class AbstractIncidentService implements IncidentService {
     return incidents;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The tree is assembled in memory from all jobs of the tree, which are loaded at once, and all of their incidents,
+   * which are loaded in a single query.
+   */
   @Override
   public IncidentTree getIncidentsOfJob(long jobId, boolean cascade) throws NotFoundException, IncidentServiceException {
-    List<Incident> incidents = getIncidentsOfJob(jobId);
-    List<IncidentTree> childIncidents = new ArrayList<IncidentTree>();
+    final Job job = findJob(jobId);
+    final boolean workflow = "START_WORKFLOW".equals(job.getOperation());
+    final List<Long> operationIds = new ArrayList<Long>();
+    final Map<Long, Job> jobs = new HashMap<Long, Job>();
+    final Map<Long, List<Long>> childJobIds = new HashMap<Long, List<Long>>();
+    jobs.put(jobId, job);
 
     try {
-      Job job = getServiceRegistry().getJob(jobId);
-      if (cascade && !"START_WORKFLOW".equals(job.getOperation())) {
-        childIncidents = getChildIncidents(jobId);
-      } else if (cascade && "START_WORKFLOW".equals(job.getOperation())) {
-        for (WorkflowOperationInstance operation : getWorkflowService().getWorkflowById(jobId).getOperations()) {
-          if (operation.getState().equals(OperationState.INSTANTIATED))
-            continue;
-          IncidentTree operationResult = getIncidentsOfJob(operation.getId(), true);
-          if (hasIncidents(Collections.list(operationResult)))
-            childIncidents.add(operationResult);
+      if (cascade) {
+        final List<Long> rootIds = new ArrayList<Long>();
+        if (workflow) {
+          try {
+            for (WorkflowOperationInstance operation : getWorkflowService().getWorkflowById(jobId).getOperations()) {
+              if (!operation.getState().equals(OperationState.INSTANTIATED) && operation.getId() != null)
+                operationIds.add(operation.getId());
+            }
+          } catch (NotFoundException ignore) {
+            // Workflow deleted
+          }
+          rootIds.addAll(operationIds);
+        } else {
+          rootIds.add(jobId);
+        }
+
+        if (!rootIds.isEmpty()) {
+          for (Job j : getServiceRegistry().getJobsWithDescendants(rootIds)) {
+            jobs.put(j.getId(), j);
+            if (j.getParentJobId() != null)
+              getList(childJobIds, j.getParentJobId()).add(j.getId());
+          }
         }
       }
-      return new IncidentTreeImpl(incidents, childIncidents);
-    } catch (NotFoundException ignore) {
-      // Workflow deleted
-      return new IncidentTreeImpl(incidents, childIncidents);
     } catch (Exception e) {
-      logger.error("Error loading child jobs of {}: {}", jobId);
+      logger.error("Error loading child jobs of {}: {}", jobId, e.getMessage());
       throw new IncidentServiceException(e);
     }
+
+    final Map<Long, List<Incident>> incidents = getIncidentsOfJobs(jobs);
+    final List<IncidentTree> childIncidents;
+    if (!workflow) {
+      childIncidents = getChildIncidents(jobId, childJobIds, incidents);
+    } else {
+      childIncidents = new ArrayList<IncidentTree>();
+      for (long operationId : operationIds) {
+        // The job of an operation may be gone already
+        if (!jobs.containsKey(operationId))
+          continue;
+        IncidentTree operationResult = new IncidentTreeImpl(getList(incidents, operationId),
+                getChildIncidents(operationId, childJobIds, incidents));
+        if (hasIncidents(Collections.list(operationResult)))
+          childIncidents.add(operationResult);
+      }
+    }
+    return new IncidentTreeImpl(getList(incidents, jobId), childIncidents);
   }
 
   private boolean hasIncidents(List<IncidentTree> incidentResults) {
@@ -156,14 +192,18 @@ public abstract class AbstractIncidentService implements IncidentService {
 
   @Override
   public IncidentL10n getLocalization(long id, Locale locale) throws IncidentServiceException, NotFoundException {
-    final Incident incident = getIncident(id);
+    // The localization only depends on the incident itself, so there is no need to look up its job
+    IncidentDto incident = null;
+    for (IncidentDto dto : getPenv().tx(Queries.find(IncidentDto.class, id))) {
+      incident = dto;
+    }
+    if (incident == null)
+      throw new NotFoundException();
 
     final List<String> loc = localeToList(locale);
-    // check if cache map is empty
-    // fill cache from
     final String title = findText(loc, incident.getCode(), FIELD_TITLE).getOrElse(NO_TITLE);
     final String description = findText(loc, incident.getCode(), FIELD_DESCRIPTION).map(
-            replaceVarsF(incident.getDescriptionParameters())).getOrElse(NO_DESCRIPTION);
+            replaceVarsF(incident.getParameters())).getOrElse(NO_DESCRIPTION);
     return new IncidentL10n() {
       @Override
       public String getTitle() {
@@ -202,14 +242,26 @@ public abstract class AbstractIncidentService implements IncidentService {
 
   private final Map<String, String> textCache = new HashMap<String, String>();
 
+  /** Whether the text cache has been filled, which is also the case if there are no texts at all. */
+  private boolean textCacheLoaded = false;
+
   /** Get a text. */
   private Option<String> getText(String key) {
     synchronized (textCache) {
-      if (textCache.isEmpty()) {
+      if (!textCacheLoaded) {
         textCache.putAll(fetchTextsFromDb());
+        textCacheLoaded = true;
       }
+      return option(textCache.get(key));
+    }
+  }
+
+  /** Drop the cached texts, so that they are reloaded from the database on the next access. */
+  protected void invalidateTextCache() {
+    synchronized (textCache) {
+      textCache.clear();
+      textCacheLoaded = false;
     }
-    return option(textCache.get(key));
   }
 
   /** Fetch all localizations from the database. */
@@ -221,21 +273,41 @@ public abstract class AbstractIncidentService implements IncidentService {
     return locs;
   }
 
-  private List<IncidentTree> getChildIncidents(long jobId) throws NotFoundException, ServiceRegistryException,
-          IncidentServiceException {
-    List<Job> childJobs = getServiceRegistry().getChildJobs(jobId);
+  private List<IncidentTree> getChildIncidents(long jobId, Map<Long, List<Long>> childJobIds,
+          Map<Long, List<Incident>> incidents) {
     List<IncidentTree> incidentResults = new ArrayList<IncidentTree>();
-    for (Job childJob : childJobs) {
-      if (childJob.getParentJobId() != jobId)
-        continue;
-      List<Incident> incidentsForJob = getIncidentsOfJob(childJob.getId());
-      IncidentTree incidentTree = new IncidentTreeImpl(incidentsForJob, getChildIncidents(childJob.getId()));
+    for (long childJobId : getList(childJobIds, jobId)) {
+      IncidentTree incidentTree = new IncidentTreeImpl(getList(incidents, childJobId),
+              getChildIncidents(childJobId, childJobIds, incidents));
       if (hasIncidents(Collections.list(incidentTree)))
         incidentResults.add(incidentTree);
     }
     return incidentResults;
   }
 
+  /** Load the incidents of all given jobs in a single query, grouped by job identifier. */
+  private Map<Long, List<Incident>> getIncidentsOfJobs(Map<Long, Job> jobs) throws IncidentServiceException {
+    final Map<Long, List<Incident>> incidents = new HashMap<Long, List<Incident>>();
+    try {
+      for (IncidentDto dto : getPenv().tx(IncidentDto.findByJobIds(new ArrayList<Long>(jobs.keySet())))) {
+        getList(incidents, dto.getJobId()).add(toIncident(jobs.get(dto.getJobId()), dto));
+      }
+    } catch (Exception e) {
+      logger.error("Could not retrieve incidents of jobs {}: {}", jobs.keySet(), e.getMessage());
+      throw new IncidentServiceException(e);
+    }
+    return incidents;
+  }
+
+  private static <A> List<A> getList(Map<Long, List<A>> map, long key) {
+    List<A> list = map.get(key);
+    if (list == null) {
+      list = new ArrayList<A>();
+      map.put(key, list);
+    }
+    return list;
+  }
+
   private List<Incident> getIncidentsOfJob(long jobId) throws NotFoundException, IncidentServiceException {
     final Job job = findJob(jobId);
     try {
@@ -0,0 +1,350 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl;
+
+import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.serviceregistry.impl.jmx.HostLoadsMXBean;
+import org.opencastproject.serviceregistry.impl.jpa.ServiceRegistrationJpaImpl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory ledger of the load that jobs in a load influencing state put on the service registrations processing
+ * them.
+ * <p>
+ * The ledger is maintained incrementally from every job update made through this service registry. Since jobs may
+ * also be modified by other nodes sharing the same database, or by bulk operations which are not tracked job by job,
+ * it is rebuilt from the database whenever it has been invalidated. While the loads are being requested, the ledger is
+ * regularly compared with a cheap fingerprint of the database state and only rebuilt if the two differ. A rebuild
+ * keeps the entries of jobs which have been updated while the database was being queried, so that no update is lost.
+ */
+class HostLoadLedger implements HostLoadsMXBean {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(HostLoadLedger.class);
+
+  /** Differences in load below this value are attributed to rounding and not considered as drift */
+  private static final double DRIFT_TOLERANCE = 0.001;
+
+  /** The statuses of jobs adding to the load */
+  private final Collection<Status> statuses;
+
+  /** The charged load per job identifier */
+  private Map<Long, Charge> charges = new HashMap<Long, Charge>();
+
+  /** The summed up load per service registration identifier */
+  private Map<Long, RegistrationLoad> loads = new HashMap<Long, RegistrationLoad>();
+
+  /** Identifiers of the jobs which have been updated since the current rebuild started, or null */
+  private Set<Long> touched = null;
+
+  /** Whether the ledger needs to be rebuilt before it can be used */
+  private boolean dirty = true;
+
+  /** Whether the loads have been requested since the last call to {@link #pollRequested()} */
+  private boolean requested = false;
+
+  /** The number of reconciliations which found differences */
+  private long driftCount = 0;
+
+  /** The time of the last rebuild */
+  private long lastRebuild = 0;
+
+  /**
+   * Creates a new, empty ledger which needs to be rebuilt before it is used.
+   *
+   * @param statuses
+   *          the statuses of jobs adding to the load
+   */
+  HostLoadLedger(Collection<Status> statuses) {
+    this.statuses = statuses;
+  }
+
+  /**
+   * Returns whether the ledger has to be rebuilt from the database before it can be used.
+   *
+   * @return <code>true</code> if the ledger is out of date
+   */
+  synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Marks the ledger as out of date, e.g. after jobs have been modified without being reported to the ledger.
+   */
+  synchronized void invalidate() {
+    dirty = true;
+  }
+
+  /**
+   * Records the current state of a job.
+   *
+   * @param jobId
+   *          the job identifier
+   * @param status
+   *          the job status
+   * @param processor
+   *          the service registration processing the job, may be <code>null</code>
+   * @param load
+   *          the job load, may be <code>null</code>
+   */
+  synchronized void update(long jobId, Status status, ServiceRegistrationJpaImpl processor, Float load) {
+    if (touched != null)
+      touched.add(jobId);
+    discharge(charges.remove(jobId));
+    if (processor != null && statuses.contains(status)) {
+      Charge charge = new Charge(processor.getId(), processor.getServiceType(), processor.getHost(),
+              load == null ? 0.0f : load);
+      charges.put(jobId, charge);
+      charge(loads, charge);
+    }
+  }
+
+  /**
+   * Removes a deleted job from the ledger.
+   *
+   * @param jobId
+   *          the job identifier
+   */
+  synchronized void remove(long jobId) {
+    if (touched != null)
+      touched.add(jobId);
+    discharge(charges.remove(jobId));
+  }
+
+  /**
+   * Starts a rebuild. Updates arriving until {@link #finishRebuild(List)} is called take precedence over the
+   * database state passed to it. Rebuilds must not run concurrently.
+   */
+  synchronized void startRebuild() {
+    touched = new HashSet<Long>();
+  }
+
+  /**
+   * Replaces the content of the ledger by the given database state.
+   *
+   * @param rows
+   *          the result of the <code>Job.processorLoads</code> query: job identifier, service registration identifier,
+   *          service type, host and job load of every job in a load influencing state
+   * @return <code>true</code> if the ledger was expected to be up to date but differed from the database
+   */
+  synchronized boolean finishRebuild(List<Object[]> rows) {
+    Map<Long, Charge> rebuiltCharges = new HashMap<Long, Charge>();
+    for (Object[] row : rows) {
+      Long jobId = (Long) row[0];
+      if (touched.contains(jobId))
+        continue;
+      Number load = (Number) row[4];
+      rebuiltCharges.put(jobId, new Charge((Long) row[1], (String) row[2], (String) row[3],
+              load == null ? 0.0f : load.floatValue()));
+    }
+    for (Long jobId : touched) {
+      Charge charge = charges.get(jobId);
+      if (charge != null)
+        rebuiltCharges.put(jobId, charge);
+    }
+    Map<Long, RegistrationLoad> rebuiltLoads = new HashMap<Long, RegistrationLoad>();
+    for (Charge charge : rebuiltCharges.values()) {
+      charge(rebuiltLoads, charge);
+    }
+
+    boolean drift = !dirty && !sameLoads(loads, rebuiltLoads);
+    if (drift) {
+      driftCount++;
+      logger.info("Host load ledger differed from the database, {} jobs were tracked instead of {}", charges.size(),
+              rebuiltCharges.size());
+    }
+
+    charges = rebuiltCharges;
+    loads = rebuiltLoads;
+    touched = null;
+    dirty = false;
+    lastRebuild = System.currentTimeMillis();
+    return drift;
+  }
+
+  /**
+   * Returns the current load per service registration.
+   *
+   * @return a map of service registration identifiers to load factors
+   */
+  synchronized Map<Long, Float> getRegistrationLoads() {
+    requested = true;
+    Map<Long, Float> result = new HashMap<Long, Float>();
+    for (Map.Entry<Long, RegistrationLoad> entry : loads.entrySet()) {
+      result.put(entry.getKey(), (float) entry.getValue().load);
+    }
+    return result;
+  }
+
+  /**
+   * Returns whether the loads have been requested since the last call of this method.
+   *
+   * @return <code>true</code> if the ledger is in use
+   */
+  synchronized boolean pollRequested() {
+    boolean result = requested;
+    requested = false;
+    return result;
+  }
+
+  /**
+   * Returns whether the ledger matches the given fingerprint of the database state. Jobs changed between querying the
+   * fingerprint and calling this method may cause a mismatch, which merely leads to an unnecessary rebuild.
+   *
+   * @param fingerprint
+   *          the result of the <code>Job.processorLoads.fingerprint</code> query: the number of jobs in a load
+   *          influencing state and the sums of their identifiers, of the identifiers of the service registrations
+   *          processing them and of their loads
+   * @return <code>true</code> if the ledger is up to date and agrees with the fingerprint
+   */
+  synchronized boolean matches(Object[] fingerprint) {
+    if (dirty)
+      return false;
+    long jobIds = 0;
+    long registrationIds = 0;
+    double load = 0.0;
+    for (Map.Entry<Long, Charge> entry : charges.entrySet()) {
+      jobIds += entry.getKey();
+      registrationIds += entry.getValue().registrationId;
+      load += entry.getValue().load;
+    }
+    return charges.size() == longValue(fingerprint[0]) && jobIds == longValue(fingerprint[1])
+            && registrationIds == longValue(fingerprint[2])
+            && Math.abs(load - doubleValue(fingerprint[3])) <= DRIFT_TOLERANCE * Math.max(1, charges.size());
+  }
+
+  @Override
+  public synchronized Map<String, Float> getHostLoads() {
+    Map<String, Float> result = new HashMap<String, Float>();
+    for (RegistrationLoad load : loads.values()) {
+      Float current = result.get(load.host);
+      result.put(load.host, (float) load.load + (current == null ? 0.0f : current));
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized Map<String, Float> getServiceLoads() {
+    Map<String, Float> result = new HashMap<String, Float>();
+    for (RegistrationLoad load : loads.values()) {
+      Float current = result.get(load.serviceType);
+      result.put(load.serviceType, (float) load.load + (current == null ? 0.0f : current));
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized int getJobCount() {
+    return charges.size();
+  }
+
+  @Override
+  public synchronized long getDriftCount() {
+    return driftCount;
+  }
+
+  @Override
+  public synchronized long getLastRebuild() {
+    return lastRebuild;
+  }
+
+  private static void charge(Map<Long, RegistrationLoad> loads, Charge charge) {
+    RegistrationLoad load = loads.get(charge.registrationId);
+    if (load == null) {
+      load = new RegistrationLoad(charge.serviceType, charge.host);
+      loads.put(charge.registrationId, load);
+    }
+    load.load += charge.load;
+    load.jobs++;
+  }
+
+  private void discharge(Charge charge) {
+    if (charge == null)
+      return;
+    RegistrationLoad load = loads.get(charge.registrationId);
+    if (load == null)
+      return;
+    // Dropping the entry along with its last job keeps rounding errors from accumulating
+    if (--load.jobs <= 0) {
+      loads.remove(charge.registrationId);
+    } else {
+      load.load -= charge.load;
+    }
+  }
+
+  private static long longValue(Object value) {
+    return value == null ? 0 : ((Number) value).longValue();
+  }
+
+  private static double doubleValue(Object value) {
+    return value == null ? 0.0 : ((Number) value).doubleValue();
+  }
+
+  private static boolean sameLoads(Map<Long, RegistrationLoad> a, Map<Long, RegistrationLoad> b) {
+    if (!a.keySet().equals(b.keySet()))
+      return false;
+    for (Map.Entry<Long, RegistrationLoad> entry : a.entrySet()) {
+      if (Math.abs(entry.getValue().load - b.get(entry.getKey()).load) > DRIFT_TOLERANCE)
+        return false;
+    }
+    return true;
+  }
+
+  /** The load a single job puts on a service registration */
+  private static final class Charge {
+    private final long registrationId;
+    private final String serviceType;
+    private final String host;
+    private final float load;
+
+    Charge(long registrationId, String serviceType, String host, float load) {
+      this.registrationId = registrationId;
+      this.serviceType = serviceType;
+      this.host = host;
+      this.load = load;
+    }
+  }
+
+  /** The summed up load of all jobs processed by a service registration */
+  private static final class RegistrationLoad {
+    private final String serviceType;
+    private final String host;
+    private double load = 0.0;
+    private int jobs = 0;
+
+    RegistrationLoad(String serviceType, String host) {
+      this.serviceType = serviceType;
+      this.host = host;
+    }
+  }
+
+}
@@ -60,7 +60,11 @@ import javax.persistence.TemporalType;
 @Access(AccessType.FIELD)
 @Table(name = "mh_incident")
 @NamedQueries({@NamedQuery(name = "Incident.findByJobId",
-                           query = "select a from Incident a where a.jobId = :jobId")})
+                           query = "select a from Incident a where a.jobId = :jobId"),
+               @NamedQuery(name = "Incident.findByJobIds",
+                           query = "select a from Incident a where a.jobId in :jobIds"),
+               @NamedQuery(name = "Incident.findJobIdsByJobIds",
+                           query = "select distinct a.jobId from Incident a where a.jobId in :jobIds")})
 public class IncidentDto {
   @Id
   @GeneratedValue
@@ -166,4 +170,8 @@ public class IncidentDto {
   public static Function<EntityManager, List<IncidentDto>> findByJobId(long jobId) {
     return Queries.named.findAll("Incident.findByJobId", tuple("jobId", jobId));
   }
+
+  public static Function<EntityManager, List<IncidentDto>> findByJobIds(List<Long> jobIds) {
+    return Queries.named.findAll("Incident.findByJobIds", tuple("jobIds", jobIds));
+  }
 }
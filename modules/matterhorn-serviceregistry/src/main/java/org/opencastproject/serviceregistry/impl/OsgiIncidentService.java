@@ -144,6 +144,7 @@ public class OsgiIncidentService extends AbstractIncidentService implements Bund
     logger.debug("Scanning bundle {}, (ID {}) for incident localizations", bundle.getSymbolicName(),
         bundle.getBundleId());
     final Enumeration l10n = bundle.findEntries(INCIDENT_L10N_DIR, PROPERTIES_GLOB, false);
+    boolean stored = false;
     while (l10n != null && l10n.hasMoreElements()) {
       final URL resourceUrl = (URL) l10n.nextElement();
       final String resourceFileName = resourceUrl.getFile();
@@ -159,7 +160,10 @@ public class OsgiIncidentService extends AbstractIncidentService implements Bund
         final String dbKey = mlist(keyBase, key).concat(locale).mkString(".");
         logger.debug("Storing text {}={}", dbKey, text);
         penv.tx(Queries.persistOrUpdate(IncidentTextDto.mk(dbKey, text)));
+        stored = true;
       }
     }
+    if (stored)
+      invalidateTextCache();
   }
 }
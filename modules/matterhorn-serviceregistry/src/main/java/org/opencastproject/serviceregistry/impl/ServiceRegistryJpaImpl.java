@@ -38,7 +38,10 @@ import static org.opencastproject.util.OsgiUtil.getOptContextProperty;
 
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.job.jpa.JpaArchivedJob;
 import org.opencastproject.job.jpa.JpaJob;
+import org.opencastproject.job.jpa.JpaJobStatisticsRollup;
 import org.opencastproject.rest.RestConstants;
 import org.opencastproject.security.api.Organization;
 import org.opencastproject.security.api.OrganizationDirectoryService;
@@ -51,12 +54,17 @@ import org.opencastproject.serviceregistry.api.HostRegistration;
 import org.opencastproject.serviceregistry.api.IncidentService;
 import org.opencastproject.serviceregistry.api.Incidents;
 import org.opencastproject.serviceregistry.api.JaxbServiceStatistics;
+import org.opencastproject.serviceregistry.api.JobQuery;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.serviceregistry.api.ServiceRegistryListener;
+import org.opencastproject.serviceregistry.api.ServiceRegistryListeners;
 import org.opencastproject.serviceregistry.api.ServiceStatistics;
 import org.opencastproject.serviceregistry.api.SystemLoad;
 import org.opencastproject.serviceregistry.api.SystemLoad.NodeLoad;
+import org.opencastproject.serviceregistry.impl.ServiceStatisticsLedger.JobState;
+import org.opencastproject.serviceregistry.impl.jmx.HostLoadsMXBean;
 import org.opencastproject.serviceregistry.impl.jmx.HostsStatistics;
 import org.opencastproject.serviceregistry.impl.jmx.JobsStatistics;
 import org.opencastproject.serviceregistry.impl.jmx.ServicesStatistics;
@@ -65,6 +73,7 @@ import org.opencastproject.serviceregistry.impl.jpa.ServiceRegistrationJpaImpl;
 import org.opencastproject.systems.MatterhornConstants;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.UrlSupport;
+import org.opencastproject.util.data.Tuple;
 import org.opencastproject.util.data.functions.Strings;
 import org.opencastproject.util.jmx.JmxUtil;
 
@@ -95,13 +104,13 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -120,6 +129,12 @@ import javax.persistence.Query;
 import javax.persistence.RollbackException;
 import javax.persistence.TemporalType;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.JoinType;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
 
 /** JPA implementation of the {@link ServiceRegistry} */
 public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
@@ -153,6 +168,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Jobs statistics JMX type */
   private static final String JMX_JOBS_STATISTICS_TYPE = "JobsStatistics";
 
+  /** Host loads JMX type */
+  private static final String JMX_HOST_LOADS_TYPE = "HostLoads";
+
   /** The JMX business object for hosts statistics */
   private HostsStatistics hostsStatistics;
 
@@ -177,6 +195,18 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Configuration key for the collection of job statistics */
   protected static final String OPT_JOBSTATISTICS = "jobstats.collect";
 
+  /** Configuration key for the interval to reconcile the host load ledger with the database [sec] */
+  protected static final String OPT_HOSTLOADS_RECONCILE_INTERVAL = "hostloads.reconcile.interval";
+
+  /** Configuration key for the age of terminated jobs to be moved to the job archive [days] */
+  protected static final String OPT_JOBS_ARCHIVE_AGE = "jobs.archive.age";
+
+  /** Configuration key for the interval between two runs of the job archiver [sec] */
+  protected static final String OPT_JOBS_ARCHIVE_INTERVAL = "jobs.archive.interval";
+
+  /** Configuration key for the interval between two reconciliations of the service statistics ledger [sec] */
+  protected static final String OPT_SERVICE_STATISTICS_RECONCILE_INTERVAL = "servicestatistics.reconcile.interval";
+
   /** Configuration key for the retrieval of service statistics: Do not consider jobs older than max_job_age (in days) */
   protected static final String OPT_SERVICE_STATISTICS_MAX_JOB_AGE = "org.opencastproject.statistics.services.max_job_age";
 
@@ -211,6 +241,21 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Default delay between checking if hosts are still alive in seconds * */
   static final long DEFAULT_HEART_BEAT = 60;
 
+  /** Default delay between reconciliations of the host load ledger with the database in seconds */
+  static final long DEFAULT_HOSTLOADS_RECONCILE_INTERVAL = 60;
+
+  /** Default delay between reconciliations of the service statistics ledger with the database in seconds */
+  static final long DEFAULT_SERVICE_STATISTICS_RECONCILE_INTERVAL = 60;
+
+  /** Default age of jobs to be archived in days, archiving is disabled by default */
+  static final int DEFAULT_JOBS_ARCHIVE_AGE = 0;
+
+  /** Default delay between two runs of the job archiver in seconds */
+  static final long DEFAULT_JOBS_ARCHIVE_INTERVAL = 3600;
+
+  /** Maximum number of job trees moved to the archive within a single transaction */
+  static final int JOBS_ARCHIVE_BATCH_SIZE = 100;
+
   /** This host's base URL */
   protected String hostName;
 
@@ -243,6 +288,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Maximum age of jobs being considering for service statistics */
   protected int maxJobAge = DEFAULT_SERVICE_STATISTICS_MAX_JOB_AGE;
 
+  /** Age of the terminated jobs to be moved to the job archive in days, 0 if jobs are not archived */
+  protected int jobsArchiveAge = DEFAULT_JOBS_ARCHIVE_AGE;
+
   /** A static list of statuses that influence how load balancing is calculated */
   protected static final List<Status> JOB_STATUSES_INFLUENCING_LOAD_BALANCING;
 
@@ -259,6 +307,21 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
   /** Whether to accept a job whose load exceeds the host’s max load */
   protected Boolean acceptJobLoadsExeedingMaxLoad = true;
 
+  /** The listeners to notify of changed registrations */
+  protected final ServiceRegistryListeners listeners = new ServiceRegistryListeners();
+
+  /** The load of the jobs currently being processed, maintained incrementally on every job update */
+  protected final HostLoadLedger hostLoadLedger = new HostLoadLedger(JOB_STATUSES_INFLUENCING_LOAD_BALANCING);
+
+  /** Serializes rebuilds of the host load ledger */
+  private final Object hostLoadLedgerRebuildLock = new Object();
+
+  /** The job counters of the service statistics, maintained incrementally on every job update */
+  protected final ServiceStatisticsLedger serviceStatisticsLedger = new ServiceStatisticsLedger();
+
+  /** Serializes rebuilds of the service statistics ledger */
+  private final Object serviceStatisticsLedgerRebuildLock = new Object();
+
   /** OSGi DI */
   void setEntityManagerFactory(EntityManagerFactory emf) {
     this.emf = emf;
@@ -293,6 +356,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       jmxBeans.add(JmxUtil.registerMXBean(hostsStatistics, JMX_HOSTS_STATISTICS_TYPE));
       jmxBeans.add(JmxUtil.registerMXBean(servicesStatistics, JMX_SERVICES_STATISTICS_TYPE));
       jmxBeans.add(JmxUtil.registerMXBean(jobsStatistics, JMX_JOBS_STATISTICS_TYPE));
+      jmxBeans.add(JmxUtil.registerMXBean(hostLoadLedger, JMX_HOST_LOADS_TYPE));
     } catch (ServiceRegistryException e) {
       logger.error("Error registering JMX statistic beans {}", e);
     }
@@ -568,6 +632,8 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
       em.persist(jpaJob);
       tx.commit();
+      trackHostLoad(jpaJob);
+      trackServiceStatistics(null, JobState.of(jpaJob), jpaJob.getDateCreated());
 
       setJobUri(jpaJob);
       Job job = jpaJob.toJob();
@@ -603,9 +669,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
       deleteChildJobs(jobId);
 
+      JobState state = JobState.of(job);
       tx.begin();
       em.remove(job);
       tx.commit();
+      hostLoadLedger.remove(jobId);
+      trackServiceStatistics(state, null, job.getDateCreated());
       logger.debug("Job with ID '{}' deleted", jobId);
     } catch (NotFoundException e) {
       throw e;
@@ -638,9 +707,12 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       for (int i = childJobs.size() - 1; i >= 0; i--) {
         Job job = childJobs.get(i);
         JpaJob jobToDelete = em.find(JpaJob.class, job.getId());
+        JobState state = JobState.of(jobToDelete);
         tx.begin();
         em.remove(jobToDelete);
         tx.commit();
+        hostLoadLedger.remove(job.getId());
+        trackServiceStatistics(state, null, jobToDelete.getDateCreated());
         logger.debug("Job '{}' deleted", job.getId());
       }
       logger.debug("Deleted all child jobs of job '{}'", jobId);
@@ -786,12 +858,73 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
     }
 
+    long hostLoadsReconcileInterval = DEFAULT_HOSTLOADS_RECONCILE_INTERVAL;
+    String reconcileIntervalString = StringUtils.trimToNull((String) properties.get(OPT_HOSTLOADS_RECONCILE_INTERVAL));
+    if (reconcileIntervalString != null) {
+      try {
+        hostLoadsReconcileInterval = Long.parseLong(reconcileIntervalString);
+      } catch (NumberFormatException e) {
+        logger.warn("Host loads reconcile interval '{}' is malformed, setting to {}", reconcileIntervalString,
+                DEFAULT_HOSTLOADS_RECONCILE_INTERVAL);
+      }
+      if (hostLoadsReconcileInterval <= 0) {
+        logger.info("Host loads reconciliation disabled");
+      } else {
+        logger.info("Host loads reconcile interval set to {} seconds", hostLoadsReconcileInterval);
+      }
+    }
+
+    long statisticsReconcileInterval = DEFAULT_SERVICE_STATISTICS_RECONCILE_INTERVAL;
+    String statisticsReconcileIntervalString = StringUtils.trimToNull(
+            (String) properties.get(OPT_SERVICE_STATISTICS_RECONCILE_INTERVAL));
+    if (statisticsReconcileIntervalString != null) {
+      try {
+        statisticsReconcileInterval = Long.parseLong(statisticsReconcileIntervalString);
+      } catch (NumberFormatException e) {
+        logger.warn("Service statistics reconcile interval '{}' is malformed, setting to {}",
+                statisticsReconcileIntervalString, DEFAULT_SERVICE_STATISTICS_RECONCILE_INTERVAL);
+      }
+      if (statisticsReconcileInterval <= 0) {
+        logger.info("Service statistics reconciliation disabled");
+      } else {
+        logger.info("Service statistics reconcile interval set to {} seconds", statisticsReconcileInterval);
+      }
+    }
+
+    jobsArchiveAge = DEFAULT_JOBS_ARCHIVE_AGE;
+    String jobsArchiveAgeString = StringUtils.trimToNull((String) properties.get(OPT_JOBS_ARCHIVE_AGE));
+    if (jobsArchiveAgeString != null) {
+      try {
+        jobsArchiveAge = Integer.parseInt(jobsArchiveAgeString);
+        logger.info("Jobs terminated more than {} days ago will be archived", jobsArchiveAge);
+      } catch (NumberFormatException e) {
+        logger.warn("Can not set jobs archive age to {}. {} must be an integer", jobsArchiveAgeString,
+                OPT_JOBS_ARCHIVE_AGE);
+      }
+    }
+
+    long jobsArchiveInterval = DEFAULT_JOBS_ARCHIVE_INTERVAL;
+    String jobsArchiveIntervalString = StringUtils.trimToNull((String) properties.get(OPT_JOBS_ARCHIVE_INTERVAL));
+    if (jobsArchiveIntervalString != null) {
+      try {
+        jobsArchiveInterval = Long.parseLong(jobsArchiveIntervalString);
+      } catch (NumberFormatException e) {
+        logger.warn("Jobs archive interval '{}' is malformed, setting to {}", jobsArchiveIntervalString,
+                DEFAULT_JOBS_ARCHIVE_INTERVAL);
+      }
+      if (jobsArchiveInterval <= 0) {
+        logger.warn("Jobs archive interval {} seconds too low, adjusting to {}", jobsArchiveInterval,
+                DEFAULT_JOBS_ARCHIVE_INTERVAL);
+        jobsArchiveInterval = DEFAULT_JOBS_ARCHIVE_INTERVAL;
+      }
+    }
+
     // Stop the current scheduled executors so we can configure new ones
     if (scheduledExecutor != null) {
       scheduledExecutor.shutdown();
     }
 
-    scheduledExecutor = Executors.newScheduledThreadPool(2);
+    scheduledExecutor = Executors.newScheduledThreadPool(4);
 
     // Schedule the service heartbeat if the interval is > 0
     if (heartbeatInterval > 0) {
@@ -806,6 +939,24 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       scheduledExecutor.scheduleWithFixedDelay(new JobDispatcher(), dispatchInterval, dispatchInterval,
               TimeUnit.MILLISECONDS);
     }
+
+    // Schedule the reconciliation of the host load ledger, which picks up job changes made by other nodes
+    if (hostLoadsReconcileInterval > 0) {
+      scheduledExecutor.scheduleWithFixedDelay(new HostLoadReconciler(), hostLoadsReconcileInterval,
+              hostLoadsReconcileInterval, TimeUnit.SECONDS);
+    }
+
+    // Schedule the reconciliation of the service statistics ledger, which also drops jobs leaving the statistics period
+    if (statisticsReconcileInterval > 0) {
+      scheduledExecutor.scheduleWithFixedDelay(new ServiceStatisticsReconciler(), statisticsReconcileInterval,
+              statisticsReconcileInterval, TimeUnit.SECONDS);
+    }
+
+    // Schedule the archiving of old jobs
+    if (jobsArchiveAge > 0) {
+      scheduledExecutor.scheduleWithFixedDelay(new JobArchiver(), jobsArchiveInterval, jobsArchiveInterval,
+              TimeUnit.SECONDS);
+    }
   }
 
   /**
@@ -845,7 +996,278 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
   @Override
   public Job getJob(long id) throws NotFoundException, ServiceRegistryException {
-    return getJpaJob(id).toJob();
+    try {
+      return getJpaJob(id).toJob();
+    } catch (NotFoundException e) {
+      // The job may have been moved to the archive in the meantime
+      Job archivedJob = getArchivedJob(id);
+      if (archivedJob == null)
+        throw e;
+      return archivedJob;
+    }
+  }
+
+  /**
+   * Gets a job from the job archive.
+   *
+   * @param id
+   *          the job identifier
+   * @return the archived job or <code>null</code> if the job has not been archived
+   * @throws ServiceRegistryException
+   *           if the archived job cannot be read
+   */
+  private Job getArchivedJob(long id) throws ServiceRegistryException {
+    EntityManager em = null;
+    try {
+      em = emf.createEntityManager();
+      JpaArchivedJob archivedJob = em.find(JpaArchivedJob.class, id);
+      if (archivedJob == null)
+        return null;
+      return archivedJob.toJob();
+    } catch (Exception e) {
+      throw new ServiceRegistryException(e);
+    } finally {
+      if (em != null)
+        em.close();
+    }
+  }
+
+  /**
+   * Moves terminated jobs which completed before the given date to the job archive. Jobs are only archived along with
+   * all of their descendants. The jobs of workflow instances and workflow operations are never archived, since the
+   * workflow service relies on them.
+   *
+   * @param completedBefore
+   *          the date before which the jobs must have been completed
+   * @return the number of archived jobs
+   * @throws ServiceRegistryException
+   *           if moving the jobs fails
+   */
+  int archiveJobs(Date completedBefore) throws ServiceRegistryException {
+    int archived = 0;
+    long afterId = Long.MIN_VALUE;
+    List<Long> ids;
+    do {
+      ids = getArchivableJobs(completedBefore, afterId, JOBS_ARCHIVE_BATCH_SIZE);
+      if (ids.isEmpty())
+        break;
+      archived += archiveJobTrees(completedBefore, ids);
+      afterId = ids.get(ids.size() - 1);
+    } while (ids.size() == JOBS_ARCHIVE_BATCH_SIZE && !Thread.currentThread().isInterrupted());
+    return archived;
+  }
+
+  /**
+   * Gets the terminated jobs which completed before the given date and which head a job tree that may be archived.
+   * These are the jobs without a parent and the jobs created by workflow operations.
+   *
+   * @param completedBefore
+   *          the date before which the jobs must have been completed
+   * @param afterId
+   *          the identifier after which to start
+   * @param limit
+   *          the maximum number of jobs
+   * @return the job identifiers in ascending order
+   * @throws ServiceRegistryException
+   *           if the jobs cannot be read
+   */
+  private List<Long> getArchivableJobs(Date completedBefore, long afterId, int limit)
+          throws ServiceRegistryException {
+    EntityManager em = null;
+    try {
+      em = emf.createEntityManager();
+      TypedQuery<Long> query = em.createNamedQuery("Job.archivable", Long.class);
+      query.setParameter("afterId", afterId);
+      query.setParameter("statuses", getTerminatedStatuses());
+      query.setParameter("completedBefore", completedBefore, TemporalType.TIMESTAMP);
+      query.setParameter("excludedType", TYPE_WORKFLOW);
+      query.setMaxResults(limit);
+      return query.getResultList();
+    } catch (Exception e) {
+      throw new ServiceRegistryException(e);
+    } finally {
+      if (em != null)
+        em.close();
+    }
+  }
+
+  /**
+   * Moves the given jobs to the job archive along with all of their descendants. A job tree is skipped if any of its
+   * jobs is still in use or has incidents, since the incidents of a job are removed along with it. The run and queue
+   * times of finished jobs are added to the statistics rollups, so the service statistics remain unchanged.
+   *
+   * @param completedBefore
+   *          the date before which the jobs must have been completed
+   * @param ids
+   *          the identifiers of the jobs heading the job trees
+   * @return the number of archived jobs
+   * @throws ServiceRegistryException
+   *           if moving the jobs fails
+   */
+  private int archiveJobTrees(Date completedBefore, List<Long> ids) throws ServiceRegistryException {
+    EntityManager em = null;
+    EntityTransaction tx = null;
+    try {
+      em = emf.createEntityManager();
+      tx = em.getTransaction();
+      tx.begin();
+      TypedQuery<JpaJob> query = em.createNamedQuery("Job.ids", JpaJob.class);
+      query.setParameter("ids", ids);
+      List<JpaJob> heads = query.getResultList();
+
+      // Identifiers are not handed out in creation order across a cluster, so the trees are walked by parent
+      Map<Long, List<JpaJob>> children = new HashMap<Long, List<JpaJob>>();
+      Set<Long> treeIds = new HashSet<Long>(ids);
+      List<Long> parentIds = new ArrayList<Long>(ids);
+      while (!parentIds.isEmpty()) {
+        query = em.createNamedQuery("Job.parents.children", JpaJob.class);
+        query.setParameter("ids", parentIds);
+        parentIds = new ArrayList<Long>();
+        for (JpaJob child : query.getResultList()) {
+          if (!treeIds.add(child.getId()))
+            continue;
+          List<JpaJob> siblings = children.get(child.getParentJob().getId());
+          if (siblings == null) {
+            siblings = new ArrayList<JpaJob>();
+            children.put(child.getParentJob().getId(), siblings);
+          }
+          siblings.add(child);
+          parentIds.add(child.getId());
+        }
+      }
+
+      // Removing a root job removes all jobs referring to it as their root, so they must all belong to its tree
+      List<Long> rootIds = new ArrayList<Long>();
+      for (JpaJob head : heads) {
+        if (head.getRootJob() == null)
+          rootIds.add(head.getId());
+      }
+      Set<Long> detachedRootIds = new HashSet<Long>();
+      if (!rootIds.isEmpty()) {
+        query = em.createNamedQuery("Job.roots.children", JpaJob.class);
+        query.setParameter("ids", rootIds);
+        for (JpaJob job : query.getResultList()) {
+          if (!treeIds.contains(job.getId()))
+            detachedRootIds.add(job.getRootJob().getId());
+        }
+      }
+
+      // Removing a job removes its incidents as well, so jobs with incidents are kept
+      Set<Long> incidentJobIds = new HashSet<Long>();
+      List<Long> jobIds = new ArrayList<Long>(treeIds);
+      for (int i = 0; i < jobIds.size(); i += JOBS_ARCHIVE_BATCH_SIZE) {
+        TypedQuery<Long> incidentQuery = em.createNamedQuery("Incident.findJobIdsByJobIds", Long.class);
+        incidentQuery.setParameter("jobIds",
+                new ArrayList<Long>(jobIds.subList(i, Math.min(i + JOBS_ARCHIVE_BATCH_SIZE, jobIds.size()))));
+        incidentJobIds.addAll(incidentQuery.getResultList());
+      }
+
+      int archived = 0;
+      Map<String, JpaJobStatisticsRollup> rollups = new HashMap<String, JpaJobStatisticsRollup>();
+      // Finished jobs stay in the service statistics by means of the rollups, all others leave them
+      List<JpaJob> leavingStatistics = new ArrayList<JpaJob>();
+      for (JpaJob head : heads) {
+        List<JpaJob> tree = new ArrayList<JpaJob>();
+        tree.add(head);
+        for (int i = 0; i < tree.size(); i++) {
+          List<JpaJob> jobChildren = children.get(tree.get(i).getId());
+          if (jobChildren != null)
+            tree.addAll(jobChildren);
+        }
+        if (detachedRootIds.contains(head.getId()) || !isArchivable(tree, completedBefore, incidentJobIds)) {
+          logger.debug("Job tree of {} cannot be archived yet", head.getId());
+          continue;
+        }
+
+        // The tree is built top down, so walking it backwards removes the children before their parents
+        for (int i = tree.size() - 1; i >= 0; i--) {
+          JpaJob jpaJob = tree.get(i);
+          Job job = jpaJob.toJob();
+          em.persist(JpaArchivedJob.from(job));
+          if (Status.FINISHED.equals(job.getStatus()) && jpaJob.getProcessorServiceRegistration() != null
+                  && job.getDateCreated() != null) {
+            getStatisticsRollup(em, rollups, jpaJob.getProcessorServiceRegistration().getId(), job.getDateCreated())
+                    .add(job.getQueueTime(), job.getRunTime());
+          } else {
+            leavingStatistics.add(jpaJob);
+          }
+          em.remove(jpaJob);
+          em.flush();
+        }
+        archived += tree.size();
+      }
+      tx.commit();
+      for (JpaJob jpaJob : leavingStatistics) {
+        trackServiceStatistics(JobState.of(jpaJob), null, jpaJob.getDateCreated());
+      }
+      return archived;
+    } catch (Exception e) {
+      if (tx != null && tx.isActive()) {
+        tx.rollback();
+      }
+      throw new ServiceRegistryException(e);
+    } finally {
+      if (em != null)
+        em.close();
+    }
+  }
+
+  /**
+   * Returns whether all jobs of a job tree terminated before the given date and may be archived.
+   *
+   * @param tree
+   *          the jobs of the tree
+   * @param completedBefore
+   *          the date before which the jobs must have been completed
+   * @param incidentJobIds
+   *          the identifiers of the jobs with incidents
+   * @return <code>true</code> if the tree may be archived
+   */
+  private static boolean isArchivable(List<JpaJob> tree, Date completedBefore, Set<Long> incidentJobIds) {
+    for (JpaJob job : tree) {
+      if (!job.getStatus().isTerminated() || job.getDateCompleted() == null
+              || !job.getDateCompleted().before(completedBefore) || incidentJobIds.contains(job.getId())
+              || job.getCreatorServiceRegistration() == null
+              || TYPE_WORKFLOW.equals(job.getCreatorServiceRegistration().getServiceType()))
+        return false;
+    }
+    return true;
+  }
+
+  /** Returns the ordinals of the terminated job states */
+  private static List<Integer> getTerminatedStatuses() {
+    List<Integer> statuses = new ArrayList<Integer>();
+    for (Status status : Status.values()) {
+      if (status.isTerminated())
+        statuses.add(status.ordinal());
+    }
+    return statuses;
+  }
+
+
+  /**
+   * Gets the statistics rollup of a service registration for the day a job was created, creating it if necessary.
+   */
+  private JpaJobStatisticsRollup getStatisticsRollup(EntityManager em, Map<String, JpaJobStatisticsRollup> rollups,
+          long serviceRegistrationId, Date dateCreated) {
+    Date rollupDate = DateUtils.truncate(dateCreated, Calendar.DATE);
+    String key = serviceRegistrationId + "/" + rollupDate.getTime();
+    JpaJobStatisticsRollup rollup = rollups.get(key);
+    if (rollup == null) {
+      TypedQuery<JpaJobStatisticsRollup> query = em.createNamedQuery("JobStatisticsRollup.find",
+              JpaJobStatisticsRollup.class);
+      query.setParameter("serviceRegistration", serviceRegistrationId);
+      query.setParameter("rollupDate", rollupDate, TemporalType.DATE);
+      List<JpaJobStatisticsRollup> existing = query.getResultList();
+      if (existing.isEmpty()) {
+        rollup = new JpaJobStatisticsRollup(serviceRegistrationId, rollupDate);
+        em.persist(rollup);
+      } else {
+        rollup = existing.get(0);
+      }
+      rollups.put(key, rollup);
+    }
+    return rollup;
   }
 
   /**
@@ -930,6 +1352,27 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
    * @throws IllegalArgumentException
    */
   protected JpaJob updateInternal(EntityManager em, JpaJob job) throws PersistenceException {
+    return updateInternal(em, job, null);
+  }
+
+  /**
+   * Internal method to update a job, throwing unwrapped JPA exceptions.
+   * <p>
+   * If <code>job</code> is managed by <code>em</code>, the job found in the database is the very same instance, which
+   * already carries the modifications. Callers doing so have to pass the state of the job as it has been persisted
+   * before, otherwise the transition is lost to the service statistics.
+   *
+   * @param em
+   *          the current entity manager
+   * @param job
+   *          the job to update
+   * @param before
+   *          the persisted state of the job, or <code>null</code> to take it from the database
+   * @return the updated job
+   * @throws PersistenceException
+   *           if there is an exception thrown while persisting the job via JPA
+   */
+  protected JpaJob updateInternal(EntityManager em, JpaJob job, JobState before) throws PersistenceException {
     EntityTransaction tx = em.getTransaction();
     try {
       tx.begin();
@@ -937,10 +1380,14 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       if (fromDb == null) {
         throw new NoResultException();
       }
+      if (before == null)
+        before = JobState.of(fromDb);
       update(fromDb, job);
 
       em.merge(fromDb);
       tx.commit();
+      trackHostLoad(fromDb);
+      trackServiceStatistics(before, JobState.of(fromDb), fromDb.getDateCreated());
       job.setVersion(fromDb.toJob().getVersion());
       setJobUri(job);
       return job;
@@ -980,6 +1427,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       fromDb.setErrorStateTrigger(registration.getErrorStateTrigger());
       tx.commit();
       servicesStatistics.updateService(registration);
+      listeners.fire(registration.getServiceType());
       return registration;
     } catch (PersistenceException e) {
       if (tx.isActive()) {
@@ -1106,6 +1554,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       logger.info("Registering {} with a maximum load of {}", host, maxLoad);
       tx.commit();
       hostsStatistics.updateHost(hostRegistration);
+      listeners.fire(null);
     } catch (Exception e) {
       if (tx != null && tx.isActive()) {
         tx.rollback();
@@ -1144,6 +1593,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       logger.info("Unregistering {}", host);
       tx.commit();
       hostsStatistics.updateHost(existingHostRegistration);
+      listeners.fire(null);
     } catch (Exception e) {
       if (tx != null && tx.isActive()) {
         tx.rollback();
@@ -1187,6 +1637,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       }
       tx.commit();
       hostsStatistics.updateHost(hostRegistration);
+      listeners.fire(null);
     } catch (NotFoundException e) {
       throw e;
     } catch (Exception e) {
@@ -1229,6 +1680,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       logger.info("Disabling {}", host);
       tx.commit();
       hostsStatistics.updateHost(hostRegistration);
+      listeners.fire(null);
     } catch (NotFoundException e) {
       throw e;
     } catch (Exception e) {
@@ -1332,6 +1784,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       tx.commit();
       hostsStatistics.updateHost(hostRegistration);
       servicesStatistics.updateService(registration);
+      listeners.fire(serviceType);
       return registration;
     } catch (Exception e) {
       if (tx != null && tx.isActive()) {
@@ -1389,6 +1842,8 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         }
       }
       tx.commit();
+      hostLoadLedger.invalidate();
+      serviceStatisticsLedger.invalidate();
     } catch (Exception e) {
       logger.error("Unable to clean undispatchable jobs! {}", e.getMessage());
       if (tx != null && tx.isActive()) {
@@ -1455,6 +1910,8 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         em.merge(job);
       }
       tx.commit();
+      hostLoadLedger.invalidate();
+      serviceStatisticsLedger.invalidate();
     } catch (Exception e) {
       if (tx != null && tx.isActive()) {
         tx.rollback();
@@ -1506,6 +1963,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
       em.merge(reg);
       tx.commit();
       hostsStatistics.updateHost(reg);
+      listeners.fire(null);
     } catch (RollbackException e) {
       if (tx != null && tx.isActive()) {
         tx.rollback();
@@ -1638,6 +2096,68 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     return resultJobs;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * The descendants are found by loading the job trees of the root jobs of all requested jobs in one query and
+   * filtering them in memory, so the number of queries does not depend on the depth or size of the trees.
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#getJobsWithDescendants(java.util.List)
+   */
+  @Override
+  public List<Job> getJobsWithDescendants(List<Long> ids) throws ServiceRegistryException {
+    if (ids.isEmpty())
+      return new ArrayList<Job>();
+
+    EntityManager em = null;
+    try {
+      em = emf.createEntityManager();
+      TypedQuery<JpaJob> query = em.createNamedQuery("Job.ids", JpaJob.class);
+      query.setParameter("ids", ids);
+      List<Job> jobs = $(query.getResultList()).map(fnSetJobUri()).map(fnToJob()).toList();
+      if (jobs.isEmpty())
+        return jobs;
+
+      Set<Long> included = new HashSet<Long>();
+      Set<Long> rootIds = new HashSet<Long>();
+      for (Job job : jobs) {
+        included.add(job.getId());
+        rootIds.add(job.getRootJobId() == null ? job.getId() : job.getRootJobId());
+      }
+
+      // Identifiers are not handed out in creation order across a cluster, so the children are looked up by parent
+      query = em.createNamedQuery("Job.roots.children", JpaJob.class);
+      query.setParameter("ids", new ArrayList<Long>(rootIds));
+      Map<Long, List<Job>> children = new HashMap<Long, List<Job>>();
+      for (Job job : $(query.getResultList()).map(fnSetJobUri()).map(fnToJob()).toList()) {
+        List<Job> siblings = children.get(job.getParentJobId());
+        if (siblings == null) {
+          siblings = new ArrayList<Job>();
+          children.put(job.getParentJobId(), siblings);
+        }
+        siblings.add(job);
+      }
+
+      // Collect the descendants of the requested jobs breadth first
+      List<Job> result = new ArrayList<Job>(jobs);
+      for (int i = 0; i < result.size(); i++) {
+        List<Job> jobChildren = children.get(result.get(i).getId());
+        if (jobChildren == null)
+          continue;
+        for (Job child : jobChildren) {
+          if (included.add(child.getId()))
+            result.add(child);
+        }
+      }
+      return result;
+    } catch (Exception e) {
+      throw new ServiceRegistryException(e);
+    } finally {
+      if (em != null)
+        em.close();
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -1706,6 +2226,157 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#getActiveJobs(JobQuery)
+   */
+  @Override
+  public List<Job> getActiveJobs(JobQuery query) throws ServiceRegistryException {
+    EntityManager em = null;
+    try {
+      em = emf.createEntityManager();
+      CriteriaBuilder cb = em.getCriteriaBuilder();
+      CriteriaQuery<Object[]> q = cb.createQuery(Object[].class);
+      Root<JpaJob> job = q.from(JpaJob.class);
+      Path<String> type = job.join("creatorServiceRegistration", JoinType.LEFT).get("serviceType");
+      Path<String> host = job.join("processorServiceRegistration", JoinType.LEFT)
+              .join("hostRegistration", JoinType.LEFT).get("baseUrl");
+      Path<Long> rootJobId = job.join("rootJob", JoinType.LEFT).get("id");
+
+      Path<?> sortPath;
+      switch (query.getSort()) {
+        case CREATOR:
+          sortPath = job.get("creator");
+          break;
+        case OPERATION:
+          sortPath = job.get("operation");
+          break;
+        case PROCESSINGHOST:
+          sortPath = host;
+          break;
+        case STARTED:
+          sortPath = job.get("dateStarted");
+          break;
+        case STATUS:
+          sortPath = job.get("status");
+          break;
+        case TYPE:
+          sortPath = type;
+          break;
+        case SUBMITTED:
+        default:
+          sortPath = job.get("dateCreated");
+      }
+
+      q.multiselect(job.get("id"), job.get("creator"), job.get("organization"), type, job.get("operation"),
+              job.get("status"), host, job.get("dateCreated"), job.get("dateStarted"), rootJobId);
+      q.where(getActiveJobsFilter(cb, job, type, host, rootJobId, query));
+      q.orderBy(query.isAscending() ? cb.asc(sortPath) : cb.desc(sortPath), cb.asc(job.get("id")));
+
+      TypedQuery<Object[]> typedQuery = em.createQuery(q);
+      typedQuery.setFirstResult(query.getOffset());
+      if (query.getLimit() > 0)
+        typedQuery.setMaxResults(query.getLimit());
+
+      List<Job> jobs = new ArrayList<>();
+      for (Object[] row : typedQuery.getResultList()) {
+        jobs.add(new JobImpl((Long) row[0], (String) row[1], (String) row[2], 0, (String) row[3], (String) row[4],
+                null, Status.values()[(Integer) row[5]], null, (String) row[6], (Date) row[7], (Date) row[8], null,
+                null, null, null, null, (Long) row[9], false, null, null, null, null));
+      }
+      return jobs;
+    } catch (Exception e) {
+      throw new ServiceRegistryException(e);
+    } finally {
+      if (em != null)
+        em.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.serviceregistry.api.ServiceRegistry#countActiveJobs(JobQuery)
+   */
+  @Override
+  public long countActiveJobs(JobQuery query) throws ServiceRegistryException {
+    EntityManager em = null;
+    try {
+      em = emf.createEntityManager();
+      CriteriaBuilder cb = em.getCriteriaBuilder();
+      CriteriaQuery<Long> q = cb.createQuery(Long.class);
+      Root<JpaJob> job = q.from(JpaJob.class);
+      Path<String> type = job.join("creatorServiceRegistration", JoinType.LEFT).get("serviceType");
+      Path<String> host = job.join("processorServiceRegistration", JoinType.LEFT)
+              .join("hostRegistration", JoinType.LEFT).get("baseUrl");
+      Path<Long> rootJobId = job.join("rootJob", JoinType.LEFT).get("id");
+      q.select(cb.count(job));
+      q.where(getActiveJobsFilter(cb, job, type, host, rootJobId, query));
+      return em.createQuery(q).getSingleResult();
+    } catch (Exception e) {
+      throw new ServiceRegistryException(e);
+    } finally {
+      if (em != null)
+        em.close();
+    }
+  }
+
+  /**
+   * Creates the restriction selecting the active jobs which match the filters of a job query.
+   *
+   * @param cb
+   *          the criteria builder
+   * @param job
+   *          the job root
+   * @param type
+   *          the path to the job type
+   * @param host
+   *          the path to the processing host
+   * @param rootJobId
+   *          the path to the root job identifier
+   * @param query
+   *          the query
+   * @return the restriction
+   */
+  private Predicate getActiveJobsFilter(CriteriaBuilder cb, Root<JpaJob> job, Path<String> type, Path<String> host,
+          Path<Long> rootJobId, JobQuery query) {
+    List<Integer> activeStatuses = new ArrayList<>();
+    for (Status status : Status.values()) {
+      if (status.isActive())
+        activeStatuses.add(status.ordinal());
+    }
+    Path<Integer> status = job.get("status");
+    Path<String> operation = job.get("operation");
+
+    List<Predicate> predicates = new ArrayList<>();
+    predicates.add(status.in(activeStatuses));
+    for (Tuple<String, String> excluded : query.getExcludedOperations()) {
+      predicates.add(cb.or(cb.notEqual(type, excluded.getA()), cb.notEqual(operation, excluded.getB()),
+              cb.isNull(operation)));
+    }
+    if (query.getProcessingHost() != null)
+      predicates.add(cb.equal(cb.lower(host), query.getProcessingHost().toLowerCase()));
+    if (query.getStatus() != null)
+      predicates.add(cb.equal(status, query.getStatus().ordinal()));
+    if (query.getText() != null) {
+      String text = query.getText().toLowerCase();
+      List<Predicate> textPredicates = new ArrayList<>();
+      textPredicates.add(cb.equal(cb.lower(host), text));
+      textPredicates.add(cb.equal(cb.lower(type), text));
+      textPredicates.add(cb.equal(cb.lower(operation), text));
+      textPredicates.add(cb.equal(cb.lower(job.<String> get("creator")), text));
+      if (query.getTextAsStatus() != null)
+        textPredicates.add(cb.equal(status, query.getTextAsStatus().ordinal()));
+      if (query.getTextAsId() != null) {
+        textPredicates.add(cb.equal(job.get("id"), query.getTextAsId()));
+        textPredicates.add(cb.equal(rootJobId, query.getTextAsId()));
+      }
+      predicates.add(cb.or(textPredicates.toArray(new Predicate[textPredicates.size()])));
+    }
+    return cb.and(predicates.toArray(new Predicate[predicates.size()]));
+  }
+
   /**
    * Get the list of jobs with status from the given statuses.
    *
@@ -1960,78 +2631,27 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
    */
   @Override
   public List<ServiceStatistics> getServiceStatistics() throws ServiceRegistryException {
-    Date now = new Date();
-    return getServiceStatistics(
-             DateUtils.addDays(now, -maxJobAge),
-             DateUtils.addDays(now, 1)); // Avoid glitches around 'now' by setting the endDate to 'tomorrow'
-  }
-
-  /**
-   * Gets performance and runtime statistics for each known service registration.
-   * For the statistics, only jobs created within the time interval [startDate, endDate] are being considered
-   *
-   * @param startDate
-   *          Only jobs created after this data are considered for statistics
-   * @param endDate
-   *          Only jobs created before this data are considered for statistics
-   * @return the service statistics
-   * @throws ServiceRegistryException
-   *           if there is a problem accessing the service registry
-   */
-  private List<ServiceStatistics> getServiceStatistics(Date startDate, Date endDate) throws ServiceRegistryException {
     EntityManager em = null;
     try {
       em = emf.createEntityManager();
-      Map<Long, JaxbServiceStatistics> statsMap = new HashMap<Long, JaxbServiceStatistics>();
+      if (serviceStatisticsLedger.isDirty())
+        rebuildServiceStatisticsLedger(em);
 
-      // Make sure we also include the services that have no processing history so far
+      // The registrations are read on every call, since their state may change at any time
       List<ServiceRegistrationJpaImpl> services = em.createNamedQuery("ServiceRegistration.getAll").getResultList();
-      for (ServiceRegistrationJpaImpl s : services) {
-        statsMap.put(s.getId(), new JaxbServiceStatistics(s));
+      List<ServiceStatistics> stats = new ArrayList<ServiceStatistics>(services.size());
+      for (ServiceRegistrationJpaImpl service : services) {
+        ServiceStatisticsLedger.Counters counters = serviceStatisticsLedger.get(service.getId());
+        JaxbServiceStatistics serviceStats = new JaxbServiceStatistics(service);
+        serviceStats.setRunningJobs(counters.getRunningJobs());
+        serviceStats.setQueuedJobs(counters.getQueuedJobs());
+        serviceStats.setFinishedJobs(counters.getFinishedJobs());
+        serviceStats.setFailedJobs(counters.getFailedJobs());
+        serviceStats.setMeanQueueTime(counters.getMeanQueueTime());
+        serviceStats.setMeanRunTime(counters.getMeanRunTime());
+        stats.add(serviceStats);
       }
 
-      Query query = em.createNamedQuery("ServiceRegistration.statistics");
-      query.setParameter("minDateCreated", startDate, TemporalType.TIMESTAMP);
-      query.setParameter("maxDateCreated", endDate, TemporalType.TIMESTAMP);
-
-      List queryResults = query.getResultList();
-      for (Object result : queryResults) {
-        Object[] oa = (Object[]) result;
-        Number serviceRegistrationId = ((Number) oa[0]);
-        if (serviceRegistrationId == null || serviceRegistrationId.longValue() == 0)
-          continue;
-        Status status = Status.values()[((Number) oa[1]).intValue()];
-        Number count = (Number) oa[2];
-        Number meanQueueTime = (Number) oa[3];
-        Number meanRunTime = (Number) oa[4];
-
-        // The statistics query returns a cartesian product, so we need to iterate over them to build up the objects
-        JaxbServiceStatistics stats = statsMap.get(serviceRegistrationId.longValue());
-        if (stats == null)
-          continue;
-
-        // the status will be null if there are no jobs at all associated with this service registration
-        if (status != null) {
-          switch (status) {
-            case RUNNING:
-              stats.setRunningJobs(count.intValue());
-              break;
-            case QUEUED:
-            case DISPATCHING:
-              stats.setQueuedJobs(count.intValue());
-              break;
-            case FINISHED:
-              stats.setMeanRunTime(meanRunTime.longValue());
-              stats.setMeanQueueTime(meanQueueTime.longValue());
-              stats.setFinishedJobs(count.intValue());
-              break;
-            default:
-              break;
-          }
-        }
-      }
-
-      List<ServiceStatistics> stats = new ArrayList<ServiceStatistics>(statsMap.values());
       Collections.sort(stats, new Comparator<ServiceStatistics>() {
         @Override
         public int compare(ServiceStatistics o1, ServiceStatistics o2) {
@@ -2051,6 +2671,56 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     }
   }
 
+  /**
+   * Rebuilds the service statistics ledger from the jobs in the database. Only jobs created within the last
+   * {@link #maxJobAge} days are considered.
+   *
+   * @param em
+   *          the entity manager
+   */
+  void rebuildServiceStatisticsLedger(EntityManager em) {
+    synchronized (serviceStatisticsLedgerRebuildLock) {
+      Date now = new Date();
+      Date startDate = DateUtils.addDays(now, -maxJobAge);
+      // Avoid glitches around 'now' by setting the endDate to 'tomorrow'
+      Date endDate = DateUtils.addDays(now, 1);
+      Map<Long, ServiceStatisticsLedger.Counters> counters = new HashMap<Long, ServiceStatisticsLedger.Counters>();
+
+      Query query = em.createNamedQuery("ServiceRegistration.statistics");
+      query.setParameter("minDateCreated", startDate, TemporalType.TIMESTAMP);
+      query.setParameter("maxDateCreated", endDate, TemporalType.TIMESTAMP);
+      for (Object result : query.getResultList()) {
+        Object[] oa = (Object[]) result;
+        Number serviceRegistrationId = (Number) oa[0];
+        // the status will be null if there are no jobs at all associated with this service registration
+        if (serviceRegistrationId == null || serviceRegistrationId.longValue() == 0 || oa[1] == null)
+          continue;
+        Status status = Status.values()[((Number) oa[1]).intValue()];
+        long count = ((Number) oa[2]).longValue();
+        Number meanQueueTime = (Number) oa[3];
+        Number meanRunTime = (Number) oa[4];
+        ServiceStatisticsLedger.getCounters(counters, serviceRegistrationId.longValue()).add(status, count,
+                meanQueueTime == null ? 0 : Math.round(meanQueueTime.doubleValue() * count),
+                meanRunTime == null ? 0 : Math.round(meanRunTime.doubleValue() * count));
+      }
+
+      // Add the finished jobs which have been moved to the job archive
+      Query rollupQuery = em.createNamedQuery("JobStatisticsRollup.statistics");
+      rollupQuery.setParameter("minDate", DateUtils.truncate(startDate, Calendar.DATE), TemporalType.DATE);
+      rollupQuery.setParameter("maxDate", endDate, TemporalType.DATE);
+      for (Object result : rollupQuery.getResultList()) {
+        Object[] oa = (Object[]) result;
+        long archivedJobs = ((Number) oa[1]).longValue();
+        if (archivedJobs == 0)
+          continue;
+        ServiceStatisticsLedger.getCounters(counters, ((Number) oa[0]).longValue()).add(Status.FINISHED,
+                archivedJobs, ((Number) oa[2]).longValue(), ((Number) oa[3]).longValue());
+      }
+
+      serviceStatisticsLedger.rebuild(counters);
+    }
+  }
+
   /**
    * Do not look at this, it will burn your eyes! This is due to JPA's inability to do a left outer join with join
    * conditions.
@@ -2064,9 +2734,15 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     EntityManager em = null;
     try {
       em = emf.createEntityManager();
-      SystemLoad loadByHost = getHostLoads(em, true);
-      List<HostRegistration> hostRegistrations = getHostRegistrations();
-      List<ServiceRegistration> serviceRegistrations = getServiceRegistrationsByType(serviceType);
+      // Fetch the registrations once, both for the host loads and for choosing the services
+      List<ServiceRegistration> allRegistrations = getServiceRegistrations(em);
+      List<HostRegistration> hostRegistrations = getHostRegistrations(em);
+      SystemLoad loadByHost = getHostLoads(em, true, allRegistrations, hostRegistrations);
+      List<ServiceRegistration> serviceRegistrations = new ArrayList<ServiceRegistration>();
+      for (ServiceRegistration registration : allRegistrations) {
+        if (serviceType.equals(registration.getServiceType()))
+          serviceRegistrations.add(registration);
+      }
       return getServiceRegistrationsByLoad(serviceType, serviceRegistrations, hostRegistrations, loadByHost);
     } finally {
       if (em != null)
@@ -2101,37 +2777,49 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
    * @return the map of hosts to job counts
    */
   SystemLoad getHostLoads(EntityManager em, boolean activeOnly) {
+    return getHostLoads(em, activeOnly, getServiceRegistrations(em), getHostRegistrations(em));
+  }
+
+  /**
+   * Gets a map of hosts to the number of jobs currently loading that host, based on service and host registrations the
+   * caller has already fetched.
+   *
+   * @param em
+   *          the entity manager
+   * @param activeOnly
+   *          if true, the map will include only hosts that are online and have non-maintenance mode services
+   * @param serviceRegistrations
+   *          all service registrations
+   * @param hostRegistrations
+   *          all host registrations
+   * @return the map of hosts to job counts
+   */
+  SystemLoad getHostLoads(EntityManager em, boolean activeOnly, List<ServiceRegistration> serviceRegistrations,
+          List<HostRegistration> hostRegistrations) {
     final SystemLoad systemLoad = new SystemLoad();
 
-    // Find all jobs that are currently running on any given host, or get all of them
-    Query q = em.createNamedQuery("ServiceRegistration.hostloads");
-    List<Integer> statuses = new LinkedList<Integer>();
-    for (Status status : JOB_STATUSES_INFLUENCING_LOAD_BALANCING) {
-      statuses.add(status.ordinal());
+    // The ledger tracks the jobs currently running on any given host, unless it lost track of some of them
+    if (hostLoadLedger.isDirty()) {
+      rebuildHostLoadLedger(em);
     }
-    q.setParameter("statuses", statuses);
+    Map<Long, Float> registrationLoads = hostLoadLedger.getRegistrationLoads();
 
-    // Accumulate the numbers for relevant job statuses per host
-    for (Object result : q.getResultList()) {
-      Object[] resultArray = (Object[]) result;
-      ServiceRegistrationJpaImpl service = (ServiceRegistrationJpaImpl) resultArray[0];
+    // Accumulate the load of the relevant service registrations per host
+    for (ServiceRegistration registration : serviceRegistrations) {
+      ServiceRegistrationJpaImpl service = (ServiceRegistrationJpaImpl) registration;
+      Float load = registrationLoads.get(service.getId());
+      if (load == null)
+        continue;
 
       // Workflow related jobs are not counting. Workflows are load balanced by the workflow service directly
       if (TYPE_WORKFLOW.equals(service.getServiceType()))
         continue;
 
-      Status status = Status.values()[(int) resultArray[1]];
-      float load = ((Number) resultArray[2]).floatValue();
-
-      if (activeOnly && (service.isInMaintenanceMode() || !service.isOnline())) {
+      // Jobs of offline, inactive or maintenance services are not counted
+      if (!service.isOnline() || !service.isActive() || service.isInMaintenanceMode()) {
         continue;
       }
 
-      // Only queued, running and dispatching jobs are adding to the load, so every other status is discarded
-      if (status == null || !JOB_STATUSES_INFLUENCING_LOAD_BALANCING.contains(status)) {
-        load = 0.0f;
-      }
-
       String host = service.getHost();
 
       // Add the service registration
@@ -2147,7 +2835,7 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     }
 
     // This is important, otherwise services which have no current load are not listed in the output!
-    for (HostRegistration h : getHostRegistrations(em)) {
+    for (HostRegistration h : hostRegistrations) {
       if (!systemLoad.containsHost(h.getBaseUrl())) {
         systemLoad.addNodeLoad(new NodeLoad(h.getBaseUrl(), 0.0f));
       }
@@ -2156,6 +2844,87 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     return systemLoad;
   }
 
+  /**
+   * Returns the ledger of the load that jobs currently put on the hosts and services.
+   *
+   * @return the host load ledger
+   */
+  public HostLoadsMXBean getHostLoadLedger() {
+    return hostLoadLedger;
+  }
+
+  /**
+   * Rebuilds the host load ledger from the jobs in the database.
+   *
+   * @param em
+   *          the entity manager
+   * @return <code>true</code> if the ledger was supposed to be up to date but differed from the database
+   */
+  boolean rebuildHostLoadLedger(EntityManager em) {
+    synchronized (hostLoadLedgerRebuildLock) {
+      hostLoadLedger.startRebuild();
+      TypedQuery<Object[]> query = em.createNamedQuery("Job.processorLoads", Object[].class);
+      query.setParameter("statuses", getLoadInfluencingStatuses());
+      return hostLoadLedger.finishRebuild(query.getResultList());
+    }
+  }
+
+  /**
+   * Compares the host load ledger with a fingerprint of the jobs in the database and rebuilds it if the two differ.
+   * The fingerprint is a single aggregate over the load influencing jobs, which is much cheaper than a rebuild.
+   *
+   * @param em
+   *          the entity manager
+   * @return <code>true</code> if the ledger differed from the database
+   */
+  boolean reconcileHostLoadLedger(EntityManager em) {
+    TypedQuery<Object[]> query = em.createNamedQuery("Job.processorLoads.fingerprint", Object[].class);
+    query.setParameter("statuses", getLoadInfluencingStatuses());
+    if (hostLoadLedger.matches(query.getSingleResult()))
+      return false;
+    return rebuildHostLoadLedger(em);
+  }
+
+  /**
+   * Returns the ordinals of the job statuses adding to the load of a host.
+   *
+   * @return the status ordinals
+   */
+  private List<Integer> getLoadInfluencingStatuses() {
+    List<Integer> statuses = new ArrayList<Integer>();
+    for (Status status : JOB_STATUSES_INFLUENCING_LOAD_BALANCING) {
+      statuses.add(status.ordinal());
+    }
+    return statuses;
+  }
+
+  /**
+   * Reports the state of a job which has just been persisted to the host load ledger.
+   *
+   * @param job
+   *          the persisted job
+   */
+  private void trackHostLoad(JpaJob job) {
+    hostLoadLedger.update(job.getId(), job.getStatus(), job.getProcessorServiceRegistration(), job.getJobLoad());
+  }
+
+  /**
+   * Reports a job status transition which has just been persisted to the service statistics ledger. Jobs created
+   * before the statistics period are ignored.
+   *
+   * @param before
+   *          the state of the job before the transition, or <code>null</code> if the job has just been created
+   * @param after
+   *          the state of the job after the transition, or <code>null</code> if the job has been removed
+   * @param dateCreated
+   *          the creation date of the job
+   */
+  private void trackServiceStatistics(JobState before, JobState after, Date dateCreated) {
+    if (dateCreated != null && dateCreated.before(DateUtils.addDays(new Date(), -maxJobAge)))
+      return;
+    serviceStatisticsLedger.update(before, after);
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -2467,6 +3236,16 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
     }
   }
 
+  @Override
+  public void addServiceRegistryListener(ServiceRegistryListener listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void removeServiceRegistryListener(ServiceRegistryListener listener) {
+    listeners.remove(listener);
+  }
+
   /**
    * Gets the failed jobs history for the given service registration
    *
@@ -2932,10 +3711,10 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
         // Start dispatching
         try {
-          SystemLoad systemLoad = getHostLoads(em, true);
           List<ServiceRegistration> services = getServiceRegistrations(em);
-          List<HostRegistration> hosts = $(getHostRegistrations(em)).filter(filterOutPriorityHosts._2(job.getId()))
-                  .toList();
+          List<HostRegistration> allHosts = getHostRegistrations(em);
+          SystemLoad systemLoad = getHostLoads(em, true, services, allHosts);
+          List<HostRegistration> hosts = $(allHosts).filter(filterOutPriorityHosts._2(job.getId())).toList();
           List<ServiceRegistration> candidateServices = null;
 
           // Depending on whether this running job is trying to reach out to other services or whether this is an
@@ -3025,6 +3804,9 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         throw new ServiceUnavailableException("No service of type " + job.getJobType() + " available");
       }
 
+      // The job may be managed by the entity manager, so its persisted state is tracked here rather than looked up
+      JobState persistedState = JobState.of(job);
+
       // Try the service registrations, after the first one finished, we quit;
       job.setStatus(Status.DISPATCHING);
 
@@ -3047,7 +3829,8 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
         }
 
         try {
-          job = updateInternal(em, job);
+          job = updateInternal(em, job, persistedState);
+          persistedState = JobState.of(job);
         } catch (Exception e) {
           // In theory, we should catch javax.persistence.OptimisticLockException. Unfortunately, eclipselink throws
           // org.eclipse.persistence.exceptions.OptimisticLockException. In order to avoid importing the implementation
@@ -3167,6 +3950,90 @@ public class ServiceRegistryJpaImpl implements ServiceRegistry, ManagedService {
 
   }
 
+  /** A periodic move of old terminated jobs to the job archive. */
+  class JobArchiver implements Runnable {
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+      Date completedBefore = DateUtils.addDays(new Date(), -jobsArchiveAge);
+      logger.debug("Archiving jobs terminated before {}", completedBefore);
+      int archived = 0;
+      try {
+        archived = archiveJobs(completedBefore);
+      } catch (Throwable t) {
+        logger.warn("Error archiving jobs", t);
+      }
+      if (archived > 0)
+        logger.info("Moved {} jobs terminated before {} to the job archive", archived, completedBefore);
+    }
+
+  }
+
+  /** A periodic reconciliation of the host load ledger with the jobs in the database. */
+  class HostLoadReconciler implements Runnable {
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+      // Nodes which don't dispatch jobs don't query the loads, the ledger is rebuilt should they ever be requested
+      if (!hostLoadLedger.pollRequested()) {
+        hostLoadLedger.invalidate();
+        return;
+      }
+      logger.debug("Reconciling the host load ledger");
+      EntityManager em = null;
+      try {
+        em = emf.createEntityManager();
+        reconcileHostLoadLedger(em);
+      } catch (Throwable t) {
+        logger.warn("Error reconciling the host load ledger", t);
+      } finally {
+        if (em != null)
+          em.close();
+      }
+    }
+
+  }
+
+  /** Regularly rebuilds the service statistics ledger from the database. */
+  class ServiceStatisticsReconciler implements Runnable {
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Runnable#run()
+     */
+    @Override
+    public void run() {
+      // Nodes which don't serve the statistics don't query them, the ledger is rebuilt should they ever be requested
+      if (!serviceStatisticsLedger.pollRequested()) {
+        serviceStatisticsLedger.invalidate();
+        return;
+      }
+      logger.debug("Reconciling the service statistics ledger");
+      EntityManager em = null;
+      try {
+        em = emf.createEntityManager();
+        rebuildServiceStatisticsLedger(em);
+      } catch (Throwable t) {
+        logger.warn("Error reconciling the service statistics ledger", t);
+      } finally {
+        if (em != null)
+          em.close();
+      }
+    }
+
+  }
+
   /** A periodic check on each service registration to ensure that it is still alive. */
   class JobProducerHeartbeat implements Runnable {
 
@@ -0,0 +1,267 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.serviceregistry.impl;
+
+import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.job.jpa.JpaJob;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory ledger of the job counters which make up the statistics of the service registrations.
+ * <p>
+ * Aggregating these counters over the whole job table is expensive, so the ledger is maintained incrementally from
+ * every job status transition made through this service registry. It is rebuilt from the database whenever it has
+ * been invalidated and regularly reconciled with it while the statistics are being requested, which picks up changes
+ * made by other nodes sharing the same database as well as jobs leaving the statistics period. Transitions made while
+ * a reconciliation is querying the database may be missed or counted twice until the next reconciliation.
+ */
+class ServiceStatisticsLedger {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(ServiceStatisticsLedger.class);
+
+  /** The counters per service registration identifier */
+  private Map<Long, Counters> counters = new HashMap<Long, Counters>();
+
+  /** Whether the ledger needs to be rebuilt before it can be used */
+  private boolean dirty = true;
+
+  /** Whether the counters have been requested since the last call to {@link #pollRequested()} */
+  private boolean requested = false;
+
+  /**
+   * Returns whether the ledger has to be rebuilt from the database before it can be used.
+   *
+   * @return <code>true</code> if the ledger is out of date
+   */
+  synchronized boolean isDirty() {
+    return dirty;
+  }
+
+  /**
+   * Marks the ledger as out of date, e.g. after jobs have been modified without being reported to the ledger.
+   */
+  synchronized void invalidate() {
+    dirty = true;
+  }
+
+  /**
+   * Records a job status transition.
+   *
+   * @param before
+   *          the state of the job before the transition, or <code>null</code> if the job has just been created
+   * @param after
+   *          the state of the job after the transition, or <code>null</code> if the job has been removed
+   */
+  synchronized void update(JobState before, JobState after) {
+    if (before != null && before.registrationId != null)
+      getCounters(counters, before.registrationId).add(before.status, -1, -before.queueTime, -before.runTime);
+    if (after != null && after.registrationId != null)
+      getCounters(counters, after.registrationId).add(after.status, 1, after.queueTime, after.runTime);
+  }
+
+  /**
+   * Replaces the content of the ledger by the given database state.
+   *
+   * @param rebuilt
+   *          the counters per service registration identifier as aggregated from the database
+   */
+  synchronized void rebuild(Map<Long, Counters> rebuilt) {
+    if (!dirty && !rebuilt.equals(counters))
+      logger.debug("Service statistics ledger differed from the database");
+    counters = rebuilt;
+    dirty = false;
+  }
+
+  /**
+   * Returns a copy of the counters of a service registration.
+   *
+   * @param registrationId
+   *          the service registration identifier
+   * @return the counters, which are all zero if no jobs have been recorded for the registration
+   */
+  synchronized Counters get(long registrationId) {
+    requested = true;
+    Counters result = new Counters();
+    Counters current = counters.get(registrationId);
+    if (current != null)
+      result.add(current);
+    return result;
+  }
+
+  /**
+   * Returns whether any counters have been requested since the last call of this method.
+   *
+   * @return <code>true</code> if the ledger is in use
+   */
+  synchronized boolean pollRequested() {
+    boolean result = requested;
+    requested = false;
+    return result;
+  }
+
+  /**
+   * Returns the counters of a service registration from the given map, adding them if necessary.
+   *
+   * @param counters
+   *          the counters per service registration identifier
+   * @param registrationId
+   *          the service registration identifier
+   * @return the counters
+   */
+  static Counters getCounters(Map<Long, Counters> counters, long registrationId) {
+    Counters result = counters.get(registrationId);
+    if (result == null) {
+      result = new Counters();
+      counters.put(registrationId, result);
+    }
+    return result;
+  }
+
+  /** The job counters of a single service registration */
+  static final class Counters {
+    private long running = 0;
+    private long queued = 0;
+    private long finished = 0;
+    private long failed = 0;
+    /** Summed up queue time of the finished jobs */
+    private long queueTime = 0;
+    /** Summed up run time of the finished jobs */
+    private long runTime = 0;
+
+    /**
+     * Adds jobs in the given status.
+     *
+     * @param status
+     *          the job status
+     * @param jobs
+     *          the number of jobs, negative to remove jobs
+     * @param totalQueueTime
+     *          the summed up queue time of the jobs, only considered for finished jobs
+     * @param totalRunTime
+     *          the summed up run time of the jobs, only considered for finished jobs
+     */
+    void add(Status status, long jobs, long totalQueueTime, long totalRunTime) {
+      switch (status) {
+        case RUNNING:
+          running += jobs;
+          break;
+        case QUEUED:
+        case DISPATCHING:
+          queued += jobs;
+          break;
+        case FINISHED:
+          finished += jobs;
+          queueTime += totalQueueTime;
+          runTime += totalRunTime;
+          break;
+        case FAILED:
+          failed += jobs;
+          break;
+        default:
+          break;
+      }
+    }
+
+    private void add(Counters other) {
+      running += other.running;
+      queued += other.queued;
+      finished += other.finished;
+      failed += other.failed;
+      queueTime += other.queueTime;
+      runTime += other.runTime;
+    }
+
+    int getRunningJobs() {
+      return (int) Math.max(0, running);
+    }
+
+    int getQueuedJobs() {
+      return (int) Math.max(0, queued);
+    }
+
+    int getFinishedJobs() {
+      return (int) Math.max(0, finished);
+    }
+
+    int getFailedJobs() {
+      return (int) Math.max(0, failed);
+    }
+
+    long getMeanQueueTime() {
+      return finished > 0 ? Math.max(0, queueTime / finished) : 0;
+    }
+
+    long getMeanRunTime() {
+      return finished > 0 ? Math.max(0, runTime / finished) : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Counters))
+        return false;
+      Counters other = (Counters) o;
+      return running == other.running && queued == other.queued && finished == other.finished
+              && failed == other.failed && queueTime == other.queueTime && runTime == other.runTime;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (running + 31 * (queued + 31 * (finished + 31 * failed)));
+    }
+  }
+
+  /** The part of the state of a job which is relevant to the service statistics */
+  static final class JobState {
+    private final Long registrationId;
+    private final Status status;
+    private final long queueTime;
+    private final long runTime;
+
+    private JobState(Long registrationId, Status status, long queueTime, long runTime) {
+      this.registrationId = registrationId;
+      this.status = status;
+      this.queueTime = queueTime;
+      this.runTime = runTime;
+    }
+
+    /**
+     * Captures the current state of a job.
+     *
+     * @param job
+     *          the job
+     * @return the state
+     */
+    static JobState of(JpaJob job) {
+      Long registrationId = job.getProcessorServiceRegistration() == null ? null
+              : job.getProcessorServiceRegistration().getId();
+      return new JobState(registrationId, job.getStatus(), job.getQueueTime() == null ? 0 : job.getQueueTime(),
+              job.getRunTime() == null ? 0 : job.getRunTime());
+    }
+  }
+
+}
@@ -41,12 +41,14 @@ import org.opencastproject.serviceregistry.api.JaxbHostRegistrationList;
 import org.opencastproject.serviceregistry.api.JaxbServiceRegistration;
 import org.opencastproject.serviceregistry.api.JaxbServiceRegistrationList;
 import org.opencastproject.serviceregistry.api.JaxbServiceStatisticsList;
+import org.opencastproject.serviceregistry.api.JobQuery;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
 import org.opencastproject.serviceregistry.api.ServiceState;
 import org.opencastproject.serviceregistry.api.SystemLoad;
 import org.opencastproject.serviceregistry.impl.ServiceRegistryJpaImpl;
+import org.opencastproject.serviceregistry.impl.jmx.HostLoadsMXBean;
 import org.opencastproject.systems.MatterhornConstants;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.UrlSupport;
@@ -57,6 +59,7 @@ import org.opencastproject.util.doc.rest.RestResponse;
 import org.opencastproject.util.doc.rest.RestService;
 
 import org.apache.commons.lang3.StringUtils;
+import org.json.simple.JSONObject;
 import org.osgi.service.component.ComponentContext;
 
 import java.util.Arrays;
@@ -65,6 +68,7 @@ import java.util.List;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
 import javax.ws.rs.POST;
@@ -516,6 +520,23 @@ public class ServiceRegistryEndpoint {
     }
   }
 
+  @GET
+  @Path("jobs/descendants.xml")
+  @Produces(MediaType.TEXT_XML)
+  @RestQuery(name = "jobswithdescendantsasxml",
+          description = "Returns the jobs with the given identifiers together with all of their descendants as XML.",
+          returnDescription = "A list of jobs as XML",
+          restParameters = {
+                  @RestParameter(name = "id", isRequired = true, type = Type.INTEGER, description = "A job identifier, may be given multiple times") },
+          reponses = { @RestResponse(responseCode = SC_OK, description = "Jobs found.") })
+  public JaxbJobList getJobsWithDescendantsAsXml(@QueryParam("id") List<Long> ids) {
+    try {
+      return new JaxbJobList(serviceRegistry.getJobsWithDescendants(ids));
+    } catch (ServiceRegistryException e) {
+      throw new WebApplicationException(e);
+    }
+  }
+
   @GET
   @Path("jobs.xml")
   @Produces(MediaType.TEXT_XML)
@@ -558,6 +579,72 @@ public class ServiceRegistryEndpoint {
     }
   }
 
+  @GET
+  @Path("activeJobs/query.xml")
+  @Produces(MediaType.TEXT_XML)
+  @RestQuery(name = "activejobsqueryasxml",
+          description = "Returns a page of the active jobs matching the query as XML. The jobs carry neither payload nor arguments.",
+          returnDescription = "A list of active jobs as XML",
+          restParameters = {
+                  @RestParameter(name = "host", isRequired = false, type = Type.STRING, description = "The host executing the job"),
+                  @RestParameter(name = "status", isRequired = false, type = Type.STRING, description = "The job status"),
+                  @RestParameter(name = "q", isRequired = false, type = Type.STRING, description = "The processing host, job type, operation, creator, status or identifier to match"),
+                  @RestParameter(name = "exclude", isRequired = false, type = Type.STRING, description = "A job type and operation to exclude, separated by a colon"),
+                  @RestParameter(name = "sort", isRequired = false, type = Type.STRING, defaultValue = "SUBMITTED", description = "The sort field, one of CREATOR, OPERATION, PROCESSINGHOST, STATUS, STARTED, SUBMITTED or TYPE"),
+                  @RestParameter(name = "ascending", isRequired = false, type = Type.BOOLEAN, defaultValue = "true", description = "Whether to sort in ascending order"),
+                  @RestParameter(name = "offset", isRequired = false, type = Type.INTEGER, defaultValue = "0", description = "The number of jobs to skip"),
+                  @RestParameter(name = "limit", isRequired = false, type = Type.INTEGER, defaultValue = "0", description = "The maximum number of jobs, 0 for no limit") },
+          reponses = { @RestResponse(responseCode = SC_OK, description = "Active jobs found.") })
+  public JaxbJobList getActiveJobsAsXml(@QueryParam("host") String host, @QueryParam("status") Job.Status status,
+          @QueryParam("q") String text, @QueryParam("exclude") List<String> excludes,
+          @DefaultValue("SUBMITTED") @QueryParam("sort") JobQuery.Sort sort,
+          @DefaultValue("true") @QueryParam("ascending") boolean ascending,
+          @DefaultValue("0") @QueryParam("offset") int offset, @DefaultValue("0") @QueryParam("limit") int limit) {
+    JobQuery query = createJobQuery(host, status, text, excludes).withSort(sort, ascending).withOffset(offset)
+            .withLimit(limit);
+    try {
+      return new JaxbJobList(serviceRegistry.getActiveJobs(query));
+    } catch (ServiceRegistryException e) {
+      throw new WebApplicationException(e);
+    }
+  }
+
+  @GET
+  @Path("activeJobs/count")
+  @Produces(MediaType.TEXT_PLAIN)
+  @RestQuery(name = "activejobscount",
+          description = "Returns the number of active jobs matching the query as plain text.",
+          returnDescription = "The number of matching active jobs",
+          restParameters = {
+                  @RestParameter(name = "host", isRequired = false, type = Type.STRING, description = "The host executing the job"),
+                  @RestParameter(name = "status", isRequired = false, type = Type.STRING, description = "The job status"),
+                  @RestParameter(name = "q", isRequired = false, type = Type.STRING, description = "The processing host, job type, operation, creator, status or identifier to match"),
+                  @RestParameter(name = "exclude", isRequired = false, type = Type.STRING, description = "A job type and operation to exclude, separated by a colon") },
+          reponses = { @RestResponse(responseCode = SC_OK, description = "Active job count returned.") })
+  public long countActiveJobs(@QueryParam("host") String host, @QueryParam("status") Job.Status status,
+          @QueryParam("q") String text, @QueryParam("exclude") List<String> excludes) {
+    try {
+      return serviceRegistry.countActiveJobs(createJobQuery(host, status, text, excludes));
+    } catch (ServiceRegistryException e) {
+      throw new WebApplicationException(e);
+    }
+  }
+
+  /** Creates a job query from the filter parameters of the active jobs endpoints. */
+  private JobQuery createJobQuery(String host, Job.Status status, String text, List<String> excludes) {
+    JobQuery query = new JobQuery().withProcessingHost(host).withStatus(status).withText(text);
+    if (excludes != null) {
+      for (String exclude : excludes) {
+        int separator = exclude.lastIndexOf(':');
+        if (separator < 0)
+          throw new WebApplicationException(Response.status(Status.BAD_REQUEST)
+                  .entity("Excluded operations must be given as job type and operation separated by a colon").build());
+        query.withoutOperation(exclude.substring(0, separator), exclude.substring(separator + 1));
+      }
+    }
+    return query;
+  }
+
   @GET
   @Path("count")
   @Produces(MediaType.TEXT_PLAIN)
@@ -640,6 +727,27 @@ public class ServiceRegistryEndpoint {
     }
   }
 
+  @GET
+  @Path("hostloads.json")
+  @Produces(MediaType.APPLICATION_JSON)
+  @RestQuery(name = "hostloadsasjson", description = "Returns the load ledger of this service registry, which tracks the "
+          + "load that jobs currently put on the hosts and services. Changes made by other nodes of the cluster show up "
+          + "once the ledger has been reconciled with the database.", returnDescription = "The host load ledger as JSON",
+          reponses = { @RestResponse(responseCode = SC_OK, description = "The host load ledger.") })
+  @SuppressWarnings("unchecked")
+  public Response getHostLoadLedger() {
+    if (!(serviceRegistry instanceof ServiceRegistryJpaImpl))
+      throw new WebApplicationException(Status.SERVICE_UNAVAILABLE);
+    HostLoadsMXBean ledger = ((ServiceRegistryJpaImpl) serviceRegistry).getHostLoadLedger();
+    JSONObject json = new JSONObject();
+    json.put("hosts", new JSONObject(ledger.getHostLoads()));
+    json.put("services", new JSONObject(ledger.getServiceLoads()));
+    json.put("jobs", ledger.getJobCount());
+    json.put("drifts", ledger.getDriftCount());
+    json.put("lastRebuild", ledger.getLastRebuild());
+    return Response.ok(json.toJSONString()).build();
+  }
+
 
   @DELETE
   @Path("job/{id}")
@@ -0,0 +1,67 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.serviceregistry.impl.jmx;
+
+import java.util.Map;
+
+/**
+ * JMX Bean interface exposing the load ledger of the service registry.
+ */
+public interface HostLoadsMXBean {
+
+  /**
+   * Gets the load of every host that is currently processing jobs
+   *
+   * @return a map of host base URLs to load factors
+   */
+  Map<String, Float> getHostLoads();
+
+  /**
+   * Gets the load of every service type that is currently processing jobs, summed up over all hosts
+   *
+   * @return a map of service types to load factors
+   */
+  Map<String, Float> getServiceLoads();
+
+  /**
+   * Gets the number of jobs which are currently adding to the load
+   *
+   * @return the number of tracked jobs
+   */
+  int getJobCount();
+
+  /**
+   * Gets the number of reconciliations which found the ledger out of sync with the database
+   *
+   * @return the number of detected drifts
+   */
+  long getDriftCount();
+
+  /**
+   * Gets the time of the last rebuild of the ledger from the database
+   *
+   * @return the time in milliseconds since the epoch, or 0 if the ledger has not yet been built
+   */
+  long getLastRebuild();
+
+}
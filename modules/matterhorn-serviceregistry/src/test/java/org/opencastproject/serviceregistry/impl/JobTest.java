@@ -23,6 +23,7 @@ package org.opencastproject.serviceregistry.impl;
 
 import static com.entwinemedia.fn.Stream.$;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.opencastproject.util.data.Arrays.mkString;
 import static org.opencastproject.util.data.Monadics.mlist;
@@ -30,12 +31,15 @@ import static org.opencastproject.util.data.functions.Booleans.eq;
 import static org.opencastproject.util.persistence.PersistenceEnvs.persistenceEnvironment;
 import static org.opencastproject.util.persistence.PersistenceUtil.newTestEntityManagerFactory;
 
+import org.opencastproject.job.api.Incident.Severity;
 import org.opencastproject.job.api.JaxbJob;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.FailureReason;
 import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.job.api.JobImpl;
 import org.opencastproject.job.api.JobParser;
+import org.opencastproject.job.jpa.JpaArchivedJob;
+import org.opencastproject.job.jpa.JpaJob;
 import org.opencastproject.mediapackage.MediaPackageElementBuilderFactory;
 import org.opencastproject.mediapackage.MediaPackageElementParser;
 import org.opencastproject.mediapackage.MediaPackageElements;
@@ -48,17 +52,21 @@ import org.opencastproject.security.api.Organization;
 import org.opencastproject.security.api.OrganizationDirectoryService;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.api.User;
+import org.opencastproject.serviceregistry.api.JobQuery;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
+import org.opencastproject.serviceregistry.api.ServiceStatistics;
 import org.opencastproject.serviceregistry.impl.jpa.ServiceRegistrationJpaImpl;
 import org.opencastproject.util.UrlSupport;
 import org.opencastproject.util.data.Function;
 import org.opencastproject.util.data.Monadics;
+import org.opencastproject.util.data.Tuple;
 import org.opencastproject.util.persistence.PersistenceEnv;
 
 import com.entwinemedia.fn.Fn;
 import com.entwinemedia.fn.Stream;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Assert;
@@ -66,7 +74,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 import javax.persistence.EntityManager;
@@ -225,6 +236,57 @@ public class JobTest {
     }
   }
 
+  @Test
+  public void testGetActiveJobsByQuery() throws Exception {
+    Job local = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, "payload", false, null);
+    local.setStatus(Status.RUNNING);
+    local.setProcessingHost(LOCALHOST);
+    local = serviceRegistry.updateJob(local);
+
+    Job remote = serviceRegistry.createJob(REMOTEHOST, JOB_TYPE_2, OPERATION_NAME, null, null, false, null);
+    remote.setStatus(Status.RUNNING);
+    remote.setProcessingHost(REMOTEHOST);
+    remote = serviceRegistry.updateJob(remote);
+
+    Job queued = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, "excluded", null, null, false, local);
+    queued.setStatus(Status.QUEUED);
+    queued = serviceRegistry.updateJob(queued);
+
+    Job finished = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, null);
+    finished.setStatus(Status.FINISHED);
+    serviceRegistry.updateJob(finished);
+
+    assertEquals(3, serviceRegistry.countActiveJobs(new JobQuery()));
+    assertEquals(2, serviceRegistry.countActiveJobs(new JobQuery().withoutOperation(JOB_TYPE_1, "excluded")));
+    assertEquals(1, serviceRegistry.countActiveJobs(new JobQuery().withStatus(Status.QUEUED)));
+
+    List<Job> jobs = serviceRegistry.getActiveJobs(new JobQuery().withProcessingHost(REMOTEHOST.toUpperCase()));
+    assertEquals(1, jobs.size());
+    assertEquals(remote.getId(), jobs.get(0).getId());
+    assertEquals(JOB_TYPE_2, jobs.get(0).getJobType());
+    assertEquals(REMOTEHOST, jobs.get(0).getProcessingHost());
+    assertEquals(Status.RUNNING, jobs.get(0).getStatus());
+
+    jobs = serviceRegistry.getActiveJobs(new JobQuery().withText("queued"));
+    assertEquals(1, jobs.size());
+    assertEquals(queued.getId(), jobs.get(0).getId());
+    assertEquals(local.getId(), jobs.get(0).getRootJobId().longValue());
+
+    // the root job matches by its own identifier, the queued job by its root job identifier
+    assertEquals(2, serviceRegistry.countActiveJobs(new JobQuery().withText(Long.toString(local.getId()))));
+
+    jobs = serviceRegistry.getActiveJobs(new JobQuery().withSort(JobQuery.Sort.TYPE, false).withLimit(1));
+    assertEquals(1, jobs.size());
+    assertEquals(remote.getId(), jobs.get(0).getId());
+
+    jobs = serviceRegistry.getActiveJobs(new JobQuery().withSort(JobQuery.Sort.OPERATION, true).withOffset(1));
+    assertEquals(2, jobs.size());
+    for (Job job : jobs) {
+      assertEquals(OPERATION_NAME, job.getOperation());
+      Assert.assertNull(job.getPayload());
+    }
+  }
+
   @Test
   public void testGetChildJobs() throws Exception {
     Job rootJob = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, null);
@@ -261,6 +323,35 @@ public class JobTest {
     assertTrue(jobChildren.exists(matchesId(job5)));
   }
 
+  @Test
+  public void testGetJobsWithDescendants() throws Exception {
+    Job rootJob = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, null);
+    Job job = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, rootJob);
+    Job early = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, rootJob);
+    Job late = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, job);
+    Job other = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, null);
+
+    // Nodes of a cluster hand out identifiers from different ranges, so a child may have a lower id than its parent
+    EntityManager em = serviceRegistry.emf.createEntityManager();
+    try {
+      em.getTransaction().begin();
+      JpaJob jpaJob = em.find(JpaJob.class, early.getId());
+      jpaJob.setParentJob(em.find(JpaJob.class, late.getId()));
+      em.merge(jpaJob);
+      em.getTransaction().commit();
+    } finally {
+      em.close();
+    }
+    assertTrue(early.getId() < late.getId());
+
+    final Stream<Job> jobs = $(serviceRegistry.getJobsWithDescendants(Arrays.asList(job.getId(), other.getId())));
+    assertEquals(4, jobs.getSizeHint());
+    assertTrue(jobs.exists(matchesId(job)));
+    assertTrue(jobs.exists(matchesId(late)));
+    assertTrue(jobs.exists(matchesId(early)));
+    assertTrue(jobs.exists(matchesId(other)));
+  }
+
   private static Fn<Job, Boolean> matchesId(final Job j) {
     return new Fn<Job, Boolean>() {
       @Override
@@ -391,6 +482,210 @@ public class JobTest {
     assertEquals(LOCALHOST, type2Hosts.get(1).getHost());
   }
 
+  @Test
+  public void testHostLoadLedger() throws Exception {
+    Job job = serviceRegistry.createJob(JOB_TYPE_1, OPERATION_NAME, null, null, false, 2.0f);
+    job.setStatus(Status.RUNNING);
+    job.setJobType(regType1Localhost.getServiceType());
+    job.setProcessingHost(regType1Localhost.getHost());
+    job = serviceRegistry.updateJob(job);
+
+    // The running job is tracked without rebuilding the ledger
+    assertEquals(new Float(2.0f), serviceRegistry.getHostLoadLedger().getHostLoads().get(LOCALHOST));
+    assertEquals(2.0f, serviceRegistry.getCurrentHostLoads(true).get(LOCALHOST).getLoadFactor(), 0.001f);
+    assertFalse(serviceRegistry.rebuildHostLoadLedger(serviceRegistry.emf.createEntityManager()));
+    assertFalse(serviceRegistry.reconcileHostLoadLedger(serviceRegistry.emf.createEntityManager()));
+    long lastRebuild = serviceRegistry.getHostLoadLedger().getLastRebuild();
+
+    // A ledger which matches the database is not rebuilt
+    Thread.sleep(10);
+    assertFalse(serviceRegistry.reconcileHostLoadLedger(serviceRegistry.emf.createEntityManager()));
+    assertEquals(lastRebuild, serviceRegistry.getHostLoadLedger().getLastRebuild());
+
+    // Finish the job behind the back of the service registry, like another node of the cluster would
+    EntityManager em = serviceRegistry.emf.createEntityManager();
+    em.getTransaction().begin();
+    JpaJob jpaJob = em.find(JpaJob.class, job.getId());
+    jpaJob.setStatus(Status.FINISHED);
+    em.merge(jpaJob);
+    em.getTransaction().commit();
+    em.close();
+
+    // Reconciling the ledger detects and resolves the drift
+    assertTrue(serviceRegistry.reconcileHostLoadLedger(serviceRegistry.emf.createEntityManager()));
+    assertEquals(1, serviceRegistry.getHostLoadLedger().getDriftCount());
+    assertEquals(0, serviceRegistry.getHostLoadLedger().getJobCount());
+    assertEquals(0.0f, serviceRegistry.getCurrentHostLoads(true).get(LOCALHOST).getLoadFactor(), 0.001f);
+  }
+
+  @Test
+  public void testServiceStatisticsLedger() throws Exception {
+    assertEquals(0, getLocalStatistics(JOB_TYPE_1).getRunningJobs());
+
+    Job job = serviceRegistry.createJob(JOB_TYPE_1, OPERATION_NAME, null, null, false);
+    job.setStatus(Status.RUNNING);
+    job.setJobType(regType1Localhost.getServiceType());
+    job.setProcessingHost(regType1Localhost.getHost());
+    job = serviceRegistry.updateJob(job);
+
+    // The running job is counted without rebuilding the statistics
+    assertFalse(serviceRegistry.serviceStatisticsLedger.isDirty());
+    assertEquals(1, getLocalStatistics(JOB_TYPE_1).getRunningJobs());
+
+    job.setStatus(Status.FAILED);
+    job = serviceRegistry.updateJob(job);
+    assertEquals(0, getLocalStatistics(JOB_TYPE_1).getRunningJobs());
+    assertEquals(1, getLocalStatistics(JOB_TYPE_1).getFailedJobs());
+
+    // Finish the job behind the back of the service registry, like another node of the cluster would
+    EntityManager em = serviceRegistry.emf.createEntityManager();
+    em.getTransaction().begin();
+    JpaJob jpaJob = em.find(JpaJob.class, job.getId());
+    jpaJob.setStatus(Status.FINISHED);
+    em.merge(jpaJob);
+    em.getTransaction().commit();
+    em.close();
+
+    // Reconciling the statistics picks up the change
+    em = serviceRegistry.emf.createEntityManager();
+    try {
+      serviceRegistry.rebuildServiceStatisticsLedger(em);
+    } finally {
+      em.close();
+    }
+    assertEquals(0, getLocalStatistics(JOB_TYPE_1).getFailedJobs());
+    assertEquals(1, getLocalStatistics(JOB_TYPE_1).getFinishedJobs());
+  }
+
+  private ServiceStatistics getLocalStatistics(String serviceType) throws Exception {
+    for (ServiceStatistics stats : serviceRegistry.getServiceStatistics()) {
+      ServiceRegistration registration = stats.getServiceRegistration();
+      if (serviceType.equals(registration.getServiceType()) && LOCALHOST.equals(registration.getHost()))
+        return stats;
+    }
+    return null;
+  }
+
+  @Test
+  public void testArchiveJobs() throws Exception {
+    Job job = serviceRegistry.createJob(JOB_TYPE_1, OPERATION_NAME, Arrays.asList("arg"), null, false);
+    job.setStatus(Status.RUNNING);
+    job.setJobType(regType1Localhost.getServiceType());
+    job.setProcessingHost(regType1Localhost.getHost());
+    job = serviceRegistry.updateJob(job);
+    job.setPayload("result");
+    job.setStatus(Status.FINISHED);
+    job = serviceRegistry.updateJob(job);
+
+    Job running = serviceRegistry.createJob(JOB_TYPE_1, OPERATION_NAME, null, null, false);
+    running.setStatus(Status.RUNNING);
+    running.setJobType(regType1Localhost.getServiceType());
+    running.setProcessingHost(regType1Localhost.getHost());
+    running = serviceRegistry.updateJob(running);
+
+    // Only jobs which terminated before the given date are archived
+    assertEquals(0, serviceRegistry.archiveJobs(DateUtils.addDays(new Date(), -1)));
+    assertEquals(1, serviceRegistry.archiveJobs(DateUtils.addDays(new Date(), 1)));
+    assertEquals(1, serviceRegistry.count(JOB_TYPE_1, null));
+
+    // Archived jobs are still available by their identifier
+    Job archived = serviceRegistry.getJob(job.getId());
+    assertEquals(Status.FINISHED, archived.getStatus());
+    assertEquals("result", archived.getPayload());
+    assertEquals(Arrays.asList("arg"), archived.getArguments());
+    assertEquals(Status.RUNNING, serviceRegistry.getJob(running.getId()).getStatus());
+
+    // The statistics still include the archived job
+    ServiceStatistics localStats = null;
+    for (ServiceStatistics stats : serviceRegistry.getServiceStatistics()) {
+      ServiceRegistration registration = stats.getServiceRegistration();
+      if (JOB_TYPE_1.equals(registration.getServiceType()) && LOCALHOST.equals(registration.getHost()))
+        localStats = stats;
+    }
+    assertEquals(1, localStats.getFinishedJobs());
+    assertEquals(1, localStats.getRunningJobs());
+  }
+
+  @Test
+  public void testArchiveJobTrees() throws Exception {
+    serviceRegistry.registerService(ServiceRegistryJpaImpl.TYPE_WORKFLOW, LOCALHOST, PATH);
+
+    // Nodes of a cluster hand out identifiers from different ranges, so a child may have a lower id than its parent
+    Job root = createTerminatedJob(JOB_TYPE_1, null, Status.FINISHED);
+    Job early = createTerminatedJob(JOB_TYPE_1, root, Status.FINISHED);
+    Job late = createTerminatedJob(JOB_TYPE_1, root, Status.FINISHED);
+    setParentJob(early, late);
+    assertTrue(early.getId() < late.getId());
+
+    // A job tree is only archived once all of its jobs terminated
+    Job busyRoot = createTerminatedJob(JOB_TYPE_1, null, Status.FINISHED);
+    Job busyChild = createTerminatedJob(JOB_TYPE_1, busyRoot, Status.FINISHED);
+    Job running = serviceRegistry.createJob(LOCALHOST, JOB_TYPE_1, OPERATION_NAME, null, null, false, busyChild);
+
+    // The jobs of workflow operations are archived, but jobs with incidents are kept
+    Job workflow = createTerminatedJob(ServiceRegistryJpaImpl.TYPE_WORKFLOW, null, Status.FINISHED);
+    Job operation = createTerminatedJob(ServiceRegistryJpaImpl.TYPE_WORKFLOW, workflow, Status.FINISHED);
+    Job finished = createTerminatedJob(JOB_TYPE_1, operation, Status.FINISHED);
+    Job failed = createTerminatedJob(JOB_TYPE_1, operation, Status.FAILED);
+    long incidentId = createIncident(failed);
+
+    assertEquals(4, serviceRegistry.archiveJobs(DateUtils.addDays(new Date(), 1)));
+    EntityManager em = serviceRegistry.emf.createEntityManager();
+    try {
+      for (Job job : Arrays.asList(root, early, late, finished)) {
+        assertTrue(em.find(JpaJob.class, job.getId()) == null);
+        assertTrue(em.find(JpaArchivedJob.class, job.getId()) != null);
+      }
+      for (Job job : Arrays.asList(busyRoot, busyChild, running, workflow, operation, failed)) {
+        assertTrue(em.find(JpaJob.class, job.getId()) != null);
+        assertTrue(em.find(JpaArchivedJob.class, job.getId()) == null);
+      }
+      assertTrue(em.find(IncidentDto.class, incidentId) != null);
+    } finally {
+      em.close();
+    }
+  }
+
+  /** Creates a job on the local host and lets it terminate with the given status */
+  private Job createTerminatedJob(String type, Job parent, Status status) throws Exception {
+    Job job = serviceRegistry.createJob(LOCALHOST, type, OPERATION_NAME, null, null, false, parent);
+    job.setStatus(Status.RUNNING);
+    job.setJobType(type);
+    job.setProcessingHost(LOCALHOST);
+    job = serviceRegistry.updateJob(job);
+    job.setStatus(status);
+    return serviceRegistry.updateJob(job);
+  }
+
+  /** Moves a job below another parent job */
+  private void setParentJob(Job job, Job parent) {
+    EntityManager em = serviceRegistry.emf.createEntityManager();
+    try {
+      em.getTransaction().begin();
+      JpaJob jpaJob = em.find(JpaJob.class, job.getId());
+      jpaJob.setParentJob(em.find(JpaJob.class, parent.getId()));
+      em.merge(jpaJob);
+      em.getTransaction().commit();
+    } finally {
+      em.close();
+    }
+  }
+
+  /** Records an incident of a job and returns its identifier */
+  private long createIncident(Job job) {
+    EntityManager em = serviceRegistry.emf.createEntityManager();
+    try {
+      em.getTransaction().begin();
+      IncidentDto incident = IncidentDto.mk(job.getId(), new Date(), "code", Severity.FAILURE,
+              new HashMap<String, String>(), new ArrayList<Tuple<String, String>>());
+      em.persist(incident);
+      em.getTransaction().commit();
+      return incident.getId();
+    } finally {
+      em.close();
+    }
+  }
+
   @Test
   public void testCountPerHostService() throws Exception {
     // create some test data
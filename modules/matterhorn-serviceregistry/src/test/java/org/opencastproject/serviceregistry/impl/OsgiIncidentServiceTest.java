@@ -29,6 +29,7 @@ import static org.junit.Assert.assertEquals;
 import org.opencastproject.fun.juc.Immutables;
 import org.opencastproject.fun.juc.Mutables;
 import org.opencastproject.job.api.Incident;
+import org.opencastproject.job.api.IncidentTree;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.serviceregistry.api.Incidents;
 import org.opencastproject.serviceregistry.api.ServiceRegistry;
@@ -43,6 +44,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -84,6 +86,13 @@ public class OsgiIncidentServiceTest {
         return jobs.get(jobId);
       }
     }).anyTimes();
+    expect(serviceRegistry.getJobsWithDescendants(EasyMock.<List<Long>> anyObject()))
+            .andAnswer(new IAnswer<List<Job>>() {
+              @Override
+              public List<Job> answer() throws Throwable {
+                return new ArrayList<Job>(jobs.values());
+              }
+            }).anyTimes();
     replay(serviceRegistry);
 
     // Mock up a workflow service
@@ -142,6 +151,45 @@ public class OsgiIncidentServiceTest {
     // todo more tests
   }
 
+  @Test
+  public void testIncidentTree() throws Exception {
+    final Job root = mkJob(10L, null);
+    final Job child = mkJob(11L, 10L);
+    final Job grandChild = mkJob(12L, 11L);
+    final Job otherChild = mkJob(13L, 10L);
+    incidents.record(grandChild, Incident.Severity.FAILURE, 1511);
+    incidents.record(root, Incident.Severity.WARNING, 1512);
+
+    final IncidentTree tree = incidentService.getIncidentsOfJob(root.getId(), true);
+    assertEquals(1, tree.getIncidents().size());
+    assertEquals(Incident.Severity.WARNING, tree.getIncidents().get(0).getSeverity());
+    // Only the branch leading to the incident of the grand child is contained
+    assertEquals(1, tree.getDescendants().size());
+    final IncidentTree childTree = tree.getDescendants().get(0);
+    assertEquals(0, childTree.getIncidents().size());
+    assertEquals(1, childTree.getDescendants().size());
+    assertEquals(grandChild.getId(), childTree.getDescendants().get(0).getIncidents().get(0).getJobId());
+
+    // Without cascading only the incidents of the job itself are returned
+    final IncidentTree flatTree = incidentService.getIncidentsOfJob(root.getId(), false);
+    assertEquals(1, flatTree.getIncidents().size());
+    assertEquals(0, flatTree.getDescendants().size());
+    assertEquals(0, incidentService.getIncidentsOfJob(otherChild.getId(), true).getIncidents().size());
+    assertEquals(1, incidentService.getIncidentsOfJob(child.getId(), true).getDescendants().size());
+  }
+
+  private Job mkJob(long id, Long parentId) {
+    Job job = createNiceMock(Job.class);
+    expect(job.getId()).andStubReturn(id);
+    expect(job.getParentJobId()).andStubReturn(parentId);
+    expect(job.getProcessingHost()).andStubReturn(PROCESSING_HOST);
+    expect(job.getJobType()).andStubReturn(JOB_TYPE);
+    expect(job.getOperation()).andStubReturn("operation");
+    replay(job);
+    jobs.put(id, job);
+    return job;
+  }
+
   @Test
   public void testGenDbKeys() {
     assertEquals(Immutables.list("org.opencastproject.composer.1.title.de.DE",
@@ -26,6 +26,7 @@ import static org.junit.Assert.assertEquals;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
 import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.job.jpa.JpaJob;
 import org.opencastproject.security.api.DefaultOrganization;
 import org.opencastproject.security.api.JaxbOrganization;
 import org.opencastproject.security.api.JaxbRole;
@@ -39,6 +40,7 @@ import org.opencastproject.security.api.User;
 import org.opencastproject.security.api.UserDirectoryService;
 import org.opencastproject.serviceregistry.api.ServiceRegistration;
 import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.serviceregistry.api.ServiceStatistics;
 import org.opencastproject.systems.MatterhornConstants;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.util.jmx.JmxUtil;
@@ -66,11 +68,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.beans.PropertyVetoException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.concurrent.Executors;
 
 import javax.management.ObjectInstance;
+import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 
 public class ServiceRegistryJpaImplTest {
@@ -356,4 +360,46 @@ public class ServiceRegistryJpaImplTest {
     }
   }
 
+  @Test
+  public void testDispatchingJobsUpdatesServiceStatistics() throws Exception {
+    serviceRegistryJpaImpl.activate(null);
+    registerTestHostAndService();
+    Job testJob = serviceRegistryJpaImpl.createJob(TEST_HOST, TEST_SERVICE_2, TEST_OPERATION, null, null, true, null);
+    ServiceRegistration registration = serviceRegistryJpaImpl.getServiceRegistration(TEST_SERVICE_2, TEST_HOST);
+
+    // Build the statistics before dispatching, so the dispatch has to be tracked by the ledger
+    assertEquals(0, getQueuedJobs(registration));
+
+    // The dispatcher works on jobs managed by its entity manager
+    EntityManager em = emf.createEntityManager();
+    try {
+      JpaJob jpaJob = em.find(JpaJob.class, testJob.getId());
+      String host = serviceRegistryJpaImpl.new JobDispatcher().dispatchJob(em, jpaJob,
+              Collections.singletonList(registration));
+      assertEquals(TEST_HOST, host);
+    } finally {
+      em.close();
+    }
+    assertEquals(Status.DISPATCHING, serviceRegistryJpaImpl.getJob(testJob.getId()).getStatus());
+    Assert.assertFalse(serviceRegistryJpaImpl.serviceStatisticsLedger.isDirty());
+    assertEquals(1, getQueuedJobs(registration));
+
+    // The ledger agrees with the database
+    em = emf.createEntityManager();
+    try {
+      serviceRegistryJpaImpl.rebuildServiceStatisticsLedger(em);
+    } finally {
+      em.close();
+    }
+    assertEquals(1, getQueuedJobs(registration));
+  }
+
+  private int getQueuedJobs(ServiceRegistration registration) throws ServiceRegistryException {
+    for (ServiceStatistics stats : serviceRegistryJpaImpl.getServiceStatistics()) {
+      if (registration.equals(stats.getServiceRegistration()))
+        return stats.getQueuedJobs();
+    }
+    return 0;
+  }
+
 }
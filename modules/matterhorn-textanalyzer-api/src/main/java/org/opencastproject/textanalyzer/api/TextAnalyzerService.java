@@ -26,6 +26,8 @@ import org.opencastproject.job.api.Job;
 import org.opencastproject.mediapackage.Attachment;
 import org.opencastproject.mediapackage.MediaPackageException;
 
+import java.util.List;
+
 /**
  * Api for text analysis implementations, aimed at extracting text from an image.
  */
@@ -50,4 +52,20 @@ public interface TextAnalyzerService {
    */
   Job extract(Attachment image) throws TextAnalyzerException, MediaPackageException;
 
+  /**
+   * Takes the given images, usually the still images of all segments of a track, and returns a receipt that can be
+   * used to get one combined catalog. The catalog contains one video segment per image, in the order of the images,
+   * with the segment's video text extracted from the corresponding image. Images which are (nearly) identical to an
+   * image that has already been analyzed within the same job are not analyzed again but get a copy of its text.
+   *
+   * @param images
+   *          elements to analyze
+   * @return the metadata
+   * @throws TextAnalyzerException
+   *           if the text in the images can not be analyzed
+   * @throws MediaPackageException
+   *           if one of the attachments is not valid
+   */
+  Job extract(List<Attachment> images) throws TextAnalyzerException, MediaPackageException;
+
 }
@@ -0,0 +1,116 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.textanalyzer.impl;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Difference hash of an image, used to recognize slide images which are identical or nearly identical.
+ * <p>
+ * The image is scaled down to 65x48 gray pixels and every bit of the hash tells whether a pixel is brighter than its
+ * right neighbour. The resolution is high enough for a changed line of text to flip a considerable number of bits,
+ * while small changes like compression artifacts or a moving mouse pointer only flip a few. Images are compared by the
+ * number of differing bits.
+ */
+final class PerceptualHash {
+
+  /** Width of the scaled image */
+  private static final int WIDTH = 65;
+
+  /** Height of the scaled image */
+  private static final int HEIGHT = 48;
+
+  /** Number of bits of a hash */
+  static final int BITS = (WIDTH - 1) * HEIGHT;
+
+  private PerceptualHash() {
+  }
+
+  /**
+   * Computes the hash of an image file.
+   *
+   * @param imageFile
+   *          the image
+   * @return the hash or <code>null</code> if the image format is not supported
+   * @throws IOException
+   *           if reading the image fails
+   */
+  static long[] of(File imageFile) throws IOException {
+    BufferedImage image = ImageIO.read(imageFile);
+    if (image == null)
+      return null;
+    return of(image);
+  }
+
+  /**
+   * Computes the hash of an image.
+   *
+   * @param image
+   *          the image
+   * @return the hash
+   */
+  static long[] of(BufferedImage image) {
+    BufferedImage scaled = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+    Graphics2D g = scaled.createGraphics();
+    try {
+      g.drawImage(image.getScaledInstance(WIDTH, HEIGHT, Image.SCALE_AREA_AVERAGING), 0, 0, null);
+    } finally {
+      g.dispose();
+    }
+    Raster raster = scaled.getRaster();
+    long[] hash = new long[(BITS + Long.SIZE - 1) / Long.SIZE];
+    int bit = 0;
+    for (int y = 0; y < HEIGHT; y++) {
+      for (int x = 0; x < WIDTH - 1; x++) {
+        if (raster.getSample(x, y, 0) > raster.getSample(x + 1, y, 0))
+          hash[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+        bit++;
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Returns the number of bits in which two hashes differ.
+   *
+   * @param a
+   *          the first hash
+   * @param b
+   *          the second hash
+   * @return the hamming distance
+   */
+  static int distance(long[] a, long[] b) {
+    int distance = 0;
+    for (int i = 0; i < a.length; i++) {
+      distance += Long.bitCount(a[i] ^ b[i]);
+    }
+    return distance;
+  }
+
+}
@@ -56,6 +56,7 @@ import org.opencastproject.util.LoadUtil;
 import org.opencastproject.util.NotFoundException;
 import org.opencastproject.workspace.api.Workspace;
 
+import org.apache.commons.lang3.StringUtils;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.osgi.service.component.ComponentContext;
@@ -70,6 +71,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Media analysis service that takes takes an image and returns text as extracted from that image.
@@ -81,7 +87,7 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
 
   /** List of available operations on jobs */
   private enum Operation {
-    Extract
+    Extract, ExtractBatch
   };
 
   /** Resulting collection in the working file repository */
@@ -96,6 +102,36 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
   /** The approximate load placed on the system by creating a text analysis job */
   private float analysisJobLoad = DEFAULT_ANALYSIS_JOB_LOAD;
 
+  /** The approximate load placed on the system by creating a batch text analysis job */
+  public static final float DEFAULT_BATCH_ANALYSIS_JOB_LOAD = 2.0f;
+
+  /** The key to look for in the service configuration file to override the {@link DEFAULT_BATCH_ANALYSIS_JOB_LOAD} */
+  public static final String BATCH_ANALYSIS_JOB_LOAD_KEY = "job.load.analysis.batch";
+
+  /** The approximate load placed on the system by creating a batch text analysis job */
+  private float batchAnalysisJobLoad = DEFAULT_BATCH_ANALYSIS_JOB_LOAD;
+
+  /** The default number of images analyzed concurrently by a batch job */
+  public static final int DEFAULT_BATCH_THREADS = 2;
+
+  /** The key to look for in the service configuration file to override the {@link DEFAULT_BATCH_THREADS} */
+  public static final String BATCH_THREADS_KEY = "batch.threads";
+
+  /** The number of images analyzed concurrently by a batch job */
+  private int batchThreads = DEFAULT_BATCH_THREADS;
+
+  /** The default maximum number of differing perceptual hash bits for two images to be considered duplicates */
+  public static final int DEFAULT_DUPLICATE_THRESHOLD = 4;
+
+  /** The key to look for in the service configuration file to override the {@link DEFAULT_DUPLICATE_THRESHOLD} */
+  public static final String DUPLICATE_THRESHOLD_KEY = "batch.duplicate.threshold";
+
+  /**
+   * The maximum number of differing perceptual hash bits for two images to be considered duplicates, a negative value
+   * disables duplicate detection
+   */
+  private int duplicateThreshold = DEFAULT_DUPLICATE_THRESHOLD;
+
   /** The text extraction implemenetation */
   private TextExtractor textExtractor = null;
 
@@ -154,6 +190,23 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.textanalyzer.api.TextAnalyzerService#extract(java.util.List)
+   */
+  @Override
+  public Job extract(List<Attachment> images) throws TextAnalyzerException, MediaPackageException {
+    if (images == null || images.isEmpty())
+      throw new IllegalArgumentException("At least one image must be provided");
+    try {
+      return serviceRegistry.createJob(JOB_TYPE, Operation.ExtractBatch.toString(),
+              Arrays.asList(MediaPackageElementParser.getArrayAsXml(images)), batchAnalysisJobLoad);
+    } catch (ServiceRegistryException e) {
+      throw new TextAnalyzerException("Unable to create job", e);
+    }
+  }
+
   /**
    * Starts text extraction on the image and returns a receipt containing the final result in the form of an
    * Mpeg7Catalog.
@@ -203,24 +256,8 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
 
       logger.info("Text extraction of {} finished, {} lines found", attachment.getURI(), videoTexts.length);
 
-      URI uri;
-      InputStream in;
-      try {
-        in = mpeg7CatalogService.serialize(mpeg7);
-      } catch (IOException e) {
-        throw new TextAnalyzerException("Error serializing mpeg7", e);
-      }
-      try {
-        uri = workspace.putInCollection(COLLECTION_ID, job.getId() + ".xml", in);
-      } catch (IOException e) {
-        throw new TextAnalyzerException("Unable to put mpeg7 into the workspace", e);
-      }
-      Catalog catalog = (Catalog) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
-              .newElement(Catalog.TYPE, MediaPackageElements.TEXTS);
-      catalog.setURI(uri);
-
+      Catalog catalog = storeCatalog(job, mpeg7);
       logger.debug("Created MPEG7 catalog for {}", imageUrl);
-
       return catalog;
     } catch (Exception e) {
       logger.warn("Error extracting text from " + imageUrl, e);
@@ -238,6 +275,156 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
     }
   }
 
+  /**
+   * Starts text extraction on a list of images and returns a single Mpeg7Catalog containing one video segment per
+   * image. Images are analyzed concurrently by a bounded pool of threads. Images whose perceptual hash is close to the
+   * one of an image which is already being analyzed are skipped and get a copy of that image's video text instead.
+   *
+   * @param job
+   *          the batch job
+   * @param images
+   *          the elements to analyze
+   * @return the resulting mpeg-7 catalog
+   * @throws TextAnalyzerException
+   *           if the text extraction fails
+   */
+  private Catalog extractBatch(Job job, List<Attachment> images) throws TextAnalyzerException {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(batchThreads, images.size())));
+    try {
+      // Load the images and find the ones that need to be analyzed
+      List<long[]> analyzedHashes = new ArrayList<long[]>();
+      List<Integer> analyzedIndexes = new ArrayList<Integer>();
+      List<Future<VideoText[]>> results = new ArrayList<Future<VideoText[]>>(images.size());
+      int duplicates = 0;
+      logger.info("Starting text extraction from {} images", images.size());
+      for (int i = 0; i < images.size(); i++) {
+        final Attachment image = images.get(i);
+        final File imageFile;
+        try {
+          imageFile = workspace.get(image.getURI());
+        } catch (NotFoundException e) {
+          throw new TextAnalyzerException("Image " + image.getURI() + " not found in workspace", e);
+        } catch (IOException e) {
+          throw new TextAnalyzerException("Unable to access " + image.getURI() + " in workspace", e);
+        }
+
+        long[] hash = null;
+        if (duplicateThreshold >= 0) {
+          try {
+            hash = PerceptualHash.of(imageFile);
+          } catch (IOException e) {
+            logger.debug("Unable to compute perceptual hash of {}: {}", image.getURI(), e.getMessage());
+          }
+        }
+
+        Integer original = null;
+        if (hash != null) {
+          for (int j = 0; j < analyzedHashes.size(); j++) {
+            long[] analyzedHash = analyzedHashes.get(j);
+            if (analyzedHash != null && PerceptualHash.distance(hash, analyzedHash) <= duplicateThreshold) {
+              original = analyzedIndexes.get(j);
+              break;
+            }
+          }
+        }
+
+        if (original != null) {
+          logger.debug("Skipping text extraction from {}, it is a duplicate of {}", image.getURI(),
+                  images.get(original).getURI());
+          results.add(results.get(original));
+          duplicates++;
+        } else {
+          analyzedHashes.add(hash);
+          analyzedIndexes.add(i);
+          results.add(executor.submit(new Callable<VideoText[]>() {
+            @Override
+            public VideoText[] call() throws Exception {
+              return analyze(imageFile, image.getIdentifier());
+            }
+          }));
+        }
+      }
+
+      // Create a temporal decomposition with one segment per image
+      Mpeg7CatalogImpl mpeg7 = Mpeg7CatalogImpl.newInstance();
+      MediaTime mediaTime = new MediaTimeImpl(0, 0);
+      Video avContent = mpeg7.addVideoContent("batch-" + job.getId(), mediaTime, null);
+      @SuppressWarnings("unchecked")
+      TemporalDecomposition<VideoSegment> temporalDecomposition = (TemporalDecomposition<VideoSegment>) avContent
+              .getTemporalDecomposition();
+      int lines = 0;
+      for (int i = 0; i < images.size(); i++) {
+        VideoText[] videoTexts;
+        try {
+          videoTexts = results.get(i).get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof TextAnalyzerException)
+            throw (TextAnalyzerException) e.getCause();
+          throw new TextAnalyzerException(e.getCause());
+        }
+        VideoSegment videoSegment = temporalDecomposition.createSegment("segment-" + i);
+        videoSegment.setMediaTime(mediaTime);
+        SpatioTemporalDecomposition spatioTemporalDecomposition = videoSegment.createSpatioTemporalDecomposition(true,
+                false);
+        String id = images.get(i).getIdentifier();
+        for (int j = 0; j < videoTexts.length; j++) {
+          // Video text of duplicates is shared with the original image and must be copied
+          VideoText videoText = new VideoTextImpl(id + "-" + (j + 1));
+          videoText.setBoundary(videoTexts[j].getBoundary());
+          videoText.setText(videoTexts[j].getText());
+          spatioTemporalDecomposition.addVideoText(videoText);
+        }
+        lines += videoTexts.length;
+      }
+
+      logger.info("Text extraction of {} images finished, {} duplicates skipped, {} lines found", new Object[] {
+              images.size(), duplicates, lines });
+      return storeCatalog(job, mpeg7);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TextAnalyzerException("Interrupted while waiting for text extraction", e);
+    } finally {
+      executor.shutdownNow();
+      for (Attachment image : images) {
+        try {
+          workspace.delete(image.getURI());
+        } catch (Exception e) {
+          logger.warn("Unable to delete temporary text analysis image {}: {}", image.getURI(), e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Stores the mpeg-7 catalog in the working file repository.
+   *
+   * @param job
+   *          the job the catalog was created by
+   * @param mpeg7
+   *          the catalog
+   * @return the catalog element
+   * @throws TextAnalyzerException
+   *           if serializing or storing the catalog fails
+   */
+  private Catalog storeCatalog(Job job, Mpeg7CatalogImpl mpeg7) throws TextAnalyzerException {
+    URI uri;
+    InputStream in;
+    try {
+      in = mpeg7CatalogService.serialize(mpeg7);
+    } catch (IOException e) {
+      throw new TextAnalyzerException("Error serializing mpeg7", e);
+    }
+    try {
+      uri = workspace.putInCollection(COLLECTION_ID, job.getId() + ".xml", in);
+    } catch (IOException e) {
+      throw new TextAnalyzerException("Unable to put mpeg7 into the workspace", e);
+    }
+    Catalog catalog = (Catalog) MediaPackageElementBuilderFactory.newInstance().newElementBuilder()
+            .newElement(Catalog.TYPE, MediaPackageElements.TEXTS);
+    catalog.setURI(uri);
+    return catalog;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -255,6 +442,11 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
           Attachment element = (Attachment) MediaPackageElementParser.getFromXml(arguments.get(0));
           Catalog catalog = extract(job, element);
           return MediaPackageElementParser.getAsXml(catalog);
+        case ExtractBatch:
+          @SuppressWarnings("unchecked")
+          List<Attachment> images = (List<Attachment>) MediaPackageElementParser.getArrayFromXml(arguments.get(0));
+          Catalog batchCatalog = extractBatch(job, images);
+          return MediaPackageElementParser.getAsXml(batchCatalog);
         default:
           throw new IllegalStateException("Don't know how to handle operation '" + operation + "'");
       }
@@ -435,5 +627,34 @@ public class TextAnalyzerServiceImpl extends AbstractJobProducer implements Text
   @Override
   public void updated(@SuppressWarnings("rawtypes") Dictionary properties) throws ConfigurationException {
     analysisJobLoad = LoadUtil.getConfiguredLoadValue(properties, ANALYSIS_JOB_LOAD_KEY, DEFAULT_ANALYSIS_JOB_LOAD, serviceRegistry);
+    batchAnalysisJobLoad = LoadUtil.getConfiguredLoadValue(properties, BATCH_ANALYSIS_JOB_LOAD_KEY,
+            DEFAULT_BATCH_ANALYSIS_JOB_LOAD, serviceRegistry);
+    batchThreads = getIntProperty(properties, BATCH_THREADS_KEY, DEFAULT_BATCH_THREADS);
+    duplicateThreshold = getIntProperty(properties, DUPLICATE_THRESHOLD_KEY, DEFAULT_DUPLICATE_THRESHOLD);
+  }
+
+  /**
+   * Reads an integer from the service configuration.
+   *
+   * @param properties
+   *          the service configuration
+   * @param key
+   *          the configuration key
+   * @param defaultValue
+   *          the value to use if the key is missing or invalid
+   * @return the configured value
+   */
+  private static int getIntProperty(@SuppressWarnings("rawtypes") Dictionary properties, String key,
+          int defaultValue) {
+    String value = properties == null ? null : StringUtils.trimToNull((String) properties.get(key));
+    if (value == null)
+      return defaultValue;
+    try {
+      return Integer.parseInt(value);
+    } catch (NumberFormatException e) {
+      logger.warn("Found illegal value '{}' for {}, using default value of {}", new Object[] { value, key,
+              defaultValue });
+      return defaultValue;
+    }
   }
 }
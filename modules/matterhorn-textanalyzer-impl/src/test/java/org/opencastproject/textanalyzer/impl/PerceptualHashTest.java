@@ -0,0 +1,94 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.textanalyzer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+/**
+ * Test class for {@link PerceptualHash}.
+ */
+public class PerceptualHashTest {
+
+  private static BufferedImage slide(String title, int noise) {
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, 640, 480);
+    g.setColor(Color.BLACK);
+    g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 72));
+    g.drawString(title, 40, 120);
+    g.fillRect(40, 200, 400, 40);
+    // A few pixels of difference, e.g. a mouse pointer
+    g.fillRect(600, 440, noise, noise);
+    g.dispose();
+    return image;
+  }
+
+  @Test
+  public void testIdenticalImages() throws Exception {
+    assertEquals(0, PerceptualHash.distance(PerceptualHash.of(slide("Slide", 0)), PerceptualHash.of(slide("Slide", 0))));
+  }
+
+  @Test
+  public void testNearlyIdenticalImages() throws Exception {
+    long[] a = PerceptualHash.of(slide("Slide", 0));
+    long[] b = PerceptualHash.of(slide("Slide", 3));
+    assertTrue(PerceptualHash.distance(a, b) <= TextAnalyzerServiceImpl.DEFAULT_DUPLICATE_THRESHOLD);
+  }
+
+  @Test
+  public void testDifferentImages() throws Exception {
+    BufferedImage inverted = slide("Slide", 0);
+    for (int x = 0; x < inverted.getWidth(); x++) {
+      for (int y = 0; y < inverted.getHeight(); y++) {
+        inverted.setRGB(x, y, ~inverted.getRGB(x, y));
+      }
+    }
+    long[] a = PerceptualHash.of(slide("Slide", 0));
+    long[] b = PerceptualHash.of(inverted);
+    assertTrue(PerceptualHash.distance(a, b) > TextAnalyzerServiceImpl.DEFAULT_DUPLICATE_THRESHOLD);
+  }
+
+  @Test
+  public void testChangedText() throws Exception {
+    long[] a = PerceptualHash.of(slide("Slide 1", 0));
+    long[] b = PerceptualHash.of(slide("Slide 2", 0));
+    assertTrue(PerceptualHash.distance(a, b) > TextAnalyzerServiceImpl.DEFAULT_DUPLICATE_THRESHOLD);
+  }
+
+  @Test
+  public void testImageFile() throws Exception {
+    File image = new File(PerceptualHashTest.class.getResource("/image.jpg").toURI());
+    assertNotNull(PerceptualHash.of(image));
+  }
+
+}
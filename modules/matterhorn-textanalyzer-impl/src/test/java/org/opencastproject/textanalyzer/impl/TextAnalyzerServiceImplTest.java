@@ -0,0 +1,220 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+package org.opencastproject.textanalyzer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.opencastproject.dictionary.api.DictionaryService;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.mediapackage.Attachment;
+import org.opencastproject.mediapackage.Catalog;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
+import org.opencastproject.mediapackage.MediaPackageElements;
+import org.opencastproject.mediapackage.attachment.AttachmentImpl;
+import org.opencastproject.metadata.mpeg7.Mpeg7Catalog;
+import org.opencastproject.metadata.mpeg7.Mpeg7CatalogService;
+import org.opencastproject.metadata.mpeg7.Textual;
+import org.opencastproject.metadata.mpeg7.TextualImpl;
+import org.opencastproject.metadata.mpeg7.VideoSegment;
+import org.opencastproject.metadata.mpeg7.VideoText;
+import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.textanalyzer.api.TextAnalyzerException;
+import org.opencastproject.textextractor.api.TextExtractor;
+import org.opencastproject.textextractor.api.TextExtractorException;
+import org.opencastproject.textextractor.api.TextFrame;
+import org.opencastproject.textextractor.api.TextLine;
+import org.opencastproject.workspace.api.Workspace;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Test class for the batch text extraction of {@link TextAnalyzerServiceImpl}.
+ */
+public class TextAnalyzerServiceImplTest {
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private TextAnalyzerServiceImpl service;
+
+  private Workspace workspace;
+
+  private Capture<InputStream> catalogCapture;
+
+  private final List<Attachment> images = new ArrayList<Attachment>();
+
+  @Before
+  public void setUp() throws Exception {
+    catalogCapture = new Capture<InputStream>();
+    workspace = EasyMock.createNiceMock(Workspace.class);
+    EasyMock.expect(workspace.putInCollection(EasyMock.anyString(), EasyMock.anyString(),
+            EasyMock.capture(catalogCapture))).andReturn(new URI("http://localhost/files/collection/texts/1.xml"))
+            .anyTimes();
+
+    DictionaryService dictionaryService = new DictionaryService() {
+      @Override
+      public Textual cleanUpText(String text) {
+        return new TextualImpl(text);
+      }
+    };
+
+    service = new TextAnalyzerServiceImpl();
+    service.setWorkspace(workspace);
+    service.setMpeg7CatalogService(new Mpeg7CatalogService());
+    service.setDictionaryService(dictionaryService);
+  }
+
+  /** Writes a slide image to the workspace and returns the file */
+  private File addImage(String id, String title) throws Exception {
+    BufferedImage image = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, 640, 480);
+    g.setColor(Color.BLACK);
+    g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 72));
+    g.drawString(title, 40, 120);
+    g.dispose();
+    File file = testFolder.newFile(id + ".png");
+    ImageIO.write(image, "png", file);
+
+    URI uri = new URI("http://localhost/files/collection/images/" + id + ".png");
+    Attachment attachment = AttachmentImpl.fromURI(uri);
+    attachment.setIdentifier(id);
+    images.add(attachment);
+    EasyMock.expect(workspace.get(uri)).andReturn(file).anyTimes();
+    workspace.delete(uri);
+    EasyMock.expectLastCall().once();
+    return file;
+  }
+
+  /** Creates a text frame with the given lines */
+  private static TextFrame frame(String... lines) {
+    List<TextLine> textLines = new ArrayList<TextLine>();
+    for (String line : lines) {
+      TextLine textLine = EasyMock.createNiceMock(TextLine.class);
+      EasyMock.expect(textLine.getText()).andReturn(line).anyTimes();
+      EasyMock.expect(textLine.getBoundaries()).andReturn(new Rectangle(40, 60, 400, 80)).anyTimes();
+      EasyMock.replay(textLine);
+      textLines.add(textLine);
+    }
+    TextFrame frame = EasyMock.createNiceMock(TextFrame.class);
+    EasyMock.expect(frame.hasText()).andReturn(lines.length > 0).anyTimes();
+    EasyMock.expect(frame.getLines()).andReturn(textLines.toArray(new TextLine[textLines.size()])).anyTimes();
+    EasyMock.replay(frame);
+    return frame;
+  }
+
+  /** Runs the batch job on the images */
+  private String extractBatch() throws Exception {
+    JobImpl job = new JobImpl(1L);
+    job.setOperation("ExtractBatch");
+    job.setArguments(Arrays.asList(MediaPackageElementParser.getArrayAsXml(images)));
+    return service.process(job);
+  }
+
+  /** Returns the text of each segment of the catalog */
+  @SuppressWarnings("unchecked")
+  private static List<List<String>> getSegmentTexts(Mpeg7Catalog mpeg7) {
+    List<List<String>> segmentTexts = new ArrayList<List<String>>();
+    Iterator<? extends VideoSegment> segments = ((Iterator<? extends VideoSegment>) mpeg7.videoContent().next()
+            .getTemporalDecomposition().segments());
+    while (segments.hasNext()) {
+      List<String> texts = new ArrayList<String>();
+      for (VideoText videoText : segments.next().getSpatioTemporalDecomposition().getVideoText()) {
+        texts.add(videoText.getText().getText());
+      }
+      segmentTexts.add(texts);
+    }
+    return segmentTexts;
+  }
+
+  @Test
+  public void testExtractBatch() throws Exception {
+    File first = addImage("slide-1", "Slide 1");
+    File second = addImage("slide-2", "Slide 2");
+    addImage("slide-3", "Slide 1");
+
+    // The third image is a duplicate of the first one and must not be analyzed
+    TextExtractor textExtractor = EasyMock.createMock(TextExtractor.class);
+    EasyMock.expect(textExtractor.extract(first)).andReturn(frame("Introduction", "Overview")).once();
+    EasyMock.expect(textExtractor.extract(second)).andReturn(frame("Consistency")).once();
+    EasyMock.replay(textExtractor, workspace);
+    service.setTextExtractor(textExtractor);
+
+    Catalog catalog = (Catalog) MediaPackageElementParser.getFromXml(extractBatch());
+    assertEquals(MediaPackageElements.TEXTS, catalog.getFlavor());
+
+    Mpeg7Catalog mpeg7 = new Mpeg7CatalogService().load(catalogCapture.getValue());
+    List<List<String>> segmentTexts = getSegmentTexts(mpeg7);
+    assertEquals(3, segmentTexts.size());
+    assertEquals(Arrays.asList("Introduction", "Overview"), segmentTexts.get(0));
+    assertEquals(Arrays.asList("Consistency"), segmentTexts.get(1));
+    assertEquals(Arrays.asList("Introduction", "Overview"), segmentTexts.get(2));
+    EasyMock.verify(textExtractor, workspace);
+  }
+
+  @Test
+  public void testExtractBatchFailingImage() throws Exception {
+    File first = addImage("slide-1", "Slide 1");
+    File second = addImage("slide-2", "Slide 2");
+
+    TextExtractor textExtractor = EasyMock.createMock(TextExtractor.class);
+    EasyMock.expect(textExtractor.extract(first)).andReturn(frame("Introduction")).anyTimes();
+    EasyMock.expect(textExtractor.extract(second)).andThrow(new TextExtractorException("Unreadable image")).once();
+    EasyMock.replay(textExtractor, workspace);
+    service.setTextExtractor(textExtractor);
+
+    try {
+      extractBatch();
+      fail("The batch job must fail if an image cannot be analyzed");
+    } catch (ServiceRegistryException e) {
+      assertTrue(e.getCause() instanceof TextAnalyzerException);
+    }
+    // No catalog is stored, but all images are removed from the workspace
+    assertFalse(catalogCapture.hasCaptured());
+    EasyMock.verify(workspace);
+  }
+
+}
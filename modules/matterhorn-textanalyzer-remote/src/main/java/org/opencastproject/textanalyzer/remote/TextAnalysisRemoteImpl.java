@@ -80,4 +80,36 @@ public class TextAnalysisRemoteImpl extends RemoteBase implements TextAnalyzerSe
     throw new TextAnalyzerException("Unable to analyze element '" + image + "' using a remote analysis service");
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Job extract(final List<Attachment> images) throws TextAnalyzerException {
+    HttpPost post = new HttpPost("/batch");
+    try {
+      List<BasicNameValuePair> params = new ArrayList<BasicNameValuePair>();
+      params.add(new BasicNameValuePair("images", MediaPackageElementParser.getArrayAsXml(images)));
+      post.setEntity(new UrlEncodedFormEntity(params));
+    } catch (Exception e) {
+      throw new TextAnalyzerException(e);
+    }
+    HttpResponse response = null;
+    try {
+      response = getResponse(post);
+      if (response != null) {
+        try {
+          Job receipt = JobParser.parseJob(response.getEntity().getContent());
+          logger.info("Analyzing {} images on a remote analysis server", images.size());
+          return receipt;
+        } catch (Exception e) {
+          throw new TextAnalyzerException("Unable to analyze " + images.size()
+                  + " images using a remote analysis service", e);
+        }
+      }
+    } finally {
+      closeConnection(response);
+    }
+    throw new TextAnalyzerException("Unable to analyze " + images.size() + " images using a remote analysis service");
+  }
+
 }
@@ -23,9 +23,17 @@ package org.opencastproject.security.urlsigning;
 import org.opencastproject.mediapackage.MediaPackageSerializer;
 import org.opencastproject.security.api.SecurityService;
 import org.opencastproject.security.urlsigning.exception.UrlSigningException;
+import org.opencastproject.security.urlsigning.jmx.SignedUrlCacheBean;
 import org.opencastproject.security.urlsigning.service.UrlSigningService;
 import org.opencastproject.security.urlsigning.utils.UrlSigningServiceOsgiUtil;
+import org.opencastproject.util.jmx.JmxUtil;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.apache.commons.lang3.StringUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -34,6 +42,9 @@ import org.slf4j.LoggerFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Dictionary;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectInstance;
 
 /**
  * Implementation of a {@link MediaPackageSerializer} that will securely sign urls of a Mediapackage.
@@ -55,6 +66,33 @@ public class SigningMediaPackageSerializer implements MediaPackageSerializer, Ma
   /** Signing of the URL should probably be something of the last things to do */
   public static final int RANKING = -1000;
 
+  /** The configuration key for the granularity in seconds to which expiry dates of signed URLs are rounded up */
+  public static final String EXPIRES_GRANULARITY_KEY = "url.signing.expires.granularity";
+
+  /** The configuration key for the maximum number of signed URLs kept in the cache */
+  public static final String CACHE_SIZE_KEY = "url.signing.cache.size";
+
+  /** The default expiry granularity, which disables caching */
+  public static final long DEFAULT_EXPIRES_GRANULARITY = 0;
+
+  /** The default maximum number of cached signed URLs */
+  public static final long DEFAULT_CACHE_SIZE = 10000;
+
+  /** Signed URL cache JMX type */
+  private static final String JMX_SIGNED_URL_CACHE_TYPE = "SignedUrlCache";
+
+  /** The granularity in seconds of expiry dates, signed URLs are only cached if positive */
+  private long expiresGranularity = DEFAULT_EXPIRES_GRANULARITY;
+
+  /** Signed URLs by base URL, client IP and expiry bucket, <code>null</code> if caching is disabled */
+  private volatile Cache<String, String> cache = null;
+
+  /** The JMX bean exposing the cache statistics */
+  private final SignedUrlCacheBean cacheBean = new SignedUrlCacheBean();
+
+  /** The JMX bean object instance */
+  private ObjectInstance registeredMXBean;
+
   /**
    * Creates a new and unconfigured package serializer that will not be able to perform any redirecting.
    */
@@ -69,6 +107,21 @@ public class SigningMediaPackageSerializer implements MediaPackageSerializer, Ma
   /** OSGi callback for UrlSigningService */
   public void setUrlSigningService(UrlSigningService urlSigningService) {
     this.urlSigningService = urlSigningService;
+    // The new service might sign with different keys
+    Cache<String, String> c = cache;
+    if (c != null)
+      c.invalidateAll();
+  }
+
+  /** OSGi component activation callback */
+  public void activate() {
+    registeredMXBean = JmxUtil.registerMXBean(cacheBean, JMX_SIGNED_URL_CACHE_TYPE);
+  }
+
+  /** OSGi component deactivation callback */
+  public void deactivate() {
+    if (registeredMXBean != null)
+      JmxUtil.unregisterMXBean(registeredMXBean);
   }
 
   /** OSGi callback if properties file is present */
@@ -78,6 +131,34 @@ public class SigningMediaPackageSerializer implements MediaPackageSerializer, Ma
     expireSeconds = UrlSigningServiceOsgiUtil.getUpdatedSigningExpiration(properties, this.getClass().getSimpleName());
     signWithClientIP = UrlSigningServiceOsgiUtil.getUpdatedSignWithClientIP(properties,
             this.getClass().getSimpleName());
+
+    expiresGranularity = getLong(properties, EXPIRES_GRANULARITY_KEY, DEFAULT_EXPIRES_GRANULARITY);
+    long cacheSize = getLong(properties, CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+    if (expiresGranularity > 0 && cacheSize > 0) {
+      // An entry is only of use until its expiry bucket is over
+      cache = CacheBuilder.newBuilder().maximumSize(cacheSize).expireAfterWrite(expiresGranularity, TimeUnit.SECONDS)
+              .recordStats().<String, String> build();
+      logger.info("Caching up to {} signed URLs with expiry dates rounded up to {} seconds", cacheSize,
+              expiresGranularity);
+    } else {
+      cache = null;
+      logger.info("Caching of signed URLs is disabled");
+    }
+    cacheBean.setCache(cache);
+  }
+
+  /** Reads a long value from the configuration, falling back to the default if it is missing or invalid. */
+  @SuppressWarnings("rawtypes")
+  private static long getLong(Dictionary properties, String key, long defaultValue) {
+    String value = properties == null ? null : StringUtils.trimToNull((String) properties.get(key));
+    if (value == null)
+      return defaultValue;
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      logger.warn("Ignoring invalid value '{}' for {}, using the default of {}", value, key, defaultValue);
+      return defaultValue;
+    }
   }
 
   /**
@@ -132,7 +213,7 @@ public class SigningMediaPackageSerializer implements MediaPackageSerializer, Ma
         if (signWithClientIP) {
           clientIP = securityService.getUserIP();
         }
-        path = urlSigningService.sign(path, expireSeconds, null, clientIP);
+        path = signCached(path, clientIP);
       } catch (UrlSigningException e) {
         logger.debug("Unable to sign url '" + path + "' so not adding a signed query string.");
       }
@@ -140,6 +221,26 @@ public class SigningMediaPackageSerializer implements MediaPackageSerializer, Ma
     return new URI(path);
   }
 
+  /**
+   * Signs a URL with an expiry date rounded up to the configured granularity, so that a signed URL can be reused until
+   * the rounded expiry date changes.
+   */
+  private String signCached(String path, String clientIP) throws UrlSigningException {
+    Cache<String, String> c = cache;
+    long granularity = expiresGranularity * 1000L;
+    if (c == null || granularity <= 0)
+      return urlSigningService.sign(path, expireSeconds, null, clientIP);
+
+    long bucket = (System.currentTimeMillis() + expireSeconds * 1000L + granularity - 1) / granularity;
+    String key = bucket + " " + StringUtils.defaultString(clientIP) + " " + path;
+    String signed = c.getIfPresent(key);
+    if (signed == null) {
+      signed = urlSigningService.sign(path, new DateTime(bucket * granularity, DateTimeZone.UTC), null, clientIP);
+      c.put(key, signed);
+    }
+    return signed;
+  }
+
   protected Long getExpirationSeconds() {
     return expireSeconds;
   }
@@ -0,0 +1,84 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.security.urlsigning.jmx;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Exposes the statistics of a signed URL cache. The statistics are reset whenever the cache is replaced.
+ */
+public class SignedUrlCacheBean implements SignedUrlCacheMXBean {
+
+  /** The cache, <code>null</code> if caching is disabled */
+  private volatile Cache<String, String> cache;
+
+  /**
+   * Sets the cache to report on.
+   *
+   * @param cache
+   *          the cache or <code>null</code> if caching is disabled
+   */
+  public void setCache(Cache<String, String> cache) {
+    this.cache = cache;
+  }
+
+  private CacheStats stats() {
+    Cache<String, String> c = cache;
+    return c == null ? new CacheStats(0, 0, 0, 0, 0, 0) : c.stats();
+  }
+
+  /**
+   * @see org.opencastproject.security.urlsigning.jmx.SignedUrlCacheMXBean#getHitCount()
+   */
+  @Override
+  public long getHitCount() {
+    return stats().hitCount();
+  }
+
+  /**
+   * @see org.opencastproject.security.urlsigning.jmx.SignedUrlCacheMXBean#getMissCount()
+   */
+  @Override
+  public long getMissCount() {
+    return stats().missCount();
+  }
+
+  /**
+   * @see org.opencastproject.security.urlsigning.jmx.SignedUrlCacheMXBean#getHitRatio()
+   */
+  @Override
+  public double getHitRatio() {
+    return stats().hitRate();
+  }
+
+  /**
+   * @see org.opencastproject.security.urlsigning.jmx.SignedUrlCacheMXBean#getSize()
+   */
+  @Override
+  public long getSize() {
+    Cache<String, String> c = cache;
+    return c == null ? 0 : c.size();
+  }
+
+}
@@ -0,0 +1,58 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.security.urlsigning.jmx;
+
+/**
+ * JMX Bean interface exposing the statistics of the signed URL cache
+ */
+public interface SignedUrlCacheMXBean {
+
+  /**
+   * Gets the number of signed URLs served from the cache
+   *
+   * @return the number of cache hits
+   */
+  long getHitCount();
+
+  /**
+   * Gets the number of URLs which had to be signed
+   *
+   * @return the number of cache misses
+   */
+  long getMissCount();
+
+  /**
+   * Gets the ratio of signed URLs served from the cache, or 1.0 if no URL has been requested yet
+   *
+   * @return the cache hit ratio
+   */
+  double getHitRatio();
+
+  /**
+   * Gets the number of signed URLs in the cache
+   *
+   * @return the cache size
+   */
+  long getSize();
+
+}
@@ -21,12 +21,18 @@
 package org.opencastproject.security.urlsigning;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.urlsigning.service.UrlSigningService;
 import org.opencastproject.security.urlsigning.utils.UrlSigningServiceOsgiUtil;
 
+import org.easymock.EasyMock;
+import org.joda.time.DateTime;
 import org.junit.Test;
 import org.osgi.service.cm.ConfigurationException;
 
+import java.net.URI;
 import java.util.Properties;
 
 public class SigningMediaPackageSerializerTest {
@@ -42,4 +48,37 @@ public class SigningMediaPackageSerializerTest {
     serializer.updated(properties);
     assertEquals(testValue, serializer.getExpirationSeconds());
   }
+
+  @Test
+  public void testCachedSigning() throws Exception {
+    String url = "http://localhost/video.mp4";
+    UrlSigningService signingService = EasyMock.createMock(UrlSigningService.class);
+    EasyMock.expect(signingService.accepts(EasyMock.anyString())).andReturn(true).anyTimes();
+    EasyMock.expect(signingService.sign(EasyMock.eq(url), EasyMock.anyObject(DateTime.class),
+            EasyMock.<DateTime> isNull(), EasyMock.eq("10.0.0.1"))).andReturn(url + "?signed=1").once();
+    EasyMock.expect(signingService.sign(EasyMock.eq(url), EasyMock.anyObject(DateTime.class),
+            EasyMock.<DateTime> isNull(), EasyMock.eq("10.0.0.2"))).andReturn(url + "?signed=2").once();
+    EasyMock.replay(signingService);
+
+    SecurityService securityService = EasyMock.createMock(SecurityService.class);
+    EasyMock.expect(securityService.getUserIP()).andReturn("10.0.0.1").times(2);
+    EasyMock.expect(securityService.getUserIP()).andReturn("10.0.0.2");
+    EasyMock.replay(securityService);
+
+    SigningMediaPackageSerializer serializer = new SigningMediaPackageSerializer();
+    serializer.setSecurityService(securityService);
+    serializer.setUrlSigningService(signingService);
+    Properties properties = new Properties();
+    properties.put(UrlSigningServiceOsgiUtil.URL_SIGNING_USE_CLIENT_IP, "true");
+    properties.put(SigningMediaPackageSerializer.EXPIRES_GRANULARITY_KEY, "3600");
+    serializer.updated(properties);
+
+    URI first = serializer.decodeURI(new URI(url));
+    assertEquals(new URI(url + "?signed=1"), first);
+    // The second request of the same client within the expiry bucket reuses the signature
+    assertEquals(first, serializer.decodeURI(new URI(url)));
+    // Signatures are not shared between clients
+    assertNotEquals(first, serializer.decodeURI(new URI(url)));
+    EasyMock.verify(signingService, securityService);
+  }
 }
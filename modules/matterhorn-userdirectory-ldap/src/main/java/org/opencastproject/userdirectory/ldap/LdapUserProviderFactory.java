@@ -81,6 +81,9 @@ public class LdapUserProviderFactory implements ManagedServiceFactory {
   /** The key to look up the number of minutes to cache users */
   private static final String CACHE_EXPIRATION = "org.opencastproject.userdirectory.ldap.cache.expiration";
 
+  /** The key to look up the number of entries to request per page when searching users */
+  private static final String PAGE_SIZE = "org.opencastproject.userdirectory.ldap.pagesize";
+
   /** The key to indicate a prefix that will be added to every role read from the LDAP */
   private static final String ROLE_PREFIX_KEY = "org.opencastproject.userdirectory.ldap.roleprefix";
 
@@ -169,6 +172,15 @@ public class LdapUserProviderFactory implements ManagedServiceFactory {
       logger.warn("{} could not be loaded, default value is used: {}", CACHE_EXPIRATION, cacheExpiration);
     }
 
+    int pageSize = 500;
+    try {
+      if (properties.get(PAGE_SIZE) != null) {
+        pageSize = Integer.parseInt(properties.get(PAGE_SIZE).toString());
+      }
+    } catch (Exception e) {
+      logger.warn("{} could not be loaded, default value is used: {}", PAGE_SIZE, pageSize);
+    }
+
     // Now that we have everything we need, go ahead and activate a new provider, removing an old one if necessary
     ServiceRegistration existingRegistration = providerRegistrations.remove(pid);
     if (existingRegistration != null) {
@@ -183,7 +195,7 @@ public class LdapUserProviderFactory implements ManagedServiceFactory {
       throw new ConfigurationException(ORGANIZATION_KEY, "not found");
     }
     LdapUserProviderInstance provider = new LdapUserProviderInstance(pid, org, searchBase, searchFilter, url, userDn,
-            password, roleAttributesGlob, rolePrefix, cacheSize, cacheExpiration);
+            password, roleAttributesGlob, rolePrefix, cacheSize, cacheExpiration, pageSize);
     providerRegistrations.put(pid, bundleContext.registerService(UserProvider.class.getName(), provider, null));
 
   }
@@ -45,18 +45,36 @@ import org.springframework.security.ldap.search.FilterBasedLdapUserSearch;
 import org.springframework.security.ldap.userdetails.LdapUserDetailsMapper;
 import org.springframework.security.ldap.userdetails.LdapUserDetailsService;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.management.InstanceNotFoundException;
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import javax.naming.ldap.PagedResultsResponseControl;
 
 /**
  * A UserProvider that reads user roles from LDAP entries.
@@ -68,6 +86,12 @@ public class LdapUserProviderInstance implements UserProvider, CachingUserProvid
 
   public static final String PROVIDER_NAME = "ldap";
 
+  /** The role prefix used by the spring user details mapper if none is configured */
+  private static final String DEFAULT_ROLE_PREFIX = "ROLE_";
+
+  /** Matches the attribute compared with the user name in the search filter, e.g. <code>uid</code> in (uid={0}) */
+  private static final Pattern USERNAME_ATTRIBUTE_PATTERN = Pattern.compile("([\\w.;-]+)=\\{0\\}");
+
   /** The spring ldap userdetails service delegate */
   private LdapUserDetailsService delegate = null;
 
@@ -86,6 +110,36 @@ public class LdapUserProviderInstance implements UserProvider, CachingUserProvid
   /** A token to store in the miss cache */
   protected Object nullToken = new Object();
 
+  /** The connection to the LDAP server */
+  private DefaultSpringSecurityContextSource contextSource = null;
+
+  /** The ldap search base */
+  private String searchBase = null;
+
+  /** The ldap search filter, containing {0} as the placeholder for the user name */
+  private String searchFilter = null;
+
+  /** The attribute holding the user name, taken from the search filter */
+  private String usernameAttribute = null;
+
+  /** The ldap attributes to treat as roles */
+  private String[] roleAttributes = new String[0];
+
+  /** The prefix of the roles read from the ldap attributes */
+  private String rolePrefix = DEFAULT_ROLE_PREFIX;
+
+  /** The number of entries to request per page of search results */
+  private int pageSize;
+
+  /** The number of milliseconds after which the list of all users is read again */
+  private long snapshotExpiration;
+
+  /** All users of the directory, sorted by name, or <code>null</code> if they have not been loaded yet */
+  private volatile Map<String, User> snapshot = null;
+
+  /** The time at which the snapshot has been loaded */
+  private volatile long snapshotLoaded = 0L;
+
   /**
    * Constructs an ldap user provider with the needed settings.
    *
@@ -111,17 +165,23 @@ public class LdapUserProviderInstance implements UserProvider, CachingUserProvid
    *          the number of users to cache
    * @param cacheExpiration
    *          the number of minutes to cache users
+   * @param pageSize
+   *          the number of entries to request per page when searching users
    */
   // CHECKSTYLE:OFF
   LdapUserProviderInstance(String pid, Organization organization, String searchBase, String searchFilter, String url,
           String userDn, String password, String roleAttributesGlob, String rolePrefix, int cacheSize,
-          int cacheExpiration) {
+          int cacheExpiration, int pageSize) {
     // CHECKSTYLE:ON
     this.organization = organization;
+    this.searchBase = searchBase;
+    this.searchFilter = searchFilter;
+    this.pageSize = pageSize;
+    this.snapshotExpiration = TimeUnit.MINUTES.toMillis(cacheExpiration);
     logger.debug("Creating LdapUserProvider instance with pid=" + pid + ", and organization=" + organization
             + ", to LDAP server at url:  " + url);
 
-    DefaultSpringSecurityContextSource contextSource = new DefaultSpringSecurityContextSource(url);
+    contextSource = new DefaultSpringSecurityContextSource(url);
     if (StringUtils.isNotBlank(userDn)) {
       contextSource.setPassword(password);
       contextSource.setUserDn(userDn);
@@ -151,6 +211,17 @@ public class LdapUserProviderInstance implements UserProvider, CachingUserProvid
       }
       mapper.setRoleAttributes(roleAttributesGlob.split(","));
       this.delegate.setUserDetailsMapper(mapper);
+      this.roleAttributes = StringUtils.stripAll(roleAttributesGlob.split(","));
+      if (rolePrefix != null)
+        this.rolePrefix = rolePrefix;
+    }
+
+    Matcher matcher = USERNAME_ATTRIBUTE_PATTERN.matcher(searchFilter);
+    if (matcher.find()) {
+      usernameAttribute = matcher.group(1);
+    } else {
+      logger.warn("No user name attribute found in search filter '{}', users of {} can not be listed", searchFilter,
+              pid);
     }
 
     // Setup the caches
@@ -158,6 +229,10 @@ public class LdapUserProviderInstance implements UserProvider, CachingUserProvid
             .build(new CacheLoader<String, Object>() {
               @Override
               public Object load(String id) throws Exception {
+                // Only use the list of all users while it is current, so role changes are picked up at login
+                Map<String, User> users = getCurrentSnapshot();
+                if (users != null && users.containsKey(id))
+                  return users.get(id);
                 User user = loadUserFromLdap(id);
                 return user == null ? nullToken : user;
               }
@@ -281,29 +356,248 @@ public class LdapUserProviderInstance implements UserProvider, CachingUserProvid
     return (float) (requests.get() - ldapLoads.get()) / requests.get();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * Queries matching every user are answered from the list of all users, any other query is turned into a wildcard
+   * filter and evaluated by the LDAP server.
+   *
+   * @see org.opencastproject.security.api.UserProvider#findUsers(java.lang.String, int, int)
+   */
   @Override
   public Iterator<User> findUsers(String query, int offset, int limit) {
     if (query == null)
       throw new IllegalArgumentException("Query must be set");
-    // TODO implement a LDAP wildcard search
-    return Collections.<User> emptyList().iterator();
+    if (usernameAttribute == null || query.isEmpty())
+      return Collections.<User> emptyList().iterator();
+
+    if (StringUtils.containsOnly(query, '%')) {
+      List<User> users = new ArrayList<User>(getAllUsers().values());
+      int from = Math.min(offset, users.size());
+      int to = limit > 0 ? Math.min(from + limit, users.size()) : users.size();
+      return users.subList(from, to).iterator();
+    }
+
+    try {
+      return searchUsersInLdap(searchFilter.replace("{0}", toFilterValue(query)), offset, limit).iterator();
+    } catch (Exception e) {
+      logger.warn("Unable to search users matching '{}' in LDAP: {}", query, e.getMessage());
+      return Collections.<User> emptyList().iterator();
+    }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.security.api.UserProvider#getUsers()
+   */
   @Override
   public Iterator<User> getUsers() {
-    // TODO implement LDAP get all users
-    return Collections.<User> emptyList().iterator();
+    return getAllUsers().values().iterator();
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.security.api.UserProvider#countUsers()
+   */
   @Override
   public long countUsers() {
-    // TODO implement LDAP count users
-    return 0;
+    return getAllUsers().size();
   }
 
   @Override
   public void invalidate(String userName) {
+    Map<String, User> users = snapshot;
+    if (users != null)
+      users.remove(userName);
     cache.invalidate(userName);
   }
 
+  /**
+   * Returns all users of the directory. The users are read in pages once and kept until the cache expiration has
+   * passed. If reading the users fails, the previous list is kept.
+   *
+   * @return the users, sorted by name
+   */
+  protected Map<String, User> getAllUsers() {
+    if (usernameAttribute == null)
+      return Collections.<String, User> emptyMap();
+    Map<String, User> users = getCurrentSnapshot();
+    if (users != null)
+      return users;
+    synchronized (this) {
+      users = getCurrentSnapshot();
+      if (users != null)
+        return users;
+      try {
+        long start = System.currentTimeMillis();
+        Map<String, User> loaded = new ConcurrentSkipListMap<String, User>();
+        for (User user : searchUsersInLdap(searchFilter.replace("{0}", "*"), 0, 0)) {
+          loaded.put(user.getUsername(), user);
+        }
+        logger.debug("Loaded {} users from LDAP in {} ms", loaded.size(), System.currentTimeMillis() - start);
+        snapshot = loaded;
+        snapshotLoaded = System.currentTimeMillis();
+      } catch (Exception e) {
+        logger.warn("Unable to load the users from LDAP: {}", e.getMessage());
+        if (snapshot == null)
+          return Collections.<String, User> emptyMap();
+      }
+      return snapshot;
+    }
+  }
+
+  /**
+   * Returns the list of all users if it has been loaded and has not expired yet.
+   *
+   * @return the users, or <code>null</code> if there is no current list
+   */
+  private Map<String, User> getCurrentSnapshot() {
+    Map<String, User> users = snapshot;
+    if (users != null && System.currentTimeMillis() - snapshotLoaded < snapshotExpiration)
+      return users;
+    return null;
+  }
+
+  /**
+   * Searches users in LDAP using the paged results control (RFC 2696), so that directories limiting the size of a
+   * single result set can still be read completely.
+   *
+   * @param filter
+   *          the ldap search filter
+   * @param offset
+   *          the number of matching users to skip
+   * @param limit
+   *          the maximum number of users to return, or 0 to return all users
+   * @return the users
+   * @throws NamingException
+   *           if searching the directory fails
+   */
+  protected List<User> searchUsersInLdap(String filter, int offset, int limit) throws NamingException {
+    List<User> users = new ArrayList<User>();
+    SearchControls controls = new SearchControls();
+    controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+    String[] attributes = new String[roleAttributes.length + 1];
+    attributes[0] = usernameAttribute;
+    System.arraycopy(roleAttributes, 0, attributes, 1, roleAttributes.length);
+    controls.setReturningAttributes(attributes);
+
+    Thread currentThread = Thread.currentThread();
+    ClassLoader originalClassloader = currentThread.getContextClassLoader();
+    LdapContext context = null;
+    try {
+      currentThread.setContextClassLoader(LdapUserProviderFactory.class.getClassLoader());
+      context = (LdapContext) contextSource.getReadOnlyContext();
+      JaxbOrganization jaxbOrganization = JaxbOrganization.fromOrganization(organization);
+      int skipped = 0;
+      byte[] cookie = null;
+      do {
+        context.setRequestControls(new Control[] { new PagedResultsControl(pageSize, cookie, Control.NONCRITICAL) });
+        NamingEnumeration<SearchResult> results = context.search(searchBase, filter, controls);
+        try {
+          while (results.hasMore()) {
+            User user = toUser(results.next().getAttributes(), jaxbOrganization);
+            if (user == null)
+              continue;
+            if (skipped < offset) {
+              skipped++;
+              continue;
+            }
+            users.add(user);
+            if (limit > 0 && users.size() >= limit)
+              return users;
+          }
+        } finally {
+          results.close();
+        }
+        cookie = null;
+        Control[] responseControls = context.getResponseControls();
+        if (responseControls != null) {
+          for (Control control : responseControls) {
+            if (control instanceof PagedResultsResponseControl)
+              cookie = ((PagedResultsResponseControl) control).getCookie();
+          }
+        }
+      } while (cookie != null && cookie.length > 0);
+      return users;
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to create the paged results control", e);
+    } finally {
+      if (context != null) {
+        try {
+          context.close();
+        } catch (NamingException e) {
+          logger.debug("Unable to close LDAP context: {}", e.getMessage());
+        }
+      }
+      currentThread.setContextClassLoader(originalClassloader);
+    }
+  }
+
+  /**
+   * Creates a user from the attributes of an ldap entry, the same way the spring user details mapper does.
+   *
+   * @param attributes
+   *          the entry's attributes
+   * @param jaxbOrganization
+   *          the organization
+   * @return the user or <code>null</code> if the entry does not have a user name
+   */
+  private User toUser(Attributes attributes, JaxbOrganization jaxbOrganization) throws NamingException {
+    Attribute username = attributes.get(usernameAttribute);
+    if (username == null || !(username.get() instanceof String))
+      return null;
+    Set<JaxbRole> roles = new HashSet<JaxbRole>();
+    for (String roleAttribute : roleAttributes) {
+      Attribute attribute = attributes.get(roleAttribute);
+      if (attribute == null)
+        continue;
+      NamingEnumeration<?> values = attribute.getAll();
+      while (values.hasMore()) {
+        Object value = values.next();
+        if (value instanceof String)
+          roles.add(new JaxbRole(rolePrefix + ((String) value).toUpperCase(Locale.ENGLISH), jaxbOrganization));
+      }
+    }
+    return new JaxbUser((String) username.get(), PROVIDER_NAME, jaxbOrganization, roles);
+  }
+
+  /**
+   * Turns a user query into an ldap filter value, escaping the special characters of RFC 4515 and translating the
+   * <code>%</code> wildcard of the query into the ldap wildcard.
+   *
+   * @param query
+   *          the query
+   * @return the filter value
+   */
+  static String toFilterValue(String query) {
+    StringBuilder value = new StringBuilder(query.length() + 8);
+    for (char c : query.toCharArray()) {
+      switch (c) {
+        case '%':
+          value.append('*');
+          break;
+        case '*':
+          value.append("\\2a");
+          break;
+        case '(':
+          value.append("\\28");
+          break;
+        case ')':
+          value.append("\\29");
+          break;
+        case '\\':
+          value.append("\\5c");
+          break;
+        case '\0':
+          value.append("\\00");
+          break;
+        default:
+          value.append(c);
+      }
+    }
+    return value.toString();
+  }
+
 }
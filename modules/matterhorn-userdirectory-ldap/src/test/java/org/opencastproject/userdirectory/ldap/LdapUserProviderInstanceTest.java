@@ -0,0 +1,155 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.userdirectory.ldap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.User;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Tests the {@link LdapUserProviderInstance} against an in-process LDAP server.
+ */
+public class LdapUserProviderInstanceTest {
+
+  private static final int USERS = 25;
+
+  private InMemoryDirectoryServer server = null;
+
+  private LdapUserProviderInstance provider = null;
+
+  @Before
+  public void setUp() throws Exception {
+    InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig("dc=example,dc=org");
+    config.addAdditionalBindCredentials("cn=admin,dc=example,dc=org", "secret");
+    config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+    config.setSchema(null);
+    server = new InMemoryDirectoryServer(config);
+    server.add("dn: dc=example,dc=org", "objectClass: top", "objectClass: domain", "dc: example");
+    server.add("dn: ou=people,dc=example,dc=org", "objectClass: top", "objectClass: organizationalUnit", "ou: people");
+    for (int i = 0; i < USERS; i++) {
+      String uid = String.format("user%02d", i);
+      server.add("dn: uid=" + uid + ",ou=people,dc=example,dc=org", "objectClass: top", "objectClass: person",
+              "uid: " + uid, "cn: " + uid, "sn: " + uid, "departmentNumber: " + (i % 2 == 0 ? "even" : "odd"));
+    }
+    server.add("dn: uid=(special),ou=people,dc=example,dc=org", "objectClass: top", "objectClass: person",
+            "uid: (special)", "cn: special", "sn: special");
+    server.startListening();
+
+    // A page size smaller than the number of users makes sure all pages are read
+    provider = new LdapUserProviderInstance("ldap_test_pid", new DefaultOrganization(), "ou=people,dc=example,dc=org",
+            "(uid={0})", "ldap://localhost:" + server.getListenPort(), "cn=admin,dc=example,dc=org", "secret",
+            "departmentNumber", null, 100, 10, 10);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.shutDown(true);
+  }
+
+  @Test
+  public void testLoadUser() throws Exception {
+    User user = provider.loadUser("user03");
+    assertNotNull(user);
+    assertEquals("user03", user.getUsername());
+    assertTrue(user.hasRole("ROLE_ODD"));
+    assertNull(provider.loadUser("nobody"));
+  }
+
+  @Test
+  public void testGetUsers() throws Exception {
+    List<User> users = toList(provider.getUsers());
+    assertEquals(USERS + 1, users.size());
+    assertEquals(USERS + 1, provider.countUsers());
+    // Users are sorted by name
+    assertEquals("(special)", users.get(0).getUsername());
+    assertEquals("user00", users.get(1).getUsername());
+    assertTrue(users.get(1).hasRole("ROLE_EVEN"));
+  }
+
+  @Test
+  public void testFindUsers() throws Exception {
+    assertEquals(USERS + 1, toList(provider.findUsers("%", 0, 0)).size());
+    assertEquals(10, toList(provider.findUsers("user1%", 0, 0)).size());
+    assertEquals(3, toList(provider.findUsers("user%", 22, 5)).size());
+    assertEquals(4, toList(provider.findUsers("%", 5, 4)).size());
+    assertEquals(1, toList(provider.findUsers("(special)", 0, 0)).size());
+    assertFalse(provider.findUsers("*", 0, 0).hasNext());
+    assertFalse(provider.findUsers("", 0, 0).hasNext());
+  }
+
+  @Test
+  public void testUsersAreRefreshedAfterInvalidation() throws Exception {
+    assertEquals(USERS + 1, provider.countUsers());
+    server.modify("dn: uid=user00,ou=people,dc=example,dc=org", "changetype: modify", "replace: departmentNumber",
+            "departmentNumber: staff");
+    assertTrue(provider.loadUser("user00").hasRole("ROLE_EVEN"));
+    provider.invalidate("user00");
+    assertTrue(provider.loadUser("user00").hasRole("ROLE_STAFF"));
+  }
+
+  @Test
+  public void testExpiredUsersAreNotUsedForLogin() throws Exception {
+    // Without caching, the list of all users expires as soon as it has been read
+    provider = new LdapUserProviderInstance("ldap_test_pid", new DefaultOrganization(), "ou=people,dc=example,dc=org",
+            "(uid={0})", "ldap://localhost:" + server.getListenPort(), "cn=admin,dc=example,dc=org", "secret",
+            "departmentNumber", null, 100, 0, 10);
+    assertEquals(USERS + 1, provider.countUsers());
+    server.modify("dn: uid=user00,ou=people,dc=example,dc=org", "changetype: modify", "replace: departmentNumber",
+            "departmentNumber: staff");
+    User user = provider.loadUser("user00");
+    assertTrue(user.hasRole("ROLE_STAFF"));
+    assertFalse(user.hasRole("ROLE_EVEN"));
+  }
+
+  @Test
+  public void testToFilterValue() throws Exception {
+    assertEquals("jo*", LdapUserProviderInstance.toFilterValue("jo%"));
+    assertEquals("\\2a\\28a\\29\\5c", LdapUserProviderInstance.toFilterValue("*(a)\\"));
+  }
+
+  private static List<User> toList(Iterator<User> iterator) {
+    List<User> list = new ArrayList<User>();
+    while (iterator.hasNext()) {
+      list.add(iterator.next());
+    }
+    return list;
+  }
+
+}
@@ -39,7 +39,7 @@ public class LdapUserProviderTest {
   public void setUp() throws Exception {
     service = new LdapUserProviderInstance("sample_pid", new DefaultOrganization(), "ou=people,dc=berkeley,dc=edu",
             "(uid={0})", "ldap://ldap.berkeley.edu", null, null, "berkeleyEduAffiliations,departmentNumber", null, 100,
-            10);
+            10, 500);
   }
 
   @Ignore("Ignore this test by default, since it requires internet connectivity, and the user's details may change.")
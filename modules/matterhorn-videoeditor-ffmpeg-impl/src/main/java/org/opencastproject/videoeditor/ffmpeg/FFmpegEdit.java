@@ -26,19 +26,26 @@ import org.opencastproject.util.IoSupport;
 import org.opencastproject.videoeditor.impl.VideoClip;
 import org.opencastproject.videoeditor.impl.VideoEditorProperties;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -46,18 +53,41 @@ import java.util.Properties;
  * processEdits:    process SMIL definitions of segments into one consecutive video
  *                  There is a fade in and a fade out at the beginning and end of each clip
  *
+ * In smart cut mode, only the groups of pictures around the cut points are re-encoded while the video in between is
+ * copied from the source. This is used if there are no video fades, no scaling and all clips come from the same H.264
+ * source, otherwise or if smart cutting fails the whole video is re-encoded.
  */
 public class FFmpegEdit {
 
   private static final Logger logger = LoggerFactory.getLogger(FFmpegEdit.class);
   private static final String FFMPEG_BINARY_DEFAULT = "ffmpeg";
   private static final String CONFIG_FFMPEG_PATH = "org.opencastproject.composer.ffmpeg.path";
+  private static final String FFPROBE_BINARY_DEFAULT = "ffprobe";
+  private static final String CONFIG_FFPROBE_PATH = "org.opencastproject.inspection.ffprobe.path";
 
   private static final String DEFAULT_FFMPEG_PROPERTIES = "-strict -2 -preset faster -crf 18";
   public static final String DEFAULT_OUTPUT_FILE_EXTENSION = ".mp4";
   private static final String DEFAULT_AUDIO_FADE = "2.0";
   private static final String DEFAULT_VIDEO_FADE = "2.0";
   private static String binary = FFMPEG_BINARY_DEFAULT;
+  private static String probeBinary = FFPROBE_BINARY_DEFAULT;
+
+  /** The only source codec that can be smart cut and the encoder used for the re-encoded parts */
+  private static final String SMART_CUT_CODEC = "h264";
+  private static final String SMART_CUT_ENCODER = "libx264";
+  /** The H.264 profiles as reported by ffprobe which the encoder can reproduce for the re-encoded parts */
+  private static final Map<String, String> SMART_CUT_PROFILES = new HashMap<String, String>();
+  static {
+    SMART_CUT_PROFILES.put("Constrained Baseline", "baseline");
+    SMART_CUT_PROFILES.put("Baseline", "baseline");
+    SMART_CUT_PROFILES.put("Main", "main");
+    SMART_CUT_PROFILES.put("High", "high");
+    SMART_CUT_PROFILES.put("High 10", "high10");
+    SMART_CUT_PROFILES.put("High 4:2:2", "high422");
+    SMART_CUT_PROFILES.put("High 4:4:4 Predictive", "high444");
+  }
+  /** Time in seconds below which two timestamps are considered equal when smart cutting */
+  static final double SMART_CUT_TOLERANCE = 0.001;
 
   protected float vfade;
   protected float afade;
@@ -65,6 +95,7 @@ public class FFmpegEdit {
   protected String ffmpegScaleFilter = null;
   protected String videoCodec = null;  // By default, use the same codec as source
   protected String audioCodec = null;
+  protected boolean smartCut = false;
 
   public static void init(BundleContext bundleContext) {
     String path = bundleContext.getProperty(CONFIG_FFMPEG_PATH);
@@ -72,6 +103,10 @@ public class FFmpegEdit {
     if (StringUtils.isNotBlank(path)) {
       binary = path.trim();
     }
+    path = bundleContext.getProperty(CONFIG_FFPROBE_PATH);
+    if (StringUtils.isNotBlank(path)) {
+      probeBinary = path.trim();
+    }
   }
 
   public FFmpegEdit()
@@ -104,6 +139,7 @@ public class FFmpegEdit {
     this.ffmpegScaleFilter = properties.getProperty(VideoEditorProperties.FFMPEG_SCALE_FILTER, null);
     this.videoCodec = properties.getProperty(VideoEditorProperties.VIDEO_CODEC, null);
     this.audioCodec = properties.getProperty(VideoEditorProperties.AUDIO_CODEC, null);
+    this.smartCut = Boolean.parseBoolean(StringUtils.trim(properties.getProperty(VideoEditorProperties.SMART_CUT)));
   }
 
   public String processEdits(List<String> inputfiles, String dest, String outputSize, List<VideoClip> cleanclips)
@@ -113,6 +149,13 @@ public class FFmpegEdit {
 
   public String processEdits(List<String> inputfiles, String dest, String outputSize, List<VideoClip> cleanclips,
           boolean hasAudio, boolean hasVideo) throws Exception {
+    if (smartCut && canSmartCut(outputSize, cleanclips, hasVideo)) {
+      String error = processSmartCut(inputfiles.get(cleanclips.get(0).getSrc()), dest, cleanclips, hasAudio);
+      if (error == null) {
+        return null;
+      }
+      logger.info("Smart cutting not possible, re-encoding the whole video: {}", error);
+    }
     List<String> cmd = makeEdits(inputfiles, dest, outputSize, cleanclips, hasAudio, hasVideo);
     return run(cmd);
   }
@@ -226,17 +269,7 @@ public class FFmpegEdit {
       }
 
       if (hasAudio) {
-        String afadeFilter = "";
-        /* Only include fade into the filter graph if necessary */
-        if (afade > 0.00001) {
-          double aend = duration - afade;
-          afadeFilter = ",afade=t=in:st=0:d=" + afade + ",afade=t=out:st=" + f.format(aend) + ":d=" + afade;
-        }
-        /* Add filters for audio */
-        clip = "[" + fileindx + ":a]atrim=" + f.format(inpt) + ":duration=" + f.format(duration)
-                  + ",asetpts=PTS-STARTPTS" + afadeFilter + "[a"
-                  + i + "]";
-        clauses.add(clip);
+        clauses.add(makeAudioClip("[" + fileindx + ":a]", vclip, "[a" + i + "]"));
       }
     }
     if (n > 1) { // concat the outpads when there are more then 1 per stream
@@ -279,4 +312,329 @@ public class FFmpegEdit {
 
     return command;
   }
+
+  /*
+   * Construct the audio filter of a single clip: trim the input, reset its timestamps and add the fades
+   */
+  private String makeAudioClip(String input, VideoClip vclip, String output) {
+    DecimalFormat f = new DecimalFormat("0.00", new DecimalFormatSymbols(Locale.US));
+    double duration = vclip.getDuration();
+    String afadeFilter = "";
+    /* Only include fade into the filter graph if necessary */
+    if (afade > 0.00001) {
+      double aend = duration - afade;
+      afadeFilter = ",afade=t=in:st=0:d=" + afade + ",afade=t=out:st=" + f.format(aend) + ":d=" + afade;
+    }
+    /* Add filters for audio */
+    return input + "atrim=" + f.format(vclip.getStart()) + ":duration=" + f.format(duration)
+            + ",asetpts=PTS-STARTPTS" + afadeFilter + output;
+  }
+
+  /*
+   * Smart cutting copies the video between the cut points, so it is only possible without video fades and without
+   * scaling, and if all clips come from the same source.
+   */
+  private boolean canSmartCut(String outputResolution, List<VideoClip> clips, boolean hasVideo) {
+    if (!hasVideo || clips.isEmpty() || vfade > 0.00001
+            || (outputResolution != null && outputResolution.length() > 3)) {
+      return false;
+    }
+    if (ffmpegScaleFilter != null) {
+      logger.debug("Smart cutting is disabled because the scale filter {} is configured", ffmpegScaleFilter);
+      return false;
+    }
+    if (videoCodec != null && !SMART_CUT_ENCODER.equals(videoCodec) && !SMART_CUT_CODEC.equals(videoCodec)) {
+      return false;
+    }
+    for (VideoClip clip : clips) {
+      if (clip.getSrc() != clips.get(0).getSrc()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /*
+   * Cut the source using smart cutting
+   * The groups of pictures which contain a cut point are re-encoded, everything between them is split from the
+   * source with the segment muxer and copied. All parts are joined with the concat demuxer and the audio is
+   * re-encoded from the source.
+   * Returns null on success or the reason why smart cutting failed
+   */
+  String processSmartCut(String source, String dest, List<VideoClip> clips, boolean hasAudio) {
+    // the re-encoded parts must be decodable with the parameters of the copied ones, so they are encoded with the
+    // profile, level, pixel format, size and frame rate of the source
+    Map<String, String> stream = new HashMap<String, String>();
+    for (String entry : probe(Arrays.asList("-v", "error", "-select_streams", "v:0", "-show_entries",
+            "stream=codec_name,profile,level,width,height,pix_fmt,r_frame_rate,time_base", "-of",
+            "default=noprint_wrappers=1", source))) {
+      String[] field = entry.split("=", 2);
+      if (field.length == 2) {
+        stream.put(field[0], field[1]);
+      }
+    }
+    String profile = SMART_CUT_PROFILES.get(stream.get("profile"));
+    String level = formatLevel(stream.get("level"));
+    String timescale = StringUtils.substringAfter(stream.get("time_base"), "/");
+    if (!SMART_CUT_CODEC.equals(stream.get("codec_name")) || profile == null || level == null
+            || StringUtils.isBlank(stream.get("pix_fmt")) || !NumberUtils.isDigits(stream.get("width"))
+            || !NumberUtils.isDigits(stream.get("height")) || !NumberUtils.isDigits(timescale)
+            || StringUtils.isBlank(stream.get("r_frame_rate")) || stream.get("r_frame_rate").startsWith("0/")) {
+      return "Smart cutting is not supported for video stream " + stream;
+    }
+
+    List<Double> frames = new ArrayList<Double>();
+    List<Double> keyframes = new ArrayList<Double>();
+    parsePackets(probe(Arrays.asList("-v", "error", "-select_streams", "v:0", "-show_entries",
+            "packet=pts_time,flags", "-of", "csv=p=0", source)), frames, keyframes);
+
+    List<SmartCutPiece> pieces = planSmartCut(frames, keyframes, clips);
+    List<Double> splits = new ArrayList<Double>();
+    for (SmartCutPiece piece : pieces) {
+      if (piece.isCopy()) {
+        addSplit(splits, piece.getStart());
+        addSplit(splits, piece.getEnd());
+      }
+    }
+    if (splits.isEmpty()) {
+      return "No group of pictures can be copied";
+    }
+    Collections.sort(splits);
+
+    File workDir = new File(dest + ".smartcut");
+    try {
+      workDir.mkdirs();
+      DecimalFormat f = new DecimalFormat("0.000000", new DecimalFormatSymbols(Locale.US));
+
+      // split the source at the boundaries of the copied parts, just before the keyframes
+      List<String> splitTimes = new ArrayList<String>();
+      for (double split : splits) {
+        splitTimes.add(f.format(split - SMART_CUT_TOLERANCE));
+      }
+      String error = run(new ArrayList<String>(Arrays.asList("-y", "-i", source, "-map", "0:v:0", "-c", "copy",
+              "-f", "segment", "-segment_format", "mpegts", "-segment_times", StringUtils.join(splitTimes, ","),
+              "-reset_timestamps", "1", new File(workDir, "segment-%05d.ts").getAbsolutePath())));
+      if (error != null) {
+        return error;
+      }
+
+      List<String> parts = new ArrayList<String>();
+      for (int i = 0; i < pieces.size(); i++) {
+        SmartCutPiece piece = pieces.get(i);
+        if (piece.isCopy()) {
+          int first = piece.getStart() <= SMART_CUT_TOLERANCE ? 0 : splits.indexOf(piece.getStart()) + 1;
+          for (int segment = first; segment <= splits.indexOf(piece.getEnd()); segment++) {
+            parts.add(new File(workDir, String.format("segment-%05d.ts", segment)).getAbsolutePath());
+          }
+        } else {
+          // re-encode all frames from the start of the piece up to, but not including, its end
+          File part = new File(workDir, "encoded-" + i + ".ts");
+          double start = piece.getStart();
+          double duration = piece.getEnd() - start;
+          // make sure the keyframes next to copied parts are neither lost nor duplicated
+          if (i > 0 && pieces.get(i - 1).isCopy() && pieces.get(i - 1).getEnd() == piece.getStart()) {
+            start -= SMART_CUT_TOLERANCE;
+            duration += SMART_CUT_TOLERANCE;
+          }
+          if (i + 1 < pieces.size() && pieces.get(i + 1).isCopy() && pieces.get(i + 1).getStart() == piece.getEnd()) {
+            duration -= SMART_CUT_TOLERANCE;
+          }
+          List<String> command = new ArrayList<String>(Arrays.asList("-y", "-ss", f.format(start), "-i", source,
+                  "-t", f.format(duration), "-map", "0:v:0", "-an"));
+          command.addAll(Arrays.asList(ffmpegProperties.split(" ")));
+          command.addAll(Arrays.asList("-c:v", SMART_CUT_ENCODER, "-profile:v", profile, "-level", level,
+                  "-pix_fmt", stream.get("pix_fmt"), "-s", stream.get("width") + "x" + stream.get("height"),
+                  "-r", stream.get("r_frame_rate"), "-f", "mpegts", part.getAbsolutePath()));
+          error = run(command);
+          if (error != null) {
+            return error;
+          }
+          parts.add(part.getAbsolutePath());
+        }
+      }
+
+      File concatList = new File(workDir, "parts.txt");
+      List<String> lines = new ArrayList<String>();
+      for (String part : parts) {
+        lines.add("file '" + part.replace("'", "'\\''") + "'");
+      }
+      FileUtils.writeLines(concatList, "UTF-8", lines);
+
+      List<String> command = new ArrayList<String>(Arrays.asList("-y", "-f", "concat", "-safe", "0", "-i",
+              concatList.getAbsolutePath()));
+      if (hasAudio) {
+        List<String> apads = new ArrayList<String>();
+        List<String> clauses = new ArrayList<String>();
+        for (int i = 0; i < clips.size(); i++) {
+          clauses.add(makeAudioClip("[1:a]", clips.get(i), "[a" + i + "]"));
+          apads.add("[a" + i + "]");
+        }
+        clauses.add(StringUtils.join(apads, "") + "concat=n=" + clips.size() + ":v=0:a=1[oa0]");
+        command.addAll(Arrays.asList("-i", source, "-filter_complex", StringUtils.join(clauses, ";"),
+                "-map", "[oa0]"));
+      }
+      command.addAll(Arrays.asList(ffmpegProperties.split(" ")));
+      command.addAll(Arrays.asList("-map", "0:v", "-c:v", "copy"));
+      if (hasAudio && audioCodec != null) {
+        command.add("-c:a");
+        command.add(audioCodec);
+      }
+      // the parts are joined as MPEG-TS, keep the time base of the source for MP4 and QuickTime outputs
+      if (StringUtils.endsWithAny(dest.toLowerCase(Locale.US), ".mp4", ".m4v", ".mov")) {
+        command.add("-video_track_timescale");
+        command.add(timescale);
+      }
+      command.add(dest);
+      return run(command);
+    } catch (IOException e) {
+      return e.toString();
+    } finally {
+      FileUtils.deleteQuietly(workDir);
+    }
+  }
+
+  /*
+   * Collect the presentation times of all frames and of the keyframes at which the video can be split from the
+   * packets of the source, which ffprobe lists in decoding order.
+   * Only keyframes which start a closed group of pictures are used. A keyframe of an open group of pictures, like a
+   * recovery point or an open GOP I-frame, is followed by frames that are decoded after it but shown before it and
+   * that reference the previous group of pictures. These leading frames can neither be copied without the previous
+   * group of pictures nor be cut off.
+   */
+  static void parsePackets(List<String> packets, List<Double> frames, List<Double> keyframes) {
+    Double keyframe = null;
+    boolean closed = false;
+    for (String packet : packets) {
+      String[] fields = packet.split(",");
+      if (fields.length < 2 || !NumberUtils.isNumber(fields[0])) {
+        continue;
+      }
+      double pts = Double.parseDouble(fields[0]);
+      frames.add(pts);
+      if (fields[1].startsWith("K")) {
+        if (keyframe != null && closed) {
+          keyframes.add(keyframe);
+        }
+        keyframe = pts;
+        closed = true;
+      } else if (keyframe != null && pts < keyframe - SMART_CUT_TOLERANCE) {
+        closed = false;
+      }
+    }
+    if (keyframe != null && closed) {
+      keyframes.add(keyframe);
+    }
+    Collections.sort(frames);
+    Collections.sort(keyframes);
+  }
+
+  /* Convert a H.264 level as reported by ffprobe, e.g. 31, into the notation of the encoder, e.g. 3.1 */
+  private static String formatLevel(String level) {
+    if (!NumberUtils.isDigits(level) || Integer.parseInt(level) < 9) {
+      return null;
+    }
+    int value = Integer.parseInt(level);
+    // level 1b is reported as 9
+    return value == 9 ? "1b" : value / 10 + "." + value % 10;
+  }
+
+  private static void addSplit(List<Double> splits, double split) {
+    if (split > SMART_CUT_TOLERANCE && !splits.contains(split)) {
+      splits.add(split);
+    }
+  }
+
+  /*
+   * Split the clips into the parts to re-encode and the parts to copy, based on the positions of the frames and
+   * keyframes of the source. A clip is copied from its first keyframe up to its last keyframe. Parts without any
+   * frame are left out.
+   */
+  static List<SmartCutPiece> planSmartCut(List<Double> frames, List<Double> keyframes, List<VideoClip> clips) {
+    List<SmartCutPiece> pieces = new ArrayList<SmartCutPiece>();
+    for (VideoClip clip : clips) {
+      double start = clip.getStart();
+      double end = clip.getEnd();
+      Double first = null;
+      Double last = null;
+      for (double keyframe : keyframes) {
+        if (first == null && keyframe >= start - SMART_CUT_TOLERANCE) {
+          first = keyframe;
+        }
+        if (keyframe <= end + SMART_CUT_TOLERANCE) {
+          last = keyframe;
+        }
+      }
+      if (first == null || last == null || last - first < SMART_CUT_TOLERANCE) {
+        addEncodedPiece(pieces, frames, start, end);
+        continue;
+      }
+      addEncodedPiece(pieces, frames, start, first);
+      pieces.add(new SmartCutPiece(first, last, true));
+      addEncodedPiece(pieces, frames, last, end);
+    }
+    return pieces;
+  }
+
+  private static void addEncodedPiece(List<SmartCutPiece> pieces, List<Double> frames, double start, double end) {
+    for (double frame : frames) {
+      if (frame >= start - SMART_CUT_TOLERANCE && frame < end - SMART_CUT_TOLERANCE) {
+        pieces.add(new SmartCutPiece(start, end, false));
+        return;
+      }
+    }
+  }
+
+  /* Run ffprobe with the params and return its output lines */
+  List<String> probe(List<String> params) {
+    List<String> lines = new ArrayList<String>();
+    BufferedReader in = null;
+    Process probeProcess = null;
+    try {
+      List<String> command = new ArrayList<String>(params);
+      command.add(0, probeBinary);
+      logger.debug("executing command: " + StringUtils.join(command, " "));
+      ProcessBuilder pbuilder = new ProcessBuilder(command);
+      pbuilder.redirectErrorStream(true);
+      probeProcess = pbuilder.start();
+      in = new BufferedReader(new InputStreamReader(probeProcess.getInputStream()));
+      String line;
+      while ((line = in.readLine()) != null) {
+        lines.add(line.trim());
+      }
+      probeProcess.waitFor();
+    } catch (Exception ex) {
+      logger.warn("VideoEditor ffprobe failed", ex);
+    } finally {
+      IoSupport.closeQuietly(in);
+      IoSupport.closeQuietly(probeProcess);
+    }
+    return lines;
+  }
+
+  /**
+   * A part of a smart cut video, which is either copied from the source or re-encoded.
+   */
+  static final class SmartCutPiece {
+    private final double start;
+    private final double end;
+    private final boolean copy;
+
+    SmartCutPiece(double start, double end, boolean copy) {
+      this.start = start;
+      this.end = end;
+      this.copy = copy;
+    }
+
+    double getStart() {
+      return start;
+    }
+
+    double getEnd() {
+      return end;
+    }
+
+    boolean isCopy() {
+      return copy;
+    }
+  }
 }
@@ -39,6 +39,8 @@ public interface VideoEditorProperties {
   String FFMPEG_SCALE_FILTER = "ffmpeg.scalefilter";
   String AUDIO_FADE = "audio.fade";
   String VIDEO_FADE = "video.fade";
+  /** Re-encode only the video around the cut points and copy the rest, requires the video fade to be disabled */
+  String SMART_CUT = "smartcut";
   String DEFAULT_EXTENSION = ".mp4";
 
 }
@@ -24,6 +24,7 @@ package org.opencastproject.videoeditor.ffmpeg;
 import org.opencastproject.util.IoSupport;
 import org.opencastproject.util.StreamHelper;
 import org.opencastproject.videoeditor.impl.VideoClip;
+import org.opencastproject.videoeditor.impl.VideoEditorProperties;
 
 import org.junit.Before;
 import org.junit.BeforeClass;
@@ -33,6 +34,9 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
 
 import junit.framework.Assert;
 
@@ -138,4 +142,173 @@ public class FFmpegTest {
     Assert.assertTrue("Edited File is nonzero",new File(outputFilePath).length() > 0);
     logger.info("Ffmpeg concat 2 clips from 2 files OK!");
   }
+
+  /**
+   * Test the split of clips into re-encoded and copied parts
+   */
+  @Test
+  public void planSmartCutTest() {
+    List<Double> frames = new ArrayList<Double>();
+    for (int i = 0; i < 250; i++) {
+      frames.add(i / 25.0);
+    }
+    List<Double> keyframes = Arrays.asList(0.0, 2.0, 4.0, 6.0, 8.0);
+
+    // Only the parts before the first and after the last keyframe of a clip are re-encoded
+    List<FFmpegEdit.SmartCutPiece> pieces = FFmpegEdit.planSmartCut(frames, keyframes,
+            Arrays.asList(new VideoClip(0, 1.2, 7.6)));
+    Assert.assertEquals(3, pieces.size());
+    assertPiece(pieces.get(0), 1.2, 2.0, false);
+    assertPiece(pieces.get(1), 2.0, 6.0, true);
+    assertPiece(pieces.get(2), 6.0, 7.6, false);
+
+    // Clips starting and ending on a keyframe are copied entirely
+    pieces = FFmpegEdit.planSmartCut(frames, keyframes, Arrays.asList(new VideoClip(0, 0.0, 4.0)));
+    Assert.assertEquals(1, pieces.size());
+    assertPiece(pieces.get(0), 0.0, 4.0, true);
+
+    // Clips without a complete group of pictures are re-encoded, clips without frames are left out
+    pieces = FFmpegEdit.planSmartCut(frames, keyframes,
+            Arrays.asList(new VideoClip(0, 4.5, 5.5), new VideoClip(0, 8.0, 9.0), new VideoClip(0, 2.01, 2.03)));
+    Assert.assertEquals(2, pieces.size());
+    assertPiece(pieces.get(0), 4.5, 5.5, false);
+    assertPiece(pieces.get(1), 8.0, 9.0, false);
+  }
+
+  /**
+   * Test that only keyframes starting a closed group of pictures are used as boundaries for copying
+   */
+  @Test
+  public void parsePacketsTest() {
+    // packets in decoding order: an IDR frame with following B-frames, an open GOP I-frame with leading B-frames
+    // which are shown before it, and a closed GOP I-frame whose B-frames are all shown after it
+    List<String> packets = Arrays.asList("0.000000,K_", "0.120000,__", "0.040000,__", "0.080000,__",
+            "2.120000,K_", "2.000000,__", "2.040000,__", "2.080000,__", "2.160000,__",
+            "4.000000,K_", "4.080000,__", "4.040000,__", "N/A,__");
+    List<Double> frames = new ArrayList<Double>();
+    List<Double> keyframes = new ArrayList<Double>();
+    FFmpegEdit.parsePackets(packets, frames, keyframes);
+    Assert.assertEquals(12, frames.size());
+    Assert.assertEquals(0.0, frames.get(0), FFmpegEdit.SMART_CUT_TOLERANCE);
+    Assert.assertEquals(4.08, frames.get(11), FFmpegEdit.SMART_CUT_TOLERANCE);
+    Assert.assertEquals(Arrays.asList(0.0, 4.0), keyframes);
+
+    // the open group of pictures is re-encoded together with the part before it
+    List<FFmpegEdit.SmartCutPiece> pieces = FFmpegEdit.planSmartCut(frames, keyframes,
+            Arrays.asList(new VideoClip(0, 0.0, 4.1)));
+    Assert.assertEquals(2, pieces.size());
+    assertPiece(pieces.get(0), 0.0, 4.0, true);
+    assertPiece(pieces.get(1), 4.0, 4.1, false);
+  }
+
+  private static void assertPiece(FFmpegEdit.SmartCutPiece piece, double start, double end, boolean copy) {
+    Assert.assertEquals(start, piece.getStart(), FFmpegEdit.SMART_CUT_TOLERANCE);
+    Assert.assertEquals(end, piece.getEnd(), FFmpegEdit.SMART_CUT_TOLERANCE);
+    Assert.assertEquals(copy, piece.isCopy());
+  }
+
+  /**
+   * Test if smart cutting keeps exactly the frames of the clips, using a generated video with a keyframe every two
+   * seconds
+   * Skip if no ffmpeg
+   */
+  @Test
+  public void ffmpegSmartCutTest() throws Exception {
+
+    if (!ffmpegInstalled) {
+      return;
+    }
+    // 20 seconds at 25 frames per second with a keyframe every 50 frames
+    String generatedFilePath = new File("target/testoutput/generated.mp4").getAbsolutePath();
+    if (!generate(FFMPEG_BINARY, "-y", "-f", "lavfi", "-i", "testsrc=duration=20:size=320x180:rate=25", "-f", "lavfi",
+            "-i", "sine=duration=20", "-c:v", "libx264", "-g", "50", "-sc_threshold", "0", "-pix_fmt", "yuv420p",
+            "-c:a", "aac", "-strict", "-2", generatedFilePath)) {
+      logger.warn("Skipping smart cut test, the test video could not be generated");
+      return;
+    }
+
+    Properties properties = new Properties();
+    properties.setProperty(VideoEditorProperties.VIDEO_FADE, "0");
+    properties.setProperty(VideoEditorProperties.SMART_CUT, "true");
+    FFmpegEdit fmp = new FFmpegEdit(properties);
+    if (fmp.probe(Arrays.asList("-version")).isEmpty()) {
+      logger.warn("Skipping smart cut test, ffprobe is not installed");
+      return;
+    }
+
+    // 20 re-encoded and 100 copied frames, 40 re-encoded frames, then 100 copied and 35 re-encoded frames
+    ArrayList<VideoClip> clips = new ArrayList<VideoClip>();
+    clips.add(new VideoClip(0, 1.2, 7.6));
+    clips.add(new VideoClip(0, 10.0, 15.4));
+    Assert.assertNull(fmp.processSmartCut(generatedFilePath, outputFilePath, clips, true));
+    Assert.assertEquals(Arrays.asList("295"), fmp.probe(Arrays.asList("-v", "error", "-select_streams", "v:0",
+            "-count_packets", "-show_entries", "stream=nb_read_packets", "-of", "csv=p=0", outputFilePath)));
+    logger.info("Ffmpeg smart cut 2 clips OK!");
+  }
+
+  /**
+   * Test if smart cutting keeps exactly the frames of the clips for a source with B-frames and open groups of
+   * pictures, where the leading B-frames of a group of pictures reference the previous one
+   * Skip if no ffmpeg
+   */
+  @Test
+  public void ffmpegSmartCutOpenGopTest() throws Exception {
+
+    if (!ffmpegInstalled) {
+      return;
+    }
+    // 20 seconds at 25 frames per second with B-frames and an open group of pictures every 50 frames
+    String generatedFilePath = new File("target/testoutput/generated-opengop.mp4").getAbsolutePath();
+    if (!generate(FFMPEG_BINARY, "-y", "-f", "lavfi", "-i", "testsrc=duration=20:size=320x180:rate=25", "-f", "lavfi",
+            "-i", "sine=duration=20", "-c:v", "libx264", "-profile:v", "main", "-bf", "2", "-g", "50",
+            "-sc_threshold", "0", "-x264opts", "open-gop=1", "-pix_fmt", "yuv420p", "-c:a", "aac", "-strict", "-2",
+            generatedFilePath)) {
+      logger.warn("Skipping open GOP smart cut test, the test video could not be generated");
+      return;
+    }
+
+    Properties properties = new Properties();
+    properties.setProperty(VideoEditorProperties.VIDEO_FADE, "0");
+    properties.setProperty(VideoEditorProperties.SMART_CUT, "true");
+    FFmpegEdit fmp = new FFmpegEdit(properties);
+    if (fmp.probe(Arrays.asList("-version")).isEmpty()) {
+      logger.warn("Skipping open GOP smart cut test, ffprobe is not installed");
+      return;
+    }
+
+    ArrayList<VideoClip> clips = new ArrayList<VideoClip>();
+    clips.add(new VideoClip(0, 1.2, 7.6));
+    clips.add(new VideoClip(0, 10.0, 15.4));
+    Assert.assertNull(fmp.processSmartCut(generatedFilePath, outputFilePath, clips, true));
+    Assert.assertEquals(Arrays.asList("295"), fmp.probe(Arrays.asList("-v", "error", "-select_streams", "v:0",
+            "-count_packets", "-show_entries", "stream=nb_read_packets", "-of", "csv=p=0", outputFilePath)));
+    // the re-encoded parts use the profile of the source
+    Assert.assertEquals(Arrays.asList("Main"), fmp.probe(Arrays.asList("-v", "error", "-select_streams", "v:0",
+            "-show_entries", "stream=profile", "-of", "csv=p=0", outputFilePath)));
+    // all frames can be decoded
+    Assert.assertEquals(Arrays.asList("295"), fmp.probe(Arrays.asList("-v", "error", "-select_streams", "v:0",
+            "-count_frames", "-show_entries", "stream=nb_read_frames", "-of", "csv=p=0", outputFilePath)));
+    logger.info("Ffmpeg smart cut of an open GOP source OK!");
+  }
+
+  private static boolean generate(String... command) {
+    StreamHelper stdout = null;
+    StreamHelper stderr = null;
+    Process p = null;
+    try {
+      p = new ProcessBuilder(command).start();
+      stdout = new StreamHelper(p.getInputStream());
+      stderr = new StreamHelper(p.getErrorStream());
+      int status = p.waitFor();
+      stdout.stopReading();
+      stderr.stopReading();
+      return status == 0;
+    } catch (Throwable t) {
+      return false;
+    } finally {
+      IoSupport.closeQuietly(stdout);
+      IoSupport.closeQuietly(stderr);
+      IoSupport.closeQuietly(p);
+    }
+  }
 }
@@ -288,6 +288,21 @@ public abstract class AbstractWorkflowOperationHandler implements WorkflowOperat
     return new WorkflowOperationResultImpl(mediaPackage, properties, action, timeInQueue);
   }
 
+  /**
+   * Creates a result which tells the workflow service to continue this operation once the given jobs have terminated.
+   * Only handlers implementing {@link AsyncWorkflowOperationHandler} may return this result.
+   *
+   * @param mediaPackage
+   *          the media package
+   * @param jobs
+   *          the jobs to wait for
+   * @return the result
+   * @see AsyncWorkflowOperationHandler#jobsTerminated(WorkflowInstance, JobContext, JobBarrier.Result)
+   */
+  protected WorkflowOperationResult createWaitResult(MediaPackage mediaPackage, Job... jobs) {
+    return new WorkflowOperationWaitResult(mediaPackage, jobs);
+  }
+
   /**
    * Sets the service registry. This method is here as a convenience for developers that need the registry to do job
    * waiting.
@@ -0,0 +1,56 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.api;
+
+import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.job.api.JobContext;
+
+/**
+ * A {@link WorkflowOperationHandler} that does not block while the jobs it started are being processed.
+ * <p>
+ * Instead of waiting for its jobs, the handler returns a {@link WorkflowOperationWaitResult} from
+ * {@link #start(WorkflowInstance, JobContext)}. The workflow service then releases the thread running the operation
+ * and calls {@link #jobsTerminated(WorkflowInstance, JobContext, JobBarrier.Result)} once all of the jobs have
+ * terminated. Handlers which need to wait for further jobs may return another wait result from there.
+ */
+public interface AsyncWorkflowOperationHandler extends WorkflowOperationHandler {
+
+  /**
+   * Continues the workflow operation after all jobs of the last {@link WorkflowOperationWaitResult} have either
+   * finished, failed or have been deleted. If the execution fails for some reason, this must throw a
+   * {@link WorkflowOperationException} in order to handle the problem gracefully.
+   *
+   * @param workflowInstance
+   *          the workflow instance
+   * @param context
+   *          the job context
+   * @param result
+   *          the jobs and their outcomes
+   * @return the result of this operation or another wait result
+   * @throws WorkflowOperationException
+   *           if the workflow operation fails to execute properly
+   */
+  WorkflowOperationResult jobsTerminated(WorkflowInstance workflowInstance, JobContext context,
+          JobBarrier.Result result) throws WorkflowOperationException;
+
+}
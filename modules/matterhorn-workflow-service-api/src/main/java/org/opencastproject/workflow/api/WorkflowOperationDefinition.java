@@ -83,4 +83,16 @@ public interface WorkflowOperationDefinition extends Configurable {
    * @return the maximum number of retries before failing
    */
   int getMaxAttempts();
+
+  /**
+   * Returns the name of the parallel branch this operation belongs to, or <code>null</code> if the operation is run in
+   * sequence with the others.
+   * <p>
+   * Consecutive operations with a branch form a parallel section: operations of the same branch run one after another,
+   * while different branches run at the same time. The workflow continues with the first operation after the section
+   * once all branches are done.
+   *
+   * @return the branch name
+   */
+  String getBranch();
 }
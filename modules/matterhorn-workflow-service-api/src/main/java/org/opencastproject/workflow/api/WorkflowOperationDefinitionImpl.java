@@ -72,6 +72,9 @@ public class WorkflowOperationDefinitionImpl implements WorkflowOperationDefinit
   @XmlAttribute(name = "retry-strategy")
   protected RetryStrategy retryStrategy;
 
+  @XmlAttribute(name = "branch")
+  protected String branch;
+
   /** A no-arg constructor is needed by JAXB */
   public WorkflowOperationDefinitionImpl() {
     super();
@@ -273,6 +276,26 @@ public class WorkflowOperationDefinitionImpl implements WorkflowOperationDefinit
     this.maxAttempts = maxAttempts;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workflow.api.WorkflowOperationDefinition#getBranch()
+   */
+  @Override
+  public String getBranch() {
+    return branch;
+  }
+
+  /**
+   * Sets the name of the parallel branch this operation belongs to.
+   *
+   * @param branch
+   *          the branch name or <code>null</code> to run the operation in sequence
+   */
+  public void setBranch(String branch) {
+    this.branch = branch;
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -211,4 +211,12 @@ public interface WorkflowOperationInstance extends Configurable {
    */
   List<Long> getExecutionHistory();
 
+  /**
+   * Returns the name of the parallel branch this operation belongs to.
+   *
+   * @return the branch name or <code>null</code> if the operation is run in sequence
+   * @see WorkflowOperationDefinition#getBranch()
+   */
+  String getBranch();
+
 }
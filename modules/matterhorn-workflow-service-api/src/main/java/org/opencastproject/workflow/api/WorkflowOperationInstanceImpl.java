@@ -136,6 +136,9 @@ public class WorkflowOperationInstanceImpl implements WorkflowOperationInstance
   @XmlAttribute(name = "retry-strategy")
   protected RetryStrategy retryStrategy;
 
+  @XmlAttribute(name = "branch")
+  protected String branch;
+
   /** The position of this operation in the workflow instance */
   protected int position;
 
@@ -167,6 +170,7 @@ public class WorkflowOperationInstanceImpl implements WorkflowOperationInstance
     setExecutionCondition(def.getExecutionCondition());
     setSkipCondition(def.getSkipCondition());
     setRetryStrategy(def.getRetryStrategy());
+    setBranch(def.getBranch());
     Set<String> defConfigs = def.getConfigurationKeys();
     this.configurations = new TreeSet<WorkflowConfiguration>();
     if (defConfigs != null) {
@@ -702,4 +706,24 @@ public class WorkflowOperationInstanceImpl implements WorkflowOperationInstance
     this.maxAttempts = maxAttempts;
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * @see org.opencastproject.workflow.api.WorkflowOperationInstance#getBranch()
+   */
+  @Override
+  public String getBranch() {
+    return branch;
+  }
+
+  /**
+   * Sets the name of the parallel branch this operation belongs to.
+   *
+   * @param branch
+   *          the branch name or <code>null</code> to run the operation in sequence
+   */
+  public void setBranch(String branch) {
+    this.branch = branch;
+  }
+
 }
@@ -0,0 +1,65 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.api;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.mediapackage.MediaPackage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of an {@link AsyncWorkflowOperationHandler} which needs to wait for jobs before it can continue.
+ */
+public class WorkflowOperationWaitResult extends WorkflowOperationResultImpl {
+
+  /** The jobs to wait for */
+  private final List<Job> jobs;
+
+  /**
+   * Creates a result that makes the workflow service wait for the given jobs.
+   *
+   * @param mediaPackage
+   *          the media package at the time the operation started waiting
+   * @param jobs
+   *          the jobs to wait for
+   */
+  public WorkflowOperationWaitResult(MediaPackage mediaPackage, Job... jobs) {
+    super(mediaPackage, null, Action.CONTINUE, 0);
+    if (jobs == null)
+      throw new IllegalArgumentException("Jobs must not be null");
+    this.jobs = Collections.unmodifiableList(new ArrayList<Job>(Arrays.asList(jobs)));
+  }
+
+  /**
+   * Returns the jobs to wait for.
+   *
+   * @return the jobs
+   */
+  public List<Job> getJobs() {
+    return jobs;
+  }
+
+}
@@ -26,6 +26,7 @@ import org.opencastproject.workflow.api.WorkflowInstance.WorkflowState;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -41,6 +42,7 @@ public class WorkflowQuery {
   protected String seriesTitle;
   protected String seriesId;
   protected String mediaPackageId;
+  protected List<String> mediaPackageIds = new ArrayList<String>();
   protected String workflowDefinitionId;
   protected Date fromDate;
   protected Date toDate;
@@ -166,6 +168,23 @@ public class WorkflowQuery {
     return this;
   }
 
+  /**
+   * Limit results to workflow instances of any of the given media packages. This allows to look up the workflows of a
+   * whole page of events with a single query.
+   *
+   * @param mediaPackageIds
+   *          the media package identifiers
+   */
+  public WorkflowQuery withMediaPackages(Collection<String> mediaPackageIds) {
+    if (mediaPackageIds == null)
+      return this;
+    for (String mediaPackageId : mediaPackageIds) {
+      if (StringUtils.isNotBlank(mediaPackageId) && !this.mediaPackageIds.contains(mediaPackageId))
+        this.mediaPackageIds.add(mediaPackageId);
+    }
+    return this;
+  }
+
   /**
    * Limit results to workflow instances that are currently handling the specified operation. This method overrides and
    * will be overridden by future calls to {@link #withoutCurrentOperation(String)}
@@ -423,6 +442,15 @@ public class WorkflowQuery {
     return mediaPackageId;
   }
 
+  /**
+   * Returns the media package identifiers of which workflow instances need to match any.
+   *
+   * @return the media package identifiers
+   */
+  public List<String> getMediaPackageIds() {
+    return mediaPackageIds;
+  }
+
   /**
    * Returns the workflow defintions that workflow instances need to match.
    *
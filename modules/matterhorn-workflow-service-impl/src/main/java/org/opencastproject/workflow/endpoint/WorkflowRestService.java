@@ -369,7 +369,7 @@ public class WorkflowRestService extends AbstractJobProducerEndpoint {
           @RestParameter(name = "title", isRequired = false, description = "Filter results by mediapackage's title.", type = STRING),
           @RestParameter(name = "subject", isRequired = false, description = "Filter results by mediapackage's subject.", type = STRING),
           @RestParameter(name = "workflowdefinition", isRequired = false, description = "Filter results by workflow definition.", type = STRING),
-          @RestParameter(name = "mp", isRequired = false, description = "Filter results by mediapackage identifier.", type = STRING),
+          @RestParameter(name = "mp", isRequired = false, description = "Filter results by mediapackage identifier. May be given multiple times to match any of the mediapackages.", type = STRING),
           @RestParameter(name = "op", isRequired = false, description = "Filter results by workflows' current operation.", type = STRING),
           @RestParameter(name = "sort", isRequired = false, description = "The sort order.  May include any "
                   + "of the following: DATE_CREATED, TITLE, SERIES_TITLE, SERIES_ID, MEDIA_PACKAGE_ID, WORKFLOW_DEFINITION_ID, CREATOR, "
@@ -389,7 +389,7 @@ public class WorkflowRestService extends AbstractJobProducerEndpoint {
           @QueryParam("fromdate") String fromDate, @QueryParam("todate") String toDate,
           @QueryParam("language") String language, @QueryParam("license") String license,
           @QueryParam("title") String title, @QueryParam("subject") String subject,
-          @QueryParam("workflowdefinition") String workflowDefinitionId, @QueryParam("mp") String mediapackageId,
+          @QueryParam("workflowdefinition") String workflowDefinitionId, @QueryParam("mp") List<String> mediapackageIds,
           @QueryParam("op") List<String> currentOperations, @QueryParam("sort") String sort,
           @QueryParam("startPage") int startPage, @QueryParam("count") int count, @QueryParam("compact") boolean compact)
           throws Exception {
@@ -421,7 +421,10 @@ public class WorkflowRestService extends AbstractJobProducerEndpoint {
     q.withSeriesId(seriesId);
     q.withSeriesTitle(seriesTitle);
     q.withSubject(subject);
-    q.withMediaPackage(mediapackageId);
+    if (mediapackageIds != null && mediapackageIds.size() == 1)
+      q.withMediaPackage(mediapackageIds.get(0));
+    else
+      q.withMediaPackages(mediapackageIds);
     q.withCreator(creator);
     q.withContributor(contributor);
     q.withDateAfter(SolrUtils.parseDate(fromDate));
@@ -514,7 +517,7 @@ public class WorkflowRestService extends AbstractJobProducerEndpoint {
           @RestParameter(name = "title", isRequired = false, description = "Filter results by mediapackage's title.", type = STRING),
           @RestParameter(name = "subject", isRequired = false, description = "Filter results by mediapackage's subject.", type = STRING),
           @RestParameter(name = "workflowdefinition", isRequired = false, description = "Filter results by workflow definition.", type = STRING),
-          @RestParameter(name = "mp", isRequired = false, description = "Filter results by mediapackage identifier.", type = STRING),
+          @RestParameter(name = "mp", isRequired = false, description = "Filter results by mediapackage identifier. May be given multiple times to match any of the mediapackages.", type = STRING),
           @RestParameter(name = "op", isRequired = false, description = "Filter results by workflows' current operation.", type = STRING),
           @RestParameter(name = "sort", isRequired = false, description = "The sort order.  May include any "
                   + "of the following: DATE_CREATED, TITLE, SERIES_TITLE, SERIES_ID, MEDIA_PACKAGE_ID, WORKFLOW_DEFINITION_ID, CREATOR, "
@@ -530,13 +533,13 @@ public class WorkflowRestService extends AbstractJobProducerEndpoint {
           @QueryParam("fromdate") String fromDate, @QueryParam("todate") String toDate,
           @QueryParam("language") String language, @QueryParam("license") String license,
           @QueryParam("title") String title, @QueryParam("subject") String subject,
-          @QueryParam("workflowdefinition") String workflowDefinitionId, @QueryParam("mp") String mediapackageId,
+          @QueryParam("workflowdefinition") String workflowDefinitionId, @QueryParam("mp") List<String> mediapackageIds,
           @QueryParam("op") List<String> currentOperations, @QueryParam("sort") String sort,
           @QueryParam("startPage") int startPage, @QueryParam("count") int count, @QueryParam("compact") boolean compact)
           throws Exception {
     // CHECKSTYLE:ON
     return getWorkflowsAsXml(states, text, seriesId, seriesTitle, creator, contributor, fromDate, toDate, language,
-            license, title, subject, workflowDefinitionId, mediapackageId, currentOperations, sort, startPage, count,
+            license, title, subject, workflowDefinitionId, mediapackageIds, currentOperations, sort, startPage, count,
             compact);
   }
 
@@ -0,0 +1,467 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl;
+
+import org.opencastproject.job.api.Incident.Severity;
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageElement;
+import org.opencastproject.mediapackage.MediaPackageElementParser;
+import org.opencastproject.mediapackage.MediaPackageException;
+import org.opencastproject.security.api.UnauthorizedException;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
+import org.opencastproject.workflow.api.WorkflowException;
+import org.opencastproject.workflow.api.WorkflowInstance;
+import org.opencastproject.workflow.api.WorkflowOperationHandler;
+import org.opencastproject.workflow.api.WorkflowOperationInstance;
+import org.opencastproject.workflow.api.WorkflowOperationInstance.OperationState;
+import org.opencastproject.workflow.api.WorkflowOperationInstanceImpl;
+import org.opencastproject.workflow.api.WorkflowOperationResult;
+import org.opencastproject.workflow.api.WorkflowOperationResult.Action;
+import org.opencastproject.workflow.api.WorkflowOperationWaitResult;
+import org.opencastproject.workflow.api.WorkflowParser;
+
+import org.apache.commons.lang3.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Executes a parallel section of a workflow, which consists of the current operation and all directly following
+ * operations that are assigned to a branch.
+ * <p>
+ * Every branch runs on its own copy of the workflow instance and executes its operations one after another. Once all
+ * branches are done, the operation states, the workflow properties and the media packages of the branches are merged
+ * into the workflow instance. Media package elements which a branch added, modified or removed are applied to the
+ * media package the section started with, in the order the branches appear in the workflow.
+ * <p>
+ * Branches don't keep a thread of their own. The workflow service runs them one operation at a time, see
+ * {@link Branch}, and lets operations waiting for jobs wait on the job monitor like any other asynchronous operation.
+ * The branch that finishes last joins the section.
+ * <p>
+ * Operations of a parallel section can neither pause nor be retried. A failing operation ends its branch, and fails
+ * the workflow after the join if it is configured to do so.
+ */
+final class ParallelOperationsWorker {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(ParallelOperationsWorker.class);
+
+  private final WorkflowInstance workflow;
+  private final WorkflowServiceImpl service;
+
+  /** The positions of all operations of the section */
+  private final List<Integer> section = new ArrayList<Integer>();
+
+  /** The branches in the order they appear in the workflow */
+  private final List<Branch> branches = new ArrayList<Branch>();
+
+  /** The number of branches which are not done yet */
+  private int running = 0;
+
+  /**
+   * Creates a worker for the parallel section starting at the workflow's current operation.
+   *
+   * @param workflow
+   *          the workflow instance
+   * @param service
+   *          the workflow service
+   */
+  ParallelOperationsWorker(WorkflowInstance workflow, WorkflowServiceImpl service) {
+    this.workflow = workflow;
+    this.service = service;
+  }
+
+  /**
+   * Returns the workflow instance this worker is running the section of.
+   *
+   * @return the workflow instance
+   */
+  WorkflowInstance getWorkflow() {
+    return workflow;
+  }
+
+  /**
+   * Returns whether the operation starts a parallel section.
+   *
+   * @param operation
+   *          the operation
+   * @return <code>true</code> if the operation belongs to a branch
+   */
+  static boolean isParallel(WorkflowOperationInstance operation) {
+    return operation != null && operation.getBranch() != null;
+  }
+
+  /**
+   * Marks the operations of the section as running and splits them into branches. The branches are then expected to
+   * be run by the workflow service.
+   *
+   * @return the branches of the section
+   * @throws WorkflowException
+   *           if the workflow cannot be updated
+   */
+  List<Branch> start() throws WorkflowException, UnauthorizedException {
+    Map<String, List<Integer>> positions = new LinkedHashMap<String, List<Integer>>();
+    List<WorkflowOperationInstance> operations = workflow.getOperations();
+    for (int i = workflow.getCurrentOperation().getPosition(); i < operations.size(); i++) {
+      WorkflowOperationInstance operation = operations.get(i);
+      if (!isParallel(operation))
+        break;
+      section.add(i);
+      if (!positions.containsKey(operation.getBranch()))
+        positions.put(operation.getBranch(), new ArrayList<Integer>());
+      positions.get(operation.getBranch()).add(i);
+      operation.setState(OperationState.RUNNING);
+    }
+    service.update(workflow);
+    logger.info("Running operations {} to {} of workflow {} in branches {}", new Object[] { section.get(0),
+            section.get(section.size() - 1), workflow.getId(), positions.keySet() });
+
+    // The job of the section is the one of its first operation
+    Long jobId = operations.get(section.get(0)).getId();
+    String xml = WorkflowParser.toXml(workflow);
+    for (Entry<String, List<Integer>> entry : positions.entrySet()) {
+      branches.add(new Branch(entry.getKey(), WorkflowParser.parseWorkflowInstance(xml), entry.getValue(), jobId));
+    }
+    running = branches.size();
+    return Collections.unmodifiableList(branches);
+  }
+
+  /**
+   * Records that a branch is done and joins the section once all branches are done.
+   *
+   * @return the workflow instance with the results of all branches, or <code>null</code> if other branches are still
+   *         running
+   * @throws WorkflowException
+   *           if the workflow cannot be updated
+   */
+  private WorkflowInstance branchDone() throws WorkflowException, UnauthorizedException {
+    synchronized (this) {
+      if (--running > 0)
+        return null;
+    }
+    return join(branches, section);
+  }
+
+  /**
+   * Merges the results of all branches into the workflow instance.
+   */
+  private WorkflowInstance join(List<Branch> branches, List<Integer> section) throws WorkflowException,
+          UnauthorizedException {
+    List<MediaPackage> mediaPackages = new ArrayList<MediaPackage>();
+    Map<String, String> properties = new HashMap<String, String>();
+    WorkflowOperationInstance failed = null;
+    for (Branch branch : branches) {
+      mediaPackages.add(branch.workflow.getMediaPackage());
+      properties.putAll(branch.properties);
+      List<WorkflowOperationInstance> branchOperations = branch.workflow.getOperations();
+      for (int position : branch.positions) {
+        WorkflowOperationInstance result = branchOperations.get(position);
+        WorkflowOperationInstanceImpl operation = (WorkflowOperationInstanceImpl) workflow.getOperations().get(
+                position);
+        operation.setState(result.getState());
+        operation.setDateStarted(result.getDateStarted());
+        operation.setDateCompleted(result.getDateCompleted());
+        if (result.getTimeInQueue() != null)
+          operation.setTimeInQueue(result.getTimeInQueue());
+      }
+      if (branch.failed != null && (failed == null || branch.failed.getPosition() < failed.getPosition()))
+        failed = branch.failed;
+    }
+
+    MediaPackage mediaPackage;
+    try {
+      mediaPackage = merge(workflow.getMediaPackage(), mediaPackages);
+    } catch (MediaPackageException e) {
+      throw new WorkflowException("Unable to merge the media packages of workflow " + workflow.getId(), e);
+    }
+    workflow.setMediaPackage(mediaPackage);
+
+    WorkflowInstance joined = service.updateConfiguration(workflow, properties);
+    if (failed != null) {
+      service.handleFailedOperation(joined, joined.getOperations().get(failed.getPosition()),
+              section.get(section.size() - 1));
+    }
+    return joined;
+  }
+
+  /**
+   * Applies the changes that the branches made to the media package.
+   *
+   * @param base
+   *          the media package at the beginning of the parallel section
+   * @param branches
+   *          the media packages at the end of the branches
+   * @return the merged media package
+   * @throws MediaPackageException
+   *           if elements cannot be compared
+   */
+  static MediaPackage merge(MediaPackage base, List<MediaPackage> branches) throws MediaPackageException {
+    MediaPackage merged = (MediaPackage) base.clone();
+    Map<String, String> baseElements = new HashMap<String, String>();
+    for (MediaPackageElement element : base.getElements()) {
+      baseElements.put(element.getIdentifier(), MediaPackageElementParser.getAsXml(element));
+    }
+    Map<String, MediaPackage> changedBy = new HashMap<String, MediaPackage>();
+
+    for (MediaPackage branch : branches) {
+      for (MediaPackageElement element : branch.getElements()) {
+        String id = element.getIdentifier();
+        String baseElement = baseElements.get(id);
+        if (baseElement != null && baseElement.equals(MediaPackageElementParser.getAsXml(element)))
+          continue;
+        if (changedBy.containsKey(id))
+          logger.warn("Element {} has been changed by more than one branch, keeping the last change", id);
+        changedBy.put(id, branch);
+        MediaPackageElement existing = merged.getElementById(id);
+        if (existing != null)
+          merged.remove(existing);
+        merged.add((MediaPackageElement) element.clone());
+      }
+      for (String id : baseElements.keySet()) {
+        if (branch.getElementById(id) == null && merged.getElementById(id) != null)
+          merged.remove(merged.getElementById(id));
+      }
+
+      if (!ObjectUtils.equals(base.getTitle(), branch.getTitle()))
+        merged.setTitle(branch.getTitle());
+      if (!ObjectUtils.equals(base.getSeries(), branch.getSeries()))
+        merged.setSeries(branch.getSeries());
+      if (!ObjectUtils.equals(base.getSeriesTitle(), branch.getSeriesTitle()))
+        merged.setSeriesTitle(branch.getSeriesTitle());
+      if (!ObjectUtils.equals(base.getLanguage(), branch.getLanguage()))
+        merged.setLanguage(branch.getLanguage());
+      if (!ObjectUtils.equals(base.getLicense(), branch.getLicense()))
+        merged.setLicense(branch.getLicense());
+    }
+    return merged;
+  }
+
+  /**
+   * The operations of a single branch. A branch is run one step at a time: {@link #execute()} runs the next
+   * operation, which either completes or waits for jobs. A waiting operation is continued by
+   * {@link #jobsTerminated(JobBarrier.Result)} or {@link #waitFailed(Throwable)}. Once the branch is done,
+   * {@link #join()} is called.
+   */
+  final class Branch {
+
+    private final String name;
+
+    /** The positions of the operations of this branch */
+    private final List<Integer> positions;
+
+    /** The job of the section, used to report incidents */
+    private final Long jobId;
+
+    /** The branch's copy of the workflow */
+    private WorkflowInstance workflow;
+
+    /** The properties set by the operations of this branch */
+    private final Map<String, String> properties = new HashMap<String, String>();
+
+    /** The index of the current operation within {@link #positions} */
+    private int current = 0;
+
+    /** The handler of the current operation */
+    private WorkflowOperationHandler handler = null;
+
+    /** The jobs the current operation is waiting for, or <code>null</code> if it is not waiting */
+    private List<Job> pendingJobs = null;
+
+    /** The operation that failed the branch */
+    private WorkflowOperationInstance failed = null;
+
+    Branch(String name, WorkflowInstance workflow, List<Integer> positions, Long jobId) {
+      this.name = name;
+      this.workflow = workflow;
+      this.positions = positions;
+      this.jobId = jobId;
+      // Operation handlers look up their configuration through the current operation, so the operations of the section
+      // are marked as skipped and only the operation being executed is running
+      for (int position : section) {
+        workflow.getOperations().get(position).setState(OperationState.SKIPPED);
+      }
+    }
+
+    /**
+     * Returns the branch's copy of the workflow instance.
+     *
+     * @return the workflow instance
+     */
+    WorkflowInstance getWorkflow() {
+      return workflow;
+    }
+
+    /**
+     * Returns whether all operations of the branch have been run or one of them failed the branch.
+     *
+     * @return <code>true</code> if the branch is done
+     */
+    boolean isDone() {
+      return failed != null || current >= positions.size();
+    }
+
+    /**
+     * Returns whether the current operation is waiting for the jobs returned by {@link #getPendingJobs()}.
+     *
+     * @return <code>true</code> if the operation is waiting for jobs
+     */
+    boolean isWaiting() {
+      return pendingJobs != null;
+    }
+
+    /**
+     * Returns the jobs the current operation is waiting for.
+     *
+     * @return the jobs
+     */
+    List<Job> getPendingJobs() {
+      return pendingJobs == null ? Collections.<Job> emptyList() : pendingJobs;
+    }
+
+    /**
+     * Returns whether the handler of the next operation may block, so it must not run on the bounded worker pool.
+     *
+     * @return <code>true</code> if the handler is not asynchronous
+     */
+    boolean isBlocking() {
+      WorkflowOperationHandler next = service.selectOperationHandler(workflow.getOperations().get(
+              positions.get(current)));
+      return next != null && !(next instanceof AsyncWorkflowOperationHandler);
+    }
+
+    /**
+     * Runs the next operation of the branch.
+     */
+    void execute() {
+      int position = positions.get(current);
+      WorkflowOperationInstance operation = workflow.getOperations().get(position);
+      try {
+        operation.setState(OperationState.RUNNING);
+        handler = service.selectOperationHandler(operation);
+        WorkflowOperationResult result = null;
+        if (WorkflowOperationWorker.isExecutable(operation)) {
+          if (handler == null)
+            throw new IllegalStateException("Unable to find a workflow handler for '" + operation.getTemplate() + "'");
+          result = handler.start(workflow, null);
+        } else if (handler != null) {
+          result = handler.skip(workflow, null);
+          result.setAction(Action.SKIP);
+        }
+        handleResult(position, result);
+      } catch (Exception e) {
+        handleException(position, e);
+      }
+    }
+
+    /**
+     * Continues the current operation once the jobs it has been waiting for have terminated.
+     *
+     * @param jobs
+     *          the jobs and their outcomes
+     */
+    void jobsTerminated(JobBarrier.Result jobs) {
+      int position = positions.get(current);
+      pendingJobs = null;
+      try {
+        handleResult(position, ((AsyncWorkflowOperationHandler) handler).jobsTerminated(workflow, null, jobs));
+      } catch (Exception e) {
+        handleException(position, e);
+      }
+    }
+
+    /**
+     * Fails the current operation if its jobs could not be waited for.
+     *
+     * @param t
+     *          the reason
+     */
+    void waitFailed(Throwable t) {
+      pendingJobs = null;
+      handleException(positions.get(current), t instanceof Exception ? (Exception) t : new WorkflowException(t));
+    }
+
+    /**
+     * Reports the branch as done.
+     *
+     * @return the workflow instance with the results of all branches, or <code>null</code> if other branches are still
+     *         running
+     * @throws WorkflowException
+     *           if the workflow cannot be updated
+     */
+    WorkflowInstance join() throws WorkflowException, UnauthorizedException {
+      return branchDone();
+    }
+
+    private void handleResult(int position, WorkflowOperationResult result) throws Exception {
+      if (result instanceof WorkflowOperationWaitResult) {
+        if (!(handler instanceof AsyncWorkflowOperationHandler))
+          throw new IllegalStateException("Only asynchronous workflow operation handlers may wait for jobs");
+        pendingJobs = ((WorkflowOperationWaitResult) result).getJobs();
+        return;
+      }
+
+      Action action = result == null ? Action.SKIP : result.getAction();
+      if (Action.PAUSE.equals(action))
+        throw new IllegalStateException("Operations of parallel branches cannot pause the workflow");
+      if (handler != null)
+        handler.destroy(workflow, null);
+
+      if (result != null) {
+        if (result.getMediaPackage() != null)
+          workflow.setMediaPackage(result.getMediaPackage());
+        if (result.getProperties() != null) {
+          properties.putAll(result.getProperties());
+          workflow = service.updateConfiguration(workflow, result.getProperties());
+        }
+      }
+
+      WorkflowOperationInstanceImpl done = (WorkflowOperationInstanceImpl) workflow.getOperations().get(position);
+      if (result != null)
+        done.setTimeInQueue(result.getTimeInQueue());
+      done.setState(Action.SKIP.equals(action) ? OperationState.SKIPPED : OperationState.SUCCEEDED);
+      current++;
+    }
+
+    private void handleException(int position, Exception e) {
+      WorkflowOperationInstance operation = workflow.getOperations().get(position);
+      operation.setState(OperationState.FAILED);
+      logger.error("Workflow operation '" + operation + "' in branch '" + name + "' failed", e);
+      if (jobId != null)
+        service.getServiceRegistry().incident().unhandledException(jobId, Severity.FAILURE, e);
+      if (operation.isFailWorkflowOnException())
+        failed = operation;
+      else
+        current++;
+    }
+  }
+
+}
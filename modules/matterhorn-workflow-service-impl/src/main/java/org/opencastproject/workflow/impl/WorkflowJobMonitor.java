@@ -0,0 +1,253 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.serviceregistry.api.ServiceRegistry;
+import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.util.JobCanceledException;
+import org.opencastproject.util.NotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits for the jobs of asynchronous workflow operations on a single thread.
+ * <p>
+ * Every wait is checked against the service registry once per polling interval, the same way a
+ * {@link JobBarrier} does, but without keeping a thread per waiting operation. Once all jobs of a wait have terminated,
+ * its callback is notified on the polling thread, so callbacks are expected to hand off any real work.
+ */
+final class WorkflowJobMonitor {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(WorkflowJobMonitor.class);
+
+  /** The service registry used to poll for job status */
+  private final ServiceRegistry serviceRegistry;
+
+  /** The waits which have not yet been notified */
+  private final List<Wait> waits = new ArrayList<Wait>();
+
+  /** The polling thread */
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * Creates and starts a new monitor.
+   *
+   * @param serviceRegistry
+   *          the service registry
+   * @param pollingInterval
+   *          the time in milliseconds between two polls
+   */
+  WorkflowJobMonitor(ServiceRegistry serviceRegistry, long pollingInterval) {
+    if (pollingInterval <= 0)
+      throw new IllegalArgumentException("Polling interval must be a positive number");
+    this.serviceRegistry = serviceRegistry;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "workflow-job-monitor");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    scheduler.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        poll();
+      }
+    }, pollingInterval, pollingInterval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Registers a callback which is notified once all of the jobs have either finished, failed or have been deleted.
+   *
+   * @param jobs
+   *          the jobs to wait for
+   * @param callback
+   *          the callback
+   */
+  void waitFor(List<Job> jobs, Callback callback) {
+    Wait wait = new Wait(jobs, callback);
+    if (jobs.isEmpty()) {
+      wait.notifyTerminated();
+      return;
+    }
+    synchronized (waits) {
+      waits.add(wait);
+    }
+  }
+
+  /**
+   * Returns the number of waits which have not yet been notified.
+   *
+   * @return the number of waits
+   */
+  int size() {
+    synchronized (waits) {
+      return waits.size();
+    }
+  }
+
+  /**
+   * Stops polling. Pending waits are never notified.
+   */
+  void shutdown() {
+    scheduler.shutdownNow();
+    synchronized (waits) {
+      if (!waits.isEmpty())
+        logger.info("Stopped waiting for the jobs of {} workflow operations", waits.size());
+      waits.clear();
+    }
+  }
+
+  /**
+   * Checks all pending waits and notifies the ones which are done.
+   */
+  void poll() {
+    List<Wait> pending;
+    synchronized (waits) {
+      pending = new ArrayList<Wait>(waits);
+    }
+    for (Wait wait : pending) {
+      boolean done;
+      try {
+        done = wait.update();
+      } catch (Throwable t) {
+        remove(wait);
+        wait.notifyFailed(t);
+        continue;
+      }
+      if (done) {
+        remove(wait);
+        wait.notifyTerminated();
+      }
+    }
+  }
+
+  private void remove(Wait wait) {
+    synchronized (waits) {
+      waits.remove(wait);
+    }
+  }
+
+  /** Callback for the outcome of a wait. */
+  interface Callback {
+
+    /**
+     * Called once all jobs have terminated.
+     *
+     * @param result
+     *          the jobs and their outcomes
+     */
+    void jobsTerminated(JobBarrier.Result result);
+
+    /**
+     * Called if waiting failed, e. g. because a job was canceled or is no longer known to the service registry.
+     *
+     * @param t
+     *          the reason
+     */
+    void waitFailed(Throwable t);
+  }
+
+  /** The jobs of a single workflow operation. */
+  private final class Wait {
+
+    /** The jobs which have not yet terminated */
+    private final List<Job> running;
+
+    /** The terminated jobs and their status */
+    private final Map<Job, Job.Status> terminated = new HashMap<Job, Job.Status>();
+
+    private final Callback callback;
+
+    Wait(List<Job> jobs, Callback callback) {
+      this.running = new ArrayList<Job>(jobs);
+      this.callback = callback;
+    }
+
+    /**
+     * Polls the status of the jobs which are still running.
+     *
+     * @return <code>true</code> if all jobs have terminated
+     */
+    boolean update() throws JobCanceledException, NotFoundException {
+      for (Iterator<Job> i = running.iterator(); i.hasNext();) {
+        Job job = i.next();
+        Job processedJob;
+        try {
+          processedJob = serviceRegistry.getJob(job.getId());
+        } catch (ServiceRegistryException e) {
+          logger.warn("Error polling service registry for the status of {}: {}", job, e.getMessage());
+          return false;
+        }
+        switch (processedJob.getStatus()) {
+          case CANCELED:
+            throw new JobCanceledException(processedJob);
+          case DELETED:
+          case FAILED:
+          case FINISHED:
+            job.setStatus(processedJob.getStatus());
+            job.setPayload(processedJob.getPayload());
+            terminated.put(job, processedJob.getStatus());
+            i.remove();
+            break;
+          default:
+            logger.trace("{} is still in the works", job);
+        }
+      }
+      return running.isEmpty();
+    }
+
+    void notifyTerminated() {
+      try {
+        callback.jobsTerminated(new JobBarrier.Result(terminated));
+      } catch (Throwable t) {
+        logger.error("Unable to continue after jobs have terminated", t);
+      }
+    }
+
+    void notifyFailed(Throwable failure) {
+      logger.warn("Waiting for jobs {} failed: {}", running, failure.getMessage());
+      try {
+        callback.waitFailed(failure);
+      } catch (Throwable t) {
+        logger.error("Unable to handle failed wait for jobs", t);
+      }
+    }
+  }
+
+}
@@ -25,8 +25,11 @@ import static com.entwinemedia.fn.data.ListBuilders.LIA;
 import static java.lang.String.format;
 
 import org.opencastproject.job.api.Incident.Severity;
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.security.api.UnauthorizedException;
 import org.opencastproject.util.JobCanceledException;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
 import org.opencastproject.workflow.api.ResumableWorkflowOperationHandler;
 import org.opencastproject.workflow.api.WorkflowException;
 import org.opencastproject.workflow.api.WorkflowInstance;
@@ -36,6 +39,7 @@ import org.opencastproject.workflow.api.WorkflowOperationInstance;
 import org.opencastproject.workflow.api.WorkflowOperationInstance.OperationState;
 import org.opencastproject.workflow.api.WorkflowOperationResult;
 import org.opencastproject.workflow.api.WorkflowOperationResult.Action;
+import org.opencastproject.workflow.api.WorkflowOperationWaitResult;
 
 import com.entwinemedia.fn.bool.Bool;
 import com.entwinemedia.fn.parser.Parsers;
@@ -44,6 +48,8 @@ import com.entwinemedia.fn.parser.Result;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -64,6 +70,9 @@ final class WorkflowOperationWorker {
   private WorkflowServiceImpl service = null;
   private Map<String, String> properties = null;
 
+  /** The result of the operation handler if it is waiting for jobs */
+  private WorkflowOperationWaitResult waitResult = null;
+
   /**
    * Creates a worker that will execute the given handler and thereby the current operation of the workflow instance.
    * When the worker is finished, a callback will be made to the workflow service reporting either success or failure of
@@ -142,6 +151,35 @@ final class WorkflowOperationWorker {
     this.handler = operationHandler;
   }
 
+  /**
+   * Returns the workflow instance this worker is running the operation of.
+   *
+   * @return the workflow instance
+   */
+  public WorkflowInstance getWorkflow() {
+    return workflow;
+  }
+
+  /**
+   * Returns whether the operation is waiting for jobs. In that case, the workflow service is expected to call
+   * {@link #jobsTerminated(JobBarrier.Result)} or {@link #waitFailed(Throwable)} once the jobs returned by
+   * {@link #getPendingJobs()} have terminated.
+   *
+   * @return <code>true</code> if the operation is waiting for jobs
+   */
+  public boolean isWaiting() {
+    return waitResult != null;
+  }
+
+  /**
+   * Returns the jobs the operation is waiting for.
+   *
+   * @return the jobs
+   */
+  public List<Job> getPendingJobs() {
+    return waitResult == null ? Collections.<Job> emptyList() : waitResult.getJobs();
+  }
+
   /**
    * Executes the workflow operation logic.
    */
@@ -161,33 +199,119 @@ final class WorkflowOperationWorker {
           throw new IllegalStateException("Workflow operation '" + operation + "' is in unexpected state '"
                   + operation.getState() + "'");
       }
-      if (result == null || Action.CONTINUE.equals(result.getAction()) || Action.SKIP.equals(result.getAction())) {
-        if (handler != null) {
-          handler.destroy(workflow, null);
-        }
-      }
-      workflow = service.handleOperationResult(workflow, result);
-    } catch (JobCanceledException e) {
-      logger.info(e.getMessage());
+      handleResult(result);
     } catch (Exception e) {
-      Throwable t = e.getCause();
-      if (t != null) {
-        logger.error("Workflow operation '" + operation + "' failed", t);
-      } else {
-        logger.error("Workflow operation '" + operation + "' failed", e);
-      }
-      // the associated job shares operation's id
-      service.getServiceRegistry().incident().unhandledException(operation.getId(), Severity.FAILURE, e);
+      handleException(operation, e);
+    }
+    return workflow;
+  }
+
+  /**
+   * Continues an operation that has been waiting for jobs.
+   *
+   * @param jobs
+   *          the jobs and their outcomes
+   */
+  public WorkflowInstance jobsTerminated(JobBarrier.Result jobs) {
+    WorkflowOperationInstance operation = workflow.getCurrentOperation();
+    waitResult = null;
+    try {
+      WorkflowOperationResult result;
       try {
-        workflow = service.handleOperationException(workflow, operation);
-      } catch (Exception e2) {
-        logger.error("Error handling workflow operation '{}' failure: {}", new Object[] { operation, e2.getMessage(),
-                e2 });
+        result = ((AsyncWorkflowOperationHandler) handler).jobsTerminated(workflow, null, jobs);
+      } catch (Exception e) {
+        operation.setState(OperationState.FAILED);
+        if (e instanceof WorkflowOperationException)
+          throw (WorkflowOperationException) e;
+        throw new WorkflowOperationException(e);
       }
+      handleResult(result);
+    } catch (Exception e) {
+      handleException(operation, e);
+    }
+    return workflow;
+  }
+
+  /**
+   * Fails an operation whose jobs could not be waited for, e. g. because one of them has been canceled.
+   *
+   * @param t
+   *          the reason
+   */
+  public WorkflowInstance waitFailed(Throwable t) {
+    WorkflowOperationInstance operation = workflow.getCurrentOperation();
+    waitResult = null;
+    if (t instanceof JobCanceledException) {
+      // Canceling a job is not an error of the operation, see execute()
+      logger.info(t.getMessage());
+      return workflow;
     }
+    operation.setState(OperationState.FAILED);
+    handleException(operation, new WorkflowOperationException(t));
     return workflow;
   }
 
+  /**
+   * Passes the result of the operation handler on to the workflow service, unless the handler asked to wait for jobs.
+   */
+  private void handleResult(WorkflowOperationResult result) throws WorkflowException, UnauthorizedException {
+    if (result instanceof WorkflowOperationWaitResult) {
+      if (!(handler instanceof AsyncWorkflowOperationHandler)) {
+        workflow.getCurrentOperation().setState(OperationState.FAILED);
+        throw new IllegalStateException("Only asynchronous workflow operation handlers may wait for jobs");
+      }
+      waitResult = (WorkflowOperationWaitResult) result;
+      return;
+    }
+    if (result == null || Action.CONTINUE.equals(result.getAction()) || Action.SKIP.equals(result.getAction())) {
+      if (handler != null) {
+        handler.destroy(workflow, null);
+      }
+    }
+    workflow = service.handleOperationResult(workflow, result);
+  }
+
+  private void handleException(WorkflowOperationInstance operation, Exception e) {
+    if (e instanceof JobCanceledException) {
+      logger.info(e.getMessage());
+      return;
+    }
+    Throwable t = e.getCause();
+    if (t != null) {
+      logger.error("Workflow operation '" + operation + "' failed", t);
+    } else {
+      logger.error("Workflow operation '" + operation + "' failed", e);
+    }
+    // the associated job shares operation's id
+    service.getServiceRegistry().incident().unhandledException(operation.getId(), Severity.FAILURE, e);
+    try {
+      workflow = service.handleOperationException(workflow, operation);
+    } catch (Exception e2) {
+      logger.error("Error handling workflow operation '{}' failure: {}", new Object[] { operation, e2.getMessage(),
+              e2 });
+    }
+  }
+
+  /**
+   * Evaluates the execution condition of an operation.
+   *
+   * @param operation
+   *          the operation
+   * @return whether the operation is to be executed rather than skipped
+   * @throws WorkflowOperationException
+   *           if the execution condition cannot be parsed
+   */
+  static boolean isExecutable(WorkflowOperationInstance operation) throws WorkflowOperationException {
+    final String executionCondition = operation.getExecutionCondition(); // if
+    if (executionCondition == null)
+      return true;
+    final Result<Boolean> parsed = booleanExpressionEvaluator.eval(executionCondition);
+    if (parsed.isDefined() && parsed.getRest().isEmpty())
+      return parsed.getResult();
+    throw new WorkflowOperationException(format("Unable to parse execution condition '%s'. Result is '%s'",
+            executionCondition, parsed.toString()));
+  }
+
   /**
    * Starts executing the workflow operation.
    *
@@ -200,19 +324,12 @@ final class WorkflowOperationWorker {
   public WorkflowOperationResult start() throws WorkflowOperationException, WorkflowException, UnauthorizedException {
     final WorkflowOperationInstance operation = workflow.getCurrentOperation();
     // Do we need to execute the operation?
-    final String executionCondition = operation.getExecutionCondition(); // if
     final boolean execute;
-    if (executionCondition == null) {
-      execute = true;
-    } else {
-      final Result<Boolean> parsed = booleanExpressionEvaluator.eval(executionCondition);
-      if (parsed.isDefined() && parsed.getRest().isEmpty()) {
-        execute = parsed.getResult();
-      } else {
-        operation.setState(OperationState.FAILED);
-        throw new WorkflowOperationException(format("Unable to parse execution condition '%s'. Result is '%s'",
-                executionCondition, parsed.toString()));
-      }
+    try {
+      execute = isExecutable(operation);
+    } catch (WorkflowOperationException e) {
+      operation.setState(OperationState.FAILED);
+      throw e;
     }
 
     operation.setState(OperationState.RUNNING);
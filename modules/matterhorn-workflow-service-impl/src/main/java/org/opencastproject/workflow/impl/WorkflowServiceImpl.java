@@ -35,6 +35,7 @@ import static org.opencastproject.workflow.api.WorkflowInstance.WorkflowState.SU
 import org.opencastproject.index.IndexProducer;
 import org.opencastproject.job.api.Job;
 import org.opencastproject.job.api.Job.Status;
+import org.opencastproject.job.api.JobBarrier;
 import org.opencastproject.job.api.JobProducer;
 import org.opencastproject.mediapackage.MediaPackage;
 import org.opencastproject.mediapackage.MediaPackageElement;
@@ -75,6 +76,7 @@ import org.opencastproject.util.data.Effect0;
 import org.opencastproject.util.data.Function0;
 import org.opencastproject.util.data.Option;
 import org.opencastproject.util.jmx.JmxUtil;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
 import org.opencastproject.workflow.api.ResumableWorkflowOperationHandler;
 import org.opencastproject.workflow.api.RetryStrategy;
 import org.opencastproject.workflow.api.WorkflowDatabaseException;
@@ -139,8 +141,11 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -184,6 +189,12 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
   /** The default value for {@link #workflowStatsCollect} */
   public static final Boolean DEFAULT_STATS_COLLECT_CONFIG = false;
 
+  /** The configuration key for the number of threads running workflow jobs */
+  public static final String WORKER_THREADS_CONFIG_KEY = "workflow.worker.threads";
+
+  /** The default number of threads running workflow jobs */
+  public static final int DEFAULT_WORKER_THREADS = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
   /** Constant value indicating a <code>null</code> parent id */
   private static final String NULL_PARENT_ID = "-";
 
@@ -222,9 +233,24 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
   /** The list of workflow listeners */
   private final List<WorkflowListener> listeners = new CopyOnWriteArrayList<WorkflowListener>();
 
-  /** The thread pool to use for firing listeners and handling dispatched jobs */
+  /** The thread pool to use for handling dispatched jobs */
   protected ThreadPoolExecutor executorService;
 
+  /** The thread pool to use for firing listeners, which must not delay the operations on {@link #executorService} */
+  protected ExecutorService listenerExecutorService;
+
+  /**
+   * The thread pool running operation handlers which block while waiting for their jobs. Those handlers must not
+   * occupy the bounded {@link #executorService}.
+   */
+  protected ExecutorService blockingExecutorService;
+
+  /** Waits for the jobs of asynchronous workflow operations, created on first use */
+  private WorkflowJobMonitor jobMonitor;
+
+  /** The number of threads running workflow jobs */
+  private int workerThreads = DEFAULT_WORKER_THREADS;
+
   /** The workspace */
   protected Workspace workspace = null;
 
@@ -287,7 +313,11 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
    */
   public void activate(ComponentContext componentContext) {
     this.componentContext = componentContext;
-    executorService = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+    executorService = new ThreadPoolExecutor(workerThreads, workerThreads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>());
+    executorService.allowCoreThreadTimeOut(true);
+    blockingExecutorService = Executors.newCachedThreadPool();
+    listenerExecutorService = Executors.newCachedThreadPool();
     try {
       logger.info("Generating JMX workflow statistics");
       workflowsStatistics = new WorkflowsStatistics(getBeanStatistics(), getHoldWorkflows());
@@ -304,6 +334,12 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     for (ObjectInstance mxbean : jmxBeans) {
       JmxUtil.unregisterMXBean(mxbean);
     }
+    synchronized (this) {
+      if (jobMonitor != null) {
+        jobMonitor.shutdown();
+        jobMonitor = null;
+      }
+    }
     super.deactivate();
   }
 
@@ -348,7 +384,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
             }
           }
         };
-        executorService.execute(runnable);
+        listenerExecutorService.execute(runnable);
       } else {
         logger.debug("Not notifying %s because the workflow state has not changed", listener);
       }
@@ -369,7 +405,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
               }
             }
           };
-          executorService.execute(runnable);
+          listenerExecutorService.execute(runnable);
         }
       } else {
         logger.debug("Not notifying %s because the workflow operation has not changed", listener);
@@ -861,7 +897,7 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
    *          the workflow
    * @param properties
    *          the properties that are passed in on resume
-   * @return the processed workflow operation
+   * @return the processed workflow operation or <code>null</code> if the operation is being processed asynchronously
    * @throws WorkflowException
    *           if there is a problem processing the workflow
    */
@@ -874,14 +910,94 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     // Keep the current state for later reference, it might have been changed from the outside
     WorkflowState initialState = workflow.getState();
 
+    // Operations assigned to branches are executed as a whole, see ParallelOperationsWorker
+    if (ParallelOperationsWorker.isParallel(processingOperation)) {
+      for (ParallelOperationsWorker.Branch branch : new ParallelOperationsWorker(workflow, this).start()) {
+        continueBranch(branch, initialState, processingOperation.getPosition());
+      }
+      return null;
+    }
+
     // Execute the operation handler
     WorkflowOperationHandler operationHandler = selectOperationHandler(processingOperation);
     WorkflowOperationWorker worker = new WorkflowOperationWorker(operationHandler, workflow, properties, this);
+    if (operationHandler != null && !(operationHandler instanceof AsyncWorkflowOperationHandler)) {
+      // Blocking handlers may keep their thread for hours, so they don't get to run on the bounded worker pool
+      blockingExecutorService.execute(new OperationContinuation(worker, initialState, processingOperation
+              .getPosition()));
+      return null;
+    }
     workflow = worker.execute();
+    if (worker.isWaiting()) {
+      waitForJobs(worker, initialState, processingOperation.getPosition());
+      return null;
+    }
+    return completeWorkflowOperation(workflow, processingOperation.getPosition(), initialState);
+  }
 
+  /**
+   * Registers a workflow operation which is waiting for jobs with the job monitor. Once the jobs have terminated, the
+   * operation is continued on the worker pool.
+   *
+   * @param worker
+   *          the worker running the operation
+   * @param initialState
+   *          the state of the workflow when the operation was started
+   * @param position
+   *          the position of the operation within the workflow
+   */
+  private void waitForJobs(WorkflowOperationWorker worker, WorkflowState initialState, int position) {
+    logger.debug("Workflow operation at position %d is waiting for jobs %s", position, worker.getPendingJobs());
+    getJobMonitor().waitFor(worker.getPendingJobs(), new OperationContinuation(worker, initialState, position));
+  }
+
+  /**
+   * Schedules the next step of a branch of a parallel section. Operations waiting for jobs are registered with the job
+   * monitor, blocking handlers are run apart from the worker pool, just like operations outside of parallel sections.
+   *
+   * @param branch
+   *          the branch
+   * @param initialState
+   *          the state of the workflow when the section was started
+   * @param position
+   *          the position of the first operation of the section
+   */
+  private void continueBranch(ParallelOperationsWorker.Branch branch, WorkflowState initialState, int position) {
+    OperationContinuation continuation = new OperationContinuation(branch, initialState, position);
+    if (branch.isWaiting()) {
+      logger.debug("Branch of workflow operation at position %d is waiting for jobs %s", position,
+              branch.getPendingJobs());
+      getJobMonitor().waitFor(branch.getPendingJobs(), continuation);
+    } else if (branch.isBlocking()) {
+      blockingExecutorService.execute(continuation);
+    } else {
+      executorService.execute(continuation);
+    }
+  }
+
+  synchronized WorkflowJobMonitor getJobMonitor() {
+    if (jobMonitor == null)
+      jobMonitor = new WorkflowJobMonitor(serviceRegistry, JobBarrier.DEFAULT_POLLING_INTERVAL);
+    return jobMonitor;
+  }
+
+  /**
+   * Updates the job of a workflow operation that has been executed and schedules the next operation, if any.
+   *
+   * @param workflow
+   *          the workflow
+   * @param currentOperationPosition
+   *          the position of the executed operation
+   * @param initialState
+   *          the state of the workflow when the operation was started
+   * @return the processed workflow operation
+   * @throws WorkflowException
+   *           if there is a problem processing the workflow
+   */
+  protected WorkflowOperationInstance completeWorkflowOperation(WorkflowInstance workflow,
+          int currentOperationPosition, WorkflowState initialState) throws WorkflowException, UnauthorizedException {
     // The workflow has been serialized/deserialized in between, so we need to refresh the reference
-    int currentOperationPosition = processingOperation.getPosition();
-    processingOperation = workflow.getOperations().get(currentOperationPosition);
+    WorkflowOperationInstance processingOperation = workflow.getOperations().get(currentOperationPosition);
 
     Long currentOperationJobId = processingOperation.getId();
     try {
@@ -1544,6 +1660,25 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
    */
   private void handleFailedOperation(WorkflowInstance workflow, WorkflowOperationInstance currentOperation)
           throws WorkflowDatabaseException {
+    handleFailedOperation(workflow, currentOperation, workflow.getOperations().indexOf(currentOperation));
+  }
+
+  /**
+   * Handles the workflow for a failing operation, keeping the operations up to the given position if an exception
+   * handling workflow is appended.
+   *
+   * @param workflow
+   *          the workflow
+   * @param currentOperation
+   *          the failing workflow operation instance
+   * @param lastPosition
+   *          the position of the last operation to keep, which is the failing operation itself unless it is part of a
+   *          parallel section
+   * @throws WorkflowDatabaseException
+   *           If the exception handler workflow is not found
+   */
+  void handleFailedOperation(WorkflowInstance workflow, WorkflowOperationInstance currentOperation, int lastPosition)
+          throws WorkflowDatabaseException {
     String errorDefId = currentOperation.getExceptionHandlingWorkflow();
 
     // Adjust the workflow state according to the setting on the operation
@@ -1554,9 +1689,8 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         workflow.setState(FAILING);
 
         // Remove the rest of the original workflow
-        int currentOperationPosition = workflow.getOperations().indexOf(currentOperation);
         List<WorkflowOperationInstance> operations = new ArrayList<WorkflowOperationInstance>();
-        operations.addAll(workflow.getOperations().subList(0, currentOperationPosition + 1));
+        operations.addAll(workflow.getOperations().subList(0, lastPosition + 1));
         workflow.setOperations(operations);
 
         // Determine the current workflow configuration
@@ -1943,7 +2077,8 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
             wfo.setExecutionHost(job.getProcessingHost());
             logger.debug("Running %s %s", workflowInstance, wfo);
             wfo = runWorkflowOperation(workflowInstance, null);
-            updateOperationJob(job.getId(), wfo.getState());
+            if (wfo != null)
+              updateOperationJob(job.getId(), wfo.getState());
             break;
           default:
             throw new IllegalStateException("Don't know how to handle operation '" + operation + "'");
@@ -2265,6 +2400,30 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
         workflowStatsCollect = DEFAULT_STATS_COLLECT_CONFIG;
       }
     }
+
+    String threads = StringUtils.trimToNull((String) properties.get(WORKER_THREADS_CONFIG_KEY));
+    if (threads != null) {
+      try {
+        workerThreads = Integer.parseInt(threads);
+        if (workerThreads < 1)
+          throw new NumberFormatException();
+      } catch (NumberFormatException e) {
+        throw new ConfigurationException(WORKER_THREADS_CONFIG_KEY, "Must be a positive number");
+      }
+    } else {
+      workerThreads = DEFAULT_WORKER_THREADS;
+    }
+    ThreadPoolExecutor executor = executorService;
+    if (executor != null && executor.getMaximumPoolSize() != workerThreads) {
+      if (workerThreads > executor.getMaximumPoolSize()) {
+        executor.setMaximumPoolSize(workerThreads);
+        executor.setCorePoolSize(workerThreads);
+      } else {
+        executor.setCorePoolSize(workerThreads);
+        executor.setMaximumPoolSize(workerThreads);
+      }
+    }
+    logger.info("Running workflow operations on %d threads", workerThreads);
   }
 
   /**
@@ -2371,6 +2530,153 @@ public class WorkflowServiceImpl extends AbstractIndexProducer implements Workfl
     }
   }
 
+  /**
+   * Runs a workflow operation apart from the job runner which started it, either because its handler blocks, because
+   * the operation has been waiting for jobs or because it belongs to a branch of a parallel section. The security
+   * context of the job runner is carried over.
+   */
+  class OperationContinuation implements Runnable, WorkflowJobMonitor.Callback {
+
+    /** The worker running the operation */
+    private final WorkflowOperationWorker worker;
+
+    /** The branch of a parallel section, if the operation belongs to one */
+    private final ParallelOperationsWorker.Branch branch;
+
+    /** The state of the workflow when the operation was started */
+    private final WorkflowState initialState;
+
+    /** The position of the operation within the workflow */
+    private final int position;
+
+    /** The identifier of the workflow instance */
+    private final long workflowId;
+
+    private final Organization organization;
+    private final User user;
+    private final Job currentJob;
+
+    /** The outcome of the jobs the operation has been waiting for */
+    private JobBarrier.Result result = null;
+
+    /** The reason why waiting for the jobs failed */
+    private Throwable failure = null;
+
+    /**
+     * Creates a continuation with the security context of the current thread.
+     *
+     * @param worker
+     *          the worker running the operation
+     * @param initialState
+     *          the state of the workflow when the operation was started
+     * @param position
+     *          the position of the operation within the workflow
+     */
+    OperationContinuation(WorkflowOperationWorker worker, WorkflowState initialState, int position) {
+      this(worker, null, initialState, position);
+    }
+
+    /**
+     * Creates a continuation running the next step of a branch of a parallel section with the security context of the
+     * current thread.
+     *
+     * @param branch
+     *          the branch
+     * @param initialState
+     *          the state of the workflow when the section was started
+     * @param position
+     *          the position of the first operation of the section
+     */
+    OperationContinuation(ParallelOperationsWorker.Branch branch, WorkflowState initialState, int position) {
+      this(null, branch, initialState, position);
+    }
+
+    private OperationContinuation(WorkflowOperationWorker worker, ParallelOperationsWorker.Branch branch,
+            WorkflowState initialState, int position) {
+      this.worker = worker;
+      this.branch = branch;
+      this.initialState = initialState;
+      this.position = position;
+      this.workflowId = worker != null ? worker.getWorkflow().getId() : branch.getWorkflow().getId();
+      this.organization = securityService.getOrganization();
+      this.user = securityService.getUser();
+      this.currentJob = serviceRegistry.getCurrentJob();
+    }
+
+    @Override
+    public void jobsTerminated(JobBarrier.Result result) {
+      this.result = result;
+      executorService.execute(this);
+    }
+
+    @Override
+    public void waitFailed(Throwable t) {
+      this.failure = t;
+      executorService.execute(this);
+    }
+
+    @Override
+    public void run() {
+      WorkflowInstance workflow = null;
+      try {
+        serviceRegistry.setCurrentJob(currentJob);
+        securityService.setOrganization(organization);
+        securityService.setUser(user);
+        if (branch != null) {
+          runBranch();
+        } else {
+          if (failure != null) {
+            workflow = worker.waitFailed(failure);
+          } else if (result != null) {
+            workflow = worker.jobsTerminated(result);
+          } else {
+            workflow = worker.execute();
+          }
+          if (worker.isWaiting()) {
+            waitForJobs(worker, initialState, position);
+          } else {
+            completeWorkflowOperation(workflow, position, initialState);
+          }
+        }
+      } catch (Exception e) {
+        logger.warn(e, "Exception while processing workflow operation at position " + position);
+        // The instance held by the worker may be outdated or missing, so the failure is recorded on the stored one
+        try {
+          WorkflowInstance failedWorkflow = getWorkflowById(workflowId);
+          logger.warn("Marking workflow instance %s as failed", failedWorkflow);
+          failedWorkflow.setState(FAILED);
+          update(failedWorkflow);
+        } catch (Exception e1) {
+          logger.error(e1, "Unable to mark workflow instance " + workflowId + " as failed");
+        }
+      } finally {
+        serviceRegistry.setCurrentJob(null);
+        securityService.setUser(null);
+        securityService.setOrganization(null);
+      }
+    }
+
+    /**
+     * Runs the next step of the branch. The branch finishing last completes the parallel section.
+     */
+    private void runBranch() throws WorkflowException, UnauthorizedException {
+      if (failure != null) {
+        branch.waitFailed(failure);
+      } else if (result != null) {
+        branch.jobsTerminated(result);
+      } else {
+        branch.execute();
+      }
+      if (!branch.isDone()) {
+        continueBranch(branch, initialState, position);
+        return;
+      }
+      WorkflowInstance joined = branch.join();
+      if (joined != null)
+        completeWorkflowOperation(joined, position, initialState);
+    }
+  }
+
   /**
    * Finds a given operation position in a WorkflowInstance if the operation is failed.
    *
@@ -89,6 +89,7 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -793,6 +794,36 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
     return sb;
   }
 
+  /**
+   * Appends a query parameter to a solr query which matches any of the given values.
+   *
+   * @param sb
+   *          The {@link StringBuilder} containing the query
+   * @param key
+   *          the key for this search parameter
+   * @param values
+   *          the values for this search parameter
+   * @return the appended {@link StringBuilder}
+   */
+  private StringBuilder appendAny(StringBuilder sb, String key, Collection<String> values) {
+    if (StringUtils.isBlank(key) || values == null || values.isEmpty()) {
+      return sb;
+    }
+    if (sb.length() > 0) {
+      sb.append(" AND ");
+    }
+    sb.append(key).append(":(");
+    boolean first = true;
+    for (String value : values) {
+      if (!first)
+        sb.append(" OR ");
+      sb.append(escapeQueryChars(value));
+      first = false;
+    }
+    sb.append(")");
+    return sb;
+  }
+
   /**
    * Appends query parameters to a solr query in a way that they are found even though they are not treated as a full
    * word in solr.
@@ -862,6 +893,7 @@ public class WorkflowServiceSolrIndex implements WorkflowServiceIndex {
     StringBuilder sb = new StringBuilder().append(ORG_KEY).append(":").append(escapeQueryChars(orgId));
     append(sb, ID_KEY, query.getId(), false);
     append(sb, MEDIAPACKAGE_KEY, query.getMediaPackageId(), false);
+    appendAny(sb, MEDIAPACKAGE_KEY, query.getMediaPackageIds());
     append(sb, SERIES_ID_KEY, query.getSeriesId(), false);
     appendFuzzy(sb, SERIES_TITLE_KEY, query.getSeriesTitle());
     appendFuzzy(sb, FULLTEXT_KEY, query.getText());
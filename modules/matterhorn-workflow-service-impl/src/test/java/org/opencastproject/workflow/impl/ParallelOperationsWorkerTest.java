@@ -0,0 +1,514 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.opencastproject.workflow.impl.SecurityServiceStub.DEFAULT_ORG_ADMIN;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.job.api.JobContext;
+import org.opencastproject.mediapackage.MediaPackage;
+import org.opencastproject.mediapackage.MediaPackageBuilderFactory;
+import org.opencastproject.mediapackage.MediaPackageElementFlavor;
+import org.opencastproject.mediapackage.Track;
+import org.opencastproject.mediapackage.track.TrackImpl;
+import org.opencastproject.message.broker.api.MessageSender;
+import org.opencastproject.metadata.api.MediaPackageMetadataService;
+import org.opencastproject.security.api.AccessControlList;
+import org.opencastproject.security.api.AclScope;
+import org.opencastproject.security.api.AuthorizationService;
+import org.opencastproject.security.api.DefaultOrganization;
+import org.opencastproject.security.api.Organization;
+import org.opencastproject.security.api.OrganizationDirectoryService;
+import org.opencastproject.security.api.SecurityService;
+import org.opencastproject.security.api.UserDirectoryService;
+import org.opencastproject.serviceregistry.api.IncidentService;
+import org.opencastproject.serviceregistry.api.ServiceRegistryException;
+import org.opencastproject.serviceregistry.api.ServiceRegistryInMemoryImpl;
+import org.opencastproject.util.data.Tuple;
+import org.opencastproject.workflow.api.AbstractWorkflowOperationHandler;
+import org.opencastproject.workflow.api.AsyncWorkflowOperationHandler;
+import org.opencastproject.workflow.api.WorkflowDefinition;
+import org.opencastproject.workflow.api.WorkflowDefinitionImpl;
+import org.opencastproject.workflow.api.WorkflowInstance;
+import org.opencastproject.workflow.api.WorkflowInstance.WorkflowState;
+import org.opencastproject.workflow.api.WorkflowInstanceImpl;
+import org.opencastproject.workflow.api.WorkflowOperationDefinitionImpl;
+import org.opencastproject.workflow.api.WorkflowOperationException;
+import org.opencastproject.workflow.api.WorkflowOperationInstance.OperationState;
+import org.opencastproject.workflow.api.WorkflowOperationResult;
+import org.opencastproject.workflow.api.WorkflowOperationResult.Action;
+import org.opencastproject.workflow.api.WorkflowParser;
+import org.opencastproject.workflow.api.WorkflowStateListener;
+import org.opencastproject.workflow.impl.WorkflowServiceImpl.HandlerRegistration;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test cases for {@link ParallelOperationsWorker}.
+ */
+public class ParallelOperationsWorkerTest {
+
+  private MediaPackage base = null;
+
+  /** The workflow service, only set up by the tests running whole workflows */
+  private WorkflowServiceImpl service = null;
+  private WorkflowServiceSolrIndex dao = null;
+  private ServiceRegistryInMemoryImpl serviceRegistry = null;
+  private File sRoot = null;
+
+  /** The barrier the branch operations wait at, if any */
+  private CyclicBarrier barrier = null;
+
+  /** The number of times the branch operation of the presenter ran */
+  private final AtomicInteger presenterRuns = new AtomicInteger();
+
+  /** The jobs the asynchronous branch operations are waiting for */
+  private final List<Job> branchJobs = new CopyOnWriteArrayList<Job>();
+
+  /** The media package the operation after the join has been started with */
+  private volatile MediaPackage joined = null;
+
+  @Before
+  public void setUp() throws Exception {
+    base = MediaPackageBuilderFactory.newInstance().newMediaPackageBuilder().createNew();
+    base.setTitle("title");
+    base.add(track("presenter-source", "presenter/source"));
+    base.add(track("presentation-source", "presentation/source"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (service != null) {
+      dao.deactivate();
+      service.deactivate();
+      FileUtils.deleteQuietly(sRoot);
+    }
+  }
+
+  private static Track track(String id, String flavor) throws Exception {
+    Track track = TrackImpl.fromURI(new URI("http://localhost/" + id));
+    track.setIdentifier(id);
+    track.setFlavor(MediaPackageElementFlavor.parseFlavor(flavor));
+    return track;
+  }
+
+  @Test
+  public void testMergeAddedElements() throws Exception {
+    MediaPackage presenter = (MediaPackage) base.clone();
+    presenter.add(track("presenter-delivery", "presenter/delivery"));
+    MediaPackage presentation = (MediaPackage) base.clone();
+    presentation.add(track("presentation-delivery", "presentation/delivery"));
+
+    MediaPackage merged = ParallelOperationsWorker.merge(base, Arrays.asList(presenter, presentation));
+    assertEquals(4, merged.getTracks().length);
+    assertNotNull(merged.getElementById("presenter-delivery"));
+    assertNotNull(merged.getElementById("presentation-delivery"));
+    assertEquals(2, base.getTracks().length);
+  }
+
+  @Test
+  public void testMergeModifiedAndRemovedElements() throws Exception {
+    MediaPackage presenter = (MediaPackage) base.clone();
+    presenter.getElementById("presenter-source").setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/work"));
+    presenter.setTitle("new title");
+    MediaPackage presentation = (MediaPackage) base.clone();
+    presentation.remove(presentation.getElementById("presentation-source"));
+
+    MediaPackage merged = ParallelOperationsWorker.merge(base, Arrays.asList(presenter, presentation));
+    assertEquals(1, merged.getTracks().length);
+    assertEquals("presenter/work", merged.getElementById("presenter-source").getFlavor().toString());
+    assertNull(merged.getElementById("presentation-source"));
+    assertEquals("new title", merged.getTitle());
+  }
+
+  @Test
+  public void testMergeConflictingChanges() throws Exception {
+    MediaPackage first = (MediaPackage) base.clone();
+    first.getElementById("presenter-source").setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/first"));
+    MediaPackage second = (MediaPackage) base.clone();
+    second.getElementById("presenter-source").setFlavor(MediaPackageElementFlavor.parseFlavor("presenter/second"));
+
+    MediaPackage merged = ParallelOperationsWorker.merge(base, Arrays.asList(first, second));
+    assertEquals(2, merged.getTracks().length);
+    assertEquals("presenter/second", merged.getElementById("presenter-source").getFlavor().toString());
+  }
+
+  @Test
+  public void testBranchSerialization() throws Exception {
+    WorkflowDefinitionImpl def = new WorkflowDefinitionImpl();
+    def.setId("parallel");
+    WorkflowOperationDefinitionImpl presenter = new WorkflowOperationDefinitionImpl("compose", "Encode", null, true);
+    presenter.setBranch("presenter");
+    def.add(presenter);
+    def.add(new WorkflowOperationDefinitionImpl("publish", "Publish", null, true));
+
+    WorkflowDefinition parsedDef = WorkflowParser.parseWorkflowDefinition(WorkflowParser.toXml(def));
+    assertEquals("presenter", parsedDef.getOperations().get(0).getBranch());
+    assertNull(parsedDef.getOperations().get(1).getBranch());
+
+    WorkflowInstance instance = new WorkflowInstanceImpl(parsedDef, base, null, null, null, null);
+    WorkflowInstance parsed = WorkflowParser.parseWorkflowInstance(WorkflowParser.toXml(instance));
+    assertEquals("presenter", parsed.getOperations().get(0).getBranch());
+    assertNull(parsed.getOperations().get(1).getBranch());
+    assertEquals(true, ParallelOperationsWorker.isParallel(parsed.getCurrentOperation()));
+  }
+
+  @Test
+  public void testRunParallelSection() throws Exception {
+    setUpService();
+    // Both branches need to arrive at the barrier, which they only do if they are running at the same time
+    barrier = new CyclicBarrier(2);
+
+    WorkflowInstance instance = startAndWait(definition("/workflow-definition-parallel.xml"));
+    assertEquals(WorkflowState.SUCCEEDED, instance.getState());
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(0).getState());
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(1).getState());
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(2).getState());
+
+    // The operation after the join sees the elements and properties of both branches
+    assertNotNull(joined);
+    assertEquals(4, joined.getTracks().length);
+    assertNotNull(joined.getElementById("presenter-delivery"));
+    assertNotNull(joined.getElementById("presentation-delivery"));
+    assertEquals(4, instance.getMediaPackage().getTracks().length);
+    assertEquals("done", instance.getConfiguration("presenter"));
+    assertEquals("done", instance.getConfiguration("presentation"));
+  }
+
+  @Test
+  public void testFailingBranch() throws Exception {
+    setUpService();
+
+    WorkflowInstance instance = startAndWait(definition("/workflow-definition-parallel-failing.xml"));
+    assertEquals(WorkflowState.FAILED, instance.getState());
+
+    // The failing branch stops at the failed operation
+    assertEquals(OperationState.FAILED, instance.getOperations().get(0).getState());
+    assertEquals(OperationState.SKIPPED, instance.getOperations().get(1).getState());
+    assertEquals(0, presenterRuns.get());
+
+    // The sibling branch still completes and its results are kept
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(2).getState());
+    assertNotNull(instance.getMediaPackage().getElementById("presentation-delivery"));
+    assertEquals("done", instance.getConfiguration("presentation"));
+
+    // The workflow does not continue after the join
+    assertEquals(OperationState.INSTANTIATED, instance.getOperations().get(3).getState());
+    assertNull(joined);
+  }
+
+  @Test
+  public void testAsyncBranches() throws Exception {
+    setUpService();
+    WorkflowDefinition definition = definition("/workflow-definition-parallel-async.xml");
+
+    WorkflowStateListener stateListener = new WorkflowStateListener(WorkflowState.SUCCEEDED, WorkflowState.FAILED);
+    service.addWorkflowListener(stateListener);
+    WorkflowInstance instance = null;
+    synchronized (stateListener) {
+      instance = service.start(definition, base, Collections.<String, String> emptyMap());
+
+      // Both branches wait for their jobs on the job monitor instead of keeping a thread
+      long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (service.getJobMonitor().size() < 2 && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50);
+      }
+      assertEquals(2, service.getJobMonitor().size());
+      assertEquals(0, ((ThreadPoolExecutor) service.blockingExecutorService).getActiveCount());
+
+      for (Job job : branchJobs) {
+        job.setStatus(Job.Status.FINISHED);
+        serviceRegistry.updateJob(job);
+      }
+      stateListener.wait();
+    }
+    service.removeWorkflowListener(stateListener);
+
+    instance = service.getWorkflowById(instance.getId());
+    assertEquals(WorkflowState.SUCCEEDED, instance.getState());
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(0).getState());
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(1).getState());
+    assertEquals(OperationState.SUCCEEDED, instance.getOperations().get(2).getState());
+    assertEquals(0, service.getJobMonitor().size());
+    assertNotNull(joined);
+    assertEquals(4, joined.getTracks().length);
+    assertEquals("done", instance.getConfiguration("presenter"));
+    assertEquals("done", instance.getConfiguration("presentation"));
+  }
+
+  /**
+   * Sets up a workflow service running the operations of the test workflows.
+   */
+  private void setUpService() throws Exception {
+    sRoot = new File("." + File.separator + "target" + File.separator + System.currentTimeMillis());
+    FileUtils.forceMkdir(sRoot);
+
+    final Set<HandlerRegistration> handlerRegistrations = new HashSet<HandlerRegistration>();
+    handlerRegistrations.add(new HandlerRegistration("presenter", new BranchWorkflowOperationHandler("presenter")));
+    handlerRegistrations.add(new HandlerRegistration("presentation",
+            new BranchWorkflowOperationHandler("presentation")));
+    handlerRegistrations.add(new HandlerRegistration("async-presenter",
+            new AsyncBranchWorkflowOperationHandler("presenter")));
+    handlerRegistrations.add(new HandlerRegistration("async-presentation",
+            new AsyncBranchWorkflowOperationHandler("presentation")));
+    handlerRegistrations.add(new HandlerRegistration("failing", new FailingWorkflowOperationHandler()));
+    handlerRegistrations.add(new HandlerRegistration("join", new JoinWorkflowOperationHandler()));
+
+    service = new WorkflowServiceImpl() {
+      @Override
+      public Set<HandlerRegistration> getRegisteredHandlers() {
+        return handlerRegistrations;
+      }
+    };
+    service.addWorkflowDefinitionScanner(new WorkflowDefinitionScanner());
+    MediaPackageMetadataService mds = EasyMock.createNiceMock(MediaPackageMetadataService.class);
+    EasyMock.replay(mds);
+    service.addMetadataService(mds);
+
+    SecurityService securityService = EasyMock.createNiceMock(SecurityService.class);
+    EasyMock.expect(securityService.getUser()).andReturn(DEFAULT_ORG_ADMIN).anyTimes();
+    EasyMock.expect(securityService.getOrganization()).andReturn(new DefaultOrganization()).anyTimes();
+    EasyMock.replay(securityService);
+    service.setSecurityService(securityService);
+
+    UserDirectoryService userDirectoryService = EasyMock.createMock(UserDirectoryService.class);
+    EasyMock.expect(userDirectoryService.loadUser((String) EasyMock.anyObject())).andReturn(DEFAULT_ORG_ADMIN)
+            .anyTimes();
+    EasyMock.replay(userDirectoryService);
+    service.setUserDirectoryService(userDirectoryService);
+
+    Organization organization = new DefaultOrganization();
+    List<Organization> organizationList = new ArrayList<Organization>();
+    organizationList.add(organization);
+    OrganizationDirectoryService organizationDirectoryService = EasyMock.createMock(OrganizationDirectoryService.class);
+    EasyMock.expect(organizationDirectoryService.getOrganizations()).andReturn(organizationList).anyTimes();
+    EasyMock.expect(organizationDirectoryService.getOrganization((String) EasyMock.anyObject()))
+            .andReturn(organization).anyTimes();
+    EasyMock.replay(organizationDirectoryService);
+    service.setOrganizationDirectoryService(organizationDirectoryService);
+
+    serviceRegistry = new ServiceRegistryInMemoryImpl(service, securityService, userDirectoryService,
+            organizationDirectoryService, EasyMock.createNiceMock(IncidentService.class));
+    for (HandlerRegistration registration : handlerRegistrations) {
+      ((AbstractWorkflowOperationHandler) registration.getHandler()).setServiceRegistry(serviceRegistry);
+    }
+
+    MessageSender messageSender = EasyMock.createNiceMock(MessageSender.class);
+    EasyMock.replay(messageSender);
+
+    AuthorizationService authzService = EasyMock.createNiceMock(AuthorizationService.class);
+    EasyMock.expect(authzService.getActiveAcl((MediaPackage) EasyMock.anyObject()))
+            .andReturn(Tuple.tuple(new AccessControlList(), AclScope.Series)).anyTimes();
+    EasyMock.replay(authzService);
+    service.setAuthorizationService(authzService);
+
+    dao = new WorkflowServiceSolrIndex();
+    dao.solrRoot = sRoot + File.separator + "solr." + System.currentTimeMillis();
+    dao.setServiceRegistry(serviceRegistry);
+    dao.setSecurityService(securityService);
+    dao.setAuthorizationService(authzService);
+    dao.setOrgDirectory(organizationDirectoryService);
+    dao.activate("System Admin");
+
+    service.setDao(dao);
+    service.setServiceRegistry(serviceRegistry);
+    service.setMessageSender(messageSender);
+    service.activate(null);
+  }
+
+  private WorkflowDefinition definition(String resource) throws Exception {
+    InputStream is = null;
+    try {
+      is = ParallelOperationsWorkerTest.class.getResourceAsStream(resource);
+      WorkflowDefinition definition = WorkflowParser.parseWorkflowDefinition(is);
+      service.registerWorkflowDefinition(definition);
+      return definition;
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  /**
+   * Starts the workflow and waits for it to either succeed or fail.
+   */
+  private WorkflowInstance startAndWait(WorkflowDefinition definition) throws Exception {
+    WorkflowStateListener stateListener = new WorkflowStateListener(WorkflowState.SUCCEEDED, WorkflowState.FAILED);
+    service.addWorkflowListener(stateListener);
+    WorkflowInstance instance = null;
+    synchronized (stateListener) {
+      instance = service.start(definition, base, Collections.<String, String> emptyMap());
+      stateListener.wait();
+    }
+    service.removeWorkflowListener(stateListener);
+    return service.getWorkflowById(instance.getId());
+  }
+
+  /** Adds a delivery track for its flavor type and marks itself as done in the workflow properties. */
+  private class BranchWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
+
+    private final String type;
+
+    BranchWorkflowOperationHandler(String type) {
+      this.type = type;
+    }
+
+    @Override
+    public SortedMap<String, String> getConfigurationOptions() {
+      return new TreeMap<String, String>();
+    }
+
+    @Override
+    public String getId() {
+      return type;
+    }
+
+    @Override
+    public String getDescription() {
+      return "BranchWorkflowOperationHandler";
+    }
+
+    @Override
+    public WorkflowOperationResult start(WorkflowInstance workflowInstance, JobContext context)
+            throws WorkflowOperationException {
+      if ("presenter".equals(type))
+        presenterRuns.incrementAndGet();
+      try {
+        if (barrier != null)
+          barrier.await(10, TimeUnit.SECONDS);
+        MediaPackage mp = workflowInstance.getMediaPackage();
+        mp.add(track(type + "-delivery", type + "/delivery"));
+        Map<String, String> properties = new TreeMap<String, String>();
+        properties.put(type, "done");
+        return createResult(mp, properties, Action.CONTINUE, 0);
+      } catch (Exception e) {
+        throw new WorkflowOperationException(e);
+      }
+    }
+  }
+
+  /** Waits for a job of its own before it does the work of a {@link BranchWorkflowOperationHandler}. */
+  private class AsyncBranchWorkflowOperationHandler extends BranchWorkflowOperationHandler implements
+          AsyncWorkflowOperationHandler {
+
+    AsyncBranchWorkflowOperationHandler(String type) {
+      super(type);
+    }
+
+    @Override
+    public WorkflowOperationResult start(WorkflowInstance workflowInstance, JobContext context)
+            throws WorkflowOperationException {
+      try {
+        Job job = serviceRegistry.createJob("test", "wait", null, null, false);
+        branchJobs.add(job);
+        return createWaitResult(workflowInstance.getMediaPackage(), job);
+      } catch (ServiceRegistryException e) {
+        throw new WorkflowOperationException(e);
+      }
+    }
+
+    @Override
+    public WorkflowOperationResult jobsTerminated(WorkflowInstance workflowInstance, JobContext context,
+            JobBarrier.Result result) throws WorkflowOperationException {
+      return super.start(workflowInstance, context);
+    }
+  }
+
+  /** Fails on every invocation. */
+  private class FailingWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
+
+    @Override
+    public SortedMap<String, String> getConfigurationOptions() {
+      return new TreeMap<String, String>();
+    }
+
+    @Override
+    public String getId() {
+      return "failing";
+    }
+
+    @Override
+    public String getDescription() {
+      return "FailingWorkflowOperationHandler";
+    }
+
+    @Override
+    public WorkflowOperationResult start(WorkflowInstance workflowInstance, JobContext context)
+            throws WorkflowOperationException {
+      throw new WorkflowOperationException("This operation always fails");
+    }
+  }
+
+  /** Records the media package of the workflow once the branches have been joined. */
+  private class JoinWorkflowOperationHandler extends AbstractWorkflowOperationHandler {
+
+    @Override
+    public SortedMap<String, String> getConfigurationOptions() {
+      return new TreeMap<String, String>();
+    }
+
+    @Override
+    public String getId() {
+      return "join";
+    }
+
+    @Override
+    public String getDescription() {
+      return "JoinWorkflowOperationHandler";
+    }
+
+    @Override
+    public WorkflowOperationResult start(WorkflowInstance workflowInstance, JobContext context)
+            throws WorkflowOperationException {
+      joined = workflowInstance.getMediaPackage();
+      return createResult(joined, Action.CONTINUE);
+    }
+  }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workflow.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.opencastproject.job.api.Job;
+import org.opencastproject.job.api.JobBarrier;
+import org.opencastproject.job.api.JobImpl;
+import org.opencastproject.serviceregistry.api.ServiceRegistry;
+import org.opencastproject.util.JobCanceledException;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Test cases for {@link WorkflowJobMonitor}.
+ */
+public class WorkflowJobMonitorTest {
+
+  private Job job1;
+  private Job job2;
+  private WorkflowJobMonitor monitor;
+  private RecordingCallback callback;
+
+  @Before
+  public void setUp() throws Exception {
+    job1 = new JobImpl(1);
+    job1.setStatus(Job.Status.RUNNING);
+    job2 = new JobImpl(2);
+    job2.setStatus(Job.Status.QUEUED);
+
+    ServiceRegistry serviceRegistry = EasyMock.createNiceMock(ServiceRegistry.class);
+    EasyMock.expect(serviceRegistry.getJob(1)).andAnswer(new Copy(job1)).anyTimes();
+    EasyMock.expect(serviceRegistry.getJob(2)).andAnswer(new Copy(job2)).anyTimes();
+    EasyMock.replay(serviceRegistry);
+
+    // Polling is triggered manually
+    monitor = new WorkflowJobMonitor(serviceRegistry, Long.MAX_VALUE);
+    callback = new RecordingCallback();
+  }
+
+  @After
+  public void tearDown() {
+    monitor.shutdown();
+  }
+
+  @Test
+  public void testJobsTerminated() throws Exception {
+    monitor.waitFor(Arrays.asList(new JobImpl(1), new JobImpl(2)), callback);
+    monitor.poll();
+    assertNull(callback.result);
+
+    job1.setStatus(Job.Status.FINISHED);
+    job1.setPayload("payload");
+    monitor.poll();
+    assertNull(callback.result);
+    assertEquals(1, monitor.size());
+
+    job2.setStatus(Job.Status.FAILED);
+    monitor.poll();
+    assertEquals(0, monitor.size());
+    assertEquals(2, callback.result.getStatus().size());
+    assertFalse(callback.result.isSuccess());
+    for (Job job : callback.result.getStatus().keySet()) {
+      if (job.getId() == 1) {
+        assertEquals(Job.Status.FINISHED, job.getStatus());
+        assertEquals("payload", job.getPayload());
+      } else {
+        assertEquals(Job.Status.FAILED, job.getStatus());
+      }
+    }
+    assertNull(callback.failure);
+  }
+
+  @Test
+  public void testJobCanceled() throws Exception {
+    monitor.waitFor(Arrays.asList(new JobImpl(1), new JobImpl(2)), callback);
+    job2.setStatus(Job.Status.CANCELED);
+    monitor.poll();
+    assertEquals(0, monitor.size());
+    assertNull(callback.result);
+    assertTrue(callback.failure instanceof JobCanceledException);
+  }
+
+  @Test
+  public void testNoJobs() throws Exception {
+    monitor.waitFor(Collections.<Job> emptyList(), callback);
+    assertEquals(0, monitor.size());
+    assertTrue(callback.result.getStatus().isEmpty());
+  }
+
+  /** Answers with a copy of the job's current status, like a service registry would. */
+  private static final class Copy implements IAnswer<Job> {
+    private final Job job;
+
+    Copy(Job job) {
+      this.job = job;
+    }
+
+    @Override
+    public Job answer() throws Throwable {
+      Job copy = new JobImpl(job.getId());
+      copy.setStatus(job.getStatus());
+      copy.setPayload(job.getPayload());
+      return copy;
+    }
+  }
+
+  private static final class RecordingCallback implements WorkflowJobMonitor.Callback {
+    private JobBarrier.Result result;
+    private Throwable failure;
+
+    @Override
+    public void jobsTerminated(JobBarrier.Result result) {
+      this.result = result;
+    }
+
+    @Override
+    public void waitFailed(Throwable t) {
+      this.failure = t;
+    }
+  }
+
+}
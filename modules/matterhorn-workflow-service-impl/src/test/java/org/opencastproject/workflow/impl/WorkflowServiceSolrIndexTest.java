@@ -50,6 +50,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -122,6 +123,18 @@ public class WorkflowServiceSolrIndexTest {
     assertEquals(expected, solrQuery);
   }
 
+  /**
+   * Tests whether the query is built properly, using OR rather than AND, when supplying multiple media packages
+   */
+  @Test
+  public void testBuildMultiMediaPackageQuery() throws Exception {
+    WorkflowQuery q = new WorkflowQuery().withMediaPackages(Arrays.asList("123", "456", "123", " "))
+            .withSeriesId("series1");
+    String solrQuery = dao.createQuery(q, Permissions.Action.READ.toString(), true);
+    String expected = "oc_org:mh_default_org AND mediapackageid:(123 OR 456) AND seriesid:series1";
+    assertEquals(expected, solrQuery);
+  }
+
   /**
    * Tests whether the query is built properly, using OR rather than AND, when supplying multiple inclusive states
    */
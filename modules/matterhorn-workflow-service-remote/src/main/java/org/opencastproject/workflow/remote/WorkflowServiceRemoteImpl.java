@@ -174,6 +174,10 @@ public class WorkflowServiceRemoteImpl extends RemoteBase implements WorkflowSer
     if (query.getMediaPackageId() != null)
       queryStringParams.add(new BasicNameValuePair("mp", query.getMediaPackageId()));
 
+    for (String mediaPackageId : query.getMediaPackageIds()) {
+      queryStringParams.add(new BasicNameValuePair("mp", mediaPackageId));
+    }
+
     if (query.getWorkflowDefinitionId() != null)
       queryStringParams.add(new BasicNameValuePair("workflowdefinition", query.getWorkflowDefinitionId()));
 
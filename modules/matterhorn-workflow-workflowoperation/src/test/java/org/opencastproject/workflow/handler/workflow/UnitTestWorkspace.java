@@ -20,6 +20,8 @@
  */
 package org.opencastproject.workflow.handler.workflow;
 
+import org.opencastproject.util.Checksum;
+import org.opencastproject.util.ChecksumType;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.IoSupport;
 import org.opencastproject.util.NotFoundException;
@@ -61,6 +63,11 @@ public class UnitTestWorkspace implements Workspace {
     return new File(uri);
   }
 
+  @Override
+  public String md5(File file) throws IOException {
+    return Checksum.create(ChecksumType.DEFAULT_TYPE, file).getValue();
+  }
+
   @Override
   public URI getBaseUri() {
     return baseDir.toURI();
@@ -39,7 +39,14 @@ import java.net.URI;
 public interface Workspace extends StorageUsage {
 
   /**
-   * Gets a locally cached {@link File} for the given URI.
+   * The extension of the file stored next to a workspace file holding the md5 checksum of its content. Use
+   * {@link #md5(File)} to read it, since the checksum is only valid as long as the workspace file has not changed.
+   */
+  String MD5_EXTENSION = ".md5";
+
+  /**
+   * Gets a locally cached {@link File} for the given URI. If its checksum is known, it is stored next to the file in a
+   * file with the {@link #MD5_EXTENSION} appended to its name.
    *
    * @param uri
    * @return The locally cached file
@@ -50,6 +57,18 @@ public interface Workspace extends StorageUsage {
    */
   File get(URI uri) throws NotFoundException, IOException;
 
+  /**
+   * Returns the md5 checksum of a file in the workspace. The checksum stored next to the file is used if the file has
+   * not changed since, otherwise it is calculated from the file's content and stored for the next call.
+   *
+   * @param file
+   *          the workspace file, as returned by {@link #get(URI)}
+   * @return the md5 checksum in hexadecimal notation
+   * @throws IOException
+   *           if reading the file fails
+   */
+  String md5(File file) throws IOException;
+
   /**
    * Gets the base URI for files stored using this service.
    *
@@ -0,0 +1,477 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workspace.impl;
+
+import org.opencastproject.security.api.TrustedHttpClient;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Downloads a file with several concurrent HTTP range requests.
+ * <p>
+ * The file is preallocated as <code>&lt;name&gt;.part</code> next to its destination and every segment is written to
+ * its position as it arrives. The progress of the segments is recorded in <code>&lt;name&gt;.part.state</code>
+ * together with the entity tag of the remote file, so that an interrupted download is resumed from what is already on
+ * disk as long as the remote file did not change. Once complete, the file is moved to its destination.
+ * <p>
+ * Callers are expected to hold the workspace lock of the destination file.
+ */
+final class RangedDownload {
+
+  /** The logging facility */
+  private static final Logger logger = LoggerFactory.getLogger(RangedDownload.class);
+
+  /** Default minimum size of a segment, smaller files are fetched with the initial request only */
+  static final long DEFAULT_SEGMENT_SIZE = 16L * 1024L * 1024L;
+
+  /** Number of attempts to fetch a segment before the download is given up */
+  static final int ATTEMPTS = 3;
+
+  /** Number of bytes a segment downloads between two progress checkpoints */
+  private static final long CHECKPOINT_SIZE = 8L * 1024L * 1024L;
+
+  /** Size of the copy buffer of a segment */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Suffix of the file the download is written to */
+  static final String PART_SUFFIX = ".part";
+
+  /** Suffix of the file keeping track of the download progress */
+  static final String STATE_SUFFIX = ".part.state";
+
+  /** Pattern of the content range header value of a partial response */
+  private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+  /** Pattern of an entity tag which is the md5 checksum of the file, as used by the working file repository */
+  private static final Pattern MD5_TAG = Pattern.compile("\"?([0-9a-fA-F]{32})\"?");
+
+  /** Executes the segment requests */
+  private final ExecutorService executor;
+
+  /** The maximum number of concurrent requests per file */
+  private final int connections;
+
+  /** The minimum size of a segment */
+  private final long segmentSize;
+
+  /**
+   * Creates a new ranged download helper.
+   *
+   * @param executor
+   *          the executor running the segment requests, it needs to provide <code>connections</code> threads
+   * @param connections
+   *          the maximum number of concurrent requests per file
+   * @param segmentSize
+   *          the minimum size of a segment
+   */
+  RangedDownload(ExecutorService executor, int connections, long segmentSize) {
+    if (connections < 1)
+      throw new IllegalArgumentException("At least one connection is required");
+    if (segmentSize < 1)
+      throw new IllegalArgumentException("Segment size must be positive");
+    this.executor = executor;
+    this.connections = connections;
+    this.segmentSize = segmentSize;
+  }
+
+  /**
+   * Downloads <code>src</code> to <code>dst</code>, resuming an earlier attempt if possible.
+   *
+   * @param client
+   *          the http client
+   * @param src
+   *          the remote file
+   * @param dst
+   *          the destination file
+   * @return the md5 checksum of the file downloaded to <code>dst</code> or <code>null</code> if the server did not
+   *         answer with a usable partial response and the file has to be downloaded in a single request
+   * @throws IOException
+   *           if the download failed, in which case what has been fetched so far is kept for the next attempt
+   */
+  String download(TrustedHttpClient client, URI src, File dst) throws IOException {
+    final File part = new File(dst.getParentFile(), dst.getName() + PART_SUFFIX);
+    final File stateFile = new File(dst.getParentFile(), dst.getName() + STATE_SUFFIX);
+
+    State state = State.load(stateFile);
+    if (state != null && part.isFile() && part.length() == state.length) {
+      if (isUnchanged(client, src, state)) {
+        logger.info("Resuming download of {} to {} with {} of {} bytes on disk", src, dst.getAbsolutePath(),
+                state.getDone(), state.length);
+      } else {
+        logger.info("{} has changed since the download to {} was interrupted, starting over", src,
+                dst.getAbsolutePath());
+        state = null;
+      }
+    } else {
+      state = null;
+    }
+
+    if (state == null) {
+      FileUtils.deleteQuietly(part);
+      FileUtils.deleteQuietly(stateFile);
+      state = start(client, src, part, stateFile);
+      if (state == null)
+        return null;
+    }
+
+    fetch(client, src, part, stateFile, state);
+
+    // Make sure the segments have been assembled correctly
+    final String md5 = md5(part);
+    final Matcher tag = MD5_TAG.matcher(state.etag);
+    if (tag.matches() && !tag.group(1).equalsIgnoreCase(md5)) {
+      FileUtils.deleteQuietly(part);
+      FileUtils.deleteQuietly(stateFile);
+      throw new IOException("Checksum of " + src + " does not match after download");
+    }
+
+    try {
+      Files.move(part.toPath(), dst.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      // e.g. the destination cannot be replaced while it is locked
+      FileUtils.copyFile(part, dst);
+      FileUtils.deleteQuietly(part);
+    }
+    FileUtils.deleteQuietly(stateFile);
+    return md5;
+  }
+
+  /**
+   * Requests the beginning of the file. The response tells the length and the entity tag of the file and is written
+   * to the beginning of the first segment.
+   *
+   * @return the state of the new download or <code>null</code> if the server did not answer with a usable partial
+   *         response
+   */
+  private State start(TrustedHttpClient client, URI src, File part, File stateFile) throws IOException {
+    final HttpResponse response = client.execute(createRangeRequest(src, 0, segmentSize - 1, null));
+    if (response == null)
+      return null;
+    try {
+      final long[] range = getContentRange(response);
+      final String etag = getEntityTag(response);
+      if (range == null || range[0] != 0 || etag == null) {
+        logger.debug("{} cannot be downloaded in ranges (status {})", src, response.getStatusLine().getStatusCode());
+        return null;
+      }
+
+      final State state = new State(etag, range[2], segmentSize, connections);
+      logger.info("Downloading {} to {} in {} segments", src, part.getAbsolutePath(), state.starts.length);
+      try (RandomAccessFile raf = new RandomAccessFile(part, "rw")) {
+        raf.setLength(state.length);
+        state.save(stateFile);
+        final FileChannel channel = raf.getChannel();
+        try (InputStream in = response.getEntity().getContent()) {
+          copy(in, channel, state, 0, range[1], stateFile);
+        }
+        state.checkpoint(channel, stateFile);
+      }
+      return state;
+    } finally {
+      client.close(response);
+    }
+  }
+
+  /** Checks whether the remote file is still the one an interrupted download has been started with. */
+  private boolean isUnchanged(TrustedHttpClient client, URI src, State state) throws IOException {
+    final HttpResponse response = client.execute(createRangeRequest(src, 0, 0, null));
+    if (response == null)
+      return false;
+    try {
+      final long[] range = getContentRange(response);
+      return range != null && range[2] == state.length && state.etag.equals(getEntityTag(response));
+    } finally {
+      client.close(response);
+    }
+  }
+
+  /** Fetches the missing parts of all segments concurrently. */
+  private void fetch(final TrustedHttpClient client, final URI src, File part, final File stateFile,
+          final State state) throws IOException {
+    try (RandomAccessFile raf = new RandomAccessFile(part, "rw")) {
+      final FileChannel channel = raf.getChannel();
+      final List<Future<Void>> segments = new ArrayList<Future<Void>>();
+      for (int i = 0; i < state.starts.length; i++) {
+        if (state.isComplete(i))
+          continue;
+        final int segment = i;
+        segments.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            fetchSegment(client, src, channel, state, segment, stateFile);
+            return null;
+          }
+        }));
+      }
+
+      IOException failure = null;
+      for (Future<Void> segment : segments) {
+        try {
+          segment.get();
+        } catch (InterruptedException e) {
+          for (Future<Void> f : segments) {
+            f.cancel(true);
+          }
+          Thread.currentThread().interrupt();
+          failure = new InterruptedIOException("Interrupted while downloading " + src);
+          break;
+        } catch (ExecutionException e) {
+          if (failure == null)
+            failure = e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+      }
+      state.checkpoint(channel, stateFile);
+      if (failure != null)
+        throw failure;
+    }
+  }
+
+  /** Fetches the missing part of a segment, retrying on failure. */
+  private void fetchSegment(TrustedHttpClient client, URI src, FileChannel channel, State state, int segment,
+          File stateFile) throws IOException, InterruptedException {
+    for (int attempt = 1; !state.isComplete(segment); attempt++) {
+      final long from = state.position(segment);
+      final long to = state.ends[segment];
+      HttpResponse response = null;
+      try {
+        response = client.execute(createRangeRequest(src, from, to, state.etag));
+        final long[] range = response == null ? null : getContentRange(response);
+        if (range == null || range[0] != from || range[2] != state.length)
+          throw new IOException("Unexpected response to range request " + from + "-" + to + " of " + src);
+        try (InputStream in = response.getEntity().getContent()) {
+          copy(in, channel, state, segment, to, stateFile);
+        }
+        if (!state.isComplete(segment))
+          throw new IOException("Premature end of range " + from + "-" + to + " of " + src);
+      } catch (IOException e) {
+        if (attempt >= ATTEMPTS)
+          throw e;
+        logger.warn("Attempt {} to fetch range {}-{} of {} failed: {}", attempt, from, to, src, e.getMessage());
+        Thread.sleep(1000L * attempt);
+      } finally {
+        if (response != null)
+          client.close(response);
+      }
+    }
+  }
+
+  /** Writes a response body to the position of a segment, recording the progress. */
+  private static void copy(InputStream in, FileChannel channel, State state, int segment, long end, File stateFile)
+          throws IOException {
+    final ReadableByteChannel body = Channels.newChannel(in);
+    final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    long sinceCheckpoint = 0;
+    long position = state.position(segment);
+    while (position <= end) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), end - position + 1));
+      final int read = body.read(buffer);
+      if (read < 0)
+        break;
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      state.progress(segment, read);
+      sinceCheckpoint += read;
+      if (sinceCheckpoint >= CHECKPOINT_SIZE) {
+        state.checkpoint(channel, stateFile);
+        sinceCheckpoint = 0;
+      }
+    }
+  }
+
+  /** Create a get request for a range of the given URI. */
+  private static HttpGet createRangeRequest(URI src, long from, long to, String etag) {
+    final HttpGet get = new HttpGet(src);
+    get.setHeader("Range", "bytes=" + from + "-" + to);
+    if (etag != null)
+      get.setHeader("If-Range", etag);
+    return get;
+  }
+
+  /**
+   * Returns start, end and total length of a partial response.
+   *
+   * @return the content range or <code>null</code> if the response is not a partial response with a known length
+   */
+  private static long[] getContentRange(HttpResponse response) {
+    if (response.getStatusLine().getStatusCode() != HttpServletResponse.SC_PARTIAL_CONTENT)
+      return null;
+    final Header header = response.getFirstHeader("Content-Range");
+    if (header == null)
+      return null;
+    final Matcher m = CONTENT_RANGE.matcher(header.getValue().trim());
+    if (!m.matches())
+      return null;
+    return new long[] { Long.parseLong(m.group(1)), Long.parseLong(m.group(2)), Long.parseLong(m.group(3)) };
+  }
+
+  /** Returns the strong entity tag of a response or <code>null</code> if there is none. */
+  private static String getEntityTag(HttpResponse response) {
+    final Header header = response.getFirstHeader("ETag");
+    if (header == null || StringUtils.isBlank(header.getValue()) || header.getValue().startsWith("W/"))
+      return null;
+    return header.getValue().trim();
+  }
+
+  private static String md5(File file) throws IOException {
+    try (InputStream in = new FileInputStream(file)) {
+      return DigestUtils.md5Hex(in);
+    }
+  }
+
+  /** The segments of a download and how much of each segment is on disk. */
+  static final class State {
+
+    private final String etag;
+    private final long length;
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] done;
+
+    private State(String etag, long length, long[] starts, long[] ends, long[] done) {
+      this.etag = etag;
+      this.length = length;
+      this.starts = starts;
+      this.ends = ends;
+      this.done = done;
+    }
+
+    /** Splits a file into at most <code>connections</code> segments of at least <code>segmentSize</code> bytes. */
+    State(String etag, long length, long segmentSize, int connections) {
+      this.etag = etag;
+      this.length = length;
+      final int count = (int) Math.max(1, Math.min(connections, length / segmentSize));
+      final long size = (length + count - 1) / count;
+      this.starts = new long[count];
+      this.ends = new long[count];
+      this.done = new long[count];
+      for (int i = 0; i < count; i++) {
+        starts[i] = i * size;
+        ends[i] = Math.min(length, (i + 1) * size) - 1;
+      }
+    }
+
+    synchronized void progress(int segment, long bytes) {
+      done[segment] += bytes;
+    }
+
+    /** Returns the position in the file the given segment continues at. */
+    synchronized long position(int segment) {
+      return starts[segment] + done[segment];
+    }
+
+    synchronized boolean isComplete(int segment) {
+      return position(segment) > ends[segment];
+    }
+
+    synchronized long getDone() {
+      long sum = 0;
+      for (long d : done) {
+        sum += d;
+      }
+      return sum;
+    }
+
+    /** Flushes the downloaded data to disk before recording the progress, so that it never claims too much. */
+    synchronized void checkpoint(FileChannel channel, File stateFile) throws IOException {
+      channel.force(false);
+      save(stateFile);
+    }
+
+    synchronized void save(File stateFile) throws IOException {
+      final Properties p = new Properties();
+      p.setProperty("etag", etag);
+      p.setProperty("length", Long.toString(length));
+      p.setProperty("segments", Integer.toString(starts.length));
+      for (int i = 0; i < starts.length; i++) {
+        p.setProperty("segment." + i, starts[i] + "-" + ends[i] + "/" + done[i]);
+      }
+      try (OutputStream out = new FileOutputStream(stateFile)) {
+        p.store(out, null);
+      }
+    }
+
+    /** Loads the state of an interrupted download or returns <code>null</code> if there is none. */
+    static State load(File stateFile) {
+      if (!stateFile.isFile())
+        return null;
+      try (InputStream in = new FileInputStream(stateFile)) {
+        final Properties p = new Properties();
+        p.load(in);
+        final int count = Integer.parseInt(p.getProperty("segments"));
+        final long[] starts = new long[count];
+        final long[] ends = new long[count];
+        final long[] done = new long[count];
+        for (int i = 0; i < count; i++) {
+          final String[] segment = p.getProperty("segment." + i).split("[-/]");
+          starts[i] = Long.parseLong(segment[0]);
+          ends[i] = Long.parseLong(segment[1]);
+          done[i] = Long.parseLong(segment[2]);
+        }
+        final String etag = p.getProperty("etag");
+        final long length = Long.parseLong(p.getProperty("length"));
+        return etag == null ? null : new State(etag, length, starts, ends, done);
+      } catch (Exception e) {
+        logger.warn("Ignoring unreadable download state {}: {}", stateFile.getAbsolutePath(), e.getMessage());
+        return null;
+      }
+    }
+  }
+
+}
@@ -37,6 +37,7 @@ import static org.opencastproject.util.data.Prelude.sleep;
 import static org.opencastproject.util.data.Tuple.tuple;
 
 import org.opencastproject.security.api.TrustedHttpClient;
+import org.opencastproject.util.Checksum;
 import org.opencastproject.util.FileSupport;
 import org.opencastproject.util.HttpUtil;
 import org.opencastproject.util.IoSupport;
@@ -75,9 +76,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.security.DigestInputStream;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
 
 import javax.management.ObjectInstance;
 import javax.servlet.http.HttpServletResponse;
@@ -104,10 +109,20 @@ public final class WorkspaceImpl implements Workspace {
   public static final String WORKSPACE_CLEANUP_PERIOD_KEY = "org.opencastproject.workspace.cleanup.period";
   /** Configuration key for garbage collection max age. */
   public static final String WORKSPACE_CLEANUP_MAX_AGE_KEY = "org.opencastproject.workspace.cleanup.max.age";
+  /** Configuration key for the number of concurrent range requests per downloaded file. */
+  public static final String WORKSPACE_DOWNLOAD_CONNECTIONS_KEY = "org.opencastproject.workspace.download.connections";
+  /** Configuration key for the minimum size in bytes of a range downloaded by a single request. */
+  public static final String WORKSPACE_DOWNLOAD_SEGMENT_SIZE_KEY = "org.opencastproject.workspace.download.segment.size";
+
+  /** Default number of concurrent range requests per downloaded file */
+  private static final int DEFAULT_DOWNLOAD_CONNECTIONS = 4;
 
   /** Workspace JMX type */
   private static final String JMX_WORKSPACE_TYPE = "Workspace";
 
+  /** Pattern of a valid md5 checksum */
+  private static final Pattern MD5_PATTERN = Pattern.compile("[0-9a-fA-F]{32}");
+
   /** Unknown file name string */
   private static final String UNKNOWN_FILENAME = "unknown";
 
@@ -138,6 +153,12 @@ public final class WorkspaceImpl implements Workspace {
   /** The workspce cleaner */
   private WorkspaceCleaner workspaceCleaner = null;
 
+  /** Runs the range requests of downloads */
+  private ExecutorService downloadExecutor = null;
+
+  /** Downloads files in ranges, <code>null</code> if disabled */
+  private RangedDownload rangedDownload = null;
+
   public WorkspaceImpl() {
   }
 
@@ -244,6 +265,35 @@ public final class WorkspaceImpl implements Workspace {
       }
     }
 
+    // Set up ranged downloads
+    int downloadConnections = DEFAULT_DOWNLOAD_CONNECTIONS;
+    if (ensureContextProp(cc, WORKSPACE_DOWNLOAD_CONNECTIONS_KEY)) {
+      String connections = cc.getBundleContext().getProperty(WORKSPACE_DOWNLOAD_CONNECTIONS_KEY);
+      try {
+        downloadConnections = Integer.parseInt(connections);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace download connections ({}={})",
+                WORKSPACE_DOWNLOAD_CONNECTIONS_KEY, connections);
+      }
+    }
+    long downloadSegmentSize = RangedDownload.DEFAULT_SEGMENT_SIZE;
+    if (ensureContextProp(cc, WORKSPACE_DOWNLOAD_SEGMENT_SIZE_KEY)) {
+      String size = cc.getBundleContext().getProperty(WORKSPACE_DOWNLOAD_SEGMENT_SIZE_KEY);
+      try {
+        downloadSegmentSize = Long.parseLong(size);
+      } catch (NumberFormatException e) {
+        logger.warn("Invalid configuration for workspace download segment size ({}={})",
+                WORKSPACE_DOWNLOAD_SEGMENT_SIZE_KEY, size);
+      }
+    }
+    if (downloadConnections > 0 && downloadSegmentSize > 0) {
+      downloadExecutor = Executors.newFixedThreadPool(downloadConnections);
+      rangedDownload = new RangedDownload(downloadExecutor, downloadConnections, downloadSegmentSize);
+      logger.info("Downloading files with up to {} concurrent range requests", downloadConnections);
+    } else {
+      logger.info("Ranged downloads are disabled");
+    }
+
     registeredMXBean = JmxUtil.registerMXBean(workspaceBean, JMX_WORKSPACE_TYPE);
 
     // Start cleanup scheduler if we have sensible cleanup values:
@@ -259,6 +309,9 @@ public final class WorkspaceImpl implements Workspace {
     if (workspaceCleaner != null) {
       workspaceCleaner.shutdown();
     }
+    if (downloadExecutor != null) {
+      downloadExecutor.shutdownNow();
+    }
   }
 
   @Override
@@ -278,6 +331,7 @@ public final class WorkspaceImpl implements Workspace {
           if (workspaceFileLastModified < wfrCopy.lastModified()) {
             logger.debug("Replacing {} with an updated version from the file repository", inWs.getAbsolutePath());
             locked(inWs, copyOrLink(wfrCopy));
+            copyMd5(wfrCopy, inWs);
           } else {
             logger.debug("{} is up to date", inWs);
           }
@@ -377,6 +431,22 @@ public final class WorkspaceImpl implements Workspace {
    * @return the file
    */
   private File downloadIfNecessary(final URI src, final File dst) throws IOException, NotFoundException {
+    // new files are fetched in ranges if the server supports it, which also resumes an interrupted download
+    if (rangedDownload != null && !(dst.isFile() && dst.length() > 0)
+            && ("http".equalsIgnoreCase(src.getScheme()) || "https".equalsIgnoreCase(src.getScheme()))) {
+      try {
+        String md5 = rangedDownload.download(trustedHttpClient, src, dst);
+        if (md5 != null) {
+          writeMd5(dst, md5);
+          return dst;
+        }
+      } catch (IOException e) {
+        logger.warn(format("Could not download %s to %s, keeping what has been fetched so far: %s", src.toString(),
+                dst.getAbsolutePath(), e.getMessage()));
+        FileUtils.deleteQuietly(dst);
+        throw new NotFoundException(e);
+      }
+    }
     HttpGet get = createGetRequest(src, dst);
     while (true) {
       // run the http request and handle its response
@@ -430,16 +500,18 @@ public final class WorkspaceImpl implements Workspace {
   private static File downloadTo(final HttpResponse response, final File dst) throws IOException {
     // ignore return value
     dst.createNewFile();
-    InputStream in = null;
+    DigestInputStream in = null;
     OutputStream out = null;
     try {
-      in = response.getEntity().getContent();
+      // the checksum is computed while downloading so that the file does not need to be read again
+      in = new DigestInputStream(response.getEntity().getContent(), DigestUtils.getMd5Digest());
       out = new FileOutputStream(dst);
       IOUtils.copyLarge(in, out);
     } finally {
       IoSupport.closeQuietly(in);
       IoSupport.closeQuietly(out);
     }
+    writeMd5(dst, Checksum.convertToHex(in.getMessageDigest().digest()));
     return dst;
   }
 
@@ -456,21 +528,105 @@ public final class WorkspaceImpl implements Workspace {
    * @throws IllegalStateException
    *           if <code>file</code> does not exist or is not a regular file
    */
-  protected String md5(File file) throws IOException, IllegalArgumentException, IllegalStateException {
+  @Override
+  public String md5(File file) throws IOException, IllegalArgumentException, IllegalStateException {
     if (file == null)
       throw new IllegalArgumentException("File must not be null");
     if (!file.isFile())
       throw new IllegalArgumentException("File " + file.getAbsolutePath() + " can not be read");
 
+    String md5 = readMd5(file);
+    if (md5 != null)
+      return md5;
+
     InputStream in = null;
     try {
       in = new FileInputStream(file);
-      return DigestUtils.md5Hex(in);
+      md5 = DigestUtils.md5Hex(in);
+      writeMd5(file, md5);
+      return md5;
     } finally {
       IOUtils.closeQuietly(in);
     }
   }
 
+  /**
+   * Returns the file holding the md5 checksum of a workspace file.
+   *
+   * @param file
+   *          the workspace file
+   * @return the checksum file, which may not exist
+   */
+  private static File md5File(File file) {
+    return new File(file.getPath() + MD5_EXTENSION);
+  }
+
+  /**
+   * Reads the md5 checksum stored next to a workspace file. Along with the checksum, the length and modification time
+   * the file had when the checksum was stored are kept, so that a checksum is not used after the file has been changed
+   * in place. Modification times are compared for equality since their resolution may be as coarse as a second.
+   *
+   * @param file
+   *          the workspace file
+   * @return the checksum or <code>null</code> if there is no valid checksum of the current file
+   */
+  private static String readMd5(File file) {
+    File md5File = md5File(file);
+    if (!md5File.isFile())
+      return null;
+    try {
+      String[] fields = StringUtils.split(FileUtils.readFileToString(md5File));
+      if (fields.length == 3 && MD5_PATTERN.matcher(fields[0]).matches()
+              && Long.toString(file.length()).equals(fields[1])
+              && Long.toString(file.lastModified()).equals(fields[2]))
+        return fields[0].toLowerCase();
+    } catch (IOException e) {
+      logger.debug("Unable to read the checksum of {}: {}", file, e.getMessage());
+    }
+    return null;
+  }
+
+  /**
+   * Stores the md5 checksum of a workspace file next to it, so that the file does not need to be read again to get its
+   * checksum. The file must have been completely written.
+   *
+   * @param file
+   *          the workspace file
+   * @param md5
+   *          the checksum
+   */
+  private static void writeMd5(File file, String md5) {
+    try {
+      FileUtils.writeStringToFile(md5File(file), md5 + " " + file.length() + " " + file.lastModified());
+    } catch (IOException e) {
+      logger.debug("Unable to store the checksum of {}: {}", file, e.getMessage());
+      FileUtils.deleteQuietly(md5File(file));
+    }
+  }
+
+  /**
+   * Copies the md5 checksum the working file repository stored along with a file to its workspace copy. If there is no
+   * such checksum, an outdated checksum of the workspace copy is removed.
+   *
+   * @param wfrFile
+   *          the file in the working file repository
+   * @param file
+   *          the workspace file
+   */
+  private static void copyMd5(File wfrFile, File file) {
+    File wfrMd5File = md5File(wfrFile);
+    try {
+      String md5 = wfrMd5File.isFile() ? StringUtils.trim(FileUtils.readFileToString(wfrMd5File)) : null;
+      if (md5 != null && MD5_PATTERN.matcher(md5).matches()) {
+        writeMd5(file, md5);
+        return;
+      }
+    } catch (IOException e) {
+      logger.debug("Unable to read the checksum of {}: {}", wfrFile, e.getMessage());
+    }
+    FileUtils.deleteQuietly(md5File(file));
+  }
+
   @Override
   public void delete(URI uri) throws NotFoundException, IOException {
     String uriPath = uri.toString();
@@ -498,6 +654,7 @@ public final class WorkspaceImpl implements Workspace {
       synchronized (lock) {
         File mpElementDir = f.getParentFile();
         FileUtils.forceDelete(f);
+        FileUtils.deleteQuietly(md5File(f));
         FileSupport.delete(mpElementDir);
         // Also delete mediapackage itself when empty
         FileSupport.delete(mpElementDir.getParentFile());
@@ -542,16 +699,19 @@ public final class WorkspaceImpl implements Workspace {
               mediaPackageID, mediaPackageElementID);
       File workingFileRepoCopy = new File(workingFileRepoDirectory, safeFileName);
       FileSupport.link(workingFileRepoCopy, workspaceFile, true);
+      copyMd5(workingFileRepoCopy, workspaceFile);
     } else {
+      DigestInputStream digestIn = new DigestInputStream(in, DigestUtils.getMd5Digest());
       InputStream tee = null;
       try {
         out = new FileOutputStream(workspaceFile);
-        tee = new TeeInputStream(in, out, true);
+        tee = new TeeInputStream(digestIn, out, true);
         wfr.put(mediaPackageID, mediaPackageElementID, fileName, tee);
       } finally {
         IOUtils.closeQuietly(tee);
         IOUtils.closeQuietly(out);
       }
+      writeMd5(workspaceFile, Checksum.convertToHex(digestIn.getMessageDigest().digest()));
     }
     // wait until the file appears on the WFR node
     waitForResource(uri, HttpServletResponse.SC_OK, "File %s does not appear in WFR");
@@ -651,7 +811,10 @@ public final class WorkspaceImpl implements Workspace {
       File copy = toWorkspaceFile(copyURI);
       FileUtils.forceMkdir(copy.getParentFile());
       FileUtils.deleteQuietly(copy);
+      FileUtils.deleteQuietly(md5File(copy));
       FileUtils.moveFile(original, copy);
+      if (md5File(original).isFile())
+        FileUtils.moveFile(md5File(original), md5File(copy));
       FileSupport.delete(original.getParentFile());
     }
     // move in WFR
@@ -672,6 +835,7 @@ public final class WorkspaceImpl implements Workspace {
     final File f = workspaceFile(WorkingFileRepository.COLLECTION_PATH_PREFIX, collectionId,
             PathSupport.toSafeName(fileName));
     FileUtils.deleteQuietly(f);
+    FileUtils.deleteQuietly(md5File(f));
     FileSupport.delete(f.getParentFile());
     // delete in WFR
     try {
@@ -0,0 +1,162 @@
+/**
+ * Licensed to The Apereo Foundation under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ *
+ * The Apereo Foundation licenses this file to you under the Educational
+ * Community License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License
+ * at:
+ *
+ *   http://opensource.org/licenses/ecl2.txt
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ *
+ */
+
+
+package org.opencastproject.workspace.impl;
+
+import org.opencastproject.security.api.TrustedHttpClient;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletResponse;
+
+public class RangedDownloadTest {
+
+  private static final URI SRC = URI.create("http://localhost:8080/files/mediapackage/mp/element/video.mp4");
+
+  private static final int CONNECTIONS = 4;
+
+  private static final long SEGMENT_SIZE = 1000L;
+
+  @Rule
+  public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private ExecutorService executor;
+
+  private byte[] content;
+
+  /** Number of bytes served */
+  private final AtomicLong served = new AtomicLong();
+
+  /** Whether range requests behind the first segment fail */
+  private volatile boolean failing = false;
+
+  @Before
+  public void setUp() throws Exception {
+    executor = Executors.newFixedThreadPool(CONNECTIONS);
+    content = new byte[10000];
+    new Random(42).nextBytes(content);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    executor.shutdownNow();
+  }
+
+  /** Mocks a server which supports range requests and answers with the md5 of the file as entity tag. */
+  private TrustedHttpClient createHttpClient(final boolean rangeSupport) throws Exception {
+    final TrustedHttpClient client = EasyMock.createNiceMock(TrustedHttpClient.class);
+    EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class))).andAnswer(new IAnswer<HttpResponse>() {
+      @Override
+      public HttpResponse answer() throws Throwable {
+        HttpUriRequest request = (HttpUriRequest) EasyMock.getCurrentArguments()[0];
+        if (!rangeSupport || request.getFirstHeader("Range") == null) {
+          HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpServletResponse.SC_OK, "OK");
+          response.setEntity(new ByteArrayEntity(content));
+          return response;
+        }
+        String[] range = request.getFirstHeader("Range").getValue().substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(range[0]);
+        int end = Math.min(content.length - 1, Integer.parseInt(range[1]));
+        if (failing && start >= content.length / CONNECTIONS)
+          throw new IOException("Connection reset");
+        served.addAndGet(end - start + 1);
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpServletResponse.SC_PARTIAL_CONTENT,
+                "Partial Content");
+        response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        response.setHeader("ETag", "\"" + DigestUtils.md5Hex(content) + "\"");
+        response.setEntity(new ByteArrayEntity(Arrays.copyOfRange(content, start, end + 1)));
+        return response;
+      }
+    }).anyTimes();
+    EasyMock.replay(client);
+    return client;
+  }
+
+  @Test
+  public void testDownload() throws Exception {
+    File dst = new File(testFolder.getRoot(), "video.mp4");
+    RangedDownload download = new RangedDownload(executor, CONNECTIONS, SEGMENT_SIZE);
+    Assert.assertEquals(DigestUtils.md5Hex(content), download.download(createHttpClient(true), SRC, dst));
+    Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(dst));
+    Assert.assertEquals(content.length, served.get());
+    Assert.assertFalse(new File(testFolder.getRoot(), "video.mp4" + RangedDownload.PART_SUFFIX).exists());
+    Assert.assertFalse(new File(testFolder.getRoot(), "video.mp4" + RangedDownload.STATE_SUFFIX).exists());
+  }
+
+  @Test
+  public void testNoRangeSupport() throws Exception {
+    File dst = new File(testFolder.getRoot(), "video.mp4");
+    RangedDownload download = new RangedDownload(executor, CONNECTIONS, SEGMENT_SIZE);
+    Assert.assertNull(download.download(createHttpClient(false), SRC, dst));
+    Assert.assertFalse(dst.exists());
+  }
+
+  @Test
+  public void testResume() throws Exception {
+    File dst = new File(testFolder.getRoot(), "video.mp4");
+    RangedDownload download = new RangedDownload(executor, CONNECTIONS, SEGMENT_SIZE);
+    TrustedHttpClient client = createHttpClient(true);
+
+    // Let every segment but the first one fail
+    failing = true;
+    try {
+      download.download(client, SRC, dst);
+      Assert.fail("The download should have failed");
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertFalse(dst.exists());
+    Assert.assertTrue(new File(testFolder.getRoot(), "video.mp4" + RangedDownload.STATE_SUFFIX).isFile());
+    long servedBefore = served.get();
+    Assert.assertEquals(content.length / CONNECTIONS, servedBefore);
+
+    // The second attempt only fetches what is missing
+    failing = false;
+    Assert.assertEquals(DigestUtils.md5Hex(content), download.download(client, SRC, dst));
+    Assert.assertArrayEquals(content, FileUtils.readFileToByteArray(dst));
+    Assert.assertEquals(content.length - servedBefore + 1, served.get() - servedBefore);
+  }
+
+}
@@ -31,9 +31,11 @@ import org.opencastproject.util.data.Either;
 import org.opencastproject.util.data.Function;
 import org.opencastproject.util.data.Option;
 import org.opencastproject.workingfilerepository.api.WorkingFileRepository;
+import org.opencastproject.workspace.api.Workspace;
 
 import com.entwinemedia.fn.Prelude;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
@@ -81,6 +83,30 @@ public class WorkspaceImplTest {
     FileUtils.deleteDirectory(new File(repoRoot));
   }
 
+  @Test
+  public void testMd5() throws Exception {
+    File file = testFolder.newFile("test.txt");
+    FileUtils.writeStringToFile(file, "test");
+    File md5File = new File(file.getPath() + Workspace.MD5_EXTENSION);
+    Assert.assertEquals(DigestUtils.md5Hex("test"), workspace.md5(file));
+    Assert.assertTrue(md5File.isFile());
+
+    // the stored checksum is used as long as the file is unchanged
+    String known = "0123456789abcdef0123456789abcdef";
+    FileUtils.writeStringToFile(md5File, known + " " + file.length() + " " + file.lastModified());
+    Assert.assertEquals(known, workspace.md5(file));
+
+    // a file changed within the same second is detected by its length
+    long lastModified = file.lastModified();
+    FileUtils.writeStringToFile(file, "changed");
+    file.setLastModified(lastModified);
+    Assert.assertEquals(DigestUtils.md5Hex("changed"), workspace.md5(file));
+
+    // a stored checksum without the state of the file is not trusted
+    FileUtils.writeStringToFile(md5File, known);
+    Assert.assertEquals(DigestUtils.md5Hex("changed"), workspace.md5(file));
+  }
+
   @Test
   public void testLongFilenames() throws Exception {
     WorkingFileRepository repo = EasyMock.createNiceMock(WorkingFileRepository.class);